@@ -0,0 +1,30 @@
+package co.edu.unicauca.capaDeControladores;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Map;
+import java.util.function.Consumer;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+
+/**
+ * Objeto remoto exportado por el cliente para recibir los bloques de un lote
+ * de preferencias.
+ * <p>
+ * El Servidor de Preferencias invoca {@link #recibirBloque(Map)} una vez por
+ * cada bloque calculado; esta implementación simplemente reenvía cada bloque
+ * al {@link Consumer} local indicado en el constructor.
+ */
+public class ConsumidorPreferenciasLoteIml extends UnicastRemoteObject implements ConsumidorPreferenciasLoteInt {
+
+    private final transient Consumer<Map<Integer, PreferenciasDTORespuesta>> receptor;
+
+    public ConsumidorPreferenciasLoteIml(Consumer<Map<Integer, PreferenciasDTORespuesta>> receptor) throws RemoteException {
+        super();
+        this.receptor = receptor;
+    }
+
+    @Override
+    public void recibirBloque(Map<Integer, PreferenciasDTORespuesta> bloque) throws RemoteException {
+        this.receptor.accept(bloque);
+    }
+}
@@ -0,0 +1,12 @@
+package co.edu.unicauca.capaDeControladores;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.Map;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+
+//Objeto remoto que exporta el cliente para recibir por bloques los resultados de un lote
+public interface ConsumidorPreferenciasLoteInt extends Remote {
+    //Recibe un bloque de preferencias indexado por identificador de usuario
+    public void recibirBloque(Map<Integer, PreferenciasDTORespuesta> bloque) throws RemoteException;
+}
@@ -3,7 +3,14 @@ package co.edu.unicauca.capaDeControladores;
 
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.Map;
+import co.edu.unicauca.fachadaServices.DTO.MasEscuchadosDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
 import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.RecomendacionCancionDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.TendenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.UsuarioSimilarDTORespuesta;
 import co.edu.unicauca.fachadaServices.services.FachadaGestorUsuariosIml;
 
 
@@ -20,6 +27,51 @@ public class ControladorPreferenciasUsuariosIml extends UnicastRemoteObject impl
     public PreferenciasDTORespuesta getReferencias(Integer id) throws RemoteException {
         return this.servicioFachadaPreferencias.getReferencias(id);
     }
+
+    @Override
+    public PreferenciasDTORespuesta getReferencias(Integer id, OpcionesPreferenciasDTO opciones) throws RemoteException {
+        return this.servicioFachadaPreferencias.getReferencias(id, opciones);
+    }
+
+    @Override
+    public PreferenciasDTORespuesta getReferenciasVentana(Integer id, int dias, OpcionesPreferenciasDTO opciones) throws RemoteException {
+        return this.servicioFachadaPreferencias.getReferenciasVentana(id, dias, opciones);
+    }
+
+    @Override
+    public Map<Integer, PreferenciasDTORespuesta> getReferenciasBatch(List<Integer> ids) throws RemoteException {
+        return this.servicioFachadaPreferencias.getReferenciasBatch(ids);
+    }
+
+    @Override
+    public void getReferenciasBatch(List<Integer> ids, int tamanoBloque, ConsumidorPreferenciasLoteInt consumidor) throws RemoteException {
+        this.servicioFachadaPreferencias.getReferenciasBatch(ids, tamanoBloque, consumidor);
+    }
+
+    @Override
+    public List<RecomendacionCancionDTORespuesta> getRecomendaciones(Integer id, int limite) throws RemoteException {
+        return this.servicioFachadaPreferencias.getRecomendaciones(id, limite);
+    }
+
+    @Override
+    public List<UsuarioSimilarDTORespuesta> getUsuariosSimilares(Integer id, int limite) throws RemoteException {
+        return this.servicioFachadaPreferencias.getUsuariosSimilares(id, limite);
+    }
+
+    @Override
+    public TendenciasDTORespuesta getTendencias(String desde, String hasta, int limite) throws RemoteException {
+        return this.servicioFachadaPreferencias.getTendencias(desde, hasta, limite);
+    }
+
+    @Override
+    public byte[] getResumenMasEscuchados() throws RemoteException {
+        return this.servicioFachadaPreferencias.getResumenMasEscuchados();
+    }
+
+    @Override
+    public MasEscuchadosDTORespuesta getMasEscuchados(int limite, List<byte[]> resumenesAdicionales) throws RemoteException {
+        return this.servicioFachadaPreferencias.getMasEscuchados(limite, resumenesAdicionales);
+    }
 }
 
 
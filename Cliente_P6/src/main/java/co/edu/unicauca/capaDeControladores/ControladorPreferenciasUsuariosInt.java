@@ -2,10 +2,44 @@ package co.edu.unicauca.capaDeControladores;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import co.edu.unicauca.fachadaServices.DTO.MasEscuchadosDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
 import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.RecomendacionCancionDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.TendenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.UsuarioSimilarDTORespuesta;
 
 //Hereda de la clase Remote, lo cual convierte a esta interfaz en un objeto remoto
 public interface ControladorPreferenciasUsuariosInt extends Remote {
     //Definición del método remoto
     public PreferenciasDTORespuesta getReferencias(Integer id) throws RemoteException;
+
+    //Igual que el anterior, pero devuelve solo las primeras entradas de cada lista según las opciones
+    public PreferenciasDTORespuesta getReferencias(Integer id, OpcionesPreferenciasDTO opciones) throws RemoteException;
+
+    //Igual que el anterior, pero solo con las reproducciones de los últimos días (entre 1 y 90)
+    public PreferenciasDTORespuesta getReferenciasVentana(Integer id, int dias, OpcionesPreferenciasDTO opciones) throws RemoteException;
+
+    //Calcula las preferencias de varios usuarios consultando el catálogo una sola vez
+    public Map<Integer, PreferenciasDTORespuesta> getReferenciasBatch(List<Integer> ids) throws RemoteException;
+
+    //Igual que el anterior, pero entrega los resultados por bloques al consumidor remoto del cliente
+    public void getReferenciasBatch(List<Integer> ids, int tamanoBloque, ConsumidorPreferenciasLoteInt consumidor) throws RemoteException;
+
+    //Recomienda canciones que el usuario no ha escuchado, según lo que escuchan los demás usuarios
+    public List<RecomendacionCancionDTORespuesta> getRecomendaciones(Integer id, int limite) throws RemoteException;
+
+    //Busca los usuarios que escuchan canciones parecidas a las del usuario
+    public List<UsuarioSimilarDTORespuesta> getUsuariosSimilares(Integer id, int limite) throws RemoteException;
+
+    //Calcula los géneros, artistas e idiomas más escuchados por todos los usuarios en una ventana de tiempo
+    public TendenciasDTORespuesta getTendencias(String desde, String hasta, int limite) throws RemoteException;
+
+    //Devuelve los resúmenes de lo más escuchado de este servidor, para combinarlos en otro
+    public byte[] getResumenMasEscuchados() throws RemoteException;
+
+    //Devuelve los artistas, canciones y géneros más escuchados, combinando los resúmenes de otros servidores
+    public MasEscuchadosDTORespuesta getMasEscuchados(int limite, List<byte[]> resumenesAdicionales) throws RemoteException;
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+package co.edu.unicauca.capaDeControladores;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import co.edu.unicauca.fachadaServices.DTO.MasEscuchadosDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.RecomendacionCancionDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.TendenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.UsuarioSimilarDTORespuesta;
+import co.edu.unicauca.utilidades.AnilloHashConsistente;
+
+/**
+ * Fachada de enrutamiento hacia varias instancias del Servidor de
+ * Preferencias, cada una registrada en el NS con su propio nombre.
+ * <p>
+ * Reparte los usuarios con un {@link AnilloHashConsistente}: las peticiones
+ * de un usuario van siempre a la misma instancia, de modo que su caché de
+ * resultados y su agregado de reproducciones viven en una sola instancia en
+ * lugar de repetirse en todas. Los lotes se separan por instancia, se
+ * consultan en paralelo y sus resultados se unen.
+ * <p>
+ * Implementa la misma interfaz que el objeto remoto, así que la
+ * {@code FachadaGestorUsuariosIml} lo usa sin cambios.
+ */
+public class EnrutadorPreferenciasUsuarios implements ControladorPreferenciasUsuariosInt {
+
+    private final AnilloHashConsistente anillo;
+
+    /**
+     * Stub de cada nodo, o {@code null} si no se pudo obtener del NS.
+     */
+    private final Map<String, ControladorPreferenciasUsuariosInt> nodos;
+
+    private final ExecutorService ejecutor;
+
+    /**
+     * @param nodos     el stub de cada nodo, indexado por el nombre con el que
+     *                  está registrado; un valor {@code null} marca un nodo no
+     *                  disponible.
+     * @param virtuales posiciones de cada nodo en el anillo.
+     */
+    public EnrutadorPreferenciasUsuarios(Map<String, ControladorPreferenciasUsuariosInt> nodos, int virtuales) {
+        this.nodos = new HashMap<>(nodos);
+        this.anillo = new AnilloHashConsistente(new ArrayList<>(nodos.keySet()), virtuales);
+        AtomicInteger contador = new AtomicInteger();
+        this.ejecutor = Executors.newFixedThreadPool(this.anillo.getNodos().size(), tarea -> {
+            Thread hilo = new Thread(tarea, "enrutador-preferencias-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * @param idUsuario el usuario.
+     * @return el nombre del nodo dueño del usuario.
+     */
+    public String nodoDe(Integer idUsuario) {
+        return this.anillo.nodoDe(idUsuario);
+    }
+
+    @Override
+    public PreferenciasDTORespuesta getReferencias(Integer id) throws RemoteException {
+        return stub(nodoDe(id)).getReferencias(id);
+    }
+
+    @Override
+    public PreferenciasDTORespuesta getReferencias(Integer id, OpcionesPreferenciasDTO opciones) throws RemoteException {
+        return stub(nodoDe(id)).getReferencias(id, opciones);
+    }
+
+    @Override
+    public PreferenciasDTORespuesta getReferenciasVentana(Integer id, int dias, OpcionesPreferenciasDTO opciones) throws RemoteException {
+        return stub(nodoDe(id)).getReferenciasVentana(id, dias, opciones);
+    }
+
+    @Override
+    public Map<Integer, PreferenciasDTORespuesta> getReferenciasBatch(List<Integer> ids) throws RemoteException {
+        Map<String, List<Integer>> porNodo = separarPorNodo(ids);
+        if (porNodo.size() == 1) {
+            Map.Entry<String, List<Integer>> unico = porNodo.entrySet().iterator().next();
+            return stub(unico.getKey()).getReferenciasBatch(unico.getValue());
+        }
+        List<Callable<Map<Integer, PreferenciasDTORespuesta>>> consultas = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> entrada : porNodo.entrySet()) {
+            ControladorPreferenciasUsuariosInt stub = stub(entrada.getKey());
+            consultas.add(() -> stub.getReferenciasBatch(entrada.getValue()));
+        }
+        Map<Integer, PreferenciasDTORespuesta> resultado = new HashMap<>();
+        for (Map<Integer, PreferenciasDTORespuesta> parcial : ejecutarEnParalelo(consultas)) {
+            resultado.putAll(parcial);
+        }
+        return resultado;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cada nodo entrega sus propios bloques, así que el consumidor puede
+     * recibir bloques de nodos distintos a la vez.
+     */
+    @Override
+    public void getReferenciasBatch(List<Integer> ids, int tamanoBloque, ConsumidorPreferenciasLoteInt consumidor) throws RemoteException {
+        Map<String, List<Integer>> porNodo = separarPorNodo(ids);
+        if (porNodo.size() == 1) {
+            Map.Entry<String, List<Integer>> unico = porNodo.entrySet().iterator().next();
+            stub(unico.getKey()).getReferenciasBatch(unico.getValue(), tamanoBloque, consumidor);
+            return;
+        }
+        List<Callable<Void>> consultas = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> entrada : porNodo.entrySet()) {
+            ControladorPreferenciasUsuariosInt stub = stub(entrada.getKey());
+            consultas.add(() -> {
+                stub.getReferenciasBatch(entrada.getValue(), tamanoBloque, consumidor);
+                return null;
+            });
+        }
+        ejecutarEnParalelo(consultas);
+    }
+
+    @Override
+    public List<RecomendacionCancionDTORespuesta> getRecomendaciones(Integer id, int limite) throws RemoteException {
+        return stub(nodoDe(id)).getRecomendaciones(id, limite);
+    }
+
+    @Override
+    public List<UsuarioSimilarDTORespuesta> getUsuariosSimilares(Integer id, int limite) throws RemoteException {
+        return stub(nodoDe(id)).getUsuariosSimilares(id, limite);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cada nodo agrega el historial de todos los usuarios, no solo el de los
+     * suyos, así que basta con consultar uno: se prueban en el orden del
+     * anillo hasta que uno responda.
+     */
+    @Override
+    public TendenciasDTORespuesta getTendencias(String desde, String hasta, int limite) throws RemoteException {
+        RemoteException error = null;
+        for (String nodo : this.anillo.getNodos()) {
+            try {
+                return stub(nodo).getTendencias(desde, hasta, limite);
+            } catch (RemoteException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        throw error != null ? error : new RemoteException("No hay nodos de preferencias disponibles");
+    }
+
+    /**
+     * Devuelve los resúmenes del primer nodo del anillo, que solo cubren a
+     * sus usuarios; para los de toda la plataforma se usa
+     * {@link #getMasEscuchados(int, List)}.
+     */
+    @Override
+    public byte[] getResumenMasEscuchados() throws RemoteException {
+        return stub(this.anillo.getNodos().get(0)).getResumenMasEscuchados();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cada nodo resume solo las reproducciones de sus usuarios: se piden en
+     * paralelo los resúmenes de los demás nodos y el primero los combina con
+     * los suyos. Si algún nodo no responde, la consulta falla en lugar de
+     * devolver conteos incompletos.
+     */
+    @Override
+    public MasEscuchadosDTORespuesta getMasEscuchados(int limite, List<byte[]> resumenesAdicionales) throws RemoteException {
+        List<String> nodosAnillo = this.anillo.getNodos();
+        List<Callable<byte[]>> consultas = new ArrayList<>();
+        for (String nodo : nodosAnillo.subList(1, nodosAnillo.size())) {
+            ControladorPreferenciasUsuariosInt stub = stub(nodo);
+            consultas.add(stub::getResumenMasEscuchados);
+        }
+        List<byte[]> resumenes = new ArrayList<>(resumenesAdicionales);
+        resumenes.addAll(ejecutarEnParalelo(consultas));
+        return stub(nodosAnillo.get(0)).getMasEscuchados(limite, resumenes);
+    }
+
+    /**
+     * Agrupa los usuarios por nodo dueño, conservando su orden relativo.
+     */
+    private Map<String, List<Integer>> separarPorNodo(List<Integer> ids) {
+        Map<String, List<Integer>> porNodo = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            porNodo.computeIfAbsent(nodoDe(id), nodo -> new ArrayList<>()).add(id);
+        }
+        if (porNodo.isEmpty()) {
+            // Un lote vacío se delega igual, para conservar la respuesta del servidor.
+            porNodo.put(this.anillo.getNodos().get(0), new ArrayList<>());
+        }
+        return porNodo;
+    }
+
+    private ControladorPreferenciasUsuariosInt stub(String nodo) throws RemoteException {
+        ControladorPreferenciasUsuariosInt stub = this.nodos.get(nodo);
+        if (stub == null) {
+            throw new RemoteException("El nodo de preferencias " + nodo + " no esta disponible");
+        }
+        return stub;
+    }
+
+    /**
+     * Ejecuta las consultas en paralelo y espera a todas antes de devolver,
+     * aunque alguna falle; si falla alguna, relanza el primer error.
+     */
+    private <T> List<T> ejecutarEnParalelo(List<Callable<T>> consultas) throws RemoteException {
+        List<Future<T>> pendientes = new ArrayList<>();
+        for (Callable<T> consulta : consultas) {
+            pendientes.add(this.ejecutor.submit(consulta));
+        }
+        List<T> resultados = new ArrayList<>();
+        RemoteException error = null;
+        for (Future<T> pendiente : pendientes) {
+            try {
+                resultados.add(pendiente.get());
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof RemoteException
+                            ? (RemoteException) e.getCause()
+                            : new RemoteException("Error en un nodo de preferencias", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteException("Consulta interrumpida", e);
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return resultados;
+    }
+}
@@ -4,6 +4,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
 
+/**
+ * Lee las propiedades de {@code application.properties}. Una propiedad de
+ * sistema de la JVM con la misma clave ({@code -Dclave=valor}) tiene
+ * prioridad sobre el archivo.
+ */
 public class LectorPropiedadesConfig {
     private static Properties props = new Properties();
 
@@ -21,6 +26,19 @@ public class LectorPropiedadesConfig {
     }
 
     public static String get(String key) {
-        return props.getProperty(key);
+        return System.getProperty(key, props.getProperty(key));
+    }
+
+    public static int getInt(String key, int valorPorDefecto) {
+        String valor = get(key);
+        if (valor == null || valor.isBlank()) {
+            return valorPorDefecto;
+        }
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Valor inválido para la propiedad " + key + ": " + valor + ". Se usa " + valorPorDefecto);
+            return valorPorDefecto;
+        }
     }
 }
@@ -1,8 +1,12 @@
 package co.edu.unicauca.configuracion.servicios;
 
 import java.rmi.Naming;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import co.edu.unicauca.capaDeControladores.ControladorPreferenciasUsuariosInt;
+import co.edu.unicauca.capaDeControladores.EnrutadorPreferenciasUsuarios;
 
 public class ClienteDeObjetos {
     
@@ -19,7 +23,31 @@ public class ClienteDeObjetos {
             System.out.println("Excepcion en obtencion del objeto remoto"+ e);
             return null;
         }
-    }   
+    }
+
+    /**
+     * Obtiene los objetos remotos de varias instancias del Servidor de
+     * Preferencias registradas en el mismo NS y los reúne tras un
+     * {@link EnrutadorPreferenciasUsuarios} que reparte los usuarios por hash
+     * consistente. Con un solo nombre devuelve directamente su objeto remoto.
+     *
+     * @param nombres   los nombres con los que se registraron las instancias.
+     * @param virtuales nodos virtuales por instancia en el anillo.
+     */
+    public static ControladorPreferenciasUsuariosInt obtenerObjetoRemotoEnrutado(String direccionIPNS, int puertoNS, List<String> nombres, int virtuales)
+    {
+        if (nombres.size() == 1)
+        {
+            return obtenerObjetoRemoto(direccionIPNS, puertoNS, nombres.get(0));
+        }
+        Map<String, ControladorPreferenciasUsuariosInt> nodos = new LinkedHashMap<>();
+        for (String nombre : nombres)
+        {
+            // Un nodo ausente queda como null: solo fallan las peticiones de sus usuarios.
+            nodos.put(nombre, obtenerObjetoRemoto(direccionIPNS, puertoNS, nombre));
+        }
+        return new EnrutadorPreferenciasUsuarios(nodos, virtuales);
+    }
 }
 
 
@@ -0,0 +1,24 @@
+package co.edu.unicauca.fachadaServices.DTO;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO de un artista, canción o género entre los más escuchados de la
+ * plataforma. El número real de reproducciones está entre
+ * {@code reproduccionesMinimas} y {@code reproducciones}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ElementoMasEscuchadoDTORespuesta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String nombre;
+    private Long reproducciones;
+    private Long reproduccionesMinimas;
+}
@@ -0,0 +1,29 @@
+package co.edu.unicauca.fachadaServices.DTO;
+
+import java.io.Serializable;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con los artistas, canciones y géneros más escuchados de la plataforma,
+ * estimados con resúmenes de memoria fija. {@code instancias} es el número de
+ * instancias del Servidor de Preferencias cuyos resúmenes se combinaron, y
+ * {@code errorMaximo} la cota del error de cualquier conteo de las listas.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MasEscuchadosDTORespuesta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long totalReproducciones;
+    private Integer instancias;
+    private Long errorMaximo;
+    private List<ElementoMasEscuchadoDTORespuesta> artistas;
+    private List<ElementoMasEscuchadoDTORespuesta> canciones;
+    private List<ElementoMasEscuchadoDTORespuesta> generos;
+}
@@ -0,0 +1,98 @@
+package co.edu.unicauca.fachadaServices.DTO;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) con las opciones de una consulta de preferencias.
+ * <p>
+ * Permite limitar, de forma independiente para cada dimensión, cuántas
+ * entradas se devuelven (modo top-K). Un límite {@code null} o menor o igual
+ * a cero indica que se quiere la lista completa, que es el modo pensado para
+ * trabajos de analítica. El modo top-K reduce el trabajo de ordenamiento en
+ * el servidor y el tamaño de la respuesta RMI.
+ * <p>
+ * Permite además elegir el criterio de ordenamiento ({@link ModoPreferencias}):
+ * por número de reproducciones (por defecto) o por reciencia.
+ * <p>
+ * Implementa {@link Serializable} porque viaja como parámetro de las llamadas
+ * RMI; se usa además como parte de la clave de la caché de resultados, por lo
+ * que depende del {@code equals}/{@code hashCode} generados por Lombok.
+ *
+ * @see PreferenciasDTORespuesta
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OpcionesPreferenciasDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Número máximo de géneros a devolver; {@code null} o {@code <= 0} para
+     * todos.
+     */
+    private Integer maximoGeneros;
+
+    /**
+     * Número máximo de artistas a devolver; {@code null} o {@code <= 0} para
+     * todos.
+     */
+    private Integer maximoArtistas;
+
+    /**
+     * Número máximo de idiomas a devolver; {@code null} o {@code <= 0} para
+     * todos.
+     */
+    private Integer maximoIdiomas;
+
+    /**
+     * Criterio de ordenamiento; {@code null} equivale a
+     * {@link ModoPreferencias#CONTEO}.
+     */
+    private ModoPreferencias modo;
+
+    /**
+     * @return opciones que solicitan las listas completas de todas las
+     *         dimensiones.
+     */
+    public static OpcionesPreferenciasDTO completas() {
+        return new OpcionesPreferenciasDTO();
+    }
+
+    /**
+     * @param maximo el número de entradas a devolver en cada dimensión.
+     * @return opciones que solicitan las {@code maximo} primeras entradas de
+     *         cada dimensión.
+     */
+    public static OpcionesPreferenciasDTO primeras(int maximo) {
+        return new OpcionesPreferenciasDTO(maximo, maximo, maximo, null);
+    }
+
+    /**
+     * @param modo el criterio de ordenamiento.
+     * @return una copia de estas opciones con el criterio indicado.
+     */
+    public OpcionesPreferenciasDTO conModo(ModoPreferencias modo) {
+        return new OpcionesPreferenciasDTO(maximoGeneros, maximoArtistas, maximoIdiomas, modo);
+    }
+
+    /**
+     * Devuelve una copia en la que los límites {@code <= 0} se sustituyen por
+     * {@code null} y el modo ausente por {@link ModoPreferencias#CONTEO}, de
+     * modo que dos opciones equivalentes sean iguales según {@code equals}. La
+     * copia no comparte estado con este objeto.
+     *
+     * @return las opciones normalizadas.
+     */
+    public OpcionesPreferenciasDTO normalizadas() {
+        return new OpcionesPreferenciasDTO(normalizar(maximoGeneros), normalizar(maximoArtistas), normalizar(maximoIdiomas),
+                modo != null ? modo : ModoPreferencias.CONTEO);
+    }
+
+    private static Integer normalizar(Integer maximo) {
+        return maximo != null && maximo > 0 ? maximo : null;
+    }
+}
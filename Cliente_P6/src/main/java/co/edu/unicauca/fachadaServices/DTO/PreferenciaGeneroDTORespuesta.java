@@ -38,4 +38,14 @@ public class PreferenciaGeneroDTORespuesta implements Serializable {
      * Este valor es el resultado de la agregación de reproducciones.
      */
     private Integer numeroPreferencias;
+
+    /**
+     * Puntaje con decaimiento exponencial de las reproducciones, calculado en
+     * el instante del cálculo.
+     * <p>
+     * Solo se informa cuando las preferencias se piden en modo
+     * {@link ModoPreferencias#RECIENCIA}; en el modo por conteo es
+     * {@code null}.
+     */
+    private Double puntaje;
 }
\ No newline at end of file
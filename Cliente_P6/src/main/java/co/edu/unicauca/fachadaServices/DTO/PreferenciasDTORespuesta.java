@@ -1,6 +1,9 @@
 package co.edu.unicauca.fachadaServices.DTO;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.List;
 import lombok.Data;
 
@@ -12,14 +15,18 @@ import lombok.Data;
  * envía al Cliente a través de Java RMI. Agrupa las preferencias del usuario
  * en tres categorías principales: por género, por artista y por idioma.
  * <p>
- * Implementa {@link Serializable} para ser compatible con la serialización de RMI.
- * La anotación {@code @Data} de Lombok se encarga de generar los métodos
- * de acceso (getters/setters) y otros métodos de utilidad.
+ * Implementa {@link Externalizable}: viaja por RMI en el formato compacto de
+ * {@link FormatoPreferencias}, idéntico al del Servidor de Preferencias, en
+ * lugar de con la serialización por defecto. La anotación {@code @Data} de
+ * Lombok se encarga de generar los métodos de acceso (getters/setters) y
+ * otros métodos de utilidad.
  *
  * @see co.edu.unicauca.fachadaServices.services.IPreferenciasService
  */
 @Data
-public class PreferenciasDTORespuesta implements Serializable {
+public class PreferenciasDTORespuesta implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * El identificador único del usuario al que pertenecen estas preferencias.
@@ -58,4 +65,29 @@ public class PreferenciasDTORespuesta implements Serializable {
      * @see PreferenciaIdiomaDTORespuesta
      */
     private List<PreferenciaIdiomaDTORespuesta> preferenciasIdiomas;
-}
\ No newline at end of file
+
+    /**
+     * Las reproducciones del usuario por hora local del día: 24 posiciones,
+     * de las 0 a las 23. Es {@code null} si el servidor no las envía.
+     */
+    private int[] reproduccionesPorHora;
+
+    /**
+     * Las reproducciones del usuario por día de la semana: 7 posiciones, de
+     * lunes a domingo. Es {@code null} si el servidor no las envía.
+     */
+    private int[] reproduccionesPorDiaSemana;
+
+    /**
+     * Escribe la respuesta en el formato compacto de {@link FormatoPreferencias}.
+     */
+    @Override
+    public void writeExternal(ObjectOutput salida) throws IOException {
+        FormatoPreferencias.escribir(this, salida);
+    }
+
+    @Override
+    public void readExternal(ObjectInput entrada) throws IOException {
+        FormatoPreferencias.leer(this, entrada);
+    }
+}
@@ -0,0 +1,25 @@
+package co.edu.unicauca.fachadaServices.DTO;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO de una canción recomendada a un usuario por coocurrencia con las
+ * canciones que ya escuchó. El puntaje solo sirve para ordenar: es mayor
+ * cuanto más se escucha la canción junto a las del usuario.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecomendacionCancionDTORespuesta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String titulo;
+    private String artista;
+    private String genero;
+    private Double puntaje;
+}
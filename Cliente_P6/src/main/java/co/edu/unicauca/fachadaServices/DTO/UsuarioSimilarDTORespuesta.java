@@ -0,0 +1,23 @@
+package co.edu.unicauca.fachadaServices.DTO;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO de un usuario con gustos parecidos a los de otro. La similitud es una
+ * estimación del índice de Jaccard entre las canciones que ha escuchado cada
+ * uno: 1 si son las mismas y 0 si no comparten ninguna.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UsuarioSimilarDTORespuesta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Integer idUsuario;
+    private Double similitud;
+}
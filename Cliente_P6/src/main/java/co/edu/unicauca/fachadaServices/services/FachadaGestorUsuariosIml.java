@@ -1,9 +1,21 @@
 package co.edu.unicauca.fachadaServices.services;
 
+import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+import co.edu.unicauca.capaDeControladores.ConsumidorPreferenciasLoteIml;
+import co.edu.unicauca.capaDeControladores.ConsumidorPreferenciasLoteInt;
 import co.edu.unicauca.capaDeControladores.ControladorPreferenciasUsuariosInt;
+import co.edu.unicauca.fachadaServices.DTO.MasEscuchadosDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
 import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.RecomendacionCancionDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.TendenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.UsuarioSimilarDTORespuesta;
 
 /**
  * Implementación del patrón Facade en el lado del cliente.
@@ -57,4 +69,182 @@ public class FachadaGestorUsuariosIml {
     public PreferenciasDTORespuesta getReferencias(Integer id) throws RemoteException {
         return this.objRemoto.getReferencias(id);
     }
+
+    /**
+     * Invoca el método remoto para obtener solo las primeras entradas de las
+     * preferencias de un usuario, según los límites de {@code opciones}.
+     *
+     * @param id       el identificador único del usuario.
+     * @param opciones los límites por género, artista e idioma.
+     * @return las preferencias del usuario, recortadas según {@code opciones}.
+     * @throws RemoteException si ocurre un error durante la comunicación con
+     *                         el servidor RMI.
+     */
+    public PreferenciasDTORespuesta getReferencias(Integer id, OpcionesPreferenciasDTO opciones) throws RemoteException {
+        return this.objRemoto.getReferencias(id, opciones);
+    }
+
+    /**
+     * Invoca el método remoto para obtener las preferencias de un usuario con
+     * solo sus reproducciones de los últimos días.
+     *
+     * @param id       el identificador único del usuario.
+     * @param dias     los días de la ventana, entre 1 y 90.
+     * @param opciones los límites por género, artista e idioma.
+     * @return las preferencias de la ventana.
+     * @throws RemoteException si ocurre un error durante la comunicación con
+     *                         el servidor RMI o la ventana no es válida.
+     */
+    public PreferenciasDTORespuesta getReferenciasVentana(Integer id, int dias, OpcionesPreferenciasDTO opciones) throws RemoteException {
+        return this.objRemoto.getReferenciasVentana(id, dias, opciones);
+    }
+
+    /**
+     * Invoca el método remoto que calcula las preferencias de un lote de
+     * usuarios en una sola llamada.
+     *
+     * @param ids los identificadores de los usuarios.
+     * @return un mapa con las preferencias de cada usuario, indexado por su
+     *         identificador.
+     * @throws RemoteException si ocurre un error durante la comunicación con
+     *                         el servidor RMI o el lote no puede completarse.
+     */
+    public Map<Integer, PreferenciasDTORespuesta> getReferenciasBatch(List<Integer> ids) throws RemoteException {
+        return this.objRemoto.getReferenciasBatch(ids);
+    }
+
+    /**
+     * Invoca el método remoto de lotes con entrega por bloques, pensado para
+     * lotes muy grandes.
+     *
+     * @param ids          los identificadores de los usuarios.
+     * @param tamanoBloque número máximo de usuarios por bloque.
+     * @param consumidor   objeto remoto que recibirá cada bloque.
+     * @throws RemoteException si ocurre un error durante la comunicación con
+     *                         el servidor RMI.
+     */
+    public void getReferenciasBatch(List<Integer> ids, int tamanoBloque, ConsumidorPreferenciasLoteInt consumidor) throws RemoteException {
+        this.objRemoto.getReferenciasBatch(ids, tamanoBloque, consumidor);
+    }
+
+    /**
+     * Invoca el método remoto que recomienda al usuario canciones que aún no
+     * ha escuchado.
+     *
+     * @param id     el identificador único del usuario.
+     * @param limite número máximo de canciones; si no es positivo se usa el
+     *               límite configurado en el servidor.
+     * @return las canciones recomendadas, de mayor a menor puntaje.
+     * @throws RemoteException si ocurre un error durante la comunicación con
+     *                         el servidor RMI o las recomendaciones no están
+     *                         disponibles.
+     */
+    public List<RecomendacionCancionDTORespuesta> getRecomendaciones(Integer id, int limite) throws RemoteException {
+        return this.objRemoto.getRecomendaciones(id, limite);
+    }
+
+    /**
+     * Invoca el método remoto que busca los usuarios con gustos parecidos a
+     * los del usuario.
+     *
+     * @param id     el identificador único del usuario.
+     * @param limite número máximo de usuarios; si no es positivo se usa el
+     *               límite configurado en el servidor.
+     * @return los usuarios parecidos, de mayor a menor similitud.
+     * @throws RemoteException si ocurre un error durante la comunicación con
+     *                         el servidor RMI o la búsqueda no está
+     *                         disponible.
+     */
+    public List<UsuarioSimilarDTORespuesta> getUsuariosSimilares(Integer id, int limite) throws RemoteException {
+        return this.objRemoto.getUsuariosSimilares(id, limite);
+    }
+
+    /**
+     * Invoca el método remoto que calcula los géneros, artistas e idiomas
+     * más escuchados por todos los usuarios de la plataforma.
+     *
+     * @param desde  inicio de la ventana ({@code "yyyy-MM-dd HH:mm:ss"}), o
+     *               {@code null} para no limitarla.
+     * @param hasta  fin de la ventana, o {@code null} para no limitarla.
+     * @param limite elementos de cada lista; si no es positivo se usa el
+     *               límite configurado en el servidor.
+     * @return las tendencias de la plataforma.
+     * @throws RemoteException si ocurre un error durante la comunicación con
+     *                         el servidor RMI o las tendencias no están
+     *                         disponibles.
+     */
+    public TendenciasDTORespuesta getTendencias(String desde, String hasta, int limite) throws RemoteException {
+        return this.objRemoto.getTendencias(desde, hasta, limite);
+    }
+
+    /**
+     * Invoca el método remoto que devuelve los resúmenes de lo más escuchado
+     * del servidor.
+     *
+     * @return los resúmenes serializados.
+     * @throws RemoteException si ocurre un error durante la comunicación con
+     *                         el servidor RMI o lo más escuchado no está
+     *                         disponible.
+     */
+    public byte[] getResumenMasEscuchados() throws RemoteException {
+        return this.objRemoto.getResumenMasEscuchados();
+    }
+
+    /**
+     * Invoca el método remoto que devuelve los artistas, canciones y géneros
+     * más escuchados, combinando los resúmenes indicados con los del
+     * servidor.
+     *
+     * @param limite               elementos de cada lista; si no es positivo
+     *                             se usa el límite configurado en el
+     *                             servidor.
+     * @param resumenesAdicionales resúmenes de otros servidores.
+     * @return lo más escuchado, con las cotas de cada conteo.
+     * @throws RemoteException si ocurre un error durante la comunicación con
+     *                         el servidor RMI o lo más escuchado no está
+     *                         disponible.
+     */
+    public MasEscuchadosDTORespuesta getMasEscuchados(int limite, List<byte[]> resumenesAdicionales) throws RemoteException {
+        return this.objRemoto.getMasEscuchados(limite, resumenesAdicionales);
+    }
+
+    /**
+     * Variante de conveniencia de {@link #getMasEscuchados(int, List)} sin
+     * resúmenes adicionales; con varios servidores, el enrutador reúne los
+     * de todos.
+     *
+     * @param limite elementos de cada lista.
+     * @return lo más escuchado en la plataforma.
+     * @throws RemoteException si ocurre un error durante la comunicación con
+     *                         el servidor RMI o lo más escuchado no está
+     *                         disponible.
+     */
+    public MasEscuchadosDTORespuesta getMasEscuchados(int limite) throws RemoteException {
+        return getMasEscuchados(limite, List.of());
+    }
+
+    /**
+     * Variante de conveniencia que exporta temporalmente un
+     * {@link ConsumidorPreferenciasLoteIml} para recibir los bloques y los
+     * entrega al {@code receptor} local. El objeto exportado se retira al
+     * terminar el lote.
+     *
+     * @param ids          los identificadores de los usuarios.
+     * @param tamanoBloque número máximo de usuarios por bloque.
+     * @param receptor     función local que procesa cada bloque recibido.
+     * @throws RemoteException si ocurre un error durante la comunicación con
+     *                         el servidor RMI.
+     */
+    public void getReferenciasPorBloques(List<Integer> ids, int tamanoBloque, Consumer<Map<Integer, PreferenciasDTORespuesta>> receptor) throws RemoteException {
+        ConsumidorPreferenciasLoteIml consumidor = new ConsumidorPreferenciasLoteIml(receptor);
+        try {
+            this.objRemoto.getReferenciasBatch(ids, tamanoBloque, consumidor);
+        } finally {
+            try {
+                UnicastRemoteObject.unexportObject(consumidor, true);
+            } catch (NoSuchObjectException e) {
+                // El objeto ya no estaba exportado.
+            }
+        }
+    }
 }
\ No newline at end of file
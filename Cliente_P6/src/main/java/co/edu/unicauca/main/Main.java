@@ -5,6 +5,7 @@ import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
 import co.edu.unicauca.configuracion.servicios.ClienteDeObjetos;
 import co.edu.unicauca.fachadaServices.services.FachadaGestorUsuariosIml;
 import co.edu.unicauca.modelo.Usuario;
+import co.edu.unicauca.utilidades.AnilloHashConsistente;
 import co.edu.unicauca.utilidades.UtilidadesConsola;
 import co.edu.unicauca.vista.Menu;
 
@@ -17,7 +18,8 @@ import java.util.List;
  * Esta clase gestiona el flujo inicial del sistema, que incluye:
  * <ul>
  *   <li>Autenticación simulada con usuarios quemados (máximo 3 intentos)</li>
- *   <li>Conexión con el servidor de preferencias mediante RMI</li>
+ *   <li>Conexión con el servidor de preferencias mediante RMI (o con varias
+ *       instancias, repartiendo los usuarios por hash consistente)</li>
  *   <li>Lanzamiento del menú interactivo para el usuario autenticado</li>
  * </ul>
  * 
@@ -78,10 +80,15 @@ public class Main {
         // Configuración de conexión RMI con el servidor de preferencias
         int puertoNS = Integer.parseInt(LectorPropiedadesConfig.get("ns.port"));
         String direccionIPNS = LectorPropiedadesConfig.get("ns.host");
-        String identificadorObjetoRemoto = "objControladorPreferenciasUsuarios";
+        // Con varias instancias (preferencias.nodos) cada usuario se enruta a la suya
+        List<String> nodos = AnilloHashConsistente.separarNodos(LectorPropiedadesConfig.get("preferencias.nodos"));
+        if (nodos.isEmpty()) {
+            nodos = List.of("objControladorPreferenciasUsuarios");
+        }
+        int virtuales = LectorPropiedadesConfig.getInt("preferencias.nodos.virtuales", AnilloHashConsistente.VIRTUALES_POR_DEFECTO);
 
         ControladorPreferenciasUsuariosInt objRemoto = 
-            ClienteDeObjetos.obtenerObjetoRemoto(direccionIPNS, puertoNS, identificadorObjetoRemoto);
+            ClienteDeObjetos.obtenerObjetoRemotoEnrutado(direccionIPNS, puertoNS, nodos, virtuales);
         
         FachadaGestorUsuariosIml objFachada = new FachadaGestorUsuariosIml(objRemoto);
         Menu objMenu = new Menu(objFachada, usuarioAutenticado.getId());
@@ -2,10 +2,18 @@ package co.edu.unicauca.vista;
 
 import java.io.IOException;
 import java.rmi.RemoteException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 import co.edu.unicauca.fachadaServices.DTO.CancionDTO;
+import co.edu.unicauca.fachadaServices.DTO.ElementoMasEscuchadoDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.MasEscuchadosDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
 import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.RecomendacionCancionDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.TendenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.UsuarioSimilarDTORespuesta;
 import co.edu.unicauca.fachadaServices.services.FachadaGestorUsuariosIml;
 import co.edu.unicauca.fachadaServices.services.FachadaCanciones;
 import co.edu.unicauca.fachadaServices.services.FachadaStreaming;
@@ -16,6 +24,44 @@ import co.edu.unicauca.utilidades.UtilidadesConsola;
  */
 public class Menu {
 
+    /**
+     * Número de entradas que se muestran (y se piden al servidor) en cada
+     * lista de preferencias.
+     */
+    private static final int PREFERENCIAS_MOSTRADAS = 5;
+
+    /**
+     * Caracteres de la barra más larga de los histogramas de escucha.
+     */
+    private static final int ANCHO_HISTOGRAMA = 30;
+
+    private static final String[] DIAS_SEMANA = {"Lunes", "Martes", "Miercoles", "Jueves", "Viernes", "Sabado", "Domingo"};
+
+    /**
+     * Número de canciones recomendadas que se muestran.
+     */
+    private static final int RECOMENDACIONES_MOSTRADAS = 10;
+
+    /**
+     * Número de usuarios parecidos que se muestran.
+     */
+    private static final int SIMILARES_MOSTRADOS = 5;
+
+    /**
+     * Número de entradas que se muestran en cada lista de tendencias.
+     */
+    private static final int TENDENCIAS_MOSTRADAS = 5;
+
+    /**
+     * Número de entradas que se muestran en cada lista de lo más escuchado.
+     */
+    private static final int MAS_ESCUCHADOS_MOSTRADOS = 5;
+
+    /**
+     * Formato de las fechas que espera el servidor de preferencias.
+     */
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private final FachadaGestorUsuariosIml objFachadaRMI;
     private final Integer userId;
     private final FachadaCanciones cancionesClient;
@@ -35,7 +81,11 @@ public class Menu {
             System.out.println("1. Listar canciones ");
             System.out.println("2. Reproducir canción");
             System.out.println("3. Ver mis preferencias");
-            System.out.println("4. Salir");
+            System.out.println("4. Ver canciones recomendadas");
+            System.out.println("5. Ver oyentes parecidos a mi");
+            System.out.println("6. Ver tendencias de la plataforma");
+            System.out.println("7. Ver lo mas escuchado en la plataforma");
+            System.out.println("8. Salir");
             System.out.println("======================");
 
             opcion = UtilidadesConsola.leerEntero("Seleccione una opción: ");
@@ -51,6 +101,18 @@ public class Menu {
                     opcionVerPreferencias();
                     break;
                 case 4:
+                    opcionVerRecomendaciones();
+                    break;
+                case 5:
+                    opcionVerUsuariosSimilares();
+                    break;
+                case 6:
+                    opcionVerTendencias();
+                    break;
+                case 7:
+                    opcionVerMasEscuchados();
+                    break;
+                case 8:
                     System.out.println("Cerrando aplicacion... Gracias por usar Gemify!");
                     try {
                         streamingClient.shutdown();
@@ -61,7 +123,7 @@ public class Menu {
                 default:
                     System.out.println("Opcion no valida. Intente nuevamente.");
             }
-        } while (opcion != 4);
+        } while (opcion != 8);
     }
     
     /**
@@ -140,10 +202,15 @@ public class Menu {
 
      private void opcionVerPreferencias() {
         streamingClient.detenerReproduccion();
+        int dias = UtilidadesConsola.leerEntero("Periodo a considerar (0 = siempre, 7 = esta semana, 30 = este mes, 90): ");
         System.out.println("\nConsultando sus preferencias desde el servidor...");
         try {
-            // 1. Obtenemos el objeto de respuesta completo del servidor de preferencias.
-            PreferenciasDTORespuesta respuesta = this.objFachadaRMI.getReferencias(this.userId);
+            // 1. Obtenemos del servidor de preferencias solo las entradas que se muestran.
+            OpcionesPreferenciasDTO opciones = OpcionesPreferenciasDTO.primeras(PREFERENCIAS_MOSTRADAS);
+            PreferenciasDTORespuesta respuesta = dias > 0
+                    ? this.objFachadaRMI.getReferenciasVentana(this.userId, dias, opciones)
+                    : this.objFachadaRMI.getReferencias(this.userId, opciones);
+            String titulo = dias > 0 ? "\n== Sus Preferencias de los ultimos " + dias + " dias ==" : "\n== Sus Preferencias ==";
 
             // Primero, verificamos si hay alguna preferencia.
             boolean sinPreferencias = (respuesta.getPreferenciasGeneros() == null || respuesta.getPreferenciasGeneros().isEmpty())
@@ -151,12 +218,12 @@ public class Menu {
                                    && (respuesta.getPreferenciasIdiomas() == null || respuesta.getPreferenciasIdiomas().isEmpty());
 
             if (sinPreferencias) {
-                System.out.println("\n== Sus Preferencias ==");
+                System.out.println(titulo);
                 System.out.println("Aun no tiene suficientes reproducciones para calcular sus preferencias.");
                 return;
             }
             
-            System.out.println("\n== Sus Preferencias ==");
+            System.out.println(titulo);
 
             // 2. Mostramos las preferencias por Género.
             System.out.println("\n-- Generos mas escuchados --");
@@ -181,6 +248,20 @@ public class Menu {
             }
             // --- FIN DEL CAMBIO ---
 
+            // 5. Mostramos cuando escucha musica el usuario.
+            if (respuesta.getReproduccionesPorHora() != null) {
+                System.out.println("\n-- Reproducciones por hora del dia --");
+                String[] horas = new String[respuesta.getReproduccionesPorHora().length];
+                for (int hora = 0; hora < horas.length; hora++) {
+                    horas[hora] = String.format("%02d h", hora);
+                }
+                imprimirHistograma(horas, respuesta.getReproduccionesPorHora());
+            }
+            if (respuesta.getReproduccionesPorDiaSemana() != null) {
+                System.out.println("\n-- Reproducciones por dia de la semana --");
+                imprimirHistograma(DIAS_SEMANA, respuesta.getReproduccionesPorDiaSemana());
+            }
+
         } catch (RemoteException e) {
             System.out.println("ERROR al consultar las preferencias: " + e.getMessage());
         } catch (Exception e) {
@@ -188,5 +269,157 @@ public class Menu {
         }
     }
 
-    
+    /**
+     * Lógica para la Opción 4: muestra canciones que el usuario aún no ha
+     * escuchado y que escuchan otros usuarios con gustos parecidos.
+     */
+    private void opcionVerRecomendaciones() {
+        streamingClient.detenerReproduccion();
+        System.out.println("\nConsultando sus recomendaciones desde el servidor...");
+        try {
+            List<RecomendacionCancionDTORespuesta> recomendaciones =
+                    this.objFachadaRMI.getRecomendaciones(this.userId, RECOMENDACIONES_MOSTRADAS);
+
+            System.out.println("\n== Canciones que le podrian gustar ==");
+            if (recomendaciones.isEmpty()) {
+                System.out.println("Aun no hay recomendaciones para usted. Escuche algunas canciones y vuelva a intentarlo.");
+                return;
+            }
+            for (int i = 0; i < recomendaciones.size(); i++) {
+                RecomendacionCancionDTORespuesta recomendacion = recomendaciones.get(i);
+                System.out.printf("%d. %s - %s (%s)\n", (i + 1), recomendacion.getTitulo(),
+                        recomendacion.getArtista(), recomendacion.getGenero());
+            }
+        } catch (RemoteException e) {
+            System.out.println("ERROR al consultar las recomendaciones: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Ocurrio un error inesperado: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lógica para la Opción 5: muestra los usuarios que escuchan canciones
+     * parecidas a las del usuario.
+     */
+    private void opcionVerUsuariosSimilares() {
+        streamingClient.detenerReproduccion();
+        System.out.println("\nBuscando oyentes parecidos a usted...");
+        try {
+            List<UsuarioSimilarDTORespuesta> similares =
+                    this.objFachadaRMI.getUsuariosSimilares(this.userId, SIMILARES_MOSTRADOS);
+
+            System.out.println("\n== Oyentes parecidos a usted ==");
+            if (similares.isEmpty()) {
+                System.out.println("Aun no encontramos oyentes parecidos. Escuche algunas canciones y vuelva a intentarlo.");
+                return;
+            }
+            for (UsuarioSimilarDTORespuesta similar : similares) {
+                System.out.printf("   - Usuario %d (%.0f%% de coincidencia)\n", similar.getIdUsuario(), similar.getSimilitud() * 100);
+            }
+        } catch (RemoteException e) {
+            System.out.println("ERROR al buscar oyentes parecidos: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Ocurrio un error inesperado: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lógica para la Opción 6: muestra los géneros, artistas e idiomas más
+     * escuchados por todos los usuarios en los últimos días.
+     */
+    private void opcionVerTendencias() {
+        streamingClient.detenerReproduccion();
+        int dias = UtilidadesConsola.leerEntero("Dias hacia atras a considerar (0 = todo el historial): ");
+        String desde = dias > 0 ? LocalDateTime.now().minusDays(dias).format(FORMATO_FECHA) : null;
+        System.out.println("\nConsultando las tendencias de la plataforma...");
+        try {
+            TendenciasDTORespuesta tendencias = this.objFachadaRMI.getTendencias(desde, null, TENDENCIAS_MOSTRADAS);
+
+            System.out.println(dias > 0
+                    ? "\n== Tendencias de los ultimos " + dias + " dias =="
+                    : "\n== Tendencias de siempre ==");
+            if (tendencias.getTotalReproducciones() == 0) {
+                System.out.println("No hay reproducciones en este periodo.");
+                return;
+            }
+            System.out.printf("%d reproducciones de %d usuarios\n", tendencias.getTotalReproducciones(), tendencias.getTotalUsuarios());
+
+            System.out.println("\n-- Generos mas escuchados --");
+            tendencias.getTendenciasGeneros().forEach(genero ->
+                System.out.printf("   - %s (%d veces, %.0f%% de los usuarios)\n", genero.getNombreGenero(),
+                        genero.getNumeroPreferencias(), genero.getPuntaje() * 100));
+
+            System.out.println("\n-- Artistas mas escuchados --");
+            tendencias.getTendenciasArtistas().forEach(artista ->
+                System.out.printf("   - %s (%d veces, %.0f%% de los usuarios)\n", artista.getNombreArtista(),
+                        artista.getNumeroPreferencias(), artista.getPuntaje() * 100));
+
+            System.out.println("\n-- Idiomas mas escuchados --");
+            tendencias.getTendenciasIdiomas().forEach(idioma ->
+                System.out.printf("   - %s (%d veces, %.0f%% de los usuarios)\n", idioma.getNombreIdioma(),
+                        idioma.getNumeroPreferencias(), idioma.getPuntaje() * 100));
+        } catch (RemoteException e) {
+            System.out.println("ERROR al consultar las tendencias: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Ocurrio un error inesperado: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lógica para la Opción 7: muestra los artistas, canciones y géneros más
+     * escuchados en toda la plataforma, con el margen de error de cada
+     * conteo.
+     */
+    private void opcionVerMasEscuchados() {
+        streamingClient.detenerReproduccion();
+        System.out.println("\nConsultando lo mas escuchado en la plataforma...");
+        try {
+            MasEscuchadosDTORespuesta masEscuchados = this.objFachadaRMI.getMasEscuchados(MAS_ESCUCHADOS_MOSTRADOS);
+
+            System.out.println("\n== Lo mas escuchado en la plataforma ==");
+            if (masEscuchados.getTotalReproducciones() == 0) {
+                System.out.println("Aun no hay reproducciones.");
+                return;
+            }
+            System.out.printf("%d reproducciones (conteos aproximados, error maximo %d)\n",
+                    masEscuchados.getTotalReproducciones(), masEscuchados.getErrorMaximo());
+
+            System.out.println("\n-- Artistas mas escuchados --");
+            masEscuchados.getArtistas().forEach(this::imprimirMasEscuchado);
+
+            System.out.println("\n-- Canciones mas escuchadas --");
+            masEscuchados.getCanciones().forEach(this::imprimirMasEscuchado);
+
+            System.out.println("\n-- Generos mas escuchados --");
+            masEscuchados.getGeneros().forEach(this::imprimirMasEscuchado);
+        } catch (RemoteException e) {
+            System.out.println("ERROR al consultar lo mas escuchado: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Ocurrio un error inesperado: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Imprime un histograma como barras horizontales proporcionales al mayor
+     * conteo.
+     */
+    private void imprimirHistograma(String[] etiquetas, int[] conteos) {
+        int maximo = 0;
+        for (int conteo : conteos) {
+            maximo = Math.max(maximo, conteo);
+        }
+        for (int i = 0; i < conteos.length && i < etiquetas.length; i++) {
+            int ancho = maximo > 0 ? (int) Math.round(conteos[i] * (double) ANCHO_HISTOGRAMA / maximo) : 0;
+            System.out.printf("   %-9s %s %d\n", etiquetas[i], "#".repeat(ancho), conteos[i]);
+        }
+    }
+
+    private void imprimirMasEscuchado(ElementoMasEscuchadoDTORespuesta elemento) {
+        if (elemento.getReproducciones().equals(elemento.getReproduccionesMinimas())) {
+            System.out.printf("   - %s (%d veces)\n", elemento.getNombre(), elemento.getReproducciones());
+        } else {
+            System.out.printf("   - %s (entre %d y %d veces)\n", elemento.getNombre(),
+                    elemento.getReproduccionesMinimas(), elemento.getReproducciones());
+        }
+    }
 }
@@ -8,6 +8,7 @@ import (
 	dtos "almacenamiento/capaFachadaServices/DTOs"
 	// Fachada encapsula la lógica de negocio y el acceso a datos.
 	capafachada "almacenamiento/capaFachadaServices/fachada"
+	"crypto/sha256"
 	"encoding/json"
 	"fmt"
 	"io"
@@ -30,6 +31,8 @@ func NuevoControladorAlmacenamientoCanciones() *ControladorAlmacenamientoCancion
 
 // ListarCanciones maneja las peticiones GET a /canciones.
 // Obtiene el catálogo completo de canciones desde la fachada y responde con un JSON.
+// Incluye una cabecera ETag calculada sobre el contenido y responde 304 (Not Modified)
+// cuando la petición trae un If-None-Match que coincide con el catálogo actual.
 // Retorna un error 405 si el método HTTP no es GET.
 func (thisC *ControladorAlmacenamientoCanciones) ListarCanciones(w http.ResponseWriter, r *http.Request) {
 	fmt.Println(" Petición REST para listar canciones recibida.")
@@ -41,12 +44,25 @@ func (thisC *ControladorAlmacenamientoCanciones) ListarCanciones(w http.Response
 
 	canciones := thisC.fachada.ListarCanciones()
 
-	w.Header().Set("Content-Type", "application/json")
-
-	err := json.NewEncoder(w).Encode(canciones)
+	cuerpo, err := json.Marshal(canciones)
 	if err != nil {
 		http.Error(w, "Error al generar la respuesta JSON", http.StatusInternalServerError)
+		return
 	}
+
+	// El ETag se deriva del contenido para que los clientes puedan revalidar
+	// el catálogo con If-None-Match y recibir 304 si no ha cambiado.
+	suma := sha256.Sum256(cuerpo)
+	etag := fmt.Sprintf("\"%x\"", suma[:16])
+	w.Header().Set("ETag", etag)
+
+	if r.Header.Get("If-None-Match") == etag {
+		w.WriteHeader(http.StatusNotModified)
+		return
+	}
+
+	w.Header().Set("Content-Type", "application/json")
+	w.Write(cuerpo)
 }
 
 // AlmacenarAudioCancion maneja las peticiones POST a /canciones/audio.
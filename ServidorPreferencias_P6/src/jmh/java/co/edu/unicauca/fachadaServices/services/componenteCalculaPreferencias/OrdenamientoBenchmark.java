@@ -0,0 +1,69 @@
+package co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compara el ordenamiento completo de las claves empaquetadas (conteo y
+ * código) con la selección de las {@code k} mayores de
+ * {@link SeleccionMayores}. Está en el paquete del calculador porque
+ * {@link SeleccionMayores} es privada del paquete.
+ * <p>
+ * Ambas variantes copian primero las claves a un búfer de trabajo, ya que
+ * las dos reordenan el arreglo; la copia forma parte de lo medido.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class OrdenamientoBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int numeroClaves;
+
+    @Param({"5", "50"})
+    public int k;
+
+    private long[] claves;
+    private long[] trabajo;
+
+    @Setup
+    public void preparar() {
+        Random aleatorio = new Random(20251020L);
+        this.claves = new long[this.numeroClaves];
+        for (int codigo = 0; codigo < this.numeroClaves; codigo++) {
+            // Conteos sesgados: la mayoría de códigos se escucha pocas veces.
+            long conteo = 1 + (long) (1000 * Math.pow(aleatorio.nextDouble(), 8));
+            this.claves[codigo] = (conteo << 32) | (Integer.MAX_VALUE - codigo);
+        }
+        this.trabajo = new long[this.numeroClaves];
+    }
+
+    @Benchmark
+    public long ordenarCompleto() {
+        System.arraycopy(this.claves, 0, this.trabajo, 0, this.numeroClaves);
+        Arrays.sort(this.trabajo, 0, this.numeroClaves);
+        return this.trabajo[this.numeroClaves - 1];
+    }
+
+    @Benchmark
+    public long seleccionarMayores() {
+        System.arraycopy(this.claves, 0, this.trabajo, 0, this.numeroClaves);
+        int total = SeleccionMayores.seleccionar(this.trabajo, this.numeroClaves, this.k);
+        return this.trabajo[total - 1];
+    }
+}
@@ -0,0 +1,113 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.DTO.ModoPreferencias;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AgregadoUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.CalculadorPreferencias;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.utilidades.DecaimientoExponencial;
+import co.edu.unicauca.utilidades.FechasReproduccion;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide {@link CalculadorPreferencias#calcular} sobre catálogos e historiales
+ * sintéticos de distintos tamaños: a partir del historial completo (listas
+ * completas, primeras 5 entradas y modo por reciencia) y a partir del
+ * agregado incremental del usuario. Para los últimos 30 días compara filtrar
+ * el historial interpretando cada fecha con sumar las cubetas diarias del
+ * agregado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CalculadorPreferenciasBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int tamanoCatalogo;
+
+    @Param({"10", "10000", "1000000"})
+    public int numeroReproducciones;
+
+    private IndiceCatalogo indice;
+    private List<ReproduccionesDTOEntrada> historial;
+    private AgregadoUsuario agregado;
+    private CalculadorPreferencias calculador;
+
+    /**
+     * Último día del historial generado; las ventanas terminan en él.
+     */
+    private int ultimoDia;
+
+    private final OpcionesPreferenciasDTO completas = OpcionesPreferenciasDTO.completas().normalizadas();
+    private final OpcionesPreferenciasDTO primeras = OpcionesPreferenciasDTO.primeras(5).normalizadas();
+    private final OpcionesPreferenciasDTO reciencia = completas.conModo(ModoPreferencias.RECIENCIA);
+
+    @Setup
+    public void preparar() {
+        GeneradorDatosSinteticos.silenciarSalidaEstandar();
+        List<CancionDTOEntrada> catalogo = GeneradorDatosSinteticos.catalogo(this.tamanoCatalogo, GeneradorDatosSinteticos.SEMILLA);
+        this.indice = IndiceCatalogo.construir(1L, catalogo);
+        this.historial = GeneradorDatosSinteticos.historial(catalogo, this.numeroReproducciones, GeneradorDatosSinteticos.SEMILLA + 1);
+        this.calculador = new CalculadorPreferencias();
+        this.agregado = new AgregadoUsuario(new DecaimientoExponencial(CalculadorPreferencias.SEMIVIDA_POR_DEFECTO_MS));
+        this.agregado.reconstruir(this.historial, System.currentTimeMillis());
+        this.ultimoDia = FechasReproduccion.diaLocal(
+                FechasReproduccion.aEpocaMs(this.historial.get(this.historial.size() - 1).getFechaHora()));
+    }
+
+    @Benchmark
+    public PreferenciasDTORespuesta historialListasCompletas() {
+        return this.calculador.calcular(1, this.indice, this.historial, this.completas);
+    }
+
+    @Benchmark
+    public PreferenciasDTORespuesta historialPrimeras5() {
+        return this.calculador.calcular(1, this.indice, this.historial, this.primeras);
+    }
+
+    @Benchmark
+    public PreferenciasDTORespuesta historialReciencia() {
+        return this.calculador.calcular(1, this.indice, this.historial, this.reciencia);
+    }
+
+    @Benchmark
+    public PreferenciasDTORespuesta agregadoListasCompletas() {
+        return this.calculador.calcular(1, this.indice, this.agregado, this.completas);
+    }
+
+    @Benchmark
+    public PreferenciasDTORespuesta historialUltimos30Dias() {
+        List<ReproduccionesDTOEntrada> ventana = new ArrayList<>();
+        for (ReproduccionesDTOEntrada reproduccion : this.historial) {
+            long instante = FechasReproduccion.aEpocaMs(reproduccion.getFechaHora());
+            if (instante != FechasReproduccion.SIN_FECHA && FechasReproduccion.diaLocal(instante) > this.ultimoDia - 30) {
+                ventana.add(reproduccion);
+            }
+        }
+        return this.calculador.calcular(1, this.indice, ventana, this.completas);
+    }
+
+    @Benchmark
+    public PreferenciasDTORespuesta agregadoUltimos30Dias() {
+        return this.calculador.calcularVentana(1, this.indice, this.agregado, this.ultimoDia - 29, this.ultimoDia, this.completas);
+    }
+}
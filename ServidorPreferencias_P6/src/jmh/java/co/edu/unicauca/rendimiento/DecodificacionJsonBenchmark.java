@@ -0,0 +1,92 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorCanciones.LectorCatalogoJson;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide la decodificación con Jackson de las respuestas JSON del Servidor de
+ * Canciones (catálogo) y del Servidor de Reproducciones (historial), con la
+ * misma configuración del {@link ObjectMapper} que usan los componentes de
+ * comunicación.
+ * <p>
+ * Para el catálogo se compara la decodificación a una lista seguida de la
+ * construcción del índice con la lectura en streaming de
+ * {@link LectorCatalogoJson}, que construye el índice directamente; con
+ * {@code -prof gc} se aprecia la diferencia de memoria reservada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DecodificacionJsonBenchmark {
+
+    /**
+     * Número de elementos de cada respuesta: canciones del catálogo y
+     * reproducciones del historial.
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int tamano;
+
+    private byte[] cuerpoCatalogo;
+    private byte[] cuerpoHistorial;
+    private ObjectReader lectorCatalogo;
+    private ObjectReader lectorHistorial;
+    private final JsonFactory fabricaJson = new JsonFactory();
+
+    @Setup
+    public void preparar() {
+        List<CancionDTOEntrada> catalogo = GeneradorDatosSinteticos.catalogo(this.tamano, GeneradorDatosSinteticos.SEMILLA);
+        this.cuerpoCatalogo = GeneradorDatosSinteticos.aJson(catalogo);
+        this.cuerpoHistorial = GeneradorDatosSinteticos.aJson(
+                GeneradorDatosSinteticos.historial(catalogo, this.tamano, GeneradorDatosSinteticos.SEMILLA + 1));
+
+        ObjectMapper mapeador = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.lectorCatalogo = mapeador.readerFor(new TypeReference<List<CancionDTOEntrada>>() { });
+        this.lectorHistorial = mapeador.readerFor(new TypeReference<List<ReproduccionesDTOEntrada>>() { });
+    }
+
+    @Benchmark
+    public List<CancionDTOEntrada> catalogo() throws IOException {
+        return this.lectorCatalogo.readValue(this.cuerpoCatalogo);
+    }
+
+    @Benchmark
+    public IndiceCatalogo catalogoAListaEIndice() throws IOException {
+        List<CancionDTOEntrada> canciones = this.lectorCatalogo.readValue(this.cuerpoCatalogo);
+        return IndiceCatalogo.construir(1L, canciones);
+    }
+
+    @Benchmark
+    public IndiceCatalogo catalogoEnStreaming() throws IOException {
+        return LectorCatalogoJson.leer(this.fabricaJson, new ByteArrayInputStream(this.cuerpoCatalogo), 1L);
+    }
+
+    @Benchmark
+    public List<ReproduccionesDTOEntrada> historial() throws IOException {
+        return this.lectorHistorial.readValue(this.cuerpoHistorial);
+    }
+}
@@ -0,0 +1,101 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import co.edu.unicauca.utilidades.FechasReproduccion;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compara la interpretación de las fechas de reproducción con
+ * {@link DateTimeFormatter} y {@link LocalDateTime#atZone(ZoneId)} con el
+ * intérprete a mano de {@link FechasReproduccion}, tanto para obtener los
+ * segundos desde la época como para los histogramas por hora y por día de la
+ * semana. Los tiempos son por fecha; con {@code -prof gc} se aprecia que el
+ * intérprete a mano no reserva memoria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class FechasReproduccionBenchmark {
+
+    private static final int FECHAS = 1 << 16;
+
+    private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ZoneId zona = ZoneId.systemDefault();
+
+    private String[] fechas;
+
+    @Setup
+    public void preparar() {
+        GeneradorDatosSinteticos.silenciarSalidaEstandar();
+        List<CancionDTOEntrada> catalogo = GeneradorDatosSinteticos.catalogo(1_000, GeneradorDatosSinteticos.SEMILLA);
+        List<ReproduccionesDTOEntrada> historial = GeneradorDatosSinteticos.historial(catalogo, FECHAS, GeneradorDatosSinteticos.SEMILLA);
+        this.fechas = new String[FECHAS];
+        for (int i = 0; i < FECHAS; i++) {
+            this.fechas[i] = historial.get(i).getFechaHora();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FECHAS)
+    public long epocaJavaTime() {
+        long suma = 0L;
+        for (String fecha : this.fechas) {
+            suma += LocalDateTime.parse(fecha, FORMATO).atZone(this.zona).toEpochSecond();
+        }
+        return suma;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FECHAS)
+    public long epocaFechasReproduccion() {
+        long suma = 0L;
+        for (String fecha : this.fechas) {
+            suma += FechasReproduccion.aEpocaSegundos(fecha);
+        }
+        return suma;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FECHAS)
+    public int[] histogramasJavaTime() {
+        int[] histogramas = new int[24 + 7];
+        for (String fecha : this.fechas) {
+            LocalDateTime local = LocalDateTime.parse(fecha, FORMATO);
+            histogramas[local.getHour()]++;
+            histogramas[24 + local.getDayOfWeek().ordinal()]++;
+        }
+        return histogramas;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FECHAS)
+    public int[] histogramasFechasReproduccion() {
+        int[] histogramas = new int[24 + 7];
+        for (String fecha : this.fechas) {
+            long locales = FechasReproduccion.aSegundosLocales(fecha);
+            histogramas[FechasReproduccion.hora(locales)]++;
+            histogramas[24 + FechasReproduccion.diaSemana(locales)]++;
+        }
+        return histogramas;
+    }
+}
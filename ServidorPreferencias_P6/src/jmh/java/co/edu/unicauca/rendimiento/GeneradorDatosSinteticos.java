@@ -0,0 +1,160 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generadores de datos sintéticos para los benchmarks.
+ * <p>
+ * Todos los generadores reciben una semilla, de modo que dos ejecuciones con
+ * los mismos parámetros producen exactamente los mismos datos. Los artistas y
+ * las canciones escuchadas siguen una distribución de Zipf (pocos artistas
+ * concentran la mayoría de canciones y reproducciones), que es la forma
+ * habitual de los catálogos musicales reales.
+ */
+public final class GeneradorDatosSinteticos {
+
+    /**
+     * Semilla usada por defecto en todos los benchmarks.
+     */
+    public static final long SEMILLA = 20251020L;
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * Instante fijo en que termina el historial generado; no depende del
+     * reloj para que los datos sean reproducibles.
+     */
+    private static final LocalDateTime FIN_HISTORIAL = LocalDateTime.of(2025, 10, 20, 12, 0, 0);
+
+    /**
+     * Duración del historial generado: tres años.
+     */
+    private static final long SEGUNDOS_HISTORIAL = 3L * 365 * 24 * 60 * 60;
+
+    private static final ObjectMapper MAPEADOR = new ObjectMapper();
+
+    private GeneradorDatosSinteticos() {
+    }
+
+    /**
+     * Genera un catálogo de canciones con títulos únicos. Hay una décima parte
+     * de artistas que de canciones, 40 géneros y 12 idiomas, asignados con
+     * distribución de Zipf.
+     *
+     * @param numeroCanciones el tamaño del catálogo.
+     * @param semilla         la semilla del generador aleatorio.
+     * @return el catálogo.
+     */
+    public static List<CancionDTOEntrada> catalogo(int numeroCanciones, long semilla) {
+        Random aleatorio = new Random(semilla);
+        DistribucionZipf artistas = new DistribucionZipf(Math.max(1, numeroCanciones / 10), 1.1);
+        DistribucionZipf generos = new DistribucionZipf(40, 1.0);
+        DistribucionZipf idiomas = new DistribucionZipf(12, 1.3);
+        List<CancionDTOEntrada> canciones = new ArrayList<>(numeroCanciones);
+        for (int i = 0; i < numeroCanciones; i++) {
+            canciones.add(new CancionDTOEntrada(
+                    "Cancion " + i,
+                    "Artista " + artistas.muestra(aleatorio),
+                    "Genero " + generos.muestra(aleatorio),
+                    "Idioma " + idiomas.muestra(aleatorio)));
+        }
+        return canciones;
+    }
+
+    /**
+     * Genera el historial de reproducciones de un usuario sobre un catálogo.
+     * Las canciones se eligen con distribución de Zipf y las fechas avanzan
+     * a lo largo de tres años, con secuencias crecientes desde 1.
+     *
+     * @param catalogo             el catálogo del que se eligen las canciones.
+     * @param numeroReproducciones el tamaño del historial.
+     * @param semilla              la semilla del generador aleatorio.
+     * @return el historial, en orden de secuencia.
+     */
+    public static List<ReproduccionesDTOEntrada> historial(List<CancionDTOEntrada> catalogo, int numeroReproducciones, long semilla) {
+        Random aleatorio = new Random(semilla);
+        DistribucionZipf canciones = new DistribucionZipf(catalogo.size(), 1.05);
+        LocalDateTime inicio = FIN_HISTORIAL.minusSeconds(SEGUNDOS_HISTORIAL);
+        List<ReproduccionesDTOEntrada> reproducciones = new ArrayList<>(numeroReproducciones);
+        for (int i = 0; i < numeroReproducciones; i++) {
+            long segundo = SEGUNDOS_HISTORIAL * (i + 1) / numeroReproducciones;
+            ReproduccionesDTOEntrada reproduccion = new ReproduccionesDTOEntrada(
+                    1,
+                    catalogo.get(canciones.muestra(aleatorio)).getTitulo(),
+                    inicio.plusSeconds(segundo).format(FORMATO_FECHA),
+                    (long) (i + 1));
+            reproducciones.add(reproduccion);
+        }
+        return reproducciones;
+    }
+
+    /**
+     * Serializa un objeto a JSON tal como lo enviarían los servidores Go.
+     *
+     * @param objeto el objeto a serializar.
+     * @return el cuerpo JSON en UTF-8.
+     */
+    public static byte[] aJson(Object objeto) {
+        try {
+            return MAPEADOR.writeValueAsBytes(objeto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el objeto de prueba", e);
+        }
+    }
+
+    /**
+     * Descarta la salida estándar del proceso del benchmark. Los componentes
+     * medidos imprimen ecos por consola en cada llamada; sin esto, el coste de
+     * la consola dominaría las mediciones. Los resultados de JMH no se ven
+     * afectados porque viajan por su propio canal.
+     */
+    public static void silenciarSalidaEstandar() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Distribución de Zipf sobre {@code [0, n)} muestreada por búsqueda binaria
+     * sobre la función de distribución acumulada.
+     */
+    static final class DistribucionZipf {
+
+        private final double[] acumulada;
+
+        DistribucionZipf(int n, double exponente) {
+            this.acumulada = new double[n];
+            double suma = 0.0;
+            for (int i = 0; i < n; i++) {
+                suma += 1.0 / Math.pow(i + 1, exponente);
+                this.acumulada[i] = suma;
+            }
+            for (int i = 0; i < n; i++) {
+                this.acumulada[i] /= suma;
+            }
+        }
+
+        int muestra(Random aleatorio) {
+            double u = aleatorio.nextDouble();
+            int bajo = 0;
+            int alto = this.acumulada.length - 1;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (this.acumulada[medio] < u) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide la construcción del {@link IndiceCatalogo} (diccionarios de títulos,
+ * artistas, géneros e idiomas) que se realiza una vez por versión del
+ * catálogo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class IndiceCatalogoBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int tamanoCatalogo;
+
+    private List<CancionDTOEntrada> catalogo;
+
+    @Setup
+    public void preparar() {
+        GeneradorDatosSinteticos.silenciarSalidaEstandar();
+        this.catalogo = GeneradorDatosSinteticos.catalogo(this.tamanoCatalogo, GeneradorDatosSinteticos.SEMILLA);
+    }
+
+    @Benchmark
+    public IndiceCatalogo construir() {
+        return IndiceCatalogo.construir(1L, this.catalogo);
+    }
+}
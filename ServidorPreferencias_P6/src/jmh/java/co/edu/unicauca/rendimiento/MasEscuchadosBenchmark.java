@@ -0,0 +1,113 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.DTO.MasEscuchadosDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.fachadaServices.services.componenteMasEscuchados.MasEscuchadosPlataforma;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide {@link MasEscuchadosPlataforma}: el costo de contar una reproducción
+ * en los resúmenes y el de una consulta que combina los resúmenes de varias
+ * instancias, con canciones de popularidad sesgada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class MasEscuchadosBenchmark {
+
+    private static final int TAMANO_CATALOGO = 10_000;
+    private static final int NUMERO_USUARIOS = 100_000;
+    private static final int REPRODUCCIONES_PREVIAS = 1_000_000;
+
+    /**
+     * Reproducciones pregeneradas que se observan en ciclo; la secuencia se
+     * asigna al observarlas, para que ninguna se descarte como repetida.
+     */
+    private static final int REPRODUCCIONES_CICLO = 1 << 16;
+
+    @Param({"1000"})
+    public int contadores;
+
+    @Param({"1", "4"})
+    public int instancias;
+
+    private MasEscuchadosPlataforma masEscuchados;
+    private List<byte[]> ajenos;
+    private int[] usuarios;
+    private String[] titulos;
+    private long secuencia;
+    private int siguiente;
+
+    @Setup
+    public void preparar() {
+        GeneradorDatosSinteticos.silenciarSalidaEstandar();
+        List<CancionDTOEntrada> canciones = GeneradorDatosSinteticos.catalogo(TAMANO_CATALOGO, GeneradorDatosSinteticos.SEMILLA);
+        IndiceCatalogo catalogo = IndiceCatalogo.construir(1L, canciones);
+        Random aleatorio = new Random(GeneradorDatosSinteticos.SEMILLA);
+        GeneradorDatosSinteticos.DistribucionZipf popularidad = new GeneradorDatosSinteticos.DistribucionZipf(TAMANO_CATALOGO, 1.05);
+        this.usuarios = new int[REPRODUCCIONES_CICLO];
+        this.titulos = new String[REPRODUCCIONES_CICLO];
+        for (int i = 0; i < REPRODUCCIONES_CICLO; i++) {
+            this.usuarios[i] = aleatorio.nextInt(NUMERO_USUARIOS);
+            this.titulos[i] = catalogo.tituloDe(popularidad.muestra(aleatorio));
+        }
+        this.masEscuchados = new MasEscuchadosPlataforma(() -> catalogo, this.contadores,
+                MasEscuchadosPlataforma.ANCHO_POR_DEFECTO, MasEscuchadosPlataforma.PROFUNDIDAD_POR_DEFECTO, null, 0L);
+        for (int i = 0; i < REPRODUCCIONES_PREVIAS; i++) {
+            observarReproduccion();
+        }
+        MasEscuchadosPlataforma otra = new MasEscuchadosPlataforma(() -> catalogo, this.contadores,
+                MasEscuchadosPlataforma.ANCHO_POR_DEFECTO, MasEscuchadosPlataforma.PROFUNDIDAD_POR_DEFECTO, null, 0L);
+        for (int i = 0; i < REPRODUCCIONES_PREVIAS; i++) {
+            otra.observar(new ReproduccionesDTOEntrada(aleatorio.nextInt(NUMERO_USUARIOS),
+                    catalogo.tituloDe(popularidad.muestra(aleatorio)), null, null));
+        }
+        byte[] resumen = otra.exportar();
+        otra.cerrar();
+        this.ajenos = Collections.nCopies(this.instancias - 1, resumen);
+        System.err.println("Resumenes de " + this.contadores + " contadores: " + resumen.length + " bytes exportados, "
+                + this.masEscuchados.getMemoriaEstimada() + " bytes en memoria con las secuencias de "
+                + NUMERO_USUARIOS + " usuarios");
+    }
+
+    @TearDown
+    public void cerrar() {
+        this.masEscuchados.cerrar();
+    }
+
+    @Benchmark
+    public void observar() {
+        observarReproduccion();
+    }
+
+    @Benchmark
+    public MasEscuchadosDTORespuesta consultar() throws IOException {
+        return this.masEscuchados.consultar(10, this.ajenos);
+    }
+
+    private void observarReproduccion() {
+        int i = this.siguiente++ & (REPRODUCCIONES_CICLO - 1);
+        this.masEscuchados.observar(new ReproduccionesDTOEntrada(this.usuarios[i], this.titulos[i], null, ++this.secuencia));
+    }
+}
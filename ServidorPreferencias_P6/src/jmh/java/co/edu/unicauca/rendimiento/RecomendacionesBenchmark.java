@@ -0,0 +1,110 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.DTO.RecomendacionCancionDTORespuesta;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.fachadaServices.services.componenteRecomendaciones.IndiceRecomendaciones;
+import co.edu.unicauca.fachadaServices.services.componenteRecomendaciones.MatrizCoocurrencias;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide el {@link IndiceRecomendaciones}: la construcción de la
+ * {@link MatrizCoocurrencias} con uno o varios hilos y la latencia de una
+ * recomendación, con usuarios cuyas canciones siguen una popularidad sesgada
+ * (pocas canciones muy escuchadas y una cola larga).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RecomendacionesBenchmark {
+
+    private static final int TAMANO_CATALOGO = 10_000;
+    private static final int CANCIONES_POR_USUARIO = 30;
+    private static final int VECINOS = 50;
+
+    @Param({"100000"})
+    public int numeroUsuarios;
+
+    @Param({"1", "4"})
+    public int paralelismo;
+
+    private IndiceCatalogo catalogo;
+    private Map<Integer, int[]> conjuntos;
+    private int[] inicioUsuario;
+    private int[] cancionesUsuario;
+    private ForkJoinPool pool;
+    private IndiceRecomendaciones indice;
+    private int siguienteUsuario;
+
+    @Setup
+    public void preparar() {
+        GeneradorDatosSinteticos.silenciarSalidaEstandar();
+        List<CancionDTOEntrada> canciones = GeneradorDatosSinteticos.catalogo(TAMANO_CATALOGO, GeneradorDatosSinteticos.SEMILLA);
+        this.catalogo = IndiceCatalogo.construir(1L, canciones);
+
+        Random aleatorio = new Random(GeneradorDatosSinteticos.SEMILLA);
+        this.conjuntos = new HashMap<>();
+        this.inicioUsuario = new int[this.numeroUsuarios + 1];
+        this.cancionesUsuario = new int[this.numeroUsuarios * CANCIONES_POR_USUARIO];
+        int[] marca = new int[TAMANO_CATALOGO];
+        for (int u = 0; u < this.numeroUsuarios; u++) {
+            int numero = 0;
+            int[] propias = new int[CANCIONES_POR_USUARIO];
+            while (numero < CANCIONES_POR_USUARIO) {
+                double r = aleatorio.nextDouble();
+                int cancion = (int) (TAMANO_CATALOGO * r * r * r);
+                if (marca[cancion] != u + 1) {
+                    marca[cancion] = u + 1;
+                    propias[numero++] = cancion;
+                }
+            }
+            this.conjuntos.put(u, propias);
+            System.arraycopy(propias, 0, this.cancionesUsuario, u * CANCIONES_POR_USUARIO, CANCIONES_POR_USUARIO);
+            this.inicioUsuario[u + 1] = (u + 1) * CANCIONES_POR_USUARIO;
+        }
+
+        this.pool = new ForkJoinPool(this.paralelismo);
+        this.indice = new IndiceRecomendaciones(VECINOS, CANCIONES_POR_USUARIO, IndiceRecomendaciones.COMPACTAR_DELTAS_POR_DEFECTO,
+                this.paralelismo);
+        this.indice.construirEInstalar(this.catalogo, this.conjuntos);
+    }
+
+    @TearDown
+    public void cerrar() {
+        this.pool.shutdownNow();
+        this.indice.cerrar();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MatrizCoocurrencias construirMatriz() {
+        return MatrizCoocurrencias.construir(TAMANO_CATALOGO, this.inicioUsuario, this.cancionesUsuario, VECINOS, this.pool);
+    }
+
+    @Benchmark
+    public List<RecomendacionCancionDTORespuesta> recomendar() {
+        int usuario = this.siguienteUsuario;
+        this.siguienteUsuario = usuario + 1 == this.numeroUsuarios ? 0 : usuario + 1;
+        return this.indice.recomendar(usuario, 10);
+    }
+}
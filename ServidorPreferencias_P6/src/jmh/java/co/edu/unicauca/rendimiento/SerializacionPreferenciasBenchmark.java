@@ -0,0 +1,160 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.DTO.ModoPreferencias;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciaArtistaDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciaGeneroDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciaIdiomaDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.CalculadorPreferencias;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compara, para la respuesta RMI del servicio de preferencias, el formato
+ * compacto de {@code PreferenciasDTORespuesta} (Externalizable con tabla de
+ * cadenas) con la serialización por defecto de Java del mismo grafo de
+ * objetos.
+ * <p>
+ * La respuesta se calcula con {@link CalculadorPreferencias} sobre un
+ * catálogo y un historial sintéticos, en modo por reciencia para que las
+ * entradas lleven puntaje. Los bytes de cada formato aparecen en los
+ * resultados como el contador auxiliar {@code bytes}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SerializacionPreferenciasBenchmark {
+
+    /**
+     * Canciones del catálogo; determina cuántos artistas distintos aparecen
+     * en la respuesta.
+     */
+    @Param({"1000", "100000"})
+    public int tamanoCatalogo;
+
+    @Param({"100", "10000"})
+    public int numeroReproducciones;
+
+    private PreferenciasDTORespuesta compacta;
+    private RespuestaPorDefecto porDefecto;
+    private byte[] bytesCompacta;
+    private byte[] bytesPorDefecto;
+
+    /**
+     * Tamaño en bytes de la respuesta serializada, publicado por JMH junto a
+     * los tiempos.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Tamano {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            this.bytes = 0;
+        }
+    }
+
+    @Setup
+    public void preparar() {
+        GeneradorDatosSinteticos.silenciarSalidaEstandar();
+        List<CancionDTOEntrada> catalogo = GeneradorDatosSinteticos.catalogo(this.tamanoCatalogo, GeneradorDatosSinteticos.SEMILLA);
+        IndiceCatalogo indice = IndiceCatalogo.construir(1L, catalogo);
+        this.compacta = new CalculadorPreferencias().calcular(1, indice,
+                GeneradorDatosSinteticos.historial(catalogo, this.numeroReproducciones, GeneradorDatosSinteticos.SEMILLA + 1),
+                OpcionesPreferenciasDTO.completas().conModo(ModoPreferencias.RECIENCIA).normalizadas());
+        this.porDefecto = new RespuestaPorDefecto(this.compacta);
+        this.bytesCompacta = serializar(this.compacta);
+        this.bytesPorDefecto = serializar(this.porDefecto);
+    }
+
+    @Benchmark
+    public byte[] codificarCompacta(Tamano tamano) {
+        byte[] bytes = serializar(this.compacta);
+        tamano.bytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] codificarPorDefecto(Tamano tamano) {
+        byte[] bytes = serializar(this.porDefecto);
+        tamano.bytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public Object decodificarCompacta() {
+        return deserializar(this.bytesCompacta);
+    }
+
+    @Benchmark
+    public Object decodificarPorDefecto() {
+        return deserializar(this.bytesPorDefecto);
+    }
+
+    private static byte[] serializar(Object objeto) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (ObjectOutputStream salida = new ObjectOutputStream(bytes)) {
+            salida.writeObject(objeto);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserializar(byte[] bytes) {
+        try (ObjectInputStream entrada = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return entrada.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Mismo grafo que {@code PreferenciasDTORespuesta} antes del formato
+     * compacto: se serializa con el mecanismo por defecto de Java.
+     */
+    static final class RespuestaPorDefecto implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int idUsuario;
+        private final List<PreferenciaGeneroDTORespuesta> preferenciasGeneros;
+        private final List<PreferenciaArtistaDTORespuesta> preferenciasArtistas;
+        private final List<PreferenciaIdiomaDTORespuesta> preferenciasIdiomas;
+
+        RespuestaPorDefecto(PreferenciasDTORespuesta respuesta) {
+            this.idUsuario = respuesta.getIdUsuario();
+            this.preferenciasGeneros = respuesta.getPreferenciasGeneros();
+            this.preferenciasArtistas = respuesta.getPreferenciasArtistas();
+            this.preferenciasIdiomas = respuesta.getPreferenciasIdiomas();
+        }
+    }
+}
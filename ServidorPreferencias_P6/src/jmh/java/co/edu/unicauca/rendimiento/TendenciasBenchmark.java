@@ -0,0 +1,93 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.TendenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.fachadaServices.services.componenteTendencias.AgregadorTendencias;
+import co.edu.unicauca.fachadaServices.services.componenteTendencias.RegistroColumnarReproducciones;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide el {@link AgregadorTendencias}: la agregación de las tendencias de
+ * toda la plataforma sobre un {@link RegistroColumnarReproducciones}, con
+ * todo el historial o solo el último mes, y con uno o varios hilos. Los
+ * usuarios tienen historiales de longitud muy desigual, como en la
+ * plataforma real.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class TendenciasBenchmark {
+
+    private static final int TAMANO_CATALOGO = 10_000;
+    private static final int NUMERO_USUARIOS = 200_000;
+
+    /**
+     * Fin del historial generado: 2025-10-20T12:00:00Z.
+     */
+    private static final long FIN_HISTORIAL_MS = 1_760_961_600_000L;
+    private static final long DURACION_HISTORIAL_MS = 3L * 365 * 24 * 60 * 60 * 1000;
+    private static final long UN_MES_MS = 30L * 24 * 60 * 60 * 1000;
+
+    @Param({"10000000"})
+    public int numeroReproducciones;
+
+    @Param({"1", "4"})
+    public int paralelismo;
+
+    private RegistroColumnarReproducciones registro;
+    private AgregadorTendencias agregador;
+
+    @Setup
+    public void preparar() {
+        GeneradorDatosSinteticos.silenciarSalidaEstandar();
+        IndiceCatalogo catalogo = IndiceCatalogo.construir(1L,
+                GeneradorDatosSinteticos.catalogo(TAMANO_CATALOGO, GeneradorDatosSinteticos.SEMILLA));
+        Random aleatorio = new Random(GeneradorDatosSinteticos.SEMILLA);
+        GeneradorDatosSinteticos.DistribucionZipf usuarios = new GeneradorDatosSinteticos.DistribucionZipf(NUMERO_USUARIOS, 0.8);
+        GeneradorDatosSinteticos.DistribucionZipf canciones = new GeneradorDatosSinteticos.DistribucionZipf(TAMANO_CATALOGO, 1.05);
+        RegistroColumnarReproducciones.Constructor constructor = new RegistroColumnarReproducciones.Constructor(catalogo);
+        long inicioHistorialMs = FIN_HISTORIAL_MS - DURACION_HISTORIAL_MS;
+        for (int i = 0; i < this.numeroReproducciones; i++) {
+            long instanteMs = inicioHistorialMs + DURACION_HISTORIAL_MS * (i + 1L) / this.numeroReproducciones;
+            constructor.agregar(usuarios.muestra(aleatorio), canciones.muestra(aleatorio),
+                    RegistroColumnarReproducciones.aInstante(instanteMs));
+        }
+        long inicio = System.nanoTime();
+        this.registro = constructor.construir();
+        System.err.println("Registro de " + this.registro.numeroReproducciones() + " reproducciones y "
+                + this.registro.numeroUsuarios() + " usuarios agrupado en "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+        this.agregador = new AgregadorTendencias(AgregadorTendencias.TTL_POR_DEFECTO_MS, this.paralelismo);
+    }
+
+    @TearDown
+    public void cerrar() {
+        this.agregador.cerrar();
+    }
+
+    @Benchmark
+    public TendenciasDTORespuesta agregarTodoElHistorial() {
+        return this.agregador.agregar(this.registro, Long.MIN_VALUE, Long.MAX_VALUE, 10);
+    }
+
+    @Benchmark
+    public TendenciasDTORespuesta agregarUltimoMes() {
+        return this.agregador.agregar(this.registro, FIN_HISTORIAL_MS - UN_MES_MS, FIN_HISTORIAL_MS, 10);
+    }
+}
@@ -0,0 +1,90 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.UsuarioSimilarDTORespuesta;
+import co.edu.unicauca.fachadaServices.services.componenteUsuariosSimilares.IndiceUsuariosSimilares;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide el {@link IndiceUsuariosSimilares}: la búsqueda de los usuarios más
+ * parecidos a uno y la actualización de una firma con un título nuevo, con
+ * usuarios agrupados por gustos (cada uno escucha canciones de su grupo y
+ * algunas al azar).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class UsuariosSimilaresBenchmark {
+
+    private static final int GRUPOS = 500;
+    private static final int CANCIONES_POR_GRUPO = 40;
+    private static final int TITULOS_POR_USUARIO = 25;
+
+    @Param({"100000"})
+    public int numeroUsuarios;
+
+    private IndiceUsuariosSimilares indice;
+    private String[] titulosNuevos;
+    private int siguienteUsuario;
+    private int siguienteTitulo;
+
+    @Setup
+    public void preparar() {
+        GeneradorDatosSinteticos.silenciarSalidaEstandar();
+        this.indice = new IndiceUsuariosSimilares(IndiceUsuariosSimilares.PERMUTACIONES_POR_DEFECTO,
+                IndiceUsuariosSimilares.BANDAS_POR_DEFECTO, this.numeroUsuarios,
+                IndiceUsuariosSimilares.MAXIMO_POR_CUBETA_POR_DEFECTO);
+        Random aleatorio = new Random(GeneradorDatosSinteticos.SEMILLA);
+        for (int u = 0; u < this.numeroUsuarios; u++) {
+            int grupo = u % GRUPOS;
+            for (int t = 0; t < TITULOS_POR_USUARIO; t++) {
+                String titulo = t < 20
+                        ? "G" + grupo + "_" + aleatorio.nextInt(CANCIONES_POR_GRUPO)
+                        : "R" + aleatorio.nextInt(1_000_000);
+                this.indice.agregarTitulo(u, titulo);
+            }
+        }
+        this.titulosNuevos = new String[4096];
+        for (int i = 0; i < this.titulosNuevos.length; i++) {
+            this.titulosNuevos[i] = "N" + aleatorio.nextInt(1_000_000);
+        }
+        System.err.println("Memoria estimada del indice: " + this.indice.getMemoriaEstimada() / 1024 + " KiB");
+    }
+
+    @TearDown
+    public void cerrar() {
+        this.indice.cerrar();
+    }
+
+    @Benchmark
+    public List<UsuarioSimilarDTORespuesta> buscarSimilares() {
+        int usuario = this.siguienteUsuario;
+        this.siguienteUsuario = usuario + 1 == this.numeroUsuarios ? 0 : usuario + 1;
+        return this.indice.usuariosSimilares(usuario, 10);
+    }
+
+    @Benchmark
+    public void agregarTitulo() {
+        int usuario = this.siguienteUsuario;
+        this.siguienteUsuario = usuario + 1 == this.numeroUsuarios ? 0 : usuario + 1;
+        int titulo = this.siguienteTitulo;
+        this.siguienteTitulo = (titulo + 1) & (this.titulosNuevos.length - 1);
+        this.indice.agregarTitulo(usuario, this.titulosNuevos[titulo]);
+    }
+}
@@ -0,0 +1,171 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.utilidades.FechasReproduccion;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Verifica que el intérprete a mano de {@link FechasReproduccion} da los
+ * mismos resultados que {@link DateTimeFormatter} y
+ * {@link LocalDateTime#atZone(ZoneId)}, a los que sustituye.
+ * <p>
+ * Compara, en varios husos (con y sin cambios de hora), fechas aleatorias
+ * entre 1938 y 2096, otras con un carácter alterado, casos límite fijos
+ * (días fuera del mes, años bisiestos, {@code 24:00:00}, formatos
+ * inválidos) y las horas alrededor de cada cambio de hora del huso, que
+ * ejercitan las horas inexistentes, las repetidas y los bordes del tramo
+ * guardado. Comprueba además {@link FechasReproduccion#diaLocal(long)},
+ * {@link FechasReproduccion#hora(long)} y
+ * {@link FechasReproduccion#diaSemana(long)}.
+ * <p>
+ * Como el huso de {@link FechasReproduccion} se fija al cargar la clase, cada
+ * huso se verifica en una JVM hija. Se ejecuta en el perfil {@code jmh} antes
+ * de los benchmarks ({@code mvn -Pjmh verify}) y falla la construcción si
+ * encuentra alguna diferencia; también puede lanzarse sola:
+ * <pre>
+ * java -cp target/classes:target/test-classes co.edu.unicauca.rendimiento.VerificacionFechasReproduccion [husos...]
+ * </pre>
+ */
+public final class VerificacionFechasReproduccion {
+
+    private static final String[] HUSOS = {
+        "UTC", "America/Bogota", "America/New_York", "Europe/London", "Australia/Lord_Howe"
+    };
+
+    private static final int FECHAS_ALEATORIAS = 300_000;
+
+    private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String[] CASOS_FIJOS = {
+        "2025-03-09 02:30:00", "2025-11-02 01:30:00", "2024-02-30 10:00:00", "2023-02-29 00:00:00",
+        "2000-02-29 12:00:00", "2100-02-29 12:00:00", "2025-04-31 23:59:59", "0000-01-01 00:00:00",
+        "0001-01-01 00:00:00", "9999-12-31 23:59:59", "1969-12-31 23:59:59", "1970-01-01 00:00:00",
+        "1900-03-01 00:00:00", "2025-01-01 24:00:00", "2024-12-31 24:00:00", "2025-02-30 24:00:00",
+        "2025-01-01 24:00:01", "2025-01-01 24:01:00", "2025-01-01 25:00:00", "2025-13-01 00:00:00",
+        "2025-00-10 00:00:00", "2025-01-00 00:00:00", "2025-01-32 00:00:00", "2025-01-01 00:60:00",
+        "2025-01-01 00:00:60", "2025-1-01 00:00:00 ", "abcd-01-01 00:00:00", "2025-01-01T00:00:00",
+        "+025-01-01 00:00:00", "2025/01/01 00:00:00", "2025-01-01 00:00:0", "", " 2025-01-01 00:00:00"
+    };
+
+    private VerificacionFechasReproduccion() {
+    }
+
+    /**
+     * @param args los husos que se verifican; si se omiten, los de
+     *             {@link #HUSOS}. Con {@code --en-este-huso} verifica solo
+     *             el huso de esta JVM.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 1 && args[0].equals("--en-este-huso")) {
+            System.exit(verificarHusoActual() == 0 ? 0 : 1);
+        }
+        String[] husos = args.length > 0 ? args : HUSOS;
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        boolean correcto = true;
+        for (String huso : husos) {
+            Process hija = new ProcessBuilder(java, "-Duser.timezone=" + huso,
+                    "-cp", System.getProperty("java.class.path"),
+                    VerificacionFechasReproduccion.class.getName(), "--en-este-huso")
+                    .inheritIO().start();
+            correcto &= hija.waitFor() == 0;
+        }
+        if (!correcto) {
+            System.err.println("FechasReproduccion difiere de java.time");
+            System.exit(1);
+        }
+        System.out.println("FechasReproduccion coincide con java.time en " + husos.length + " husos");
+    }
+
+    /**
+     * @return el número de diferencias encontradas en el huso de esta JVM.
+     */
+    private static int verificarHusoActual() {
+        ZoneId zona = ZoneId.systemDefault();
+        List<String> fechas = new ArrayList<>(List.of(CASOS_FIJOS));
+        Random aleatorio = new Random(20251020L);
+        for (int i = 0; i < FECHAS_ALEATORIAS; i++) {
+            long segundos = (long) (aleatorio.nextDouble() * 5_000_000_000L) - 1_000_000_000L;
+            String fecha = LocalDateTime.ofEpochSecond(segundos, 0, ZoneOffset.UTC).format(FORMATO);
+            if (aleatorio.nextInt(10) == 0) {
+                char[] caracteres = fecha.toCharArray();
+                caracteres[aleatorio.nextInt(caracteres.length)] = (char) ('0' + aleatorio.nextInt(12));
+                fecha = new String(caracteres);
+            }
+            fechas.add(fecha);
+        }
+        // Las horas alrededor de cada cambio de hora de 1990 a 2040: desde 2
+        // horas antes hasta 2 horas después, cada 7 segundos.
+        LocalDateTime desde = LocalDateTime.of(1990, 1, 1, 0, 0);
+        ZoneOffsetTransition cambio = zona.getRules().nextTransition(desde.atZone(zona).toInstant());
+        while (cambio != null && cambio.getDateTimeBefore().getYear() < 2040) {
+            LocalDateTime centro = cambio.getDateTimeBefore();
+            for (long s = -7200; s <= 7200; s += 7) {
+                fechas.add(centro.plusSeconds(s).format(FORMATO));
+            }
+            cambio = zona.getRules().nextTransition(cambio.getInstant());
+        }
+
+        int diferencias = 0;
+        for (String fecha : fechas) {
+            long esperado = epocaJavaTime(fecha, zona);
+            long obtenido = FechasReproduccion.aEpocaMs(fecha);
+            if (esperado != obtenido) {
+                diferencias += informar(zona, "aEpocaMs(\"" + fecha + "\")", esperado, obtenido, diferencias);
+                continue;
+            }
+            long locales = FechasReproduccion.aSegundosLocales(fecha);
+            if (locales != FechasReproduccion.SIN_FECHA) {
+                LocalDateTime local = LocalDateTime.ofEpochSecond(locales, 0, ZoneOffset.UTC);
+                LocalDateTime interpretada = LocalDateTime.parse(fecha, FORMATO);
+                if (!local.equals(interpretada)) {
+                    diferencias += informar(zona, "aSegundosLocales(\"" + fecha + "\")", interpretada.toEpochSecond(ZoneOffset.UTC), locales, diferencias);
+                }
+                if (FechasReproduccion.hora(locales) != local.getHour()
+                        || FechasReproduccion.diaSemana(locales) != local.getDayOfWeek().ordinal()) {
+                    diferencias += informar(zona, "hora/diaSemana(\"" + fecha + "\")", local.getHour(), FechasReproduccion.hora(locales), diferencias);
+                }
+            }
+        }
+        for (int i = 0; i < FECHAS_ALEATORIAS; i++) {
+            long epocaMs = (long) (aleatorio.nextDouble() * 5e12) - 1_000_000_000_000L;
+            long desfaseMs = zona.getRules().getOffset(Instant.ofEpochMilli(epocaMs)).getTotalSeconds() * 1000L;
+            int esperado = (int) Math.floorDiv(epocaMs + desfaseMs, 24L * 60 * 60 * 1000);
+            int obtenido = FechasReproduccion.diaLocal(epocaMs);
+            if (esperado != obtenido) {
+                diferencias += informar(zona, "diaLocal(" + epocaMs + ")", esperado, obtenido, diferencias);
+            }
+        }
+        System.out.println(zona + ": " + (fechas.size() + FECHAS_ALEATORIAS) + " casos, " + diferencias + " diferencias");
+        return diferencias;
+    }
+
+    private static long epocaJavaTime(String fecha, ZoneId zona) {
+        try {
+            return LocalDateTime.parse(fecha, FORMATO).atZone(zona).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return FechasReproduccion.SIN_FECHA;
+        }
+    }
+
+    /**
+     * Imprime las primeras diferencias de un huso.
+     *
+     * @return 1, para acumular el número de diferencias.
+     */
+    private static int informar(ZoneId zona, String caso, long esperado, long obtenido, int previas) {
+        if (previas < 20) {
+            System.err.println(zona + ": " + caso + " esperado " + esperado + ", obtenido " + obtenido);
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,291 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AgregadoUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.CalculadorPreferencias;
+import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorReproducciones.ComunicacionServidorReproducciones;
+import co.edu.unicauca.utilidades.DecaimientoExponencial;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verifica la consulta incremental del historial contra un Servidor de
+ * Reproducciones simulado con {@link HttpServer}, que atiende
+ * {@code GET /reproducciones?idUsuario=&desde=} como el servidor Go.
+ * <p>
+ * Comprueba que {@link ComunicacionServidorReproducciones#obtenerReproduccionesDesde(Integer, long)}
+ * envía el cursor y recibe solo las reproducciones posteriores, que
+ * {@link AgregadoUsuario#aplicar(List)} avanza el cursor, que aplicar otra vez
+ * la misma respuesta (o una que se solapa con lo ya contado) no cambia los
+ * conteos, que tras un reinicio del servidor (secuencias que vuelven a
+ * empezar en 1 con otra época) el agregado detecta el cambio de época aunque
+ * la respuesta desde el cursor venga vacía, y que si el servidor deja de
+ * enviar secuencias {@code aplicar} devuelve {@code -1} sin tocar el agregado
+ * y la reconstrucción completa recupera los conteos. Comprueba también que
+ * los eventos de reproducción de otra época no se toman por repetidos: dejan
+ * el agregado sin estar al día, salvo la primera reproducción del usuario en
+ * la nueva época, con la que vuelve a empezar. Por último, comprueba que los
+ * errores de comunicación se propagan.
+ * <p>
+ * Se ejecuta en el perfil {@code jmh} antes de los benchmarks
+ * ({@code mvn -Pjmh verify}) y falla la construcción si alguna comprobación
+ * no se cumple; también puede lanzarse sola:
+ * <pre>
+ * java -cp target/classes:target/test-classes co.edu.unicauca.rendimiento.VerificacionReproduccionesIncrementales
+ * </pre>
+ */
+public final class VerificacionReproduccionesIncrementales {
+
+    private static final int USUARIO = 7;
+
+    private static final int OTRO_USUARIO = 8;
+
+    /**
+     * Historial del servidor simulado, en orden de secuencia.
+     */
+    private static final List<ReproduccionesDTOEntrada> HISTORIAL = new ArrayList<>();
+
+    /**
+     * Si es {@code false}, el servidor simulado responde como uno anterior a
+     * los cursores: ignora {@code desde} y no envía secuencias.
+     */
+    private static volatile boolean conSecuencias = true;
+
+    /**
+     * Época que envía el servidor simulado; cambia al simular un reinicio.
+     */
+    private static volatile String epoca = "epoca-1";
+
+    private static volatile String ultimoDesde;
+
+    private static int fallos;
+
+    private VerificacionReproduccionesIncrementales() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        HttpServer servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        servidor.createContext("/reproducciones", VerificacionReproduccionesIncrementales::atender);
+        servidor.start();
+        ComunicacionServidorReproducciones comunicacion = new ComunicacionServidorReproducciones(
+                "http://localhost:" + servidor.getAddress().getPort());
+        AgregadoUsuario agregado = new AgregadoUsuario(
+                new DecaimientoExponencial(CalculadorPreferencias.SEMIVIDA_POR_DEFECTO_MS));
+        long ahora = System.currentTimeMillis();
+
+        // Carga inicial: todo el historial del usuario.
+        agregar(USUARIO, "A", 1);
+        agregar(USUARIO, "B", 2);
+        agregar(USUARIO, "A", 3);
+        agregar(OTRO_USUARIO, "A", 4);
+        agregar(USUARIO, "C", 5);
+        List<ReproduccionesDTOEntrada> iniciales = comunicacion.obtenerReproduccionesDesde(USUARIO, 0L);
+        comprobar("desde=0 envía el cursor", "0".equals(ultimoDesde));
+        comprobar("desde=0 devuelve solo el historial del usuario", secuencias(iniciales).equals(List.of(1L, 2L, 3L, 5L)));
+        agregado.reconstruir(iniciales, ahora);
+        agregado.fijarEpoca(comunicacion.getEpocaServidor());
+        comprobar("la reconstrucción deja el cursor en la última secuencia", agregado.getCursor() == 5L);
+        comprobar("el agregado guarda la época del servidor", "epoca-1".equals(agregado.getEpoca())
+                && !agregado.esDeOtraEpoca(comunicacion.getEpocaServidor()));
+        comprobar("la reconstrucción cuenta el historial", conteos(agregado).equals(Map.of("A", 2, "B", 1, "C", 1)));
+
+        // Reproducciones nuevas: solo se piden y se suman las posteriores al cursor.
+        agregar(USUARIO, "A", 6);
+        agregar(OTRO_USUARIO, "B", 7);
+        agregar(USUARIO, "D", 8);
+        List<ReproduccionesDTOEntrada> nuevas = comunicacion.obtenerReproduccionesDesde(USUARIO, agregado.getCursor());
+        comprobar("la consulta incremental envía el cursor", "5".equals(ultimoDesde));
+        comprobar("la consulta incremental devuelve solo las nuevas", secuencias(nuevas).equals(List.of(6L, 8L)));
+        comprobar("aplicar suma las nuevas", agregado.aplicar(nuevas) == 2);
+        comprobar("aplicar avanza el cursor", agregado.getCursor() == 8L);
+        Map<String, Integer> esperados = Map.of("A", 3, "B", 1, "C", 1, "D", 1);
+        comprobar("aplicar actualiza los conteos", conteos(agregado).equals(esperados)
+                && agregado.getTotalReproducciones() == 6);
+
+        // Aplicar otra vez la misma respuesta, o una que se solapa con lo ya
+        // contado, no cambia nada.
+        String marca = agregado.getMarca();
+        comprobar("aplicar dos veces no suma", agregado.aplicar(nuevas) == 0);
+        List<ReproduccionesDTOEntrada> solapadas = comunicacion.obtenerReproduccionesDesde(USUARIO, 2L);
+        comprobar("una respuesta solapada no suma", agregado.aplicar(solapadas) == 0);
+        List<ReproduccionesDTOEntrada> vacias = comunicacion.obtenerReproduccionesDesde(USUARIO, agregado.getCursor());
+        comprobar("sin reproducciones nuevas la respuesta está vacía", vacias.isEmpty() && agregado.aplicar(vacias) == 0);
+        comprobar("aplicar de nuevo no cambia el agregado", marca.equals(agregado.getMarca())
+                && agregado.getCursor() == 8L && conteos(agregado).equals(esperados));
+
+        // El servidor vuelve a arrancar con otra época y sus secuencias
+        // empiezan de nuevo en 1: la respuesta desde el cursor viene vacía,
+        // pero el cambio de época obliga a reconstruir.
+        synchronized (HISTORIAL) {
+            HISTORIAL.clear();
+        }
+        epoca = "epoca-2";
+        agregar(USUARIO, "E", 1);
+        agregar(USUARIO, "E", 2);
+        List<ReproduccionesDTOEntrada> trasReinicio = comunicacion.obtenerReproduccionesDesde(USUARIO, agregado.getCursor());
+        comprobar("tras el reinicio la consulta desde el cursor viene vacía", trasReinicio.isEmpty());
+        comprobar("el cambio de época se detecta con una respuesta vacía",
+                agregado.esDeOtraEpoca(comunicacion.getEpocaServidor()));
+        // Con más reproducciones nuevas que el cursor antiguo, la respuesta
+        // trae solo las posteriores a él y sumarlas dejaría fuera las demás.
+        for (long secuencia = 3; secuencia <= 10; secuencia++) {
+            agregar(USUARIO, "E", secuencia);
+        }
+        trasReinicio = comunicacion.obtenerReproduccionesDesde(USUARIO, agregado.getCursor());
+        comprobar("tras el reinicio la consulta desde el cursor pierde reproducciones", secuencias(trasReinicio).equals(List.of(9L, 10L)));
+        comprobar("el cambio de época se detecta con reproducciones posteriores al cursor",
+                agregado.esDeOtraEpoca(comunicacion.getEpocaServidor()));
+        agregado.reconstruir(comunicacion.obtenerReproduccionesDesde(USUARIO, 0L), ahora);
+        agregado.fijarEpoca(comunicacion.getEpocaServidor());
+        esperados = Map.of("E", 10);
+        comprobar("la reconstrucción cuenta el historial de la nueva época", conteos(agregado).equals(esperados)
+                && agregado.getCursor() == 10L && "epoca-2".equals(agregado.getEpoca())
+                && !agregado.esDeOtraEpoca(comunicacion.getEpocaServidor()));
+        marca = agregado.getMarca();
+
+        // Un servidor sin secuencias obliga a reconstruir.
+        conSecuencias = false;
+        agregar(USUARIO, "B", 11);
+        List<ReproduccionesDTOEntrada> sinSecuencia = comunicacion.obtenerReproduccionesDesde(USUARIO, agregado.getCursor());
+        comprobar("aplicar sin secuencias pide reconstruir", agregado.aplicar(sinSecuencia) == -1);
+        comprobar("aplicar sin secuencias no cambia el agregado", marca.equals(agregado.getMarca())
+                && conteos(agregado).equals(esperados));
+        agregado.reconstruir(sinSecuencia, ahora);
+        comprobar("la reconstrucción recupera el historial completo",
+                conteos(agregado).equals(Map.of("E", 10, "B", 1)) && agregado.getTotalReproducciones() == 11);
+        comprobar("sin secuencias no se usa el cursor", !agregado.soportaCursor() && agregado.getCursor() == 0L);
+
+        // Eventos: tras un reinicio del servidor sus secuencias no superan el
+        // cursor, pero la época los distingue de los repetidos.
+        AgregadoUsuario porEventos = new AgregadoUsuario(
+                new DecaimientoExponencial(CalculadorPreferencias.SEMIVIDA_POR_DEFECTO_MS));
+        comprobar("el primer evento inicializa el agregado",
+                porEventos.aplicarEvento(evento("A", 1), 0L, "epoca-1", ahora) == AgregadoUsuario.ResultadoEvento.APLICADO
+                        && porEventos.aplicarEvento(evento("B", 5), 1L, "epoca-1", ahora) == AgregadoUsuario.ResultadoEvento.APLICADO
+                        && porEventos.estaAlDia(ahora, Long.MAX_VALUE));
+        comprobar("un evento repetido de la misma época se ignora",
+                porEventos.aplicarEvento(evento("B", 5), 1L, "epoca-1", ahora) == AgregadoUsuario.ResultadoEvento.DUPLICADO);
+        comprobar("un evento de otra época que no es el primero del usuario deja el agregado sin estar al día",
+                porEventos.aplicarEvento(evento("C", 3), 2L, "epoca-2", ahora) == AgregadoUsuario.ResultadoEvento.HUECO
+                        && !porEventos.estaAlDia(ahora, Long.MAX_VALUE) && !porEventos.estaInicializado());
+        AgregadoUsuario reiniciado = new AgregadoUsuario(
+                new DecaimientoExponencial(CalculadorPreferencias.SEMIVIDA_POR_DEFECTO_MS));
+        reiniciado.aplicarEvento(evento("A", 1), 0L, "epoca-1", ahora);
+        reiniciado.aplicarEvento(evento("B", 5), 1L, "epoca-1", ahora);
+        comprobar("el primer evento de otra época vuelve a empezar el agregado",
+                reiniciado.aplicarEvento(evento("C", 2), 0L, "epoca-2", ahora) == AgregadoUsuario.ResultadoEvento.APLICADO
+                        && conteos(reiniciado).equals(Map.of("C", 1)) && reiniciado.getCursor() == 2L
+                        && "epoca-2".equals(reiniciado.getEpoca()) && reiniciado.estaAlDia(ahora, Long.MAX_VALUE));
+
+        // Los errores de comunicación se propagan al llamador.
+        servidor.stop(0);
+        boolean propagado = false;
+        try {
+            comunicacion.obtenerReproduccionesDesde(USUARIO, 0L);
+        } catch (RuntimeException e) {
+            propagado = true;
+        }
+        comprobar("un error de comunicación se propaga", propagado);
+
+        if (fallos > 0) {
+            System.err.println("La consulta incremental del historial falló " + fallos + " comprobaciones");
+            System.exit(1);
+        }
+        System.out.println("La consulta incremental del historial supera todas las comprobaciones");
+        System.exit(0);
+    }
+
+    private static void agregar(int idUsuario, String titulo, long secuencia) {
+        synchronized (HISTORIAL) {
+            HISTORIAL.add(new ReproduccionesDTOEntrada(idUsuario, titulo,
+                    String.format("2025-10-20 10:%02d:00", secuencia), secuencia));
+        }
+    }
+
+    /**
+     * Atiende {@code GET /reproducciones?idUsuario=&desde=} con las
+     * reproducciones del usuario posteriores a {@code desde} y, como el
+     * servidor Go, la época en {@code X-Epoca-Reproducciones}.
+     */
+    private static void atender(HttpExchange intercambio) throws IOException {
+        Map<String, String> parametros = new HashMap<>();
+        String consulta = intercambio.getRequestURI().getRawQuery();
+        if (consulta != null) {
+            for (String par : consulta.split("&")) {
+                int igual = par.indexOf('=');
+                if (igual > 0) {
+                    parametros.put(par.substring(0, igual), par.substring(igual + 1));
+                }
+            }
+        }
+        ultimoDesde = parametros.get("desde");
+        long desde = conSecuencias && ultimoDesde != null ? Long.parseLong(ultimoDesde) : 0L;
+        String idUsuario = parametros.get("idUsuario");
+        StringBuilder json = new StringBuilder("[");
+        synchronized (HISTORIAL) {
+            for (ReproduccionesDTOEntrada reproduccion : HISTORIAL) {
+                if ((idUsuario != null && !idUsuario.equals(String.valueOf(reproduccion.getIdUsuario())))
+                        || reproduccion.getSecuencia() <= desde) {
+                    continue;
+                }
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append("{\"idUsuario\":").append(reproduccion.getIdUsuario())
+                        .append(",\"titulo\":\"").append(reproduccion.getTitulo())
+                        .append("\",\"fechaHora\":\"").append(reproduccion.getFechaHora()).append('"');
+                if (conSecuencias) {
+                    json.append(",\"secuencia\":").append(reproduccion.getSecuencia());
+                }
+                json.append('}');
+            }
+        }
+        byte[] cuerpo = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json");
+        if (conSecuencias) {
+            intercambio.getResponseHeaders().set("X-Epoca-Reproducciones", epoca);
+        }
+        intercambio.sendResponseHeaders(200, cuerpo.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(cuerpo);
+        }
+    }
+
+    private static ReproduccionesDTOEntrada evento(String titulo, long secuencia) {
+        return new ReproduccionesDTOEntrada(USUARIO, titulo, String.format("2025-10-20 10:%02d:00", secuencia), secuencia);
+    }
+
+    private static List<Long> secuencias(List<ReproduccionesDTOEntrada> reproducciones) {
+        List<Long> secuencias = new ArrayList<>();
+        for (ReproduccionesDTOEntrada reproduccion : reproducciones) {
+            secuencias.add(reproduccion.getSecuencia());
+        }
+        return secuencias;
+    }
+
+    private static Map<String, Integer> conteos(AgregadoUsuario agregado) {
+        Map<String, Integer> conteos = new HashMap<>();
+        for (int i = 0; i < agregado.numeroTitulos(); i++) {
+            if (agregado.conteo(i) > 0) {
+                conteos.put(agregado.titulo(i), agregado.conteo(i));
+            }
+        }
+        return conteos;
+    }
+
+    private static void comprobar(String caso, boolean correcto) {
+        if (!correcto) {
+            fallos++;
+            System.err.println("FALLA: " + caso);
+        }
+    }
+}
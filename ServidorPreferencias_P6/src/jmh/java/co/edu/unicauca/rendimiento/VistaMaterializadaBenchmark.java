@@ -0,0 +1,153 @@
+package co.edu.unicauca.rendimiento;
+
+import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.DTO.EventoReproduccionDTOEntrada;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AgregadoUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AlmacenAgregadosUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.CalculadorPreferencias;
+import co.edu.unicauca.fachadaServices.services.componenteEventosReproducciones.ColaLocalEventos;
+import co.edu.unicauca.fachadaServices.services.componenteEventosReproducciones.VistaMaterializadaReproducciones;
+import co.edu.unicauca.utilidades.DecaimientoExponencial;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide la {@link VistaMaterializadaReproducciones} alimentada por la
+ * {@link ColaLocalEventos} (el sustituto en memoria del broker): aplicar
+ * eventos y leer agregados al día desde varios hilos, con el almacén de
+ * agregados en una sola franja o repartido en varias, y la latencia de un
+ * evento desde que se publica en la cola hasta que está contado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class VistaMaterializadaBenchmark {
+
+    private static final int HILOS = 4;
+
+    /**
+     * Época del Servidor de Reproducciones simulado.
+     */
+    private static final String EPOCA = "epoca-benchmark";
+
+    @Param({"1", "16"})
+    public int franjas;
+
+    @Param({"100000"})
+    public int numeroUsuarios;
+
+    private VistaMaterializadaReproducciones vista;
+    private ColaLocalEventos cola;
+    private AlmacenAgregadosUsuario agregados;
+    private String[] titulos;
+
+    /**
+     * Secuencia global, como la que asigna el Servidor de Reproducciones.
+     */
+    private final AtomicLong secuencias = new AtomicLong();
+
+    private final AtomicInteger siguienteHilo = new AtomicInteger();
+
+    @Setup
+    public void preparar() {
+        GeneradorDatosSinteticos.silenciarSalidaEstandar();
+        List<CancionDTOEntrada> catalogo = GeneradorDatosSinteticos.catalogo(10_000, GeneradorDatosSinteticos.SEMILLA);
+        this.titulos = catalogo.stream().map(CancionDTOEntrada::getTitulo).toArray(String[]::new);
+        this.agregados = new AlmacenAgregadosUsuario(2 * this.numeroUsuarios, this.franjas,
+                new DecaimientoExponencial(CalculadorPreferencias.SEMIVIDA_POR_DEFECTO_MS));
+        this.cola = new ColaLocalEventos();
+        this.vista = new VistaMaterializadaReproducciones(this.agregados, this.cola, Long.MAX_VALUE, 1_000L, id -> { });
+        this.cola.iniciar(this.vista::aplicar);
+    }
+
+    @TearDown
+    public void cerrar() {
+        this.vista.cerrar();
+    }
+
+    /**
+     * Usuarios de cada hilo, disjuntos entre hilos, con la última secuencia
+     * publicada de cada uno para encadenar sus eventos.
+     */
+    @State(Scope.Thread)
+    public static class Hilo {
+
+        int primerUsuario;
+        int usuariosHilo;
+        long[] ultimas;
+        int siguiente;
+
+        @Setup(Level.Trial)
+        public void preparar(VistaMaterializadaBenchmark benchmark) {
+            int indice = benchmark.siguienteHilo.getAndIncrement() % HILOS;
+            this.usuariosHilo = benchmark.numeroUsuarios / HILOS;
+            this.primerUsuario = 1 + indice * this.usuariosHilo;
+            this.ultimas = new long[this.usuariosHilo];
+        }
+
+        EventoReproduccionDTOEntrada siguienteEvento(VistaMaterializadaBenchmark benchmark) {
+            int posicion = this.siguiente++ % this.usuariosHilo;
+            long secuencia = benchmark.secuencias.incrementAndGet();
+            EventoReproduccionDTOEntrada evento = new EventoReproduccionDTOEntrada(this.primerUsuario + posicion,
+                    benchmark.titulos[(int) (secuencia % benchmark.titulos.length)], "2025-10-20 12:00:00",
+                    secuencia, this.ultimas[posicion], EPOCA);
+            this.ultimas[posicion] = secuencia;
+            return evento;
+        }
+
+        int usuarioAleatorio() {
+            return this.primerUsuario + (this.siguiente++ % this.usuariosHilo);
+        }
+    }
+
+    @Benchmark
+    @Threads(HILOS)
+    public void aplicarEventos(Hilo hilo) {
+        this.vista.aplicar(hilo.siguienteEvento(this));
+    }
+
+    @Benchmark
+    @Threads(HILOS)
+    public AgregadoUsuario leerAlDia(Hilo hilo) {
+        return this.vista.leerAlDia(hilo.usuarioAleatorio());
+    }
+
+    /**
+     * Publica un evento en la cola local y espera a que la vista lo cuente.
+     */
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.AverageTime)
+    public long colaLocalHastaVista(Hilo hilo) {
+        EventoReproduccionDTOEntrada evento = hilo.siguienteEvento(this);
+        AgregadoUsuario agregado = this.agregados.obtenerOCrear(evento.getIdUsuario());
+        this.cola.publicar(evento);
+        while (true) {
+            synchronized (agregado) {
+                if (agregado.getCursor() >= evento.getSecuencia()) {
+                    return agregado.getCursor();
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
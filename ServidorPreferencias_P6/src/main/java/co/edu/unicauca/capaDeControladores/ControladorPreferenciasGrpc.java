@@ -0,0 +1,110 @@
+package co.edu.unicauca.capaDeControladores;
+
+import co.edu.unicauca.distribuidos.preferencias.PreferenciasProto;
+import co.edu.unicauca.distribuidos.preferencias.PreferenciasServiceGrpc;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.services.IPreferenciasService;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.rmi.RemoteException;
+import java.util.Map;
+
+/**
+ * Controlador gRPC del servicio de preferencias.
+ * <p>
+ * Expone las mismas operaciones que {@link ControladorPreferenciasUsuariosIml}
+ * sobre el contrato {@code preferencias.proto}, delegando en la misma
+ * instancia de {@link IPreferenciasService} (y, por tanto, en las mismas
+ * cachés) y en el mismo {@link EjecutorPeticiones}, de modo que el control de
+ * admisión cubre a la vez las peticiones RMI y gRPC.
+ * <p>
+ * Los errores se traducen a estados gRPC: el servidor sobrecargado o un plazo
+ * vencido se informan como {@code UNAVAILABLE} y cualquier otro fallo como
+ * {@code INTERNAL}.
+ */
+public class ControladorPreferenciasGrpc extends PreferenciasServiceGrpc.PreferenciasServiceImplBase {
+
+    private final IPreferenciasService servicioFachadaPreferencias;
+    private final EjecutorPeticiones ejecutorPeticiones;
+    private final HistogramaLatencias latenciaPeticion;
+    private final HistogramaLatencias tamanoRespuesta;
+
+    public ControladorPreferenciasGrpc(IPreferenciasService servicioFachadaPreferencias) {
+        this.servicioFachadaPreferencias = servicioFachadaPreferencias;
+        this.ejecutorPeticiones = EjecutorPeticiones.compartido();
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.latenciaPeticion = metricas.latencias("grpc.peticion");
+        this.tamanoRespuesta = metricas.tamanos("grpc.respuesta");
+    }
+
+    @Override
+    public void obtenerPreferencias(PreferenciasProto.PeticionPreferencias peticion,
+                                    StreamObserver<PreferenciasProto.Preferencias> respuesta) {
+        long inicio = System.nanoTime();
+        try {
+            PreferenciasDTORespuesta preferencias = this.ejecutorPeticiones.ejecutar(() -> this.servicioFachadaPreferencias
+                    .getReferencias(peticion.getIdUsuario(), MapeadorPreferenciasGrpc.aOpciones(peticion)));
+            enviar(respuesta, MapeadorPreferenciasGrpc.aMensaje(preferencias));
+            respuesta.onCompleted();
+        } catch (RemoteException | RuntimeException e) {
+            respuesta.onError(aEstado(e));
+        } finally {
+            this.latenciaPeticion.registrarDesde(inicio);
+        }
+    }
+
+    @Override
+    public void obtenerPreferenciasLote(PreferenciasProto.PeticionLote peticion,
+                                        StreamObserver<PreferenciasProto.RespuestaLote> respuesta) {
+        try {
+            Map<Integer, PreferenciasDTORespuesta> lote = this.ejecutorPeticiones.ejecutar(
+                    () -> this.servicioFachadaPreferencias.getReferenciasBatch(peticion.getIdsUsuariosList()));
+            enviar(respuesta, MapeadorPreferenciasGrpc.aMensaje(lote));
+            respuesta.onCompleted();
+        } catch (RemoteException | RuntimeException e) {
+            respuesta.onError(aEstado(e));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cada bloque se envía en cuanto se calcula. Si el cliente cancela la
+     * llamada, el lote se interrumpe antes del siguiente bloque.
+     */
+    @Override
+    public void obtenerPreferenciasLoteStream(PreferenciasProto.PeticionLote peticion,
+                                              StreamObserver<PreferenciasProto.RespuestaLote> respuesta) {
+        Context contexto = Context.current();
+        try {
+            this.ejecutorPeticiones.ejecutar(() -> {
+                this.servicioFachadaPreferencias.getReferenciasBatch(peticion.getIdsUsuariosList(), peticion.getTamanoBloque(),
+                        bloque -> {
+                            if (contexto.isCancelled()) {
+                                throw new RemoteException("El cliente cancelo el lote");
+                            }
+                            enviar(respuesta, MapeadorPreferenciasGrpc.aMensaje(bloque));
+                        });
+                return null;
+            });
+            respuesta.onCompleted();
+        } catch (RemoteException | RuntimeException e) {
+            if (!contexto.isCancelled()) {
+                respuesta.onError(aEstado(e));
+            }
+        }
+    }
+
+    private <T extends com.google.protobuf.MessageLite> void enviar(StreamObserver<T> respuesta, T mensaje) {
+        this.tamanoRespuesta.registrar(mensaje.getSerializedSize());
+        respuesta.onNext(mensaje);
+    }
+
+    private static Throwable aEstado(Exception e) {
+        Status estado = e instanceof RemoteException ? Status.UNAVAILABLE : Status.INTERNAL;
+        return estado.withDescription(e.getMessage()).withCause(e).asRuntimeException();
+    }
+}
@@ -1,25 +1,146 @@
 
 package co.edu.unicauca.capaDeControladores;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.fachadaServices.DTO.MasEscuchadosDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
 import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.RecomendacionCancionDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.TendenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.UsuarioSimilarDTORespuesta;
 import co.edu.unicauca.fachadaServices.services.IPreferenciasService;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
 
 
 public class ControladorPreferenciasUsuariosIml extends UnicastRemoteObject implements ControladorPreferenciasUsuariosInt {
 
     private IPreferenciasService servicioFachadaPreferencias;
 
+    /**
+     * Ejecutor acotado en el que se atienden las peticiones, en lugar de
+     * hacerlo directamente en el hilo de RMI. Es el mismo que usa el
+     * controlador gRPC.
+     */
+    private final EjecutorPeticiones ejecutorPeticiones;
+
+    /**
+     * Se mide la serialización de una de cada {@code muestreoSerializacion}
+     * respuestas ({@code metricas.serializacion.muestreo}); 0 la desactiva.
+     */
+    private final long muestreoSerializacion;
+    private final AtomicLong respuestas = new AtomicLong();
+    private final HistogramaLatencias tamanoSerializado;
+    private final HistogramaLatencias latenciaSerializacion;
+
     public ControladorPreferenciasUsuariosIml(IPreferenciasService servicioFachadaPreferencias) throws RemoteException {
         super();
         this.servicioFachadaPreferencias = servicioFachadaPreferencias;
+        this.ejecutorPeticiones = EjecutorPeticiones.compartido();
+        this.muestreoSerializacion = LectorPropiedadesConfig.getLong("metricas.serializacion.muestreo", 100L);
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.tamanoSerializado = metricas.tamanos("rmi.respuesta");
+        this.latenciaSerializacion = metricas.latencias("rmi.serializacion");
     }
 
     @Override
     public PreferenciasDTORespuesta getReferencias(Integer id) throws RemoteException {
-        return this.servicioFachadaPreferencias.getReferencias(id);
+        return muestrear(this.ejecutorPeticiones.ejecutar(() -> this.servicioFachadaPreferencias.getReferencias(id)));
+    }
+
+    @Override
+    public PreferenciasDTORespuesta getReferencias(Integer id, OpcionesPreferenciasDTO opciones) throws RemoteException {
+        return muestrear(this.ejecutorPeticiones.ejecutar(() -> this.servicioFachadaPreferencias.getReferencias(id, opciones)));
+    }
+
+    @Override
+    public PreferenciasDTORespuesta getReferenciasVentana(Integer id, int dias, OpcionesPreferenciasDTO opciones) throws RemoteException {
+        return muestrear(this.ejecutorPeticiones.ejecutar(() -> this.servicioFachadaPreferencias.getReferenciasVentana(id, dias, opciones)));
+    }
+
+    @Override
+    public Map<Integer, PreferenciasDTORespuesta> getReferenciasBatch(List<Integer> ids) throws RemoteException {
+        return muestrear(this.ejecutorPeticiones.ejecutar(() -> this.servicioFachadaPreferencias.getReferenciasBatch(ids)));
+    }
+
+    @Override
+    public void getReferenciasBatch(List<Integer> ids, int tamanoBloque, ConsumidorPreferenciasLoteInt consumidor) throws RemoteException {
+        this.ejecutorPeticiones.ejecutar(() -> {
+            this.servicioFachadaPreferencias.getReferenciasBatch(ids, tamanoBloque, consumidor::recibirBloque);
+            return null;
+        });
+    }
+
+    @Override
+    public List<RecomendacionCancionDTORespuesta> getRecomendaciones(Integer id, int limite) throws RemoteException {
+        return muestrear(this.ejecutorPeticiones.ejecutar(() -> this.servicioFachadaPreferencias.getRecomendaciones(id, limite)));
     }
-}
 
+    @Override
+    public List<UsuarioSimilarDTORespuesta> getUsuariosSimilares(Integer id, int limite) throws RemoteException {
+        return muestrear(this.ejecutorPeticiones.ejecutar(() -> this.servicioFachadaPreferencias.getUsuariosSimilares(id, limite)));
+    }
+
+    @Override
+    public TendenciasDTORespuesta getTendencias(String desde, String hasta, int limite) throws RemoteException {
+        return muestrear(this.ejecutorPeticiones.ejecutar(() -> this.servicioFachadaPreferencias.getTendencias(desde, hasta, limite)));
+    }
+
+    @Override
+    public byte[] getResumenMasEscuchados() throws RemoteException {
+        return muestrear(this.ejecutorPeticiones.ejecutar(() -> this.servicioFachadaPreferencias.getResumenMasEscuchados()));
+    }
+
+    @Override
+    public MasEscuchadosDTORespuesta getMasEscuchados(int limite, List<byte[]> resumenesAdicionales) throws RemoteException {
+        return muestrear(this.ejecutorPeticiones.ejecutar(
+                () -> this.servicioFachadaPreferencias.getMasEscuchados(limite, resumenesAdicionales)));
+    }
+
+    /**
+     * Serializa una muestra de las respuestas con {@link ObjectOutputStream},
+     * igual que lo hará RMI al devolverlas, y registra su tamaño y el tiempo
+     * de serialización. El resto de respuestas se devuelven sin tocar.
+     */
+    private <T> T muestrear(T respuesta) {
+        if (this.muestreoSerializacion <= 0 || this.respuestas.incrementAndGet() % this.muestreoSerializacion != 0) {
+            return respuesta;
+        }
+        FlujoContador flujo = new FlujoContador();
+        long inicio = System.nanoTime();
+        try (ObjectOutputStream salida = new ObjectOutputStream(flujo)) {
+            salida.writeObject(respuesta);
+        } catch (IOException e) {
+            return respuesta;
+        }
+        this.latenciaSerializacion.registrarDesde(inicio);
+        this.tamanoSerializado.registrar(flujo.bytes);
+        return respuesta;
+    }
+
+    /**
+     * Flujo de salida que descarta los datos y solo cuenta los bytes.
+     */
+    private static final class FlujoContador extends OutputStream {
 
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            this.bytes++;
+        }
+
+        @Override
+        public void write(byte[] datos, int desde, int longitud) {
+            this.bytes += longitud;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package co.edu.unicauca.capaDeControladores;
+
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import co.edu.unicauca.utilidades.FabricaHilosDemonio;
+import java.rmi.RemoteException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ejecutor acotado, con control de admisión, de las peticiones que llegan
+ * por RMI o por gRPC.
+ * <p>
+ * RMI atiende cada conexión en su propio hilo y, sin límite, una ráfaga de
+ * peticiones deja a todos esos hilos bloqueados a la vez en E/S contra los
+ * servidores de Canciones y Reproducciones. Aquí cada petición se entrega a
+ * un ejecutor con, como mucho, {@code rmi.concurrencia.maxima} peticiones en
+ * ejecución y {@code rmi.cola.maxima} esperando turno. Cuando ambos cupos
+ * están llenos la petición se rechaza al instante con una
+ * {@link RemoteException}, en lugar de acumularse. Una petición que esperó en
+ * la cola más de {@code rmi.cola.espera.maxima.ms} también se rechaza al
+ * llegar su turno, porque su cliente probablemente ya desistió.
+ * <p>
+ * Modos ({@code rmi.ejecutor.modo}):
+ * <ul>
+ *   <li>{@code plataforma}: pool fijo de {@code rmi.concurrencia.maxima}
+ *       hilos.</li>
+ *   <li>{@code virtual}: un hilo virtual por petición, con la concurrencia
+ *       limitada por un semáforo. Requiere Java 21; en versiones anteriores
+ *       se usa el modo {@code plataforma}.</li>
+ * </ul>
+ */
+class EjecutorPeticiones {
+
+    private final ExecutorService ejecutor;
+    private final String modo;
+
+    /**
+     * Cupos de admisión: peticiones en ejecución más peticiones en cola.
+     */
+    private final Semaphore cupos;
+
+    /**
+     * Límite de peticiones en ejecución en el modo virtual; {@code null} en el
+     * modo plataforma, donde lo impone el tamaño del pool.
+     */
+    private final Semaphore limiteVirtual;
+
+    private final int concurrenciaMaxima;
+    private final int colaMaxima;
+    private final long esperaMaximaNanos;
+
+    private final AtomicInteger enCola = new AtomicInteger();
+    private final AtomicInteger enEjecucion = new AtomicInteger();
+    private final LongAdder rechazos;
+    private final LongAdder vencidasEnCola;
+    private final HistogramaLatencias esperaEnCola;
+
+    EjecutorPeticiones(String modo, int concurrenciaMaxima, int colaMaxima, long esperaMaximaMs) {
+        this.concurrenciaMaxima = Math.max(1, concurrenciaMaxima);
+        this.colaMaxima = Math.max(0, colaMaxima);
+        this.esperaMaximaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+        this.cupos = new Semaphore(this.concurrenciaMaxima + this.colaMaxima);
+
+        ExecutorService virtual = "virtual".equalsIgnoreCase(modo) ? crearEjecutorVirtual() : null;
+        if (virtual != null) {
+            this.ejecutor = virtual;
+            this.limiteVirtual = new Semaphore(this.concurrenciaMaxima);
+            this.modo = "virtual";
+        } else {
+            // La cola no necesita límite propio: los cupos ya acotan cuántas
+            // tareas pueden llegar al pool.
+            this.ejecutor = new ThreadPoolExecutor(this.concurrenciaMaxima, this.concurrenciaMaxima,
+                    0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    new FabricaHilosDemonio("rmi-peticiones"), new ThreadPoolExecutor.AbortPolicy());
+            this.limiteVirtual = null;
+            this.modo = "plataforma";
+        }
+
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.rechazos = metricas.contador("rmi.rechazos");
+        this.vencidasEnCola = metricas.contador("rmi.cola.vencidas");
+        this.esperaEnCola = metricas.latencias("rmi.cola.espera");
+        metricas.registrarIndicador("rmi.cola.profundidad", this.enCola::get);
+        metricas.registrarIndicador("rmi.enEjecucion", this.enEjecucion::get);
+    }
+
+    /**
+     * Ejecutor único del proceso, compartido por los controladores RMI y
+     * gRPC para que los límites de concurrencia y de cola se apliquen a la
+     * suma de ambos.
+     */
+    static EjecutorPeticiones compartido() {
+        return Compartido.INSTANCIA;
+    }
+
+    private static final class Compartido {
+        private static final EjecutorPeticiones INSTANCIA = desdeConfiguracion();
+    }
+
+    /**
+     * Crea el ejecutor a partir de {@code rmi.ejecutor.modo},
+     * {@code rmi.concurrencia.maxima}, {@code rmi.cola.maxima} y
+     * {@code rmi.cola.espera.maxima.ms}.
+     */
+    static EjecutorPeticiones desdeConfiguracion() {
+        String modo = LectorPropiedadesConfig.get("rmi.ejecutor.modo");
+        EjecutorPeticiones ejecutor = new EjecutorPeticiones(modo != null ? modo.trim() : "plataforma",
+                LectorPropiedadesConfig.getInt("rmi.concurrencia.maxima", 64),
+                LectorPropiedadesConfig.getInt("rmi.cola.maxima", 256),
+                LectorPropiedadesConfig.getLong("rmi.cola.espera.maxima.ms", 5_000L));
+        System.out.println("Peticiones RMI: modo " + ejecutor.modo + ", concurrencia maxima " + ejecutor.concurrenciaMaxima
+                + ", cola maxima " + ejecutor.colaMaxima);
+        return ejecutor;
+    }
+
+    /**
+     * Ejecuta una petición en el ejecutor y espera su resultado en el hilo de
+     * RMI que la recibió.
+     *
+     * @param tarea la petición.
+     * @return su resultado.
+     * @throws RemoteException si el servidor está sobrecargado, si la
+     *                         petición venció en la cola o si la propia
+     *                         petición falla.
+     */
+    <T> T ejecutar(Callable<T> tarea) throws RemoteException {
+        if (!this.cupos.tryAcquire()) {
+            this.rechazos.increment();
+            throw sobrecargado();
+        }
+        long encolada = System.nanoTime();
+        this.enCola.incrementAndGet();
+        Future<T> futuro;
+        try {
+            futuro = this.ejecutor.submit(() -> atender(tarea, encolada));
+        } catch (RejectedExecutionException e) {
+            this.enCola.decrementAndGet();
+            this.cupos.release();
+            this.rechazos.increment();
+            throw sobrecargado();
+        }
+
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            // No se cancela la tarea: si aún no empezó, nunca devolvería su
+            // cupo. Terminará por su cuenta dentro del plazo del servicio.
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Peticion interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RemoteException) {
+                throw (RemoteException) causa;
+            }
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            throw new RemoteException("Error atendiendo la peticion", causa);
+        }
+    }
+
+    private <T> T atender(Callable<T> tarea, long encolada) throws Exception {
+        boolean ejecutando = false;
+        try {
+            if (this.limiteVirtual != null) {
+                this.limiteVirtual.acquire();
+            }
+            this.enCola.decrementAndGet();
+            ejecutando = true;
+            long espera = System.nanoTime() - encolada;
+            this.esperaEnCola.registrar(espera / 1_000L);
+            if (espera > this.esperaMaximaNanos) {
+                this.vencidasEnCola.increment();
+                throw new RemoteException("Servidor de Preferencias sobrecargado: la peticion espero "
+                        + TimeUnit.NANOSECONDS.toMillis(espera) + " ms en cola");
+            }
+            this.enEjecucion.incrementAndGet();
+            try {
+                return tarea.call();
+            } finally {
+                this.enEjecucion.decrementAndGet();
+            }
+        } finally {
+            if (!ejecutando) {
+                this.enCola.decrementAndGet();
+            } else if (this.limiteVirtual != null) {
+                this.limiteVirtual.release();
+            }
+            this.cupos.release();
+        }
+    }
+
+    private RemoteException sobrecargado() {
+        return new RemoteException("Servidor de Preferencias sobrecargado: " + this.enEjecucion.get()
+                + " peticiones en ejecucion y " + this.enCola.get() + " en cola. Intente mas tarde.");
+    }
+
+    /**
+     * Crea un ejecutor de hilos virtuales si la JVM los ofrece (Java 21 o
+     * superior). Se invoca por reflexión porque el proyecto compila para
+     * Java 17.
+     */
+    private static ExecutorService crearEjecutorVirtual() {
+        try {
+            return (ExecutorService) java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Hilos virtuales no disponibles en Java " + Runtime.version().feature()
+                    + "; se usa el modo plataforma.");
+            return null;
+        }
+    }
+}
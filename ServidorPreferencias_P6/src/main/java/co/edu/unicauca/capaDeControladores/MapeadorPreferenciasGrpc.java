@@ -0,0 +1,108 @@
+package co.edu.unicauca.capaDeControladores;
+
+import co.edu.unicauca.distribuidos.preferencias.PreferenciasProto;
+import co.edu.unicauca.fachadaServices.DTO.ModoPreferencias;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciaArtistaDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciaGeneroDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciaIdiomaDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import java.util.Map;
+
+/**
+ * Conversión entre los DTO del servicio de preferencias y los mensajes
+ * protobuf del contrato {@code preferencias.proto}.
+ */
+final class MapeadorPreferenciasGrpc {
+
+    private MapeadorPreferenciasGrpc() {
+    }
+
+    /**
+     * Convierte las opciones recibidas por gRPC. Los máximos 0 significan
+     * "lista completa", igual que los {@code null} de
+     * {@link OpcionesPreferenciasDTO}.
+     *
+     * @param peticion la petición recibida.
+     * @return las opciones, o {@code null} si la petición no las trae.
+     */
+    static OpcionesPreferenciasDTO aOpciones(PreferenciasProto.PeticionPreferencias peticion) {
+        if (!peticion.hasOpciones()) {
+            return null;
+        }
+        PreferenciasProto.OpcionesPreferencias opciones = peticion.getOpciones();
+        return new OpcionesPreferenciasDTO(opciones.getMaximoGeneros(), opciones.getMaximoArtistas(),
+                opciones.getMaximoIdiomas(),
+                opciones.getModo() == PreferenciasProto.ModoPreferencias.RECIENCIA
+                        ? ModoPreferencias.RECIENCIA : ModoPreferencias.CONTEO).normalizadas();
+    }
+
+    static PreferenciasProto.Preferencias aMensaje(PreferenciasDTORespuesta preferencias) {
+        PreferenciasProto.Preferencias.Builder mensaje = PreferenciasProto.Preferencias.newBuilder()
+                .setIdUsuario(preferencias.getIdUsuario());
+        if (preferencias.getPreferenciasGeneros() != null) {
+            for (PreferenciaGeneroDTORespuesta genero : preferencias.getPreferenciasGeneros()) {
+                PreferenciasProto.PreferenciaGenero.Builder entrada = PreferenciasProto.PreferenciaGenero.newBuilder()
+                        .setNombreGenero(texto(genero.getNombreGenero()))
+                        .setNumeroPreferencias(numero(genero.getNumeroPreferencias()));
+                if (genero.getPuntaje() != null) {
+                    entrada.setPuntaje(genero.getPuntaje());
+                }
+                mensaje.addPreferenciasGeneros(entrada);
+            }
+        }
+        if (preferencias.getPreferenciasArtistas() != null) {
+            for (PreferenciaArtistaDTORespuesta artista : preferencias.getPreferenciasArtistas()) {
+                PreferenciasProto.PreferenciaArtista.Builder entrada = PreferenciasProto.PreferenciaArtista.newBuilder()
+                        .setNombreArtista(texto(artista.getNombreArtista()))
+                        .setNumeroPreferencias(numero(artista.getNumeroPreferencias()));
+                if (artista.getPuntaje() != null) {
+                    entrada.setPuntaje(artista.getPuntaje());
+                }
+                mensaje.addPreferenciasArtistas(entrada);
+            }
+        }
+        if (preferencias.getPreferenciasIdiomas() != null) {
+            for (PreferenciaIdiomaDTORespuesta idioma : preferencias.getPreferenciasIdiomas()) {
+                PreferenciasProto.PreferenciaIdioma.Builder entrada = PreferenciasProto.PreferenciaIdioma.newBuilder()
+                        .setNombreIdioma(texto(idioma.getNombreIdioma()))
+                        .setNumeroPreferencias(numero(idioma.getNumeroPreferencias()));
+                if (idioma.getPuntaje() != null) {
+                    entrada.setPuntaje(idioma.getPuntaje());
+                }
+                mensaje.addPreferenciasIdiomas(entrada);
+            }
+        }
+        if (preferencias.getReproduccionesPorHora() != null) {
+            for (int conteo : preferencias.getReproduccionesPorHora()) {
+                mensaje.addReproduccionesPorHora(conteo);
+            }
+        }
+        if (preferencias.getReproduccionesPorDiaSemana() != null) {
+            for (int conteo : preferencias.getReproduccionesPorDiaSemana()) {
+                mensaje.addReproduccionesPorDiaSemana(conteo);
+            }
+        }
+        return mensaje.build();
+    }
+
+    static PreferenciasProto.RespuestaLote aMensaje(Map<Integer, PreferenciasDTORespuesta> lote) {
+        PreferenciasProto.RespuestaLote.Builder mensaje = PreferenciasProto.RespuestaLote.newBuilder();
+        for (PreferenciasDTORespuesta preferencias : lote.values()) {
+            mensaje.addPreferencias(aMensaje(preferencias));
+        }
+        return mensaje.build();
+    }
+
+    /**
+     * Protobuf no admite cadenas {@code null}; un género, artista o idioma
+     * ausente del catálogo se envía como cadena vacía.
+     */
+    private static String texto(String valor) {
+        return valor != null ? valor : "";
+    }
+
+    private static int numero(Integer valor) {
+        return valor != null ? valor : 0;
+    }
+}
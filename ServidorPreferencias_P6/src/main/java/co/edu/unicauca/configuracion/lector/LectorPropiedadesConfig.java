@@ -4,6 +4,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
 
+/**
+ * Lee las propiedades de {@code application.properties}. Una propiedad de
+ * sistema de la JVM con la misma clave ({@code -Dclave=valor}) tiene
+ * prioridad sobre el archivo, lo que permite arrancar varias instancias con
+ * el mismo archivo cambiando solo lo que las distingue.
+ */
 public class LectorPropiedadesConfig {
     private static Properties props = new Properties();
 
@@ -21,6 +27,31 @@ public class LectorPropiedadesConfig {
     }
 
     public static String get(String key) {
-        return props.getProperty(key);
+        return System.getProperty(key, props.getProperty(key));
+    }
+
+    public static long getLong(String key, long valorPorDefecto) {
+        String valor = get(key);
+        if (valor == null || valor.isBlank()) {
+            return valorPorDefecto;
+        }
+        try {
+            return Long.parseLong(valor.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Valor inválido para la propiedad " + key + ": " + valor + ". Se usa " + valorPorDefecto);
+            return valorPorDefecto;
+        }
+    }
+
+    public static int getInt(String key, int valorPorDefecto) {
+        return (int) getLong(key, valorPorDefecto);
+    }
+
+    public static boolean getBoolean(String key, boolean valorPorDefecto) {
+        String valor = get(key);
+        if (valor == null || valor.isBlank()) {
+            return valorPorDefecto;
+        }
+        return Boolean.parseBoolean(valor.trim());
     }
 }
@@ -7,6 +7,7 @@ import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 
 import co.edu.unicauca.capaDeControladores.ControladorPreferenciasUsuariosIml;
+import co.edu.unicauca.fachadaServices.services.IPreferenciasService;
 import co.edu.unicauca.fachadaServices.services.PreferenciasServiceImpl;
 
 public class ServidorDeObjetos
@@ -68,10 +69,15 @@ public class ServidorDeObjetos
 	}	
 
     public static ControladorPreferenciasUsuariosIml crearObjetoRemoto() 
+    {
+        return crearObjetoRemoto(new PreferenciasServiceImpl());
+    }
+
+    public static ControladorPreferenciasUsuariosIml crearObjetoRemoto(IPreferenciasService servicioPreferencias) 
     {
         ControladorPreferenciasUsuariosIml objControladorPreferencias=null;
         try {
-            objControladorPreferencias = new ControladorPreferenciasUsuariosIml(new PreferenciasServiceImpl());
+            objControladorPreferencias = new ControladorPreferenciasUsuariosIml(servicioPreferencias);
         } catch (RemoteException e) {            
             e.printStackTrace();
         }
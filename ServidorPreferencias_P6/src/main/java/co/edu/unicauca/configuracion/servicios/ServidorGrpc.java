@@ -0,0 +1,55 @@
+package co.edu.unicauca.configuracion.servicios;
+
+import co.edu.unicauca.capaDeControladores.ControladorPreferenciasGrpc;
+import co.edu.unicauca.fachadaServices.services.IPreferenciasService;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Arranque del endpoint gRPC del servicio de preferencias, que se publica
+ * junto al objeto remoto RMI y comparte con él la misma instancia del
+ * servicio.
+ */
+public class ServidorGrpc {
+
+    private ServidorGrpc() {
+    }
+
+    /**
+     * Arranca el servidor gRPC en el puerto indicado.
+     *
+     * @param servicioPreferencias el servicio al que delega el controlador.
+     * @param puerto               el puerto de escucha; si es menor o igual a
+     *                             cero el endpoint gRPC queda desactivado.
+     * @return el servidor arrancado, o {@code null} si está desactivado o no
+     *         pudo arrancar.
+     */
+    public static Server arrancar(IPreferenciasService servicioPreferencias, int puerto) {
+        if (puerto <= 0) {
+            System.out.println("Endpoint gRPC desactivado (grpc.port <= 0)");
+            return null;
+        }
+        try {
+            Server servidor = ServerBuilder.forPort(puerto)
+                    .addService(new ControladorPreferenciasGrpc(servicioPreferencias))
+                    .build()
+                    .start();
+            System.out.println("Servidor gRPC de preferencias escuchando en el puerto: " + puerto);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                servidor.shutdown();
+                try {
+                    servidor.awaitTermination(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "grpc-apagado"));
+            return servidor;
+        } catch (IOException e) {
+            System.out.println("El servidor gRPC no se logró arrancar en el puerto: " + puerto);
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package co.edu.unicauca.fachadaServices.DTO;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para mapear los eventos de reproducción que el Servidor de
+ * Reproducciones publica en RabbitMQ (cola {@code eventos_reproducciones}).
+ * Contiene los datos de una reproducción recién registrada.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventoReproduccionDTOEntrada {
+
+    // El JSON del servidor Go usa 'idUsuario'.
+    @JsonProperty("idUsuario")
+    private Integer idUsuario;
+
+    // El JSON del servidor Go usa 'titulo'.
+    @JsonProperty("titulo")
+    private String titulo;
+
+    // El JSON del servidor Go usa 'fechaHora'.
+    @JsonProperty("fechaHora")
+    private String fechaHora;
+
+    // Secuencia asignada a la reproducción por el Servidor de Reproducciones.
+    @JsonProperty("secuencia")
+    private Long secuencia;
+
+    // Secuencia de la reproducción anterior del mismo usuario; 0 si es la
+    // primera. Permite detectar eventos perdidos o desordenados.
+    @JsonProperty("secuenciaAnterior")
+    private Long secuenciaAnterior;
+
+    // Época del Servidor de Reproducciones que asignó las secuencias; cambia
+    // cada vez que arranca. Es null si el servidor no la envía.
+    @JsonProperty("epoca")
+    private String epoca;
+}
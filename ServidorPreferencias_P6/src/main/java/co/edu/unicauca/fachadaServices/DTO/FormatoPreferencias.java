@@ -0,0 +1,248 @@
+package co.edu.unicauca.fachadaServices.DTO;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Formato binario compacto con el que {@link PreferenciasDTORespuesta} se
+ * serializa en las respuestas RMI.
+ * <p>
+ * La serialización por defecto escribe un descriptor de clase y una cabecera
+ * por cada entrada de las tres listas, y cada nombre como un objeto
+ * {@link String}. Aquí las entradas se escriben en línea, sin descriptores,
+ * y los nombres distintos de la respuesta se escriben una sola vez en una
+ * tabla de cadenas a la que las entradas se refieren por posición:
+ * <pre>
+ * version       byte
+ * idUsuario     int
+ * tabla         varint n, n x UTF
+ * generos       lista
+ * artistas      lista
+ * idiomas       lista
+ * porHora       histograma (desde la versión 2)
+ * porDiaSemana  histograma (desde la versión 2)
+ *
+ * lista         varint 0 si es null, o tamaño + 1 seguido de las entradas
+ * entrada       varint (posición del nombre + 1) &lt;&lt; 2 | indicadores
+ *               [varint numeroPreferencias] si el indicador 1 está activo
+ *               [double puntaje]            si el indicador 2 está activo
+ * histograma    varint 0 si es null, o tamaño + 1 seguido de un varint por
+ *               conteo
+ * </pre>
+ * La posición 0 del nombre representa un nombre {@code null}. Se leen
+ * también respuestas de la versión 1, que no traen histogramas.
+ * <p>
+ * Esta clase existe con el mismo contenido en el Servidor de Preferencias y
+ * en el Cliente; cualquier cambio del formato debe hacerse en ambos e
+ * incrementar {@link #VERSION}.
+ */
+final class FormatoPreferencias {
+
+    static final int VERSION = 2;
+
+    private static final int CON_NUMERO = 1;
+    private static final int CON_PUNTAJE = 2;
+
+    private FormatoPreferencias() {
+    }
+
+    static void escribir(PreferenciasDTORespuesta preferencias, DataOutput salida) throws IOException {
+        Map<String, Integer> tabla = new HashMap<>();
+        List<String> cadenas = new ArrayList<>();
+        registrar(preferencias.getPreferenciasGeneros(), PreferenciaGeneroDTORespuesta::getNombreGenero, tabla, cadenas);
+        registrar(preferencias.getPreferenciasArtistas(), PreferenciaArtistaDTORespuesta::getNombreArtista, tabla, cadenas);
+        registrar(preferencias.getPreferenciasIdiomas(), PreferenciaIdiomaDTORespuesta::getNombreIdioma, tabla, cadenas);
+
+        salida.writeByte(VERSION);
+        salida.writeInt(preferencias.getIdUsuario());
+        escribirVarint(salida, cadenas.size());
+        for (String cadena : cadenas) {
+            salida.writeUTF(cadena);
+        }
+
+        List<PreferenciaGeneroDTORespuesta> generos = preferencias.getPreferenciasGeneros();
+        if (escribirTamano(salida, generos)) {
+            for (PreferenciaGeneroDTORespuesta genero : generos) {
+                escribirEntrada(salida, tabla, genero.getNombreGenero(), genero.getNumeroPreferencias(), genero.getPuntaje());
+            }
+        }
+        List<PreferenciaArtistaDTORespuesta> artistas = preferencias.getPreferenciasArtistas();
+        if (escribirTamano(salida, artistas)) {
+            for (PreferenciaArtistaDTORespuesta artista : artistas) {
+                escribirEntrada(salida, tabla, artista.getNombreArtista(), artista.getNumeroPreferencias(), artista.getPuntaje());
+            }
+        }
+        List<PreferenciaIdiomaDTORespuesta> idiomas = preferencias.getPreferenciasIdiomas();
+        if (escribirTamano(salida, idiomas)) {
+            for (PreferenciaIdiomaDTORespuesta idioma : idiomas) {
+                escribirEntrada(salida, tabla, idioma.getNombreIdioma(), idioma.getNumeroPreferencias(), idioma.getPuntaje());
+            }
+        }
+        escribirHistograma(salida, preferencias.getReproduccionesPorHora());
+        escribirHistograma(salida, preferencias.getReproduccionesPorDiaSemana());
+    }
+
+    static void leer(PreferenciasDTORespuesta preferencias, DataInput entrada) throws IOException {
+        int version = entrada.readUnsignedByte();
+        if (version != VERSION && version != 1) {
+            throw new InvalidObjectException("Version del formato de preferencias no soportada: " + version);
+        }
+        preferencias.setIdUsuario(entrada.readInt());
+        String[] cadenas = new String[leerTamano(entrada)];
+        for (int i = 0; i < cadenas.length; i++) {
+            cadenas[i] = entrada.readUTF();
+        }
+
+        int tamano = leerTamano(entrada);
+        if (tamano > 0) {
+            List<PreferenciaGeneroDTORespuesta> generos = new ArrayList<>(tamano - 1);
+            for (int i = 1; i < tamano; i++) {
+                PreferenciaGeneroDTORespuesta genero = new PreferenciaGeneroDTORespuesta();
+                int cabecera = leerVarint(entrada);
+                genero.setNombreGenero(nombre(cadenas, cabecera));
+                genero.setNumeroPreferencias(numero(entrada, cabecera));
+                genero.setPuntaje(puntaje(entrada, cabecera));
+                generos.add(genero);
+            }
+            preferencias.setPreferenciasGeneros(generos);
+        }
+        tamano = leerTamano(entrada);
+        if (tamano > 0) {
+            List<PreferenciaArtistaDTORespuesta> artistas = new ArrayList<>(tamano - 1);
+            for (int i = 1; i < tamano; i++) {
+                PreferenciaArtistaDTORespuesta artista = new PreferenciaArtistaDTORespuesta();
+                int cabecera = leerVarint(entrada);
+                artista.setNombreArtista(nombre(cadenas, cabecera));
+                artista.setNumeroPreferencias(numero(entrada, cabecera));
+                artista.setPuntaje(puntaje(entrada, cabecera));
+                artistas.add(artista);
+            }
+            preferencias.setPreferenciasArtistas(artistas);
+        }
+        tamano = leerTamano(entrada);
+        if (tamano > 0) {
+            List<PreferenciaIdiomaDTORespuesta> idiomas = new ArrayList<>(tamano - 1);
+            for (int i = 1; i < tamano; i++) {
+                PreferenciaIdiomaDTORespuesta idioma = new PreferenciaIdiomaDTORespuesta();
+                int cabecera = leerVarint(entrada);
+                idioma.setNombreIdioma(nombre(cadenas, cabecera));
+                idioma.setNumeroPreferencias(numero(entrada, cabecera));
+                idioma.setPuntaje(puntaje(entrada, cabecera));
+                idiomas.add(idioma);
+            }
+            preferencias.setPreferenciasIdiomas(idiomas);
+        }
+        if (version >= 2) {
+            preferencias.setReproduccionesPorHora(leerHistograma(entrada));
+            preferencias.setReproduccionesPorDiaSemana(leerHistograma(entrada));
+        }
+    }
+
+    private static <T> void registrar(List<T> entradas, Function<T, String> nombre,
+                                      Map<String, Integer> tabla, List<String> cadenas) {
+        if (entradas == null) {
+            return;
+        }
+        for (T entrada : entradas) {
+            String cadena = nombre.apply(entrada);
+            if (cadena != null && tabla.putIfAbsent(cadena, cadenas.size()) == null) {
+                cadenas.add(cadena);
+            }
+        }
+    }
+
+    private static boolean escribirTamano(DataOutput salida, List<?> lista) throws IOException {
+        escribirVarint(salida, lista == null ? 0 : lista.size() + 1);
+        return lista != null;
+    }
+
+    private static void escribirEntrada(DataOutput salida, Map<String, Integer> tabla, String nombre,
+                                        Integer numeroPreferencias, Double puntaje) throws IOException {
+        int posicion = nombre == null ? 0 : tabla.get(nombre) + 1;
+        int indicadores = (numeroPreferencias != null ? CON_NUMERO : 0) | (puntaje != null ? CON_PUNTAJE : 0);
+        escribirVarint(salida, posicion << 2 | indicadores);
+        if (numeroPreferencias != null) {
+            // Zigzag: los conteos son positivos, pero el formato no lo exige.
+            escribirVarint(salida, numeroPreferencias << 1 ^ numeroPreferencias >> 31);
+        }
+        if (puntaje != null) {
+            salida.writeDouble(puntaje);
+        }
+    }
+
+    private static void escribirHistograma(DataOutput salida, int[] conteos) throws IOException {
+        escribirVarint(salida, conteos == null ? 0 : conteos.length + 1);
+        if (conteos != null) {
+            for (int conteo : conteos) {
+                escribirVarint(salida, conteo);
+            }
+        }
+    }
+
+    private static int[] leerHistograma(DataInput entrada) throws IOException {
+        int tamano = leerTamano(entrada);
+        if (tamano == 0) {
+            return null;
+        }
+        int[] conteos = new int[tamano - 1];
+        for (int i = 0; i < conteos.length; i++) {
+            conteos[i] = leerVarint(entrada);
+        }
+        return conteos;
+    }
+
+    private static String nombre(String[] cadenas, int cabecera) throws IOException {
+        int posicion = cabecera >>> 2;
+        if (posicion > cadenas.length) {
+            throw new InvalidObjectException("Referencia a la tabla de cadenas fuera de rango: " + posicion);
+        }
+        return posicion == 0 ? null : cadenas[posicion - 1];
+    }
+
+    private static Integer numero(DataInput entrada, int cabecera) throws IOException {
+        if ((cabecera & CON_NUMERO) == 0) {
+            return null;
+        }
+        int zigzag = leerVarint(entrada);
+        return zigzag >>> 1 ^ -(zigzag & 1);
+    }
+
+    private static Double puntaje(DataInput entrada, int cabecera) throws IOException {
+        return (cabecera & CON_PUNTAJE) != 0 ? entrada.readDouble() : null;
+    }
+
+    private static int leerTamano(DataInput entrada) throws IOException {
+        int tamano = leerVarint(entrada);
+        if (tamano < 0) {
+            throw new InvalidObjectException("Tamano negativo en el formato de preferencias: " + tamano);
+        }
+        return tamano;
+    }
+
+    private static void escribirVarint(DataOutput salida, int valor) throws IOException {
+        while ((valor & ~0x7F) != 0) {
+            salida.writeByte(valor & 0x7F | 0x80);
+            valor >>>= 7;
+        }
+        salida.writeByte(valor);
+    }
+
+    private static int leerVarint(DataInput entrada) throws IOException {
+        int valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 32; desplazamiento += 7) {
+            int octeto = entrada.readUnsignedByte();
+            valor |= (octeto & 0x7F) << desplazamiento;
+            if ((octeto & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new InvalidObjectException("Entero de longitud variable mal formado");
+    }
+}
@@ -0,0 +1,22 @@
+package co.edu.unicauca.fachadaServices.DTO;
+
+/**
+ * Criterio con el que se ordenan las preferencias de un usuario.
+ *
+ * @see OpcionesPreferenciasDTO
+ */
+public enum ModoPreferencias {
+
+    /**
+     * Ordena por número de reproducciones; todas las reproducciones pesan lo
+     * mismo sin importar su antigüedad. Es el modo por defecto.
+     */
+    CONTEO,
+
+    /**
+     * Ordena por un puntaje con decaimiento exponencial: cada reproducción
+     * pesa {@code 2^(-antigüedad / semivida)}, de modo que las reproducciones
+     * recientes cuentan más que las antiguas.
+     */
+    RECIENCIA
+}
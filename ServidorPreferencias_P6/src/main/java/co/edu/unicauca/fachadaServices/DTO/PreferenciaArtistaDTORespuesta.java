@@ -13,6 +13,7 @@ import lombok.NoArgsConstructor;
 public class PreferenciaArtistaDTORespuesta implements Serializable {
     private String nombreArtista;
     private Integer numeroPreferencias;
+    private Double puntaje;
 }
 
 
@@ -13,6 +13,7 @@ import lombok.NoArgsConstructor;
 public class PreferenciaGeneroDTORespuesta implements Serializable {
     private String nombreGenero;
     private Integer numeroPreferencias;
+    private Double puntaje;
 }
 
 
@@ -9,4 +9,5 @@ import lombok.NoArgsConstructor;
 public class PreferenciaIdiomaDTORespuesta implements Serializable {
     private String nombreIdioma;
     private Integer numeroPreferencias;
+    private Double puntaje;
 }
\ No newline at end of file
@@ -1,15 +1,48 @@
 package co.edu.unicauca.fachadaServices.DTO;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.List;
 
 import lombok.Data;
 
-
+/**
+ * Respuesta del servicio de preferencias. Viaja por RMI en el formato
+ * compacto de {@link FormatoPreferencias} en lugar de con la serialización
+ * por defecto; el Cliente tiene una copia idéntica del formato.
+ */
 @Data
-public class PreferenciasDTORespuesta implements Serializable {
+public class PreferenciasDTORespuesta implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
     private int idUsuario;
     private List<PreferenciaGeneroDTORespuesta> preferenciasGeneros;
     private List<PreferenciaArtistaDTORespuesta> preferenciasArtistas;
-    private List<PreferenciaIdiomaDTORespuesta> preferenciasIdiomas; 
+    private List<PreferenciaIdiomaDTORespuesta> preferenciasIdiomas;
+
+    /**
+     * Reproducciones por hora local del día (24 posiciones, desde las 0).
+     */
+    private int[] reproduccionesPorHora;
+
+    /**
+     * Reproducciones por día de la semana (7 posiciones, desde el lunes).
+     */
+    private int[] reproduccionesPorDiaSemana;
+
+    /**
+     * Escribe la respuesta en el formato compacto de {@link FormatoPreferencias}.
+     */
+    @Override
+    public void writeExternal(ObjectOutput salida) throws IOException {
+        FormatoPreferencias.escribir(this, salida);
+    }
+
+    @Override
+    public void readExternal(ObjectInput entrada) throws IOException {
+        FormatoPreferencias.leer(this, entrada);
+    }
 }
@@ -25,4 +25,10 @@ public class ReproduccionesDTOEntrada {
     // El JSON del servidor Go usa 'fechaHora'.
     @JsonProperty("fechaHora")
     private String fechaHora;
+
+    // El JSON del servidor Go usa 'secuencia': número creciente de la
+    // reproducción, usado como cursor en las consultas incrementales.
+    // Es null si el servidor no lo envía.
+    @JsonProperty("secuencia")
+    private Long secuencia;
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package co.edu.unicauca.fachadaServices.DTO;
+
+import java.io.Serializable;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con las tendencias de toda la plataforma en una ventana de tiempo: los
+ * géneros, artistas e idiomas más escuchados por todos los usuarios.
+ * <p>
+ * En cada elemento de las listas, {@code numeroPreferencias} es el número de
+ * reproducciones y {@code puntaje} la fracción de los usuarios activos en la
+ * ventana que lo escucharon al menos una vez. {@code desde} y {@code hasta}
+ * son {@code null} si la ventana no tiene ese límite.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TendenciasDTORespuesta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String desde;
+    private String hasta;
+    private Long totalReproducciones;
+    private Integer totalUsuarios;
+    private List<PreferenciaGeneroDTORespuesta> tendenciasGeneros;
+    private List<PreferenciaArtistaDTORespuesta> tendenciasArtistas;
+    private List<PreferenciaIdiomaDTORespuesta> tendenciasIdiomas;
+}
@@ -0,0 +1,27 @@
+package co.edu.unicauca.fachadaServices.services;
+
+import java.rmi.RemoteException;
+import java.util.Map;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+
+/**
+ * Receptor de los bloques de resultados producidos por
+ * {@link IPreferenciasService#getReferenciasBatch(java.util.List, int, ConsumidorBloquePreferencias)}.
+ * <p>
+ * Permite entregar los resultados de un lote muy grande de usuarios a medida
+ * que se calculan, en lugar de construir un único mapa con todos ellos. En el
+ * controlador RMI se implementa reenviando cada bloque al objeto remoto del
+ * cliente, por eso el método declara {@link RemoteException}.
+ */
+@FunctionalInterface
+public interface ConsumidorBloquePreferencias {
+
+    /**
+     * Recibe un bloque de resultados parciales.
+     *
+     * @param bloque mapa con las preferencias de los usuarios del bloque,
+     *               indexado por identificador de usuario.
+     * @throws RemoteException si falla la entrega del bloque al cliente.
+     */
+    void aceptar(Map<Integer, PreferenciasDTORespuesta> bloque) throws RemoteException;
+}
@@ -1,7 +1,14 @@
 package co.edu.unicauca.fachadaServices.services;
 
 import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import co.edu.unicauca.fachadaServices.DTO.MasEscuchadosDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
 import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.RecomendacionCancionDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.TendenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.UsuarioSimilarDTORespuesta;
 
 /**
  * Define el contrato para el servicio de cálculo de preferencias.
@@ -41,4 +48,148 @@ public interface IPreferenciasService {
      *                         llamada remota.
      */
     public PreferenciasDTORespuesta getReferencias(Integer id) throws RemoteException;
-}
\ No newline at end of file
+
+    /**
+     * Variante de {@link #getReferencias(Integer)} que permite limitar cuántas
+     * entradas se devuelven por género, artista e idioma.
+     * <p>
+     * Pedir solo las primeras entradas (modo top-K) evita ordenar listas
+     * completas y reduce el tamaño de la respuesta; las listas completas
+     * siguen disponibles con {@link OpcionesPreferenciasDTO#completas()}.
+     *
+     * @param id       el identificador único del usuario.
+     * @param opciones los límites por dimensión; {@code null} equivale a las
+     *                 listas completas.
+     * @return las preferencias del usuario, ordenadas y recortadas según
+     *         {@code opciones}.
+     * @throws RemoteException si las preferencias no pueden calcularse.
+     */
+    public PreferenciasDTORespuesta getReferencias(Integer id, OpcionesPreferenciasDTO opciones) throws RemoteException;
+
+    /**
+     * Calcula las preferencias de un lote de usuarios en una sola operación.
+     * <p>
+     * A diferencia de invocar {@link #getReferencias(Integer)} una vez por
+     * usuario, el catálogo se obtiene una única vez para todo el lote, los
+     * historiales se consultan con paralelismo acotado y los cálculos se
+     * reparten en un pool de trabajadores.
+     *
+     * @param ids los identificadores de los usuarios. Los duplicados se
+     *            calculan una sola vez.
+     * @return un mapa con las preferencias de cada usuario, indexado por su
+     *         identificador.
+     * @throws RemoteException si el lote no puede completarse dentro del plazo
+     *                         o falla el cálculo.
+     */
+    public Map<Integer, PreferenciasDTORespuesta> getReferenciasBatch(List<Integer> ids) throws RemoteException;
+
+    /**
+     * Variante por bloques de {@link #getReferenciasBatch(List)} para lotes muy
+     * grandes.
+     * <p>
+     * Los usuarios se procesan en bloques de {@code tamanoBloque} y cada bloque
+     * se entrega al {@code consumidor} en cuanto termina, de modo que nunca se
+     * construye (ni se serializa) un único objeto con todo el lote.
+     *
+     * @param ids          los identificadores de los usuarios.
+     * @param tamanoBloque número máximo de usuarios por bloque entregado.
+     * @param consumidor   receptor de los bloques parciales.
+     * @throws RemoteException si un bloque no puede calcularse o entregarse.
+     */
+    public void getReferenciasBatch(List<Integer> ids, int tamanoBloque, ConsumidorBloquePreferencias consumidor) throws RemoteException;
+
+    /**
+     * Calcula las preferencias musicales de un usuario con solo sus
+     * reproducciones de los últimos días ("sus géneros más escuchados esta
+     * semana"), contando el día de hoy.
+     *
+     * @param id       el identificador del usuario.
+     * @param dias     los días de la ventana, entre 1 y 90.
+     * @param opciones los límites por dimensión y el criterio de orden; en el
+     *                 modo por reciencia, las reproducciones pesan según la
+     *                 antigüedad de su día.
+     * @return las preferencias de la ventana; listas vacías si el usuario no
+     *         tiene reproducciones en ella.
+     * @throws RemoteException si la ventana no es válida o las preferencias
+     *                         no pueden calcularse dentro del plazo.
+     */
+    public PreferenciasDTORespuesta getReferenciasVentana(Integer id, int dias, OpcionesPreferenciasDTO opciones) throws RemoteException;
+
+    /**
+     * Recomienda al usuario canciones que aún no ha escuchado, a partir de
+     * las canciones que escuchan junto con las suyas los demás usuarios.
+     *
+     * @param id     el identificador del usuario.
+     * @param limite número máximo de canciones; si no es positivo se usa
+     *               {@code preferencias.recomendaciones.limite}.
+     * @return las canciones recomendadas, de mayor a menor puntaje; vacía si
+     *         el usuario no tiene reproducciones o el índice aún no está
+     *         construido.
+     * @throws RemoteException si las recomendaciones están desactivadas o no
+     *                         pueden calcularse dentro del plazo.
+     */
+    public List<RecomendacionCancionDTORespuesta> getRecomendaciones(Integer id, int limite) throws RemoteException;
+
+    /**
+     * Busca los usuarios cuyas canciones escuchadas más se parecen a las del
+     * usuario ("oyentes como tú"). La búsqueda es aproximada: puede omitir
+     * algún usuario parecido, pero no recorre a todos los usuarios.
+     *
+     * @param id     el identificador del usuario.
+     * @param limite número máximo de usuarios; si no es positivo se usa
+     *               {@code preferencias.similares.limite}.
+     * @return los usuarios parecidos, de mayor a menor similitud; vacía si el
+     *         usuario no tiene reproducciones.
+     * @throws RemoteException si la búsqueda está desactivada o no puede
+     *                         completarse dentro del plazo.
+     */
+    public List<UsuarioSimilarDTORespuesta> getUsuariosSimilares(Integer id, int limite) throws RemoteException;
+
+    /**
+     * Calcula las tendencias de toda la plataforma: los géneros, artistas e
+     * idiomas más escuchados por todos los usuarios, opcionalmente dentro de
+     * una ventana de tiempo. Puede reflejar el historial de hace hasta
+     * {@code preferencias.tendencias.ttl.ms} milisegundos.
+     *
+     * @param desde  inicio de la ventana, inclusive, con el formato
+     *               {@code "yyyy-MM-dd HH:mm:ss"}; sin límite si es
+     *               {@code null} o está vacío.
+     * @param hasta  fin de la ventana, inclusive, con el mismo formato; sin
+     *               límite si es {@code null} o está vacío.
+     * @param limite elementos de cada lista; si no es positivo se usa
+     *               {@code preferencias.tendencias.limite}.
+     * @return las tendencias, de más a menos reproducciones.
+     * @throws RemoteException si las tendencias están desactivadas, alguna
+     *                         fecha no tiene el formato esperado o no pueden
+     *                         calcularse dentro del plazo.
+     */
+    public TendenciasDTORespuesta getTendencias(String desde, String hasta, int limite) throws RemoteException;
+
+    /**
+     * Devuelve los resúmenes de lo más escuchado de esta instancia, con los
+     * que otra instancia puede combinarlos en
+     * {@link #getMasEscuchados(int, List)}.
+     *
+     * @return los resúmenes serializados.
+     * @throws RemoteException si lo más escuchado está desactivado.
+     */
+    public byte[] getResumenMasEscuchados() throws RemoteException;
+
+    /**
+     * Devuelve los artistas, canciones y géneros más escuchados de la
+     * plataforma según resúmenes de memoria fija. Cada conteo es aproximado,
+     * con una cota inferior y una superior; el error nunca supera
+     * {@code errorMaximo}.
+     *
+     * @param limite               elementos de cada lista; si no es
+     *                             positivo se usa
+     *                             {@code preferencias.masEscuchados.limite}.
+     * @param resumenesAdicionales resúmenes de otras instancias, obtenidos
+     *                             con {@link #getResumenMasEscuchados()},
+     *                             que se combinan con los de esta.
+     * @return lo más escuchado, de más a menos reproducciones.
+     * @throws RemoteException si lo más escuchado está desactivado o algún
+     *                         resumen adicional no es válido.
+     */
+    public MasEscuchadosDTORespuesta getMasEscuchados(int limite, List<byte[]> resumenesAdicionales) throws RemoteException;
+}
@@ -1,12 +1,48 @@
 package co.edu.unicauca.fachadaServices.services;
 
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.DTO.MasEscuchadosDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
 import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.RecomendacionCancionDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.TendenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.UsuarioSimilarDTORespuesta;
 import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AgregadoUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AlmacenAgregadosUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.ContadoresDiarios;
+import co.edu.unicauca.fachadaServices.services.componenteCachePreferencias.CachePreferenciasUsuario;
 import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.CalculadorPreferencias;
+import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorCanciones.CatalogoVersionado;
 import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorCanciones.ComunicacionServidorCanciones;
 import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorReproducciones.ComunicacionServidorReproducciones;
+import co.edu.unicauca.fachadaServices.services.componenteEventosReproducciones.VistaMaterializadaReproducciones;
+import co.edu.unicauca.fachadaServices.services.componenteInstantaneaServidor.PersistenciaInstantanea;
+import co.edu.unicauca.fachadaServices.services.componenteMasEscuchados.MasEscuchadosPlataforma;
+import co.edu.unicauca.fachadaServices.services.componenteRecomendaciones.IndiceRecomendaciones;
+import co.edu.unicauca.fachadaServices.services.componenteTendencias.AgregadorTendencias;
+import co.edu.unicauca.fachadaServices.services.componenteUsuariosSimilares.IndiceUsuariosSimilares;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import co.edu.unicauca.utilidades.DecaimientoExponencial;
+import co.edu.unicauca.utilidades.FabricaHilosDemonio;
+import co.edu.unicauca.utilidades.FechasReproduccion;
+import co.edu.unicauca.utilidades.VueloUnico;
 
 /**
  * Implementación concreta del servicio de cálculo de preferencias.
@@ -36,6 +72,214 @@ public class PreferenciasServiceImpl implements IPreferenciasService {
      */
     private final CalculadorPreferencias calculadorPreferencias;
 
+    /**
+     * Caché de resultados por usuario, invalidada por versión del catálogo y
+     * por marca del historial de reproducciones.
+     */
+    private final CachePreferenciasUsuario cachePreferencias;
+
+    /**
+     * Contadores acumulados del historial de cada usuario, actualizados de
+     * forma incremental con las reproducciones nuevas.
+     */
+    private final AlmacenAgregadosUsuario agregadosUsuarios;
+
+    /**
+     * Instantánea en disco del catálogo y de los agregados, con la que el
+     * servidor arranca en caliente; {@code null} si está desactivada.
+     */
+    private final PersistenciaInstantanea persistenciaInstantanea;
+
+    /**
+     * Vista alimentada por los eventos de reproducción que mantiene los
+     * agregados al día sin consultar al Servidor de Reproducciones;
+     * {@code null} si está desactivada.
+     */
+    private final VistaMaterializadaReproducciones vistaEventos;
+
+    /**
+     * Indica si un resultado en caché puede devolverse dentro de su tiempo de
+     * vida sin consultar el historial del usuario. Solo es así con la vista
+     * alimentada por eventos, que invalida la entrada de un usuario en cuanto
+     * recibe una reproducción suya; sin eventos nada avisa de los cambios, así
+     * que cada consulta pone al día el agregado (solo las reproducciones
+     * posteriores al cursor) y reutiliza el resultado si su marca no cambió.
+     */
+    private final boolean cacheSinRevalidar;
+
+    /**
+     * Índice de coocurrencias entre canciones con el que se recomiendan
+     * canciones nuevas; {@code null} si está desactivado.
+     */
+    private final IndiceRecomendaciones recomendaciones;
+
+    /**
+     * Número de recomendaciones por defecto de
+     * {@link #getRecomendaciones(Integer, int)}.
+     */
+    private final int limiteRecomendaciones;
+
+    /**
+     * Índice MinHash/LSH con el que se buscan usuarios de gustos parecidos;
+     * {@code null} si está desactivado.
+     */
+    private final IndiceUsuariosSimilares usuariosSimilares;
+
+    /**
+     * Número de usuarios similares por defecto de
+     * {@link #getUsuariosSimilares(Integer, int)}.
+     */
+    private final int limiteSimilares;
+
+    /**
+     * Agregador de las tendencias de toda la plataforma; {@code null} si está
+     * desactivado.
+     */
+    private final AgregadorTendencias tendencias;
+
+    /**
+     * Número de elementos por defecto de cada lista de
+     * {@link #getTendencias(String, String, int)}.
+     */
+    private final int limiteTendencias;
+
+    /**
+     * Resúmenes de memoria fija de lo más escuchado en la plataforma;
+     * {@code null} si están desactivados.
+     */
+    private final MasEscuchadosPlataforma masEscuchados;
+
+    /**
+     * Número de elementos por defecto de cada lista de
+     * {@link #getMasEscuchados(int, List)}.
+     */
+    private final int limiteMasEscuchados;
+
+    /**
+     * Intervalo tras el cual el agregado de un usuario se reconstruye a partir
+     * de su historial completo, para recuperarse, por ejemplo, de un reinicio
+     * del Servidor de Reproducciones que reinicie las secuencias.
+     */
+    private final long resincronizarAgregadosMs;
+
+    /**
+     * Pool de hilos en el que se ejecutan en paralelo las llamadas a los
+     * servidores de Canciones y Reproducciones.
+     */
+    private final ExecutorService ejecutorConsultas;
+
+    /**
+     * Tiempo máximo, en milisegundos, que una petición espera por sus datos y
+     * su cálculo.
+     */
+    private final long plazoMs;
+
+    /**
+     * Pool de hilos que acota cuántos historiales se consultan en paralelo
+     * durante un lote.
+     */
+    private final ExecutorService ejecutorLotes;
+
+    /**
+     * Pool de trabajadores en el que se calculan las preferencias de un lote.
+     */
+    private final ExecutorService ejecutorCalculo;
+
+    /**
+     * Tamaño de bloque usado por {@link #getReferenciasBatch(List)}.
+     */
+    private final int tamanoBloqueLote;
+
+    /**
+     * Si es {@code true}, cada petición imprime en consola el catálogo y el
+     * historial completos. Solo sirve para depurar: con catálogos grandes el
+     * eco domina el tiempo de respuesta.
+     */
+    private final boolean logDetalle;
+
+    /**
+     * Duración total de {@link #getReferencias(Integer, OpcionesPreferenciasDTO)},
+     * en microsegundos.
+     */
+    private final HistogramaLatencias latenciaPeticion;
+
+    /**
+     * Duración total de
+     * {@link #getReferenciasVentana(Integer, int, OpcionesPreferenciasDTO)}, en
+     * microsegundos.
+     */
+    private final HistogramaLatencias latenciaVentana;
+
+    /**
+     * Duración de la obtención del catálogo cuando no había una instantánea
+     * vigente, en microsegundos.
+     */
+    private final HistogramaLatencias latenciaCatalogo;
+
+    /**
+     * Duración de la actualización del agregado del historial de un usuario,
+     * en microsegundos.
+     */
+    private final HistogramaLatencias latenciaHistorial;
+
+    /**
+     * Duración del cálculo de preferencias, en microsegundos.
+     */
+    private final HistogramaLatencias latenciaCalculo;
+
+    /**
+     * Duración de cada bloque de un lote, en microsegundos.
+     */
+    private final HistogramaLatencias latenciaBloqueLote;
+
+    /**
+     * Usuarios procesados en lotes.
+     */
+    private final LongAdder usuariosLote;
+
+    /**
+     * Peticiones que superaron el plazo configurado.
+     */
+    private final LongAdder plazosVencidos;
+
+    /**
+     * Peticiones que fallaron por otros errores.
+     */
+    private final LongAdder errores;
+
+    /**
+     * Actualizaciones del historial que fallaron y conservaron el agregado
+     * anterior.
+     */
+    private final LongAdder erroresHistorial;
+
+    /**
+     * Cálculos en curso por usuario y opciones: las peticiones concurrentes
+     * iguales comparten una misma obtención de datos y un mismo cálculo.
+     */
+    private final VueloUnico<ClavePeticion, PreferenciasDTORespuesta> peticionesEnVuelo =
+            new VueloUnico<>("preferencias.vuelo.peticiones");
+
+    /**
+     * Actualizaciones en curso del historial de cada usuario, compartidas
+     * entre peticiones individuales y lotes.
+     */
+    private final VueloUnico<Integer, AgregadoUsuario> historialesEnVuelo =
+            new VueloUnico<>("preferencias.vuelo.historiales");
+
+    /**
+     * Obtenciones en curso del catálogo, por versión de la instantánea que
+     * había expirado.
+     */
+    private final VueloUnico<Long, CatalogoVersionado> catalogosEnVuelo =
+            new VueloUnico<>("preferencias.vuelo.catalogos");
+
+    /**
+     * Clave de {@link #peticionesEnVuelo}.
+     */
+    private record ClavePeticion(Integer id, OpcionesPreferenciasDTO opciones) {
+    }
+
     /**
      * Construye una nueva instancia del servicio de preferencias.
      * <p>
@@ -43,9 +287,107 @@ public class PreferenciasServiceImpl implements IPreferenciasService {
      * enfoque se conoce como Inyección de Dependencias manual.
      */
     public PreferenciasServiceImpl() {
-        this.comunicacionServidorCanciones = new ComunicacionServidorCanciones();
+        long semividaMs = LectorPropiedadesConfig.getLong("preferencias.reciencia.semivida.ms", CalculadorPreferencias.SEMIVIDA_POR_DEFECTO_MS);
+        DecaimientoExponencial decaimiento = new DecaimientoExponencial(semividaMs);
+        this.persistenciaInstantanea = PersistenciaInstantanea.desdeConfiguracion(decaimiento);
+        this.comunicacionServidorCanciones = new ComunicacionServidorCanciones(
+                this.persistenciaInstantanea != null ? this.persistenciaInstantanea.restaurarCatalogo() : null);
         this.comunicacionServidorReproducciones = new ComunicacionServidorReproducciones();
-        this.calculadorPreferencias = new CalculadorPreferencias();
+        this.calculadorPreferencias = new CalculadorPreferencias(semividaMs);
+        this.cachePreferencias = new CachePreferenciasUsuario(
+                LectorPropiedadesConfig.getInt("preferencias.cache.maximo", 10_000),
+                LectorPropiedadesConfig.getLong("preferencias.cache.ttl.ms", 10_000L));
+        this.agregadosUsuarios = new AlmacenAgregadosUsuario(
+                LectorPropiedadesConfig.getInt("preferencias.agregados.maximo", 10_000),
+                LectorPropiedadesConfig.getInt("preferencias.agregados.franjas", AlmacenAgregadosUsuario.FRANJAS_POR_DEFECTO),
+                decaimiento);
+        if (this.persistenciaInstantanea != null) {
+            this.agregadosUsuarios.setFuenteRestauracion(this.persistenciaInstantanea::restaurarAgregado);
+            this.persistenciaInstantanea.iniciar(this.comunicacionServidorCanciones::getCatalogoActual, this.agregadosUsuarios,
+                    this.comunicacionServidorReproducciones::getEpocaServidor);
+        }
+        this.resincronizarAgregadosMs = LectorPropiedadesConfig.getLong("preferencias.agregados.resincronizar.ms", 600_000L);
+        this.ejecutorConsultas = Executors.newFixedThreadPool(
+                LectorPropiedadesConfig.getInt("preferencias.consultas.hilos", 16),
+                new FabricaHilosDemonio("preferencias-consultas"));
+        this.plazoMs = LectorPropiedadesConfig.getLong("preferencias.plazo.ms", 5_000L);
+        this.ejecutorLotes = Executors.newFixedThreadPool(
+                LectorPropiedadesConfig.getInt("preferencias.lote.paralelismo", 8),
+                new FabricaHilosDemonio("preferencias-lote-io"));
+        this.ejecutorCalculo = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                new FabricaHilosDemonio("preferencias-lote-calculo"));
+        this.tamanoBloqueLote = LectorPropiedadesConfig.getInt("preferencias.lote.bloque", 500);
+        this.logDetalle = LectorPropiedadesConfig.getBoolean("preferencias.log.detalle", false);
+
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.latenciaPeticion = metricas.latencias("preferencias.peticion");
+        this.latenciaVentana = metricas.latencias("preferencias.ventana");
+        this.latenciaCatalogo = metricas.latencias("preferencias.etapa.catalogo");
+        this.latenciaHistorial = metricas.latencias("preferencias.etapa.historial");
+        this.latenciaCalculo = metricas.latencias("preferencias.etapa.calculo");
+        this.latenciaBloqueLote = metricas.latencias("preferencias.lote.bloque");
+        this.usuariosLote = metricas.contador("preferencias.lote.usuarios");
+        this.plazosVencidos = metricas.contador("preferencias.plazos.vencidos");
+        this.errores = metricas.contador("preferencias.errores");
+        this.erroresHistorial = metricas.contador("preferencias.historial.errores");
+        metricas.registrarIndicador("preferencias.cache.tamano", this.cachePreferencias::getTamano);
+        metricas.registrarIndicador("preferencias.cache.aciertos", this.cachePreferencias::getAciertos);
+        metricas.registrarIndicador("preferencias.cache.aciertosRevalidados", this.cachePreferencias::getAciertosRevalidados);
+        metricas.registrarIndicador("preferencias.cache.fallos", this.cachePreferencias::getFallos);
+        metricas.registrarIndicador("preferencias.agregados.tamano", this.agregadosUsuarios::getTamano);
+
+        this.recomendaciones = IndiceRecomendaciones.desdeConfiguracion();
+        this.limiteRecomendaciones = LectorPropiedadesConfig.getInt("preferencias.recomendaciones.limite", 10);
+        if (this.recomendaciones != null) {
+            this.recomendaciones.asegurarVigente(() -> obtenerCatalogoMedido().getIndice(), this.comunicacionServidorReproducciones);
+        }
+        this.usuariosSimilares = IndiceUsuariosSimilares.desdeConfiguracion();
+        this.limiteSimilares = LectorPropiedadesConfig.getInt("preferencias.similares.limite", 10);
+        if (this.usuariosSimilares != null) {
+            this.usuariosSimilares.iniciar(this.comunicacionServidorReproducciones);
+        }
+        this.tendencias = AgregadorTendencias.desdeConfiguracion();
+        this.limiteTendencias = LectorPropiedadesConfig.getInt("preferencias.tendencias.limite", 10);
+
+        this.masEscuchados = MasEscuchadosPlataforma.desdeConfiguracion(
+                () -> this.comunicacionServidorCanciones.obtenerCatalogo().getIndice());
+        this.limiteMasEscuchados = LectorPropiedadesConfig.getInt("preferencias.masEscuchados.limite", 10);
+
+        this.vistaEventos = VistaMaterializadaReproducciones.desdeConfiguracion(this.agregadosUsuarios, this::alCambiarHistorial);
+        this.cacheSinRevalidar = this.vistaEventos != null;
+        if (this.masEscuchados != null) {
+            // El recorrido de la vista solo aplica lo que falta a los
+            // agregados restaurados, así que lo más escuchado recorre el
+            // historial por su cuenta; lo que reciba por ambos caminos se
+            // cuenta una vez.
+            if (this.vistaEventos != null) {
+                this.vistaEventos.setObservadorAplicadas(this.masEscuchados::observar);
+            }
+            this.masEscuchados.iniciar(this.comunicacionServidorReproducciones, VistaMaterializadaReproducciones.usuariosPropios(),
+                    LectorPropiedadesConfig.getBoolean("preferencias.masEscuchados.arranque", true));
+        }
+        if (this.vistaEventos != null) {
+            this.vistaEventos.iniciar(this.comunicacionServidorReproducciones,
+                    LectorPropiedadesConfig.getBoolean("preferencias.eventos.arranque", true));
+        }
+    }
+
+    /**
+     * Opciones normalizadas que solicitan las listas completas; son las que
+     * usan {@link #getReferencias(Integer)} y los lotes.
+     */
+    private static final OpcionesPreferenciasDTO OPCIONES_COMPLETAS = OpcionesPreferenciasDTO.completas().normalizadas();
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Equivale a {@link #getReferencias(Integer, OpcionesPreferenciasDTO)} con
+     * las listas completas.
+     */
+    @Override
+    public PreferenciasDTORespuesta getReferencias(Integer id) throws RemoteException {
+        return getReferencias(id, OPCIONES_COMPLETAS);
     }
 
     /**
@@ -54,41 +396,586 @@ public class PreferenciasServiceImpl implements IPreferenciasService {
      * Esta implementación orquesta el flujo de trabajo para calcular las
      * preferencias:
      * <ol>
-     *   <li>Realiza una llamada REST síncrona al Servidor de Canciones para
-     *       obtener el catálogo completo.</li>
-     *   <li>Realiza otra llamada REST síncrona al Servidor de Reproducciones para
-     *       obtener el historial del usuario especificado.</li>
-     *   <li>Delega los datos obtenidos al {@link CalculadorPreferencias} para que
-     *       realice el procesamiento y la agregación.</li>
-     *   <li>Retorna el resultado final empaquetado en un
-     *       {@link PreferenciasDTORespuesta}.</li>
+     *   <li>Consulta la instantánea del catálogo en memoria. Si está vigente,
+     *       la vista por eventos está activa y hay un resultado en caché para
+     *       el usuario calculado con esa versión, lo retorna directamente: los
+     *       eventos invalidan la entrada cuando cambia el historial. Sin
+     *       eventos siempre se pasa al paso siguiente.</li>
+     *   <li>En caso contrario lanza en paralelo la obtención del catálogo (si
+     *       hubiera que revalidarlo) y la actualización del agregado del
+     *       usuario, que solo pide al Servidor de Reproducciones las
+     *       reproducciones posteriores a su cursor. La latencia es la de la más
+     *       lenta de las dos operaciones y no su suma. Con la vista alimentada
+     *       por eventos ({@code preferencias.eventos.modo}), el agregado que
+     *       ya está al día se lee directamente, sin consulta.</li>
+     *   <li>En cuanto ambos datos están disponibles, si el historial no cambió
+     *       desde el último cálculo reutiliza el resultado anterior; si no,
+     *       delega en el {@link CalculadorPreferencias} y guarda el resultado
+     *       en la caché.</li>
+     *   <li>Espera como máximo el plazo configurado en
+     *       {@code preferencias.plazo.ms}; si se supera, la petición falla con
+     *       una {@link RemoteException}.</li>
      * </ol>
+     * Las peticiones concurrentes para el mismo usuario y las mismas opciones
+     * comparten un único cálculo; las de usuarios distintos comparten la
+     * obtención del catálogo, y las de un mismo usuario con opciones distintas
+     * la consulta de su historial. Así, tras expirar una caché o reiniciar el
+     * servidor, una avalancha de peticiones no se traduce en una avalancha de
+     * consultas a los servidores de Canciones y Reproducciones.
      */
     @Override
-    public PreferenciasDTORespuesta getReferencias(Integer id) {
+    public PreferenciasDTORespuesta getReferencias(Integer id, OpcionesPreferenciasDTO opciones) throws RemoteException {
+        long inicio = System.nanoTime();
+        try {
+            return calcularPreferencias(id, opciones);
+        } finally {
+            this.latenciaPeticion.registrarDesde(inicio);
+        }
+    }
+
+    /**
+     * Flujo de {@link #getReferencias(Integer, OpcionesPreferenciasDTO)}, sin
+     * la medición de su duración total.
+     */
+    private PreferenciasDTORespuesta calcularPreferencias(Integer id, OpcionesPreferenciasDTO opciones) throws RemoteException {
         System.out.println("--> Fachada de Preferencias: Obteniendo datos para el usuario con ID: " + id);
+        OpcionesPreferenciasDTO opcionesConsulta = opciones != null ? opciones.normalizadas() : OPCIONES_COMPLETAS;
         
-        // 1. Obtener el catálogo completo de canciones.
-        List<CancionDTOEntrada> catalogoCanciones = this.comunicacionServidorCanciones.obtenerCancionesRemotas();
-        
+        // 1. Consultar el catálogo en memoria y la caché de resultados.
+        CatalogoVersionado catalogoVigente = this.comunicacionServidorCanciones.obtenerCatalogoSiVigente();
+        if (catalogoVigente != null) {
+            PreferenciasDTORespuesta enCache = resultadoSinRevalidar(id, catalogoVigente.getVersion(), opcionesConsulta);
+            if (enCache != null) {
+                System.out.println("    Fachada de Preferencias: Resultado en cache para el usuario " + id);
+                return enCache;
+            }
+        }
+
+        // 2 y 3. Obtener los datos y calcular, o unirse al cálculo en curso.
+        CompletableFuture<PreferenciasDTORespuesta> futuroResultado = this.peticionesEnVuelo.ejecutar(
+                new ClavePeticion(id, opcionesConsulta), () -> lanzarCalculo(id, catalogoVigente, opcionesConsulta));
+
+        try {
+            return futuroResultado.get(this.plazoMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Solo se cancela la copia de esta petición; el cálculo compartido
+            // sigue en curso para los demás y deja su resultado en la caché.
+            futuroResultado.cancel(true);
+            this.plazosVencidos.increment();
+            throw new RemoteException("Se supero el plazo de " + this.plazoMs + " ms calculando las preferencias del usuario " + id);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.errores.increment();
+            throw new RemoteException("Calculo de preferencias interrumpido para el usuario " + id, e);
+        } catch (ExecutionException e) {
+            this.errores.increment();
+            throw new RemoteException("Error calculando las preferencias del usuario " + id, e.getCause());
+        }
+    }
+
+    /**
+     * Devuelve el resultado en caché del usuario sin consultar su historial,
+     * si está dentro de su tiempo de vida y la invalidación por eventos está
+     * activa ({@link #cacheSinRevalidar}); si no, {@code null}.
+     */
+    private PreferenciasDTORespuesta resultadoSinRevalidar(Integer id, long versionCatalogo, OpcionesPreferenciasDTO opciones) {
+        return this.cacheSinRevalidar ? this.cachePreferencias.obtener(id, versionCatalogo, opciones) : null;
+    }
+
+    /**
+     * Lanza en paralelo la obtención del catálogo (si no hay una instantánea
+     * vigente) y la actualización del historial del usuario, y calcula las
+     * preferencias en cuanto ambos datos están disponibles.
+     */
+    private CompletableFuture<PreferenciasDTORespuesta> lanzarCalculo(Integer id, CatalogoVersionado catalogoVigente,
+                                                                      OpcionesPreferenciasDTO opciones) {
+        CompletableFuture<CatalogoVersionado> futuroCatalogo = catalogoVigente != null
+                ? CompletableFuture.completedFuture(catalogoVigente)
+                : obtenerCatalogoCompartido();
+        CompletableFuture<AgregadoUsuario> futuroReproducciones = agregadoActualizado(id, this.ejecutorConsultas);
+        return futuroCatalogo.thenCombine(futuroReproducciones,
+                (catalogo, agregado) -> calcularConCache(id, catalogo, agregado, opciones));
+    }
+
+    /**
+     * Obtiene el catálogo en el pool de consultas, uniéndose a la obtención en
+     * curso si otra petición ya la lanzó para la misma versión expirada.
+     */
+    private CompletableFuture<CatalogoVersionado> obtenerCatalogoCompartido() {
+        return this.catalogosEnVuelo.ejecutar(this.comunicacionServidorCanciones.getVersionActual(),
+                () -> CompletableFuture.supplyAsync(this::obtenerCatalogoMedido, this.ejecutorConsultas));
+    }
+
+    /**
+     * Devuelve el agregado del usuario al día. Si la vista alimentada por
+     * eventos ya lo tiene al día se usa tal cual, sin consultar al Servidor de
+     * Reproducciones ni cambiar de hilo; si no, se actualiza en el pool
+     * indicado.
+     */
+    private CompletableFuture<AgregadoUsuario> agregadoActualizado(Integer id, ExecutorService ejecutor) {
+        if (this.vistaEventos != null) {
+            AgregadoUsuario alDia = this.vistaEventos.leerAlDia(id);
+            if (alDia != null) {
+                return CompletableFuture.completedFuture(alDia);
+            }
+        }
+        return actualizarAgregadoCompartido(id, ejecutor);
+    }
+
+    /**
+     * Actualiza el agregado del usuario en el pool indicado, uniéndose a la
+     * actualización en curso si ya hay una para el mismo usuario.
+     */
+    private CompletableFuture<AgregadoUsuario> actualizarAgregadoCompartido(Integer id, ExecutorService ejecutor) {
+        return this.historialesEnVuelo.ejecutar(id,
+                () -> CompletableFuture.supplyAsync(() -> actualizarAgregado(id), ejecutor));
+    }
+
+    /**
+     * Obtiene el catálogo registrando la duración de la etapa.
+     */
+    private CatalogoVersionado obtenerCatalogoMedido() {
+        long inicio = System.nanoTime();
+        try {
+            return this.comunicacionServidorCanciones.obtenerCatalogo();
+        } finally {
+            this.latenciaCatalogo.registrarDesde(inicio);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Internamente procesa el lote por bloques con
+     * {@link #getReferenciasBatch(List, int, ConsumidorBloquePreferencias)} y
+     * acumula los bloques en un único mapa.
+     */
+    @Override
+    public Map<Integer, PreferenciasDTORespuesta> getReferenciasBatch(List<Integer> ids) throws RemoteException {
+        Map<Integer, PreferenciasDTORespuesta> resultados = new HashMap<>();
+        getReferenciasBatch(ids, this.tamanoBloqueLote, resultados::putAll);
+        return resultados;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * El catálogo se obtiene una sola vez al inicio del lote. Para cada
+     * usuario se consulta primero la caché de resultados; los que no están en
+     * caché consultan su historial en el pool de E/S del lote (cuyo tamaño,
+     * {@code preferencias.lote.paralelismo}, limita la carga sobre el Servidor
+     * de Reproducciones) y se calculan en el pool de trabajadores. Cada bloque
+     * dispone del plazo configurado en {@code preferencias.plazo.ms}.
+     */
+    @Override
+    public void getReferenciasBatch(List<Integer> ids, int tamanoBloque, ConsumidorBloquePreferencias consumidor) throws RemoteException {
+        List<Integer> idsUnicos = new ArrayList<>(new LinkedHashSet<>(ids));
+        int bloque = tamanoBloque > 0 ? tamanoBloque : this.tamanoBloqueLote;
+        System.out.println("--> Fachada de Preferencias: Lote de " + idsUnicos.size() + " usuarios en bloques de " + bloque);
+
+        CatalogoVersionado catalogo = obtenerCatalogoMedido();
+
+        for (int inicio = 0; inicio < idsUnicos.size(); inicio += bloque) {
+            List<Integer> idsBloque = idsUnicos.subList(inicio, Math.min(inicio + bloque, idsUnicos.size()));
+            long inicioBloque = System.nanoTime();
+            Map<Integer, PreferenciasDTORespuesta> resultadosBloque = calcularBloque(idsBloque, catalogo);
+            this.latenciaBloqueLote.registrarDesde(inicioBloque);
+            this.usuariosLote.add(idsBloque.size());
+            consumidor.aceptar(resultadosBloque);
+        }
+    }
+
+    /**
+     * Calcula las preferencias de un bloque de usuarios con una misma
+     * instantánea del catálogo.
+     */
+    private Map<Integer, PreferenciasDTORespuesta> calcularBloque(List<Integer> idsBloque, CatalogoVersionado catalogo) throws RemoteException {
+        Map<Integer, PreferenciasDTORespuesta> resultados = new HashMap<>();
+        Map<Integer, CompletableFuture<PreferenciasDTORespuesta>> pendientes = new HashMap<>();
+
+        for (Integer id : idsBloque) {
+            PreferenciasDTORespuesta enCache = resultadoSinRevalidar(id, catalogo.getVersion(), OPCIONES_COMPLETAS);
+            if (enCache != null) {
+                resultados.put(id, enCache);
+                continue;
+            }
+            pendientes.put(id, agregadoActualizado(id, this.ejecutorLotes)
+                    .thenApplyAsync(agregado -> calcularConCache(id, catalogo, agregado, OPCIONES_COMPLETAS), this.ejecutorCalculo));
+        }
+
+        CompletableFuture<Void> todos = CompletableFuture.allOf(pendientes.values().toArray(new CompletableFuture[0]));
+        try {
+            todos.get(this.plazoMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            pendientes.values().forEach(futuro -> futuro.cancel(true));
+            this.plazosVencidos.increment();
+            throw new RemoteException("Se supero el plazo de " + this.plazoMs + " ms calculando un bloque de " + idsBloque.size() + " usuarios");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.errores.increment();
+            throw new RemoteException("Calculo del lote de preferencias interrumpido", e);
+        } catch (ExecutionException e) {
+            this.errores.increment();
+            throw new RemoteException("Error calculando el lote de preferencias", e.getCause());
+        }
+
+        for (Map.Entry<Integer, CompletableFuture<PreferenciasDTORespuesta>> pendiente : pendientes.entrySet()) {
+            resultados.put(pendiente.getKey(), pendiente.getValue().join());
+        }
+        return resultados;
+    }
+
+    /**
+     * Pone al día el agregado del historial de un usuario.
+     * <p>
+     * Si el agregado aún no existe, si el servidor no envía secuencias o si
+     * venció el intervalo {@code preferencias.agregados.resincronizar.ms}, se
+     * reconstruye a partir del historial completo. En otro caso solo se piden
+     * las reproducciones posteriores al cursor y se suman como deltas. Si la
+     * época del Servidor de Reproducciones cambió (volvió a arrancar y sus
+     * secuencias empezaron de nuevo), el cursor no sirve y se pide el
+     * historial completo, aunque la respuesta desde el cursor viniera vacía.
+     * Si el Servidor de Reproducciones no responde, se conserva el agregado tal
+     * como estaba. El eco de las reproducciones recibidas solo se imprime con
+     * {@code preferencias.log.detalle=true}.
+     */
+    private AgregadoUsuario actualizarAgregado(Integer id) {
+        return actualizarAgregado(id, false);
+    }
+
+    /**
+     * Igual que {@link #actualizarAgregado(Integer)}, pero con
+     * {@code forzarCompleta} reconstruye el agregado a partir del historial
+     * completo aunque no haya vencido el intervalo.
+     */
+    private AgregadoUsuario actualizarAgregado(Integer id, boolean forzarCompleta) {
+        AgregadoUsuario agregado = this.agregadosUsuarios.obtenerOCrear(id);
+        synchronized (agregado) {
+            long inicio = System.nanoTime();
+            long ahora = System.currentTimeMillis();
+            boolean completa = forzarCompleta || !agregado.estaInicializado() || !agregado.soportaCursor()
+                    || ahora - agregado.getInstanteSincronizacionMs() >= this.resincronizarAgregadosMs;
+            try {
+                List<ReproduccionesDTOEntrada> reproducciones = this.comunicacionServidorReproducciones
+                        .obtenerReproduccionesDesde(id, completa ? 0L : agregado.getCursor());
+                String epoca = this.comunicacionServidorReproducciones.getEpocaServidor();
+                if (!completa && agregado.esDeOtraEpoca(epoca)) {
+                    completa = true;
+                    reproducciones = this.comunicacionServidorReproducciones.obtenerReproduccionesDesde(id, 0L);
+                    epoca = this.comunicacionServidorReproducciones.getEpocaServidor();
+                }
+                if (this.masEscuchados != null) {
+                    this.masEscuchados.observar(reproducciones);
+                }
+
+                // ECO: Imprime las reproducciones obtenidas.
+                if (this.logDetalle) {
+                    System.out.println("    Fachada de Preferencias: Reproducciones obtenidas del Servidor de Reproducciones para el usuario " + id + ":");
+                    for (ReproduccionesDTOEntrada reproduccion : reproducciones) {
+                        System.out.printf("      - Titulo: %s, Fecha: %s\n",
+                            reproduccion.getTitulo(), reproduccion.getFechaHora());
+                    }
+                }
+
+                if (completa || agregado.aplicar(reproducciones) < 0) {
+                    agregado.reconstruir(reproducciones, ahora);
+                }
+                agregado.fijarEpoca(epoca);
+                agregado.marcarVerificado(ahora);
+                sincronizarIndices(id, agregado);
+            } catch (RuntimeException e) {
+                this.erroresHistorial.increment();
+                System.err.println("ERROR al actualizar el historial del usuario " + id + ": " + e.getMessage());
+            } finally {
+                this.latenciaHistorial.registrarDesde(inicio);
+            }
+        }
+        return agregado;
+    }
+
+    /**
+     * Calcula las preferencias a partir de los datos ya obtenidos, reutilizando
+     * el resultado en caché si el historial no cambió.
+     */
+    private PreferenciasDTORespuesta calcularConCache(Integer id, CatalogoVersionado catalogo, AgregadoUsuario agregado,
+                                                      OpcionesPreferenciasDTO opciones) {
         // ECO: Imprime las canciones obtenidas.
-        System.out.println("    Fachada de Preferencias: Canciones obtenidas del Servidor de Canciones:");
-        for (CancionDTOEntrada cancion : catalogoCanciones) {
-            System.out.printf("      - Titulo: %s, Artista: %s, Genero: %s, Idioma: %s\n", 
-                cancion.getTitulo(), cancion.getArtista(), cancion.getGenero(), cancion.getIdioma());
+        if (this.logDetalle) {
+            System.out.println("    Fachada de Preferencias: Canciones obtenidas del Servidor de Canciones:");
+            for (CancionDTOEntrada cancion : catalogo.getCanciones()) {
+                System.out.printf("      - Titulo: %s, Artista: %s, Genero: %s, Idioma: %s\n",
+                    cancion.getTitulo(), cancion.getArtista(), cancion.getGenero(), cancion.getIdioma());
+            }
         }
 
-        // 2. Obtener el historial de reproducciones del usuario.
-        List<ReproduccionesDTOEntrada> reproduccionesUsuario = this.comunicacionServidorReproducciones.obtenerReproduccionesRemotas(id);
-        
-        // ECO: Imprime las reproducciones obtenidas.
-        System.out.println("    Fachada de Preferencias: Reproducciones obtenidas del Servidor de Reproducciones para el usuario " + id + ":");
-        for (ReproduccionesDTOEntrada reproduccion : reproduccionesUsuario) {
-            System.out.printf("      - Titulo: %s, Fecha: %s\n", 
-                reproduccion.getTitulo(), reproduccion.getFechaHora());
+        synchronized (agregado) {
+            // Si el historial no cambió desde el último cálculo, se reutiliza el resultado.
+            String marcaHistorial = agregado.getMarca();
+            PreferenciasDTORespuesta revalidado = this.cachePreferencias.obtenerSiMarcaCoincide(id, catalogo.getVersion(), marcaHistorial, opciones);
+            if (revalidado != null) {
+                System.out.println("    Fachada de Preferencias: Historial sin cambios, se reutiliza el resultado del usuario " + id);
+                return revalidado;
+            }
+
+            // Pasar el agregado al calculador para que procese y devuelva el resultado.
+            long inicio = System.nanoTime();
+            PreferenciasDTORespuesta respuesta = this.calculadorPreferencias.calcular(id, catalogo.getIndice(), agregado, opciones);
+            this.latenciaCalculo.registrarDesde(inicio);
+            this.cachePreferencias.guardar(id, catalogo.getVersion(), marcaHistorial, opciones, respuesta);
+            return respuesta;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Pone al día el agregado del usuario igual que
+     * {@link #getReferencias(Integer, OpcionesPreferenciasDTO)}, suma sus
+     * canciones nuevas al {@link IndiceRecomendaciones} y lo consulta. Si el
+     * índice aún se está construyendo, devuelve una lista vacía. Espera como
+     * máximo el plazo configurado en {@code preferencias.plazo.ms}.
+     */
+    @Override
+    public List<RecomendacionCancionDTORespuesta> getRecomendaciones(Integer id, int limite) throws RemoteException {
+        if (this.recomendaciones == null) {
+            throw new RemoteException("Las recomendaciones estan desactivadas en este servidor");
+        }
+        System.out.println("--> Fachada de Preferencias: Recomendando canciones al usuario con ID: " + id);
+        CatalogoVersionado catalogoVigente = this.comunicacionServidorCanciones.obtenerCatalogoSiVigente();
+        CompletableFuture<CatalogoVersionado> futuroCatalogo = catalogoVigente != null
+                ? CompletableFuture.completedFuture(catalogoVigente)
+                : obtenerCatalogoCompartido();
+        CompletableFuture<List<RecomendacionCancionDTORespuesta>> futuroResultado = futuroCatalogo.thenCombine(
+                agregadoActualizado(id, this.ejecutorConsultas), (catalogo, agregado) -> {
+                    synchronized (agregado) {
+                        sincronizarIndices(id, agregado);
+                    }
+                    if (this.recomendaciones.necesitaConstruccion(catalogo.getIndice())) {
+                        this.recomendaciones.asegurarVigente(catalogo::getIndice, this.comunicacionServidorReproducciones);
+                    }
+                    return this.recomendaciones.recomendar(id, limite > 0 ? limite : this.limiteRecomendaciones);
+                });
+        return esperarConsulta(futuroResultado, "recomendando canciones al usuario " + id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Pone al día el agregado del usuario igual que
+     * {@link #getReferencias(Integer, OpcionesPreferenciasDTO)} y suma las
+     * cubetas diarias de la ventana ({@link ContadoresDiarios}), de modo que
+     * el coste no depende de la longitud del historial. Si el agregado se
+     * restauró de la instantánea, que no guarda las cubetas, se reconstruye
+     * antes a partir del historial completo, una sola vez. El resultado no
+     * se guarda en la caché, porque cambia al cambiar el día.
+     */
+    @Override
+    public PreferenciasDTORespuesta getReferenciasVentana(Integer id, int dias, OpcionesPreferenciasDTO opciones) throws RemoteException {
+        if (dias < 1 || dias > ContadoresDiarios.DIAS) {
+            throw new RemoteException("Ventana invalida de " + dias + " dias: debe tener entre 1 y " + ContadoresDiarios.DIAS);
+        }
+        long inicio = System.nanoTime();
+        System.out.println("--> Fachada de Preferencias: Calculando las preferencias de los ultimos " + dias
+                + " dias del usuario con ID: " + id);
+        OpcionesPreferenciasDTO opcionesConsulta = opciones != null ? opciones.normalizadas() : OPCIONES_COMPLETAS;
+        CatalogoVersionado catalogoVigente = this.comunicacionServidorCanciones.obtenerCatalogoSiVigente();
+        CompletableFuture<CatalogoVersionado> futuroCatalogo = catalogoVigente != null
+                ? CompletableFuture.completedFuture(catalogoVigente)
+                : obtenerCatalogoCompartido();
+        CompletableFuture<AgregadoUsuario> futuroAgregado = agregadoActualizado(id, this.ejecutorConsultas)
+                .thenCompose(agregado -> {
+                    synchronized (agregado) {
+                        if (agregado.tieneDiasCompletos()) {
+                            return CompletableFuture.completedFuture(agregado);
+                        }
+                    }
+                    return CompletableFuture.supplyAsync(() -> actualizarAgregado(id, true), this.ejecutorConsultas);
+                });
+        CompletableFuture<PreferenciasDTORespuesta> futuroResultado = futuroCatalogo.thenCombine(futuroAgregado,
+                (catalogo, agregado) -> {
+                    int hoy = FechasReproduccion.diaLocal(System.currentTimeMillis());
+                    synchronized (agregado) {
+                        return this.calculadorPreferencias.calcularVentana(id, catalogo.getIndice(), agregado,
+                                hoy - dias + 1, hoy, opcionesConsulta);
+                    }
+                });
+        try {
+            return esperarConsulta(futuroResultado, "calculando las preferencias de los ultimos " + dias + " dias del usuario " + id);
+        } finally {
+            this.latenciaVentana.registrarDesde(inicio);
         }
+    }
 
-        // 3. Pasar los datos al calculador para que procese y devuelva el resultado.
-        return this.calculadorPreferencias.calcular(id, catalogoCanciones, reproduccionesUsuario);
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Pone al día el agregado del usuario igual que
+     * {@link #getReferencias(Integer, OpcionesPreferenciasDTO)}, suma sus
+     * títulos nuevos a su firma en el {@link IndiceUsuariosSimilares} y lo
+     * consulta. Espera como máximo el plazo configurado en
+     * {@code preferencias.plazo.ms}.
+     */
+    @Override
+    public List<UsuarioSimilarDTORespuesta> getUsuariosSimilares(Integer id, int limite) throws RemoteException {
+        if (this.usuariosSimilares == null) {
+            throw new RemoteException("La busqueda de usuarios similares esta desactivada en este servidor");
+        }
+        System.out.println("--> Fachada de Preferencias: Buscando usuarios similares al usuario con ID: " + id);
+        CompletableFuture<List<UsuarioSimilarDTORespuesta>> futuroResultado = agregadoActualizado(id, this.ejecutorConsultas)
+                .thenApply(agregado -> {
+                    synchronized (agregado) {
+                        sincronizarIndices(id, agregado);
+                    }
+                    return this.usuariosSimilares.usuariosSimilares(id, limite > 0 ? limite : this.limiteSimilares);
+                });
+        return esperarConsulta(futuroResultado, "buscando usuarios similares al usuario " + id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Agrega en paralelo el historial de todos los usuarios con el
+     * {@link AgregadorTendencias}. La primera consulta espera a que se
+     * recorra el historial completo; si no termina dentro de
+     * {@code preferencias.plazo.ms}, la consulta falla pero el recorrido
+     * continúa y lo aprovechan las siguientes.
+     */
+    @Override
+    public TendenciasDTORespuesta getTendencias(String desde, String hasta, int limite) throws RemoteException {
+        if (this.tendencias == null) {
+            throw new RemoteException("Las tendencias estan desactivadas en este servidor");
+        }
+        long desdeMs = limiteVentana(desde, Long.MIN_VALUE);
+        long hastaMs = limiteVentana(hasta, Long.MAX_VALUE);
+        System.out.println("--> Fachada de Preferencias: Calculando tendencias entre " + desde + " y " + hasta);
+        CatalogoVersionado catalogoVigente = this.comunicacionServidorCanciones.obtenerCatalogoSiVigente();
+        CompletableFuture<CatalogoVersionado> futuroCatalogo = catalogoVigente != null
+                ? CompletableFuture.completedFuture(catalogoVigente)
+                : obtenerCatalogoCompartido();
+        CompletableFuture<TendenciasDTORespuesta> futuroResultado = futuroCatalogo
+                .thenCompose(catalogo -> this.tendencias.obtenerRegistro(catalogo.getIndice(), this.comunicacionServidorReproducciones))
+                .thenApplyAsync(registro -> {
+                    TendenciasDTORespuesta respuesta = this.tendencias.agregar(registro, desdeMs, hastaMs,
+                            limite > 0 ? limite : this.limiteTendencias);
+                    respuesta.setDesde(desdeMs != Long.MIN_VALUE ? desde : null);
+                    respuesta.setHasta(hastaMs != Long.MAX_VALUE ? hasta : null);
+                    return respuesta;
+                }, this.ejecutorConsultas);
+        return esperarConsulta(futuroResultado, "calculando las tendencias");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] getResumenMasEscuchados() throws RemoteException {
+        if (this.masEscuchados == null) {
+            throw new RemoteException("Lo mas escuchado esta desactivado en este servidor");
+        }
+        return this.masEscuchados.exportar();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Los resúmenes se mantienen con cada reproducción que recibe esta
+     * instancia, por eventos o al poner al día un agregado, de modo que la
+     * consulta no accede al Servidor de Reproducciones.
+     */
+    @Override
+    public MasEscuchadosDTORespuesta getMasEscuchados(int limite, List<byte[]> resumenesAdicionales) throws RemoteException {
+        if (this.masEscuchados == null) {
+            throw new RemoteException("Lo mas escuchado esta desactivado en este servidor");
+        }
+        System.out.println("--> Fachada de Preferencias: Consultando lo mas escuchado con "
+                + resumenesAdicionales.size() + " resumenes adicionales");
+        try {
+            return this.masEscuchados.consultar(limite > 0 ? limite : this.limiteMasEscuchados, resumenesAdicionales);
+        } catch (IOException e) {
+            this.errores.increment();
+            throw new RemoteException("Resumen de lo mas escuchado invalido: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Convierte un límite de la ventana de tendencias a milisegundos desde
+     * la época.
+     *
+     * @param sinLimite el valor que se devuelve si la fecha es {@code null} o
+     *                  está vacía.
+     * @throws RemoteException si la fecha no tiene el formato esperado.
+     */
+    private static long limiteVentana(String fechaHora, long sinLimite) throws RemoteException {
+        if (fechaHora == null || fechaHora.isBlank()) {
+            return sinLimite;
+        }
+        long epocaMs = FechasReproduccion.aEpocaMs(fechaHora.trim());
+        if (epocaMs == FechasReproduccion.SIN_FECHA) {
+            throw new RemoteException("Fecha invalida '" + fechaHora + "': se esperaba el formato yyyy-MM-dd HH:mm:ss");
+        }
+        return epocaMs;
+    }
+
+    /**
+     * Espera el resultado de una consulta como máximo el plazo configurado y
+     * traduce sus errores a {@link RemoteException}.
+     *
+     * @param accion descripción de la consulta para los mensajes de error.
+     */
+    private <T> T esperarConsulta(CompletableFuture<T> futuro, String accion) throws RemoteException {
+        try {
+            return futuro.get(this.plazoMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            this.plazosVencidos.increment();
+            throw new RemoteException("Se supero el plazo de " + this.plazoMs + " ms " + accion);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.errores.increment();
+            throw new RemoteException("Consulta interrumpida " + accion, e);
+        } catch (ExecutionException e) {
+            this.errores.increment();
+            throw new RemoteException("Error " + accion, e.getCause());
+        }
+    }
+
+    /**
+     * Suma las reproducciones nuevas del agregado a los índices de
+     * recomendaciones y de usuarios similares. Se invoca con el agregado
+     * sincronizado.
+     */
+    private void sincronizarIndices(Integer id, AgregadoUsuario agregado) {
+        if (this.recomendaciones != null) {
+            this.recomendaciones.sincronizarUsuario(id, agregado);
+        }
+        if (this.usuariosSimilares != null) {
+            this.usuariosSimilares.sincronizarUsuario(id, agregado);
+        }
+    }
+
+    /**
+     * Reacciona a un cambio en el historial de un usuario recibido por
+     * eventos: descarta su resultado en caché y suma sus reproducciones
+     * nuevas a los índices.
+     */
+    private void alCambiarHistorial(Integer id) {
+        invalidarPreferencias(id);
+        if (this.recomendaciones != null || this.usuariosSimilares != null) {
+            AgregadoUsuario agregado = this.agregadosUsuarios.obtenerOCrear(id);
+            synchronized (agregado) {
+                sincronizarIndices(id, agregado);
+            }
+        }
+    }
+
+    /**
+     * Descarta el resultado en caché de un usuario. Debe invocarse cuando se
+     * sabe que su historial de reproducciones cambió, para que la siguiente
+     * consulta no espere a que venza el tiempo de vida de la entrada.
+     *
+     * @param id el identificador del usuario.
+     */
+    public void invalidarPreferencias(Integer id) {
+        this.cachePreferencias.invalidar(id);
     }
-}
\ No newline at end of file
+}
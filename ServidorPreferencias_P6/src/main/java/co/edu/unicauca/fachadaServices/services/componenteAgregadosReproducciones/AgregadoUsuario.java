@@ -0,0 +1,573 @@
+package co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones;
+
+import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import co.edu.unicauca.utilidades.DecaimientoExponencial;
+import co.edu.unicauca.utilidades.FechasReproduccion;
+import co.edu.unicauca.utilidades.MapaCadenaEntero;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Contadores acumulados del historial de reproducciones de un usuario.
+ * <p>
+ * Guarda, por cada título escuchado, el número de reproducciones, junto con
+ * un cursor: la secuencia de la última reproducción ya contada. Con el cursor
+ * se piden al Servidor de Reproducciones solo las reproducciones nuevas y se
+ * suman como deltas, de modo que el coste de cada consulta es proporcional a
+ * las reproducciones nuevas y no al historial completo.
+ * <p>
+ * Junto al conteo se mantiene, por título, un puntaje con decaimiento
+ * exponencial. Los puntajes se guardan respecto a un instante de referencia
+ * fijo ({@link DecaimientoExponencial}), de modo que sumar una reproducción
+ * nueva es una sola suma y llevarlos al instante actual es multiplicar por un
+ * único factor ({@link #factorPuntajes(long)}), sin recorrer el historial.
+ * <p>
+ * Las reproducciones de los últimos días se cuentan además por día en
+ * {@link ContadoresDiarios}, para calcular las preferencias de una ventana
+ * reciente sumando cubetas en lugar de volver a leer el historial. Los
+ * histogramas por hora del día y por día de la semana se acumulan igual,
+ * en arreglos de enteros de tamaño fijo.
+ * <p>
+ * Si el servidor no envía la secuencia de las reproducciones, el agregado no
+ * puede usar el cursor ({@link #soportaCursor()} es {@code false}) y cada
+ * consulta debe reconstruirlo a partir del historial completo.
+ * <p>
+ * El cursor solo es válido en la época del Servidor de Reproducciones en la
+ * que se obtuvo ({@link #getEpoca()}): el servidor guarda las reproducciones
+ * en memoria y sus secuencias vuelven a empezar en 1 cada vez que arranca.
+ * Si la época del servidor cambia ({@link #esDeOtraEpoca(String)}), el
+ * agregado debe reconstruirse a partir del historial completo.
+ * <p>
+ * El agregado también puede alimentarse de eventos de reproducción
+ * ({@link #aplicarEvento(ReproduccionesDTOEntrada, long, String, long)}).
+ * Cada evento trae la secuencia anterior del mismo usuario, de modo que solo
+ * se suma si encadena con el cursor: los repetidos se ignoran y, si falta
+ * alguno, el agregado deja de estar al día ({@link #estaAlDia(long, long)})
+ * hasta que se consulte el historial desde el cursor. Un evento de otra época
+ * del servidor deja el agregado sin inicializar, salvo que sea la primera
+ * reproducción del usuario en la nueva época, con la que el agregado vuelve a
+ * empezar.
+ * <p>
+ * No es seguro para hilos: el llamador debe sincronizar sobre la instancia
+ * tanto para actualizarla como para leer sus contadores.
+ *
+ * @see AlmacenAgregadosUsuario
+ */
+public final class AgregadoUsuario {
+
+    /**
+     * Número de semividas que puede avanzar una reproducción respecto a la
+     * referencia antes de mover la referencia, para que los puntajes no
+     * desborden.
+     */
+    private static final int SEMIVIDAS_MAXIMAS = 256;
+
+    /**
+     * Posición de cada título en los arreglos paralelos.
+     */
+    private final MapaCadenaEntero posicionPorTitulo = new MapaCadenaEntero(16);
+
+    private String[] titulos = new String[16];
+
+    private int[] conteos = new int[16];
+
+    /**
+     * Puntaje con decaimiento de cada título, respecto a
+     * {@link #referenciaMs}.
+     */
+    private double[] puntajes = new double[16];
+
+    private int numeroTitulos;
+
+    /**
+     * Reproducciones de los últimos días por título.
+     */
+    private final ContadoresDiarios diarios = new ContadoresDiarios();
+
+    /**
+     * Indica si {@link #diarios} contiene todas las reproducciones contadas
+     * de los últimos días; no es así tras restaurar una instantánea, que no
+     * los guarda.
+     */
+    private boolean diasCompletos;
+
+    /**
+     * Reproducciones por hora local del día, de 0 a 23.
+     */
+    private final int[] reproduccionesPorHora = new int[24];
+
+    /**
+     * Reproducciones por día de la semana, de 0 (lunes) a 6 (domingo).
+     */
+    private final int[] reproduccionesPorDiaSemana = new int[7];
+
+    private final DecaimientoExponencial decaimiento;
+
+    /**
+     * Instante de referencia de los puntajes.
+     */
+    private long referenciaMs;
+
+    /**
+     * Secuencia de la última reproducción contada; 0 si no hay ninguna.
+     */
+    private long cursor;
+
+    private int totalReproducciones;
+
+    private String ultimaFechaHora = "";
+
+    private boolean inicializado;
+
+    private boolean soportaCursor;
+
+    /**
+     * Época del Servidor de Reproducciones a la que pertenecen el cursor y
+     * las secuencias vistas; {@code null} si el servidor no la envía.
+     */
+    private String epoca;
+
+    /**
+     * Instante de la última reconstrucción completa.
+     */
+    private long instanteSincronizacionMs;
+
+    /**
+     * Instante de la última consulta al Servidor de Reproducciones que dejó
+     * el agregado al día.
+     */
+    private long instanteVerificacionMs;
+
+    /**
+     * Mayor secuencia recibida en un evento, se haya sumado o no; si supera
+     * al cursor, faltan reproducciones por contar.
+     */
+    private long secuenciaMaximaVista;
+
+    /**
+     * Resultado de {@link #aplicarEvento(ReproduccionesDTOEntrada, long, String, long)}.
+     */
+    public enum ResultadoEvento {
+        /** La reproducción encadenaba con el cursor y se sumó. */
+        APLICADO,
+        /** La reproducción ya estaba contada. */
+        DUPLICADO,
+        /** Falta alguna reproducción anterior; no se sumó. */
+        HUECO
+    }
+
+    /**
+     * @param decaimiento la función de decaimiento de los puntajes.
+     */
+    public AgregadoUsuario(DecaimientoExponencial decaimiento) {
+        this.decaimiento = decaimiento;
+    }
+
+    /**
+     * Descarta los contadores y los vuelve a calcular a partir del historial
+     * completo del usuario.
+     *
+     * @param historial  todas las reproducciones del usuario.
+     * @param instanteMs el instante de la sincronización.
+     */
+    public void reconstruir(List<ReproduccionesDTOEntrada> historial, long instanteMs) {
+        this.posicionPorTitulo.limpiar();
+        Arrays.fill(this.titulos, 0, this.numeroTitulos, null);
+        this.numeroTitulos = 0;
+        this.diarios.limpiar();
+        this.diasCompletos = true;
+        Arrays.fill(this.reproduccionesPorHora, 0);
+        Arrays.fill(this.reproduccionesPorDiaSemana, 0);
+        this.referenciaMs = instanteMs;
+        this.cursor = 0L;
+        this.totalReproducciones = 0;
+        this.ultimaFechaHora = "";
+        this.soportaCursor = true;
+        for (ReproduccionesDTOEntrada reproduccion : historial) {
+            if (reproduccion.getSecuencia() == null) {
+                this.soportaCursor = false;
+            }
+            contar(reproduccion);
+        }
+        if (!this.soportaCursor) {
+            this.cursor = 0L;
+        }
+        this.inicializado = true;
+        this.instanteSincronizacionMs = instanteMs;
+    }
+
+    /**
+     * Restaura el estado guardado en una instantánea del servidor, sin
+     * títulos ni histogramas; se agregan después con
+     * {@link #restaurarTitulo(String, int, double)} y
+     * {@link #restaurarHistogramas(int[], int[])}.
+     * <p>
+     * El instante de sincronización se fija en el de la restauración, de modo
+     * que la siguiente consulta pida solo las reproducciones posteriores al
+     * cursor en lugar de reconstruir el agregado, siempre que el Servidor de
+     * Reproducciones siga en la época guardada. La instantánea no guarda
+     * los contadores por día, así que quedan incompletos
+     * ({@link #tieneDiasCompletos()}) hasta la siguiente reconstrucción.
+     *
+     * @param referenciaMs        el instante de referencia de los puntajes.
+     * @param cursor              la secuencia de la última reproducción contada.
+     * @param totalReproducciones el número de reproducciones contadas.
+     * @param ultimaFechaHora     la fecha más reciente contada.
+     * @param soportaCursor       si el servidor enviaba secuencias.
+     * @param epoca               la época del servidor del cursor, o
+     *                            {@code null} si no se conocía.
+     * @param instanteMs          el instante de la restauración.
+     */
+    public void restaurar(long referenciaMs, long cursor, int totalReproducciones, String ultimaFechaHora,
+                          boolean soportaCursor, String epoca, long instanteMs) {
+        this.posicionPorTitulo.limpiar();
+        Arrays.fill(this.titulos, 0, this.numeroTitulos, null);
+        this.numeroTitulos = 0;
+        this.diarios.limpiar();
+        this.diasCompletos = false;
+        Arrays.fill(this.reproduccionesPorHora, 0);
+        Arrays.fill(this.reproduccionesPorDiaSemana, 0);
+        this.referenciaMs = referenciaMs;
+        this.cursor = cursor;
+        this.totalReproducciones = totalReproducciones;
+        this.ultimaFechaHora = ultimaFechaHora != null ? ultimaFechaHora : "";
+        this.soportaCursor = soportaCursor;
+        this.epoca = epoca;
+        this.secuenciaMaximaVista = 0L;
+        this.inicializado = true;
+        this.instanteSincronizacionMs = instanteMs;
+        this.instanteVerificacionMs = 0L;
+    }
+
+    /**
+     * Restaura el conteo y el puntaje (respecto a la referencia restaurada)
+     * de un título.
+     */
+    public void restaurarTitulo(String titulo, int conteo, double puntaje) {
+        int posicion = posicionDe(titulo);
+        this.conteos[posicion] = conteo;
+        this.puntajes[posicion] = puntaje;
+    }
+
+    /**
+     * Restaura los histogramas por hora y por día de la semana.
+     *
+     * @param porHora      las reproducciones de cada hora del día.
+     * @param porDiaSemana las reproducciones de cada día de la semana.
+     */
+    public void restaurarHistogramas(int[] porHora, int[] porDiaSemana) {
+        System.arraycopy(porHora, 0, this.reproduccionesPorHora, 0, this.reproduccionesPorHora.length);
+        System.arraycopy(porDiaSemana, 0, this.reproduccionesPorDiaSemana, 0, this.reproduccionesPorDiaSemana.length);
+    }
+
+    /**
+     * Suma las reproducciones posteriores al cursor. Las que tienen una
+     * secuencia menor o igual al cursor ya se contaron y se ignoran, por lo
+     * que aplicar dos veces la misma respuesta no duplica conteos.
+     *
+     * @param nuevas las reproducciones recibidas desde el cursor actual.
+     * @return el número de reproducciones sumadas, o {@code -1} si alguna no
+     *         trae secuencia y hay que reconstruir el agregado.
+     */
+    public int aplicar(List<ReproduccionesDTOEntrada> nuevas) {
+        for (ReproduccionesDTOEntrada reproduccion : nuevas) {
+            if (reproduccion.getSecuencia() == null) {
+                return -1;
+            }
+        }
+        int aplicadas = 0;
+        for (ReproduccionesDTOEntrada reproduccion : nuevas) {
+            if (reproduccion.getSecuencia() > this.cursor) {
+                contar(reproduccion);
+                aplicadas++;
+            }
+        }
+        return aplicadas;
+    }
+
+    /**
+     * Suma una reproducción recibida como evento si encadena con el cursor,
+     * es decir, si la reproducción anterior del usuario es la última ya
+     * contada. Aplicar dos veces el mismo evento no duplica conteos.
+     * <p>
+     * Un agregado sin inicializar solo acepta el evento de la primera
+     * reproducción del usuario ({@code secuenciaAnterior} igual a 0); en ese
+     * caso queda inicializado y al día.
+     * <p>
+     * Si el evento es de otra época del Servidor de Reproducciones, el
+     * servidor volvió a arrancar y lo contado no encadena con las nuevas
+     * secuencias: el agregado queda sin inicializar, de modo que deja de
+     * estar al día y la siguiente consulta lo reconstruye, o vuelve a empezar
+     * con este evento si es la primera reproducción del usuario en la nueva
+     * época.
+     *
+     * @param reproduccion      la reproducción, con su secuencia.
+     * @param secuenciaAnterior la secuencia de la reproducción anterior del
+     *                          mismo usuario, o 0 si es la primera.
+     * @param epoca             la época del servidor que asignó las
+     *                          secuencias, o {@code null} si no se conoce.
+     * @param instanteMs        el instante de recepción del evento.
+     * @return si la reproducción se sumó, ya estaba contada o falta alguna
+     *         anterior.
+     */
+    public ResultadoEvento aplicarEvento(ReproduccionesDTOEntrada reproduccion, long secuenciaAnterior, String epoca,
+                                         long instanteMs) {
+        Long secuencia = reproduccion.getSecuencia();
+        if (secuencia == null) {
+            return ResultadoEvento.HUECO;
+        }
+        if (esDeOtraEpoca(epoca)) {
+            this.inicializado = false;
+            fijarEpoca(epoca);
+        }
+        if (this.inicializado && secuencia <= this.cursor) {
+            return ResultadoEvento.DUPLICADO;
+        }
+        if (secuencia > this.secuenciaMaximaVista) {
+            this.secuenciaMaximaVista = secuencia;
+        }
+        if (!this.inicializado) {
+            if (secuenciaAnterior != 0L) {
+                return ResultadoEvento.HUECO;
+            }
+            reconstruir(List.of(), instanteMs);
+            this.instanteVerificacionMs = instanteMs;
+        } else if (!this.soportaCursor || secuenciaAnterior != this.cursor) {
+            return ResultadoEvento.HUECO;
+        }
+        contar(reproduccion);
+        return ResultadoEvento.APLICADO;
+    }
+
+    /**
+     * Indica si el cursor pertenece a una época del Servidor de
+     * Reproducciones distinta de la actual, es decir, si el servidor volvió a
+     * arrancar desde que se contaron las reproducciones y hay que
+     * reconstruir el agregado a partir del historial completo.
+     *
+     * @param epocaServidor la época actual del servidor, o {@code null} si no
+     *                      se conoce; en ese caso se confía en el cursor.
+     * @return {@code true} si la época del agregado es otra.
+     */
+    public boolean esDeOtraEpoca(String epocaServidor) {
+        return epocaServidor != null && !epocaServidor.equals(this.epoca);
+    }
+
+    /**
+     * Registra la época del Servidor de Reproducciones de la que procede lo
+     * contado. Si cambia, se olvidan las secuencias vistas de la época
+     * anterior, que no son comparables con las nuevas.
+     *
+     * @param epocaServidor la época del servidor; si es {@code null} se
+     *                      conserva la actual.
+     */
+    public void fijarEpoca(String epocaServidor) {
+        if (epocaServidor != null && !epocaServidor.equals(this.epoca)) {
+            this.epoca = epocaServidor;
+            this.secuenciaMaximaVista = 0L;
+        }
+    }
+
+    /**
+     * Registra que el agregado acaba de ponerse al día con el Servidor de
+     * Reproducciones.
+     *
+     * @param instanteMs el instante de la consulta.
+     */
+    public void marcarVerificado(long instanteMs) {
+        this.instanteVerificacionMs = instanteMs;
+    }
+
+    /**
+     * Indica si el agregado, alimentado por eventos, puede leerse sin
+     * consultar al Servidor de Reproducciones: no falta ningún evento recibido
+     * y la última consulta no es más antigua que {@code verificacionMs}, que
+     * acota cuánto puede quedar desactualizado si se pierden eventos sin que
+     * llegue ninguno posterior que lo delate.
+     *
+     * @param ahoraMs        el instante actual.
+     * @param verificacionMs la antigüedad máxima de la última consulta.
+     * @return {@code true} si el agregado está al día.
+     */
+    public boolean estaAlDia(long ahoraMs, long verificacionMs) {
+        return this.inicializado && this.soportaCursor && this.cursor >= this.secuenciaMaximaVista
+                && ahoraMs - this.instanteVerificacionMs < verificacionMs;
+    }
+
+    private void contar(ReproduccionesDTOEntrada reproduccion) {
+        if (reproduccion.getTitulo() != null) {
+            int posicion = posicionDe(reproduccion.getTitulo());
+            this.conteos[posicion]++;
+            // La fecha se interpreta una sola vez: la hora de pared da los
+            // histogramas y el día, y el instante los puntajes.
+            long locales = FechasReproduccion.aSegundosLocales(reproduccion.getFechaHora());
+            if (locales != FechasReproduccion.SIN_FECHA) {
+                long instante = FechasReproduccion.localesAEpocaSegundos(locales) * 1000L;
+                if (instante - this.referenciaMs > SEMIVIDAS_MAXIMAS * this.decaimiento.getSemividaMs()) {
+                    moverReferencia(instante);
+                }
+                this.puntajes[posicion] += this.decaimiento.peso(instante, this.referenciaMs);
+                int hora = FechasReproduccion.hora(locales);
+                this.reproduccionesPorHora[hora]++;
+                this.reproduccionesPorDiaSemana[FechasReproduccion.diaSemana(locales)]++;
+                this.diarios.sumar(FechasReproduccion.diaDeLocales(locales), hora, posicion);
+            }
+        }
+        this.totalReproducciones++;
+        String fecha = reproduccion.getFechaHora();
+        if (fecha != null && fecha.compareTo(this.ultimaFechaHora) > 0) {
+            this.ultimaFechaHora = fecha;
+        }
+        Long secuencia = reproduccion.getSecuencia();
+        if (secuencia != null && secuencia > this.cursor) {
+            this.cursor = secuencia;
+        }
+    }
+
+    /**
+     * @return la posición del título, añadiéndolo con conteo y puntaje cero
+     *         si no existía.
+     */
+    private int posicionDe(String titulo) {
+        int posicion = this.posicionPorTitulo.obtener(titulo);
+        if (posicion != MapaCadenaEntero.AUSENTE) {
+            return posicion;
+        }
+        if (this.numeroTitulos == this.titulos.length) {
+            int capacidad = this.titulos.length * 2;
+            this.titulos = Arrays.copyOf(this.titulos, capacidad);
+            this.conteos = Arrays.copyOf(this.conteos, capacidad);
+            this.puntajes = Arrays.copyOf(this.puntajes, capacidad);
+        }
+        posicion = this.numeroTitulos++;
+        this.titulos[posicion] = titulo;
+        this.conteos[posicion] = 0;
+        this.puntajes[posicion] = 0.0;
+        this.posicionPorTitulo.poner(titulo, posicion);
+        return posicion;
+    }
+
+    /**
+     * Reexpresa todos los puntajes respecto a una nueva referencia.
+     */
+    private void moverReferencia(long nuevaReferenciaMs) {
+        double factor = this.decaimiento.peso(this.referenciaMs, nuevaReferenciaMs);
+        for (int i = 0; i < this.numeroTitulos; i++) {
+            this.puntajes[i] *= factor;
+        }
+        this.referenciaMs = nuevaReferenciaMs;
+    }
+
+    /**
+     * Factor por el que hay que multiplicar los puntajes guardados para
+     * obtener su valor en el instante indicado.
+     *
+     * @param ahoraMs el instante en que se evalúan los puntajes.
+     * @return el factor de escala.
+     */
+    public double factorPuntajes(long ahoraMs) {
+        return this.decaimiento.peso(this.referenciaMs, ahoraMs);
+    }
+
+    /**
+     * Calcula la marca del historial contado: número de reproducciones,
+     * cursor y fecha más reciente. Como el historial solo crece, dos estados
+     * con la misma marca producen las mismas preferencias.
+     *
+     * @return la marca del historial.
+     */
+    public String getMarca() {
+        return this.totalReproducciones + "|" + this.cursor + "|" + this.ultimaFechaHora;
+    }
+
+    public int numeroTitulos() {
+        return numeroTitulos;
+    }
+
+    public String titulo(int posicion) {
+        return titulos[posicion];
+    }
+
+    public int conteo(int posicion) {
+        return conteos[posicion];
+    }
+
+    /**
+     * @return el puntaje guardado, respecto a la referencia interna; debe
+     *         multiplicarse por {@link #factorPuntajes(long)}.
+     */
+    public double puntaje(int posicion) {
+        return puntajes[posicion];
+    }
+
+    /**
+     * @return las reproducciones de los últimos días por título; las
+     *         posiciones son las de {@link #titulo(int)}.
+     */
+    public ContadoresDiarios getContadoresDiarios() {
+        return diarios;
+    }
+
+    /**
+     * @return las reproducciones contadas a la hora local indicada, de 0 a
+     *         23.
+     */
+    public int reproduccionesEnHora(int hora) {
+        return reproduccionesPorHora[hora];
+    }
+
+    /**
+     * @return las reproducciones contadas el día de la semana indicado, de 0
+     *         (lunes) a 6 (domingo).
+     */
+    public int reproduccionesEnDiaSemana(int diaSemana) {
+        return reproduccionesPorDiaSemana[diaSemana];
+    }
+
+    /**
+     * @return si los contadores por día incluyen todas las reproducciones
+     *         contadas de los últimos días.
+     */
+    public boolean tieneDiasCompletos() {
+        return diasCompletos;
+    }
+
+    public long getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return el instante de referencia de los puntajes guardados.
+     */
+    public long getReferenciaMs() {
+        return referenciaMs;
+    }
+
+    public String getUltimaFechaHora() {
+        return ultimaFechaHora;
+    }
+
+    public int getTotalReproducciones() {
+        return totalReproducciones;
+    }
+
+    public boolean estaInicializado() {
+        return inicializado;
+    }
+
+    public boolean soportaCursor() {
+        return soportaCursor;
+    }
+
+    /**
+     * @return la época del Servidor de Reproducciones del cursor, o
+     *         {@code null} si no se conoce.
+     */
+    public String getEpoca() {
+        return epoca;
+    }
+
+    public long getInstanteSincronizacionMs() {
+        return instanteSincronizacionMs;
+    }
+}
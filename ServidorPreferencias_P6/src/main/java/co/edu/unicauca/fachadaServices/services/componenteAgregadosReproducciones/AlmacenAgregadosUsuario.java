@@ -0,0 +1,169 @@
+package co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones;
+
+import co.edu.unicauca.utilidades.DecaimientoExponencial;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Almacén acotado de los {@link AgregadoUsuario} de cada usuario.
+ * <p>
+ * Conserva como máximo {@code capacidadMaxima} agregados con desalojo LRU. Un
+ * usuario desalojado no pierde datos: su agregado se reconstruye a partir del
+ * historial completo la próxima vez que se consulte.
+ * <p>
+ * Los usuarios se reparten por su identificador entre varias franjas, cada
+ * una con su propio mapa LRU y una parte de la capacidad, para que las
+ * peticiones y los eventos de reproducción de usuarios distintos no compitan
+ * por un único candado. Cada franja solo se bloquea para buscar o crear la
+ * entrada; la actualización y lectura de cada agregado se sincroniza sobre el
+ * propio agregado.
+ * <p>
+ * Opcionalmente tiene una fuente de restauración (la instantánea del servidor
+ * guardada en disco): un usuario que no está en memoria se restaura de ella
+ * antes de crearlo vacío.
+ *
+ * @see co.edu.unicauca.fachadaServices.services.PreferenciasServiceImpl
+ */
+public class AlmacenAgregadosUsuario {
+
+    /**
+     * Número de franjas por defecto.
+     */
+    public static final int FRANJAS_POR_DEFECTO = 16;
+
+    private final DecaimientoExponencial decaimiento;
+
+    /**
+     * Mapas en orden de acceso que implementan el desalojo LRU, uno por
+     * franja. Todos los accesos a una franja se sincronizan sobre su mapa.
+     */
+    private final LinkedHashMap<Integer, AgregadoUsuario>[] franjas;
+
+    /**
+     * Devuelve el agregado guardado de un usuario, o {@code null} si no lo
+     * hay.
+     */
+    private volatile Function<Integer, AgregadoUsuario> fuenteRestauracion;
+
+    /**
+     * @param capacidadMaxima número máximo de usuarios con agregado en memoria.
+     * @param decaimiento     la función de decaimiento de los puntajes de los
+     *                        agregados.
+     */
+    public AlmacenAgregadosUsuario(int capacidadMaxima, DecaimientoExponencial decaimiento) {
+        this(capacidadMaxima, FRANJAS_POR_DEFECTO, decaimiento);
+    }
+
+    /**
+     * @param capacidadMaxima número máximo de usuarios con agregado en memoria.
+     * @param numeroFranjas   número de franjas en que se reparten los
+     *                        usuarios; se limita a la capacidad.
+     * @param decaimiento     la función de decaimiento de los puntajes de los
+     *                        agregados.
+     */
+    @SuppressWarnings("unchecked")
+    public AlmacenAgregadosUsuario(int capacidadMaxima, int numeroFranjas, DecaimientoExponencial decaimiento) {
+        int capacidad = Math.max(1, capacidadMaxima);
+        int franjas = Math.max(1, Math.min(numeroFranjas, capacidad));
+        this.decaimiento = decaimiento;
+        this.franjas = new LinkedHashMap[franjas];
+        for (int i = 0; i < franjas; i++) {
+            // Las franjas se reparten la capacidad; las primeras reciben el resto.
+            int capacidadFranja = capacidad / franjas + (i < capacidad % franjas ? 1 : 0);
+            this.franjas[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, AgregadoUsuario> eldest) {
+                    return size() > capacidadFranja;
+                }
+            };
+        }
+    }
+
+    /**
+     * @return la franja del usuario. El identificador se mezcla para que
+     *         usuarios consecutivos caigan en franjas distintas.
+     */
+    private LinkedHashMap<Integer, AgregadoUsuario> franja(Integer idUsuario) {
+        int mezcla = idUsuario.hashCode() * 0x9E3779B9;
+        return this.franjas[Math.floorMod(mezcla ^ (mezcla >>> 16), this.franjas.length)];
+    }
+
+    /**
+     * @param idUsuario el identificador del usuario.
+     * @return el agregado del usuario; si no existía se crea uno sin
+     *         inicializar.
+     */
+    public AgregadoUsuario obtenerOCrear(Integer idUsuario) {
+        LinkedHashMap<Integer, AgregadoUsuario> agregados = franja(idUsuario);
+        Function<Integer, AgregadoUsuario> fuente = this.fuenteRestauracion;
+        if (fuente == null) {
+            synchronized (agregados) {
+                return agregados.computeIfAbsent(idUsuario, id -> new AgregadoUsuario(this.decaimiento));
+            }
+        }
+        synchronized (agregados) {
+            AgregadoUsuario existente = agregados.get(idUsuario);
+            if (existente != null) {
+                return existente;
+            }
+        }
+        // La restauración lee del disco: se hace fuera del candado del mapa
+        // y, si otro hilo se adelantó, gana el agregado que ya está en él.
+        AgregadoUsuario restaurado = fuente.apply(idUsuario);
+        synchronized (agregados) {
+            return agregados.computeIfAbsent(idUsuario,
+                    id -> restaurado != null ? restaurado : new AgregadoUsuario(this.decaimiento));
+        }
+    }
+
+    /**
+     * @param fuenteRestauracion devuelve el agregado guardado de un usuario, o
+     *                           {@code null} si no lo hay; {@code null} para
+     *                           no restaurar.
+     */
+    public void setFuenteRestauracion(Function<Integer, AgregadoUsuario> fuenteRestauracion) {
+        this.fuenteRestauracion = fuenteRestauracion;
+    }
+
+    /**
+     * @return una copia de los agregados en memoria, por usuario. Cada
+     *         agregado debe leerse sincronizando sobre él.
+     */
+    public Map<Integer, AgregadoUsuario> copiarAgregados() {
+        Map<Integer, AgregadoUsuario> copia = new HashMap<>();
+        for (LinkedHashMap<Integer, AgregadoUsuario> agregados : this.franjas) {
+            synchronized (agregados) {
+                copia.putAll(agregados);
+            }
+        }
+        return copia;
+    }
+
+    public DecaimientoExponencial getDecaimiento() {
+        return decaimiento;
+    }
+
+    /**
+     * Descarta el agregado de un usuario para que se reconstruya desde cero.
+     *
+     * @param idUsuario el identificador del usuario.
+     */
+    public void eliminar(Integer idUsuario) {
+        LinkedHashMap<Integer, AgregadoUsuario> agregados = franja(idUsuario);
+        synchronized (agregados) {
+            agregados.remove(idUsuario);
+        }
+    }
+
+    public int getTamano() {
+        int tamano = 0;
+        for (LinkedHashMap<Integer, AgregadoUsuario> agregados : this.franjas) {
+            synchronized (agregados) {
+                tamano += agregados.size();
+            }
+        }
+        return tamano;
+    }
+}
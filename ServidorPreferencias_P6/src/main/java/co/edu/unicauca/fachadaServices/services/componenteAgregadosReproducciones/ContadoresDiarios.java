@@ -0,0 +1,150 @@
+package co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones;
+
+import java.util.Arrays;
+
+/**
+ * Anillo de cubetas diarias con las reproducciones de un usuario por título
+ * y hora del día en los últimos {@link #DIAS} días.
+ * <p>
+ * La cubeta del día {@code d} ocupa la ranura {@code d mod DIAS}; cada
+ * ranura recuerda qué día guarda, de modo que, cuando llega una reproducción
+ * de un día posterior, la ranura se vacía y se reutiliza sin recorrer el
+ * resto del anillo. Las cubetas de días que ya salieron de la ventana se
+ * descartan solas de esa forma, y las consultas ignoran las que aún no se
+ * han reutilizado. Las reproducciones de días anteriores al que ya ocupa su
+ * ranura quedan fuera de la ventana y se ignoran.
+ * <p>
+ * Cada cubeta es un arreglo de {@code long} con la posición del título en
+ * el {@link AgregadoUsuario} y la hora en los 32 bits altos y el conteo en
+ * los bajos, así que ocupa memoria solo por los pares de título y hora
+ * escuchados ese día. Las
+ * cubetas se reservan al recibir la primera reproducción con fecha. No es
+ * seguro para hilos.
+ */
+public final class ContadoresDiarios {
+
+    /**
+     * Días que cubre el anillo: la ventana más larga que puede consultarse.
+     */
+    public static final int DIAS = 90;
+
+    /**
+     * Día de una ranura que aún no se ha usado.
+     */
+    private static final int SIN_DIA = Integer.MIN_VALUE;
+
+    private static final long MASCARA_CONTEO = 0xFFFF_FFFFL;
+
+    /**
+     * Bits de la clave que ocupa la hora, por debajo de la posición.
+     */
+    private static final int BITS_HORA = 5;
+
+    private static final int MASCARA_HORA = (1 << BITS_HORA) - 1;
+
+    /**
+     * Día de la época que guarda cada ranura, o {@link #SIN_DIA}.
+     */
+    private int[] dias;
+
+    private long[][] cubetas;
+
+    private int[] tamanos;
+
+    /**
+     * Suma una reproducción del título en el día y la hora indicados.
+     *
+     * @param dia      el día de la época, en hora local.
+     * @param hora     la hora local de la reproducción, de 0 a 23.
+     * @param posicion la posición del título en el agregado.
+     */
+    public void sumar(int dia, int hora, int posicion) {
+        if (this.dias == null) {
+            this.dias = new int[DIAS];
+            Arrays.fill(this.dias, SIN_DIA);
+            this.cubetas = new long[DIAS][];
+            this.tamanos = new int[DIAS];
+        }
+        int ranura = Math.floorMod(dia, DIAS);
+        int diaRanura = this.dias[ranura];
+        if (dia < diaRanura) {
+            return;
+        }
+        if (dia > diaRanura) {
+            this.dias[ranura] = dia;
+            this.tamanos[ranura] = 0;
+        }
+        int clave = posicion << BITS_HORA | hora;
+        long[] cubeta = this.cubetas[ranura];
+        int tamano = this.tamanos[ranura];
+        for (int i = 0; i < tamano; i++) {
+            if ((int) (cubeta[i] >>> 32) == clave) {
+                cubeta[i]++;
+                return;
+            }
+        }
+        if (cubeta == null) {
+            cubeta = new long[4];
+            this.cubetas[ranura] = cubeta;
+        } else if (tamano == cubeta.length) {
+            cubeta = Arrays.copyOf(cubeta, tamano * 2);
+            this.cubetas[ranura] = cubeta;
+        }
+        cubeta[tamano] = ((long) clave << 32) | 1L;
+        this.tamanos[ranura] = tamano + 1;
+    }
+
+    /**
+     * Descarta todas las cubetas.
+     */
+    public void limpiar() {
+        this.dias = null;
+        this.cubetas = null;
+        this.tamanos = null;
+    }
+
+    /**
+     * @return el número de ranuras del anillo; 0 si aún no se ha reservado.
+     */
+    public int numeroRanuras() {
+        return this.dias != null ? DIAS : 0;
+    }
+
+    /**
+     * @return el día de la época que guarda la ranura, o
+     *         {@link Integer#MIN_VALUE} si no se ha usado.
+     */
+    public int diaDe(int ranura) {
+        return this.dias[ranura];
+    }
+
+    /**
+     * @return el número de pares distintos de título y hora en la cubeta de
+     *         la ranura.
+     */
+    public int tamano(int ranura) {
+        return this.tamanos[ranura];
+    }
+
+    /**
+     * @return la posición en el agregado del {@code i}-ésimo título de la
+     *         cubeta.
+     */
+    public int posicion(int ranura, int i) {
+        return (int) (this.cubetas[ranura][i] >>> (32 + BITS_HORA));
+    }
+
+    /**
+     * @return la hora del día del {@code i}-ésimo título de la cubeta.
+     */
+    public int hora(int ranura, int i) {
+        return (int) (this.cubetas[ranura][i] >>> 32) & MASCARA_HORA;
+    }
+
+    /**
+     * @return las reproducciones del {@code i}-ésimo título de la cubeta.
+     */
+    public int conteo(int ranura, int i) {
+        return (int) (this.cubetas[ranura][i] & MASCARA_CONTEO);
+    }
+}
@@ -0,0 +1,233 @@
+package co.edu.unicauca.fachadaServices.services.componenteCachePreferencias;
+
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché acotada de resultados de preferencias por usuario.
+ * <p>
+ * Cada entrada guarda el {@link PreferenciasDTORespuesta} calculado para un
+ * usuario junto con la versión del catálogo y la marca del historial de
+ * reproducciones con las que se calculó. Una entrada solo se reutiliza si la
+ * versión del catálogo vigente coincide con la de la entrada; así, cualquier
+ * cambio en el catálogo invalida implícitamente todos los resultados
+ * anteriores sin tener que recorrer la caché.
+ * <p>
+ * La caché está acotada en tamaño (desalojo LRU) y en tiempo: pasado el
+ * tiempo de vida, la entrada ya no se devuelve directamente, pero todavía
+ * puede reutilizarse sin recalcular si, tras consultar de nuevo el historial,
+ * su marca sigue siendo la misma ({@link #obtenerSiMarcaCoincide}).
+ * Cuando se sabe que el historial de un usuario cambió, se invalida su
+ * entrada con {@link #invalidar(Integer)}.
+ * <p>
+ * Como un mismo usuario puede consultarse con distintas
+ * {@link OpcionesPreferenciasDTO} (listas completas o solo las primeras
+ * entradas), cada entrada guarda un resultado por cada juego de opciones
+ * calculado con la misma versión del catálogo y la misma marca de historial,
+ * como máximo {@link #MAXIMO_OPCIONES_POR_USUARIO}: las opciones admiten
+ * cualquier límite por dimensión, así que sin ese tope un cliente podría
+ * hacer crecer sin fin la entrada de un usuario. Al llenarse se desaloja el
+ * juego de opciones usado hace más tiempo. Las opciones deben llegar
+ * normalizadas
+ * ({@link OpcionesPreferenciasDTO#normalizadas()}).
+ *
+ * @see co.edu.unicauca.fachadaServices.services.PreferenciasServiceImpl
+ */
+public class CachePreferenciasUsuario {
+
+    /**
+     * Número máximo de resultados, por juegos de opciones distintos, que se
+     * guardan para un mismo usuario.
+     */
+    static final int MAXIMO_OPCIONES_POR_USUARIO = 4;
+
+    /**
+     * Entrada de la caché: resultados calculados, por opciones, y las
+     * versiones de los datos con los que se calcularon.
+     */
+    private static final class Entrada {
+        private final long versionCatalogo;
+        private final String marcaHistorial;
+        private final Map<OpcionesPreferenciasDTO, PreferenciasDTORespuesta> resultados =
+                new LinkedHashMap<>(8, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<OpcionesPreferenciasDTO, PreferenciasDTORespuesta> eldest) {
+                        return size() > MAXIMO_OPCIONES_POR_USUARIO;
+                    }
+                };
+        private long instanteValidacionMs;
+
+        private Entrada(long versionCatalogo, String marcaHistorial, long instanteValidacionMs) {
+            this.versionCatalogo = versionCatalogo;
+            this.marcaHistorial = marcaHistorial;
+            this.instanteValidacionMs = instanteValidacionMs;
+        }
+    }
+
+    /**
+     * Número máximo de usuarios con resultados en caché.
+     */
+    private final int capacidadMaxima;
+
+    /**
+     * Tiempo durante el cual un resultado se devuelve sin volver a consultar
+     * el historial del usuario.
+     */
+    private final long ttlMs;
+
+    /**
+     * Mapa en orden de acceso que implementa el desalojo LRU. Todos los
+     * accesos se sincronizan sobre el propio mapa.
+     */
+    private final LinkedHashMap<Integer, Entrada> entradas;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong aciertosRevalidados = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+
+    /**
+     * Construye una caché vacía.
+     *
+     * @param capacidadMaxima número máximo de usuarios almacenados.
+     * @param ttlMs           tiempo de vida de cada resultado en milisegundos.
+     */
+    public CachePreferenciasUsuario(int capacidadMaxima, long ttlMs) {
+        this.capacidadMaxima = capacidadMaxima;
+        this.ttlMs = ttlMs;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entrada> eldest) {
+                return size() > CachePreferenciasUsuario.this.capacidadMaxima;
+            }
+        };
+    }
+
+    /**
+     * Busca un resultado vigente para el usuario.
+     *
+     * @param idUsuario       el identificador del usuario.
+     * @param versionCatalogo la versión del catálogo vigente.
+     * @param opciones        las opciones normalizadas de la consulta.
+     * @return el resultado en caché, o {@code null} si no existe, fue
+     *         calculado con otra versión del catálogo o superó su tiempo de vida.
+     */
+    public PreferenciasDTORespuesta obtener(Integer idUsuario, long versionCatalogo, OpcionesPreferenciasDTO opciones) {
+        if (this.capacidadMaxima <= 0) {
+            return null;
+        }
+        long ahora = System.currentTimeMillis();
+        synchronized (this.entradas) {
+            Entrada entrada = this.entradas.get(idUsuario);
+            if (entrada != null && entrada.versionCatalogo == versionCatalogo
+                    && ahora - entrada.instanteValidacionMs < this.ttlMs) {
+                PreferenciasDTORespuesta resultado = entrada.resultados.get(opciones);
+                if (resultado != null) {
+                    this.aciertos.incrementAndGet();
+                    return resultado;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Busca un resultado calculado con la misma versión del catálogo y la
+     * misma marca de historial, aunque haya superado su tiempo de vida. Si lo
+     * encuentra, renueva su instante de validación.
+     *
+     * @param idUsuario       el identificador del usuario.
+     * @param versionCatalogo la versión del catálogo vigente.
+     * @param marcaHistorial  la marca del historial recién consultado.
+     * @param opciones        las opciones normalizadas de la consulta.
+     * @return el resultado reutilizable, o {@code null} si hay que recalcular.
+     */
+    public PreferenciasDTORespuesta obtenerSiMarcaCoincide(Integer idUsuario, long versionCatalogo, String marcaHistorial, OpcionesPreferenciasDTO opciones) {
+        if (this.capacidadMaxima <= 0) {
+            return null;
+        }
+        synchronized (this.entradas) {
+            Entrada entrada = this.entradas.get(idUsuario);
+            if (entrada != null && entrada.versionCatalogo == versionCatalogo
+                    && Objects.equals(entrada.marcaHistorial, marcaHistorial)) {
+                entrada.instanteValidacionMs = System.currentTimeMillis();
+                PreferenciasDTORespuesta resultado = entrada.resultados.get(opciones);
+                if (resultado != null) {
+                    this.aciertosRevalidados.incrementAndGet();
+                    return resultado;
+                }
+            }
+        }
+        this.fallos.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Almacena el resultado calculado para un usuario. Si la entrada existente
+     * se calculó con los mismos datos, el resultado se añade junto a los de
+     * otras opciones; si no, la entrada se reemplaza.
+     *
+     * @param idUsuario       el identificador del usuario.
+     * @param versionCatalogo la versión del catálogo usada en el cálculo.
+     * @param marcaHistorial  la marca del historial usado en el cálculo.
+     * @param opciones        las opciones normalizadas usadas en el cálculo.
+     * @param resultado       el resultado calculado.
+     */
+    public void guardar(Integer idUsuario, long versionCatalogo, String marcaHistorial, OpcionesPreferenciasDTO opciones, PreferenciasDTORespuesta resultado) {
+        if (this.capacidadMaxima <= 0) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        synchronized (this.entradas) {
+            Entrada entrada = this.entradas.get(idUsuario);
+            if (entrada == null || entrada.versionCatalogo != versionCatalogo
+                    || !Objects.equals(entrada.marcaHistorial, marcaHistorial)) {
+                entrada = new Entrada(versionCatalogo, marcaHistorial, ahora);
+                this.entradas.put(idUsuario, entrada);
+            }
+            entrada.resultados.put(opciones, resultado);
+        }
+    }
+
+    /**
+     * Elimina el resultado de un usuario, por ejemplo cuando se sabe que su
+     * historial de reproducciones cambió.
+     *
+     * @param idUsuario el identificador del usuario.
+     */
+    public void invalidar(Integer idUsuario) {
+        synchronized (this.entradas) {
+            this.entradas.remove(idUsuario);
+        }
+    }
+
+    /**
+     * Elimina todos los resultados almacenados.
+     */
+    public void invalidarTodo() {
+        synchronized (this.entradas) {
+            this.entradas.clear();
+        }
+    }
+
+    public int getTamano() {
+        synchronized (this.entradas) {
+            return this.entradas.size();
+        }
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getAciertosRevalidados() {
+        return aciertosRevalidados.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+}
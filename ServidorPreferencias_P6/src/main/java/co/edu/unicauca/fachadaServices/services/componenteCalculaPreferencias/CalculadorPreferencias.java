@@ -1,17 +1,21 @@
 package co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias;
 
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.DTO.ModoPreferencias;
+import co.edu.unicauca.fachadaServices.DTO.OpcionesPreferenciasDTO;
 import co.edu.unicauca.fachadaServices.DTO.PreferenciaArtistaDTORespuesta;
 import co.edu.unicauca.fachadaServices.DTO.PreferenciaGeneroDTORespuesta;
 import co.edu.unicauca.fachadaServices.DTO.PreferenciaIdiomaDTORespuesta;
 import co.edu.unicauca.fachadaServices.DTO.PreferenciasDTORespuesta;
 import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AgregadoUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.ContadoresDiarios;
+import co.edu.unicauca.utilidades.DecaimientoExponencial;
+import co.edu.unicauca.utilidades.FechasReproduccion;
 
 /**
  * Componente de lógica de negocio responsable de calcular las preferencias
@@ -20,92 +24,335 @@ import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
  * Esta clase contiene el algoritmo principal que procesa el catálogo de canciones
  * y el historial de reproducciones de un usuario para generar estadísticas
  * agregadas por género, artista e idioma.
+ * <p>
+ * Por defecto las preferencias se ordenan por número de reproducciones. En el
+ * modo {@link ModoPreferencias#RECIENCIA} cada reproducción pesa
+ * {@code 2^(-antigüedad / semivida)} y las preferencias se ordenan por la suma
+ * de esos pesos, que se devuelve en el campo {@code puntaje} de cada DTO junto
+ * al conteo.
+ * <p>
+ * La respuesta incluye además los histogramas de reproducciones por hora
+ * local del día y por día de la semana del usuario.
  *
  * @see co.edu.unicauca.fachadaServices.services.PreferenciasServiceImpl
  */
 public class CalculadorPreferencias {
 
+    /**
+     * Espacio de trabajo reutilizable de cada hilo: contadores dispersos por
+     * dimensión, los histogramas por hora y por día de la semana y un búfer
+     * para ordenar los resultados. Reutilizarlo evita
+     * reservar memoria en cada cálculo, salvo los DTOs finales.
+     */
+    private static final class EspacioTrabajo {
+        private final ContadorDisperso generos = new ContadorDisperso();
+        private final ContadorDisperso artistas = new ContadorDisperso();
+        private final ContadorDisperso idiomas = new ContadorDisperso();
+        private final int[] porHora = new int[24];
+        private final int[] porDiaSemana = new int[7];
+        private long[] claves = new long[16];
+
+        private void preparar(IndiceCatalogo indice) {
+            this.generos.asegurarCapacidad(indice.numeroGeneros());
+            this.artistas.asegurarCapacidad(indice.numeroArtistas());
+            this.idiomas.asegurarCapacidad(indice.numeroIdiomas());
+        }
+
+        private void reiniciar() {
+            this.generos.reiniciar();
+            this.artistas.reiniciar();
+            this.idiomas.reiniciar();
+            Arrays.fill(this.porHora, 0);
+            Arrays.fill(this.porDiaSemana, 0);
+        }
+    }
+
+    private static final ThreadLocal<EspacioTrabajo> ESPACIO_TRABAJO = ThreadLocal.withInitial(EspacioTrabajo::new);
+
+    /**
+     * Semivida usada por el constructor sin argumentos: 30 días.
+     */
+    public static final long SEMIVIDA_POR_DEFECTO_MS = 30L * 24 * 60 * 60 * 1000;
+
+    private static final long MS_POR_DIA = 24L * 60 * 60 * 1000;
+
+    /**
+     * Función de decaimiento del modo por reciencia.
+     */
+    private final DecaimientoExponencial decaimiento;
+
+    /**
+     * Construye un calculador con la semivida por defecto.
+     */
+    public CalculadorPreferencias() {
+        this(SEMIVIDA_POR_DEFECTO_MS);
+    }
+
+    /**
+     * @param semividaMs la semivida, en milisegundos, de los puntajes del modo
+     *                   por reciencia.
+     */
+    public CalculadorPreferencias(long semividaMs) {
+        this.decaimiento = new DecaimientoExponencial(semividaMs);
+    }
+
     /**
      * Calcula las preferencias musicales de un usuario basándose en su historial
      * de reproducciones y el catálogo de canciones.
      * <p>
+     * Variante que recibe el catálogo como lista: construye un
+     * {@link IndiceCatalogo} para esta única llamada y delega en
+     * {@link #calcular(Integer, IndiceCatalogo, List)}. Cuando el catálogo se
+     * reutiliza entre llamadas es preferible construir el índice una sola vez.
+     *
+     * @param idUsuario el identificador del usuario para el cual se calculan las
+     *                  preferencias.
+     * @param catalogoCompleto una lista de todas las canciones disponibles en el
+     *                         sistema, obtenida del Servidor de Canciones.
+     * @param reproduccionesUsuario una lista del historial de reproducciones
+     *                              específico para el {@code idUsuario}, obtenida
+     *                              del Servidor de Reproducciones.
+     * @return un objeto {@link PreferenciasDTORespuesta} poblado con las listas
+     *         de preferencias calculadas y ordenadas.
+     */
+    public PreferenciasDTORespuesta calcular(Integer idUsuario, List<CancionDTOEntrada> catalogoCompleto, List<ReproduccionesDTOEntrada> reproduccionesUsuario) {
+        return calcular(idUsuario, IndiceCatalogo.construir(0L, catalogoCompleto), reproduccionesUsuario);
+    }
+
+    /**
+     * Calcula las preferencias musicales de un usuario basándose en su historial
+     * de reproducciones y el índice del catálogo de canciones.
+     * <p>
      * El algoritmo sigue estos pasos:
      * <ol>
-     *   <li>Convierte la lista del catálogo de canciones en un mapa para una
-     *       búsqueda eficiente por título.</li>
-     *   <li>Inicializa contadores para géneros, artistas e idiomas.</li>
-     *   <li>Itera sobre el historial de reproducciones del usuario. Por cada
-     *       reproducción, busca la canción correspondiente en el mapa del catálogo.</li>
-     *   <li>Si la canción se encuentra, incrementa los contadores para el género,
-     *       artista e idioma de esa canción.</li>
+     *   <li>Por cada reproducción, busca el identificador denso de la canción
+     *       en el índice del catálogo (una única búsqueda por título).</li>
+     *   <li>Si la canción se encuentra, incrementa los contadores del género,
+     *       artista e idioma de esa canción, que son arreglos de enteros
+     *       indexados por los códigos del índice.</li>
+     *   <li>Ordena los códigos contados de mayor a menor número de
+     *       reproducciones (en caso de empate, en el orden en que aparecen en
+     *       el catálogo).</li>
      *   <li>Convierte los contadores en listas de DTOs de respuesta.</li>
-     *   <li>Ordena cada lista de preferencias de mayor a menor número de
-     *       reproducciones.</li>
      *   <li>Ensambla y retorna el objeto {@link PreferenciasDTORespuesta} final.</li>
      * </ol>
+     * El coste es proporcional al número de reproducciones del usuario y no
+     * al tamaño del catálogo.
      *
      * @param idUsuario el identificador del usuario para el cual se calculan las
      *                  preferencias.
-     * @param catalogoCompleto una lista de todas las canciones disponibles en el
-     *                         sistema, obtenida del Servidor de Canciones.
+     * @param indice el índice del catálogo vigente.
      * @param reproduccionesUsuario una lista del historial de reproducciones
      *                              específico para el {@code idUsuario}, obtenida
      *                              del Servidor de Reproducciones.
      * @return un objeto {@link PreferenciasDTORespuesta} poblado con las listas
      *         de preferencias calculadas y ordenadas.
      */
-    public PreferenciasDTORespuesta calcular(Integer idUsuario, List<CancionDTOEntrada> catalogoCompleto, List<ReproduccionesDTOEntrada> reproduccionesUsuario) {
+    public PreferenciasDTORespuesta calcular(Integer idUsuario, IndiceCatalogo indice, List<ReproduccionesDTOEntrada> reproduccionesUsuario) {
+        return calcular(idUsuario, indice, reproduccionesUsuario, OpcionesPreferenciasDTO.completas());
+    }
+
+    /**
+     * Calcula las preferencias musicales de un usuario devolviendo, en cada
+     * dimensión, como máximo el número de entradas indicado en
+     * {@code opciones}.
+     * <p>
+     * Cuando se pide un límite {@code k} menor que el número de valores
+     * distintos escuchados, las {@code k} entradas más escuchadas se eligen
+     * con un montículo acotado (O(n log k)) en lugar de ordenar la lista
+     * completa. Sin límite, el resultado es el mismo que el de
+     * {@link #calcular(Integer, IndiceCatalogo, List)}.
+     *
+     * @param idUsuario el identificador del usuario.
+     * @param indice el índice del catálogo vigente.
+     * @param reproduccionesUsuario el historial de reproducciones del usuario.
+     * @param opciones los límites por dimensión y el criterio de orden.
+     * @return un objeto {@link PreferenciasDTORespuesta} con las listas de
+     *         preferencias ordenadas, recortadas según {@code opciones}.
+     */
+    public PreferenciasDTORespuesta calcular(Integer idUsuario, IndiceCatalogo indice, List<ReproduccionesDTOEntrada> reproduccionesUsuario, OpcionesPreferenciasDTO opciones) {
         
         System.out.println("--> CalculadorPreferencias: Iniciando calculo para el usuario " + idUsuario);
-        System.out.println("    Recibidas " + catalogoCompleto.size() + " canciones del catalogo y " + reproduccionesUsuario.size() + " reproducciones.");
-
-        // Crea un mapa del catálogo usando el TÍTULO de la canción como clave
-        // para una búsqueda O(1). Se manejan duplicados manteniendo el primer elemento.
-        Map<String, CancionDTOEntrada> mapaCatalogo = catalogoCompleto.stream()
-                .collect(Collectors.toMap(CancionDTOEntrada::getTitulo, cancion -> cancion, (existente, nueva) -> existente));
-
-        // Inicializa los mapas que funcionarán como contadores.
-        Map<String, Integer> contadorGeneros = new HashMap<>();
-        Map<String, Integer> contadorArtistas = new HashMap<>();
-        Map<String, Integer> contadorIdiomas = new HashMap<>();
-
-        // Itera sobre las reproducciones del usuario para agregar los datos.
-        for (ReproduccionesDTOEntrada reproduccion : reproduccionesUsuario) {
-            // Busca los metadatos de la canción reproducida en el mapa del catálogo.
-            CancionDTOEntrada cancion = mapaCatalogo.get(reproduccion.getTitulo());
-
-            if (cancion != null) {
-                // Si la canción existe en el catálogo, incrementa los contadores correspondientes.
-                String genero = cancion.getGenero();
-                String artista = cancion.getArtista();
-                String idioma = cancion.getIdioma();
-
-                contadorGeneros.put(genero, contadorGeneros.getOrDefault(genero, 0) + 1);
-                contadorArtistas.put(artista, contadorArtistas.getOrDefault(artista, 0) + 1);
-                contadorIdiomas.put(idioma, contadorIdiomas.getOrDefault(idioma, 0) + 1);
+        System.out.println("    Recibidas " + indice.numeroCanciones() + " canciones del catalogo y " + reproduccionesUsuario.size() + " reproducciones.");
+
+        boolean porReciencia = opciones.getModo() == ModoPreferencias.RECIENCIA;
+        long ahora = System.currentTimeMillis();
+        EspacioTrabajo espacio = ESPACIO_TRABAJO.get();
+        espacio.preparar(indice);
+        try {
+            // Itera una sola vez sobre las reproducciones del usuario para agregar
+            // los conteos, los histogramas y, si se piden, los puntajes con
+            // decaimiento. Cada fecha se interpreta una sola vez.
+            for (ReproduccionesDTOEntrada reproduccion : reproduccionesUsuario) {
+                long locales = reproduccion.getTitulo() != null
+                        ? FechasReproduccion.aSegundosLocales(reproduccion.getFechaHora()) : FechasReproduccion.SIN_FECHA;
+                if (locales != FechasReproduccion.SIN_FECHA) {
+                    espacio.porHora[FechasReproduccion.hora(locales)]++;
+                    espacio.porDiaSemana[FechasReproduccion.diaSemana(locales)]++;
+                }
+                int cancion = indice.buscarCancion(reproduccion.getTitulo());
+                if (cancion != IndiceCatalogo.NO_ENCONTRADA) {
+                    double peso = 0.0;
+                    if (porReciencia && locales != FechasReproduccion.SIN_FECHA) {
+                        peso = this.decaimiento.peso(FechasReproduccion.localesAEpocaSegundos(locales) * 1000L, ahora);
+                    }
+                    espacio.generos.sumar(indice.generoDe(cancion), 1, peso);
+                    espacio.artistas.sumar(indice.artistaDe(cancion), 1, peso);
+                    espacio.idiomas.sumar(indice.idiomaDe(cancion), 1, peso);
+                }
             }
+
+            return ensamblarRespuesta(idUsuario, indice, espacio, opciones);
+        } finally {
+            espacio.reiniciar();
+        }
+    }
+
+    /**
+     * Calcula las preferencias musicales de un usuario a partir de sus
+     * reproducciones ya agregadas por título.
+     * <p>
+     * Es la variante usada con los agregados incrementales: el coste es
+     * proporcional al número de títulos distintos que ha escuchado el
+     * usuario, no al número total de reproducciones de su historial. Los
+     * puntajes por reciencia ya vienen acumulados en el agregado y solo se
+     * escalan al instante actual.
+     *
+     * @param idUsuario el identificador del usuario.
+     * @param indice el índice del catálogo vigente.
+     * @param agregado los conteos y puntajes del usuario por título. El
+     *                 llamador debe tenerlo sincronizado durante el cálculo.
+     * @param opciones los límites por dimensión y el criterio de orden.
+     * @return un objeto {@link PreferenciasDTORespuesta} con las listas de
+     *         preferencias ordenadas, recortadas según {@code opciones}.
+     */
+    public PreferenciasDTORespuesta calcular(Integer idUsuario, IndiceCatalogo indice, AgregadoUsuario agregado, OpcionesPreferenciasDTO opciones) {
+
+        System.out.println("--> CalculadorPreferencias: Iniciando calculo para el usuario " + idUsuario);
+        System.out.println("    Recibidas " + indice.numeroCanciones() + " canciones del catalogo y " + agregado.numeroTitulos() + " titulos escuchados.");
+
+        double factor = opciones.getModo() == ModoPreferencias.RECIENCIA
+                ? agregado.factorPuntajes(System.currentTimeMillis()) : 0.0;
+        EspacioTrabajo espacio = ESPACIO_TRABAJO.get();
+        espacio.preparar(indice);
+        try {
+            // Suma el conteo y el puntaje de cada título a su género, artista e idioma.
+            for (int i = 0; i < agregado.numeroTitulos(); i++) {
+                int cancion = indice.buscarCancion(agregado.titulo(i));
+                if (cancion != IndiceCatalogo.NO_ENCONTRADA) {
+                    int conteo = agregado.conteo(i);
+                    double puntaje = agregado.puntaje(i) * factor;
+                    espacio.generos.sumar(indice.generoDe(cancion), conteo, puntaje);
+                    espacio.artistas.sumar(indice.artistaDe(cancion), conteo, puntaje);
+                    espacio.idiomas.sumar(indice.idiomaDe(cancion), conteo, puntaje);
+                }
+            }
+            for (int hora = 0; hora < espacio.porHora.length; hora++) {
+                espacio.porHora[hora] = agregado.reproduccionesEnHora(hora);
+            }
+            for (int dia = 0; dia < espacio.porDiaSemana.length; dia++) {
+                espacio.porDiaSemana[dia] = agregado.reproduccionesEnDiaSemana(dia);
+            }
+
+            return ensamblarRespuesta(idUsuario, indice, espacio, opciones);
+        } finally {
+            espacio.reiniciar();
+        }
+    }
+
+    /**
+     * Calcula las preferencias de un usuario con solo sus reproducciones de
+     * los días {@code desdeDia} a {@code hastaDia}, ambos inclusive, sumando
+     * las cubetas de sus {@link ContadoresDiarios}; no recorre el historial
+     * ni interpreta ninguna fecha. En el modo por reciencia, cada
+     * reproducción pesa según la antigüedad de su día respecto a
+     * {@code hastaDia}. Los histogramas por hora y por día de la semana
+     * también cuentan solo las reproducciones de la ventana.
+     *
+     * @param idUsuario el identificador del usuario.
+     * @param indice    el índice del catálogo vigente.
+     * @param agregado  el agregado del usuario, con los contadores por día
+     *                  completos. El llamador debe tenerlo sincronizado
+     *                  durante el cálculo.
+     * @param desdeDia  el primer día de la ventana, desde la época.
+     * @param hastaDia  el último día de la ventana.
+     * @param opciones  los límites por dimensión y el criterio de orden.
+     * @return las preferencias de la ventana, recortadas según
+     *         {@code opciones}.
+     */
+    public PreferenciasDTORespuesta calcularVentana(Integer idUsuario, IndiceCatalogo indice, AgregadoUsuario agregado,
+                                                    int desdeDia, int hastaDia, OpcionesPreferenciasDTO opciones) {
+
+        System.out.println("--> CalculadorPreferencias: Iniciando calculo de los dias " + desdeDia + " a " + hastaDia
+                + " para el usuario " + idUsuario);
+
+        boolean porReciencia = opciones.getModo() == ModoPreferencias.RECIENCIA;
+        ContadoresDiarios diarios = agregado.getContadoresDiarios();
+        EspacioTrabajo espacio = ESPACIO_TRABAJO.get();
+        espacio.preparar(indice);
+        try {
+            // Suma las cubetas de los días de la ventana; las de días que ya
+            // salieron del anillo o aún no se reutilizaron se ignoran.
+            for (int ranura = 0; ranura < diarios.numeroRanuras(); ranura++) {
+                int dia = diarios.diaDe(ranura);
+                if (dia < desdeDia || dia > hastaDia) {
+                    continue;
+                }
+                double pesoDia = porReciencia ? this.decaimiento.peso(dia * MS_POR_DIA, hastaDia * MS_POR_DIA) : 0.0;
+                int diaSemana = FechasReproduccion.diaSemanaDeDia(dia);
+                for (int i = 0; i < diarios.tamano(ranura); i++) {
+                    espacio.porHora[diarios.hora(ranura, i)] += diarios.conteo(ranura, i);
+                    espacio.porDiaSemana[diaSemana] += diarios.conteo(ranura, i);
+                    int cancion = indice.buscarCancion(agregado.titulo(diarios.posicion(ranura, i)));
+                    if (cancion != IndiceCatalogo.NO_ENCONTRADA) {
+                        int conteo = diarios.conteo(ranura, i);
+                        double puntaje = conteo * pesoDia;
+                        espacio.generos.sumar(indice.generoDe(cancion), conteo, puntaje);
+                        espacio.artistas.sumar(indice.artistaDe(cancion), conteo, puntaje);
+                        espacio.idiomas.sumar(indice.idiomaDe(cancion), conteo, puntaje);
+                    }
+                }
+            }
+
+            return ensamblarRespuesta(idUsuario, indice, espacio, opciones);
+        } finally {
+            espacio.reiniciar();
+        }
+    }
+
+    /**
+     * Convierte los contadores del espacio de trabajo en la respuesta final.
+     */
+    private static PreferenciasDTORespuesta ensamblarRespuesta(Integer idUsuario, IndiceCatalogo indice, EspacioTrabajo espacio, OpcionesPreferenciasDTO opciones) {
+        boolean porReciencia = opciones.getModo() == ModoPreferencias.RECIENCIA;
+
+        // Convierte los contadores en listas de DTOs ordenadas (solo las primeras si hay límite).
+        int total = ordenar(espacio.generos, espacio, limite(opciones.getMaximoGeneros()), porReciencia);
+        List<PreferenciaGeneroDTORespuesta> prefsGeneros = new ArrayList<>(total);
+        for (int i = total - 1; i >= 0; i--) {
+            int codigo = codigoDe(espacio.claves[i]);
+            prefsGeneros.add(new PreferenciaGeneroDTORespuesta(indice.nombreGenero(codigo),
+                    espacio.generos.conteo(codigo), puntajeDe(espacio.generos, codigo, porReciencia)));
+        }
+
+        total = ordenar(espacio.artistas, espacio, limite(opciones.getMaximoArtistas()), porReciencia);
+        List<PreferenciaArtistaDTORespuesta> prefsArtistas = new ArrayList<>(total);
+        for (int i = total - 1; i >= 0; i--) {
+            int codigo = codigoDe(espacio.claves[i]);
+            prefsArtistas.add(new PreferenciaArtistaDTORespuesta(indice.nombreArtista(codigo),
+                    espacio.artistas.conteo(codigo), puntajeDe(espacio.artistas, codigo, porReciencia)));
+        }
+
+        total = ordenar(espacio.idiomas, espacio, limite(opciones.getMaximoIdiomas()), porReciencia);
+        List<PreferenciaIdiomaDTORespuesta> prefsIdiomas = new ArrayList<>(total);
+        for (int i = total - 1; i >= 0; i--) {
+            int codigo = codigoDe(espacio.claves[i]);
+            PreferenciaIdiomaDTORespuesta dto = new PreferenciaIdiomaDTORespuesta();
+            dto.setNombreIdioma(indice.nombreIdioma(codigo));
+            dto.setNumeroPreferencias(espacio.idiomas.conteo(codigo));
+            dto.setPuntaje(puntajeDe(espacio.idiomas, codigo, porReciencia));
+            prefsIdiomas.add(dto);
         }
-        
-        // Convierte los mapas de contadores en listas de DTOs y las ordena.
-        List<PreferenciaGeneroDTORespuesta> prefsGeneros = contadorGeneros.entrySet().stream()
-                .map(entry -> new PreferenciaGeneroDTORespuesta(entry.getKey(), entry.getValue()))
-                .sorted(Comparator.comparingInt(PreferenciaGeneroDTORespuesta::getNumeroPreferencias).reversed())
-                .collect(Collectors.toList());
-
-        List<PreferenciaArtistaDTORespuesta> prefsArtistas = contadorArtistas.entrySet().stream()
-                .map(entry -> new PreferenciaArtistaDTORespuesta(entry.getKey(), entry.getValue()))
-                .sorted(Comparator.comparingInt(PreferenciaArtistaDTORespuesta::getNumeroPreferencias).reversed())
-                .collect(Collectors.toList());
-        
-        List<PreferenciaIdiomaDTORespuesta> prefsIdiomas = contadorIdiomas.entrySet().stream()
-                .map(entry -> {
-                    PreferenciaIdiomaDTORespuesta dto = new PreferenciaIdiomaDTORespuesta();
-                    dto.setNombreIdioma(entry.getKey());
-                    dto.setNumeroPreferencias(entry.getValue());
-                    return dto;
-                })
-                .sorted(Comparator.comparingInt(PreferenciaIdiomaDTORespuesta::getNumeroPreferencias).reversed())
-                .collect(Collectors.toList());
 
         // Ensambla el objeto de respuesta final con todas las listas de preferencias.
         PreferenciasDTORespuesta respuesta = new PreferenciasDTORespuesta();
@@ -113,8 +360,50 @@ public class CalculadorPreferencias {
         respuesta.setPreferenciasGeneros(prefsGeneros);
         respuesta.setPreferenciasArtistas(prefsArtistas);
         respuesta.setPreferenciasIdiomas(prefsIdiomas);
+        respuesta.setReproduccionesPorHora(espacio.porHora.clone());
+        respuesta.setReproduccionesPorDiaSemana(espacio.porDiaSemana.clone());
 
         System.out.println("--> CalculadorPreferencias: Calculo finalizado.");
         return respuesta;
     }
-}
\ No newline at end of file
+
+    /**
+     * Empaqueta cada código tocado con su criterio de orden en un {@code long}
+     * y los ordena de forma ascendente en el búfer del espacio de trabajo. El
+     * criterio ocupa los 32 bits altos: el conteo o, en el modo por
+     * reciencia, los bits del puntaje como {@code float} (que para valores no
+     * negativos conservan el orden). Recorriendo el búfer desde el final se
+     * obtienen los valores de mayor a menor y, en caso de empate, los códigos
+     * de menor a mayor. Si {@code maximo} es positivo, solo se seleccionan y
+     * ordenan las {@code maximo} mayores claves.
+     *
+     * @return el número de claves ordenadas.
+     */
+    private static int ordenar(ContadorDisperso contador, EspacioTrabajo espacio, int maximo, boolean porReciencia) {
+        int total = contador.numeroTocados();
+        if (espacio.claves.length < total) {
+            espacio.claves = new long[Math.max(total, espacio.claves.length * 2)];
+        }
+        for (int i = 0; i < total; i++) {
+            int codigo = contador.codigoTocado(i);
+            long criterio = porReciencia
+                    ? Float.floatToIntBits((float) contador.puntaje(codigo))
+                    : contador.conteo(codigo);
+            espacio.claves[i] = (criterio << 32) | (Integer.MAX_VALUE - codigo);
+        }
+        return SeleccionMayores.seleccionar(espacio.claves, total, maximo);
+    }
+
+    private static Double puntajeDe(ContadorDisperso contador, int codigo, boolean porReciencia) {
+        return porReciencia ? contador.puntaje(codigo) : null;
+    }
+
+    private static int limite(Integer maximo) {
+        return maximo != null && maximo > 0 ? maximo : 0;
+    }
+
+    private static int codigoDe(long clave) {
+        return Integer.MAX_VALUE - (int) clave;
+    }
+
+}
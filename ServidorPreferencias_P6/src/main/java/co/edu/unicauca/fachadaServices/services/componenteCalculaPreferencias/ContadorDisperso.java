@@ -0,0 +1,71 @@
+package co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias;
+
+import java.util.Arrays;
+
+/**
+ * Contador reutilizable indexado por códigos densos.
+ * <p>
+ * Mantiene un arreglo de conteos del tamaño del diccionario, uno paralelo de
+ * puntajes con decaimiento y la lista de los códigos que se han tocado. Reiniciarlo solo limpia los códigos tocados, de
+ * modo que el coste de cada cálculo es proporcional al número de
+ * reproducciones del usuario y no al tamaño del catálogo. No es seguro para
+ * uso concurrente: cada hilo usa su propia instancia.
+ */
+final class ContadorDisperso {
+
+    private int[] conteos = new int[16];
+    private double[] puntajes = new double[16];
+    private int[] tocados = new int[16];
+    private int numeroTocados;
+
+    /**
+     * Garantiza que se puedan contar códigos en {@code [0, numeroCodigos)}.
+     */
+    void asegurarCapacidad(int numeroCodigos) {
+        if (this.conteos.length < numeroCodigos) {
+            int capacidad = Math.max(numeroCodigos, this.conteos.length * 2);
+            this.conteos = Arrays.copyOf(this.conteos, capacidad);
+            this.puntajes = Arrays.copyOf(this.puntajes, capacidad);
+            this.tocados = Arrays.copyOf(this.tocados, capacidad);
+        }
+    }
+
+    /**
+     * Suma una cantidad positiva al conteo de un código y un puntaje a su
+     * puntaje acumulado.
+     */
+    void sumar(int codigo, int cantidad, double puntaje) {
+        if (this.conteos[codigo] == 0) {
+            this.tocados[this.numeroTocados++] = codigo;
+        }
+        this.conteos[codigo] += cantidad;
+        this.puntajes[codigo] += puntaje;
+    }
+
+    int numeroTocados() {
+        return this.numeroTocados;
+    }
+
+    int codigoTocado(int posicion) {
+        return this.tocados[posicion];
+    }
+
+    int conteo(int codigo) {
+        return this.conteos[codigo];
+    }
+
+    double puntaje(int codigo) {
+        return this.puntajes[codigo];
+    }
+
+    /**
+     * Deja a cero los conteos y puntajes tocados desde el último reinicio.
+     */
+    void reiniciar() {
+        for (int i = 0; i < this.numeroTocados; i++) {
+            this.conteos[this.tocados[i]] = 0;
+            this.puntajes[this.tocados[i]] = 0.0;
+        }
+        this.numeroTocados = 0;
+    }
+}
@@ -0,0 +1,212 @@
+package co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias;
+
+import java.util.Arrays;
+import java.util.List;
+
+import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.utilidades.DiccionarioCadenas;
+import co.edu.unicauca.utilidades.MapaCadenaEntero;
+
+/**
+ * Índice inmutable del catálogo de canciones codificado con diccionarios.
+ * <p>
+ * Se construye una sola vez por versión del catálogo. A cada título se le
+ * asigna un identificador denso de canción y a cada género, artista e idioma
+ * un código entero denso; los metadatos de cada canción se guardan como
+ * arreglos paralelos de códigos. Así, el cálculo de preferencias solo necesita
+ * una búsqueda por título por reproducción y luego incrementa contadores en
+ * arreglos de enteros, sin empaquetar valores ni calcular hashes de
+ * géneros, artistas o idiomas.
+ * <p>
+ * Si el catálogo contiene títulos repetidos, se conserva la primera canción.
+ *
+ * @see CalculadorPreferencias
+ */
+public final class IndiceCatalogo {
+
+    /**
+     * Valor devuelto por {@link #buscarCancion(String)} cuando el título no
+     * está en el catálogo.
+     */
+    public static final int NO_ENCONTRADA = MapaCadenaEntero.AUSENTE;
+
+    private final long version;
+    private final MapaCadenaEntero cancionPorTitulo;
+    private final String[] titulos;
+    private final int[] generoDeCancion;
+    private final int[] artistaDeCancion;
+    private final int[] idiomaDeCancion;
+    private final String[] generos;
+    private final String[] artistas;
+    private final String[] idiomas;
+
+    private IndiceCatalogo(long version, MapaCadenaEntero cancionPorTitulo, String[] titulos,
+                           int[] generoDeCancion, int[] artistaDeCancion, int[] idiomaDeCancion,
+                           String[] generos, String[] artistas, String[] idiomas) {
+        this.version = version;
+        this.cancionPorTitulo = cancionPorTitulo;
+        this.titulos = titulos;
+        this.generoDeCancion = generoDeCancion;
+        this.artistaDeCancion = artistaDeCancion;
+        this.idiomaDeCancion = idiomaDeCancion;
+        this.generos = generos;
+        this.artistas = artistas;
+        this.idiomas = idiomas;
+    }
+
+    /**
+     * Construye el índice a partir de la lista de canciones del catálogo.
+     *
+     * @param version   la versión del catálogo indexado.
+     * @param canciones las canciones del catálogo.
+     * @return el índice construido.
+     */
+    public static IndiceCatalogo construir(long version, List<CancionDTOEntrada> canciones) {
+        Constructor constructor = new Constructor(canciones.size());
+        for (CancionDTOEntrada cancion : canciones) {
+            constructor.agregar(cancion.getTitulo(), cancion.getArtista(), cancion.getGenero(), cancion.getIdioma());
+        }
+        return constructor.construir(version);
+    }
+
+    /**
+     * @return un índice sin canciones (versión 0).
+     */
+    public static IndiceCatalogo vacio() {
+        return new Constructor(0).construir(0L);
+    }
+
+    /**
+     * Busca el identificador denso de una canción por su título.
+     *
+     * @param titulo el título de la canción.
+     * @return el identificador, o {@link #NO_ENCONTRADA}.
+     */
+    public int buscarCancion(String titulo) {
+        return titulo == null ? NO_ENCONTRADA : this.cancionPorTitulo.obtener(titulo);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int numeroCanciones() {
+        return titulos.length;
+    }
+
+    public int numeroGeneros() {
+        return generos.length;
+    }
+
+    public int numeroArtistas() {
+        return artistas.length;
+    }
+
+    public int numeroIdiomas() {
+        return idiomas.length;
+    }
+
+    public String tituloDe(int cancion) {
+        return titulos[cancion];
+    }
+
+    public int generoDe(int cancion) {
+        return generoDeCancion[cancion];
+    }
+
+    public int artistaDe(int cancion) {
+        return artistaDeCancion[cancion];
+    }
+
+    public int idiomaDe(int cancion) {
+        return idiomaDeCancion[cancion];
+    }
+
+    public String nombreGenero(int codigo) {
+        return generos[codigo];
+    }
+
+    public String nombreArtista(int codigo) {
+        return artistas[codigo];
+    }
+
+    public String nombreIdioma(int codigo) {
+        return idiomas[codigo];
+    }
+
+    /**
+     * Construye un {@link IndiceCatalogo} agregando canciones una a una.
+     * <p>
+     * Las cadenas repetidas se comparten: cada género, artista e idioma se
+     * guarda una sola vez en su diccionario.
+     */
+    public static final class Constructor {
+
+        private final MapaCadenaEntero cancionPorTitulo;
+        private final DiccionarioCadenas generos;
+        private final DiccionarioCadenas artistas;
+        private final DiccionarioCadenas idiomas;
+        private String[] titulos;
+        private int[] generoDeCancion;
+        private int[] artistaDeCancion;
+        private int[] idiomaDeCancion;
+        private int numeroCanciones;
+
+        /**
+         * @param capacidadEsperada número de canciones esperadas.
+         */
+        public Constructor(int capacidadEsperada) {
+            int capacidad = Math.max(16, capacidadEsperada);
+            this.cancionPorTitulo = new MapaCadenaEntero(capacidad);
+            this.generos = new DiccionarioCadenas(64);
+            this.artistas = new DiccionarioCadenas(Math.max(64, capacidad / 4));
+            this.idiomas = new DiccionarioCadenas(16);
+            this.titulos = new String[capacidad];
+            this.generoDeCancion = new int[capacidad];
+            this.artistaDeCancion = new int[capacidad];
+            this.idiomaDeCancion = new int[capacidad];
+        }
+
+        /**
+         * Agrega una canción al índice. Las canciones sin título o con un
+         * título ya agregado se ignoran.
+         *
+         * @return {@code true} si la canción se agregó.
+         */
+        public boolean agregar(String titulo, String artista, String genero, String idioma) {
+            if (titulo == null || this.cancionPorTitulo.obtener(titulo) != NO_ENCONTRADA) {
+                return false;
+            }
+            if (this.numeroCanciones == this.titulos.length) {
+                int nuevaCapacidad = this.titulos.length * 2;
+                this.titulos = Arrays.copyOf(this.titulos, nuevaCapacidad);
+                this.generoDeCancion = Arrays.copyOf(this.generoDeCancion, nuevaCapacidad);
+                this.artistaDeCancion = Arrays.copyOf(this.artistaDeCancion, nuevaCapacidad);
+                this.idiomaDeCancion = Arrays.copyOf(this.idiomaDeCancion, nuevaCapacidad);
+            }
+            int cancion = this.numeroCanciones++;
+            this.cancionPorTitulo.poner(titulo, cancion);
+            this.titulos[cancion] = titulo;
+            this.generoDeCancion[cancion] = this.generos.codificar(genero);
+            this.artistaDeCancion[cancion] = this.artistas.codificar(artista);
+            this.idiomaDeCancion[cancion] = this.idiomas.codificar(idioma);
+            return true;
+        }
+
+        /**
+         * Construye el índice. El constructor no debe seguir usándose después,
+         * porque el índice comparte con él el mapa de títulos.
+         *
+         * @param version la versión del catálogo indexado.
+         * @return el índice inmutable con las canciones agregadas.
+         */
+        public IndiceCatalogo construir(long version) {
+            return new IndiceCatalogo(version, this.cancionPorTitulo,
+                    Arrays.copyOf(this.titulos, this.numeroCanciones),
+                    Arrays.copyOf(this.generoDeCancion, this.numeroCanciones),
+                    Arrays.copyOf(this.artistaDeCancion, this.numeroCanciones),
+                    Arrays.copyOf(this.idiomaDeCancion, this.numeroCanciones),
+                    this.generos.aArreglo(), this.artistas.aArreglo(), this.idiomas.aArreglo());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias;
+
+import java.util.Arrays;
+
+/**
+ * Selección de las {@code k} mayores claves de un arreglo de {@code long}
+ * mediante un montículo de mínimos acotado.
+ * <p>
+ * El montículo se mantiene en las primeras {@code k} posiciones del propio
+ * arreglo, por lo que no reserva memoria. El coste es O(n log k) en lugar del
+ * O(n log n) de ordenar el arreglo completo.
+ */
+public final class SeleccionMayores {
+
+    private SeleccionMayores() {
+    }
+
+    /**
+     * Deja en {@code claves[0, k)} las {@code k} mayores claves de
+     * {@code claves[0, total)}, ordenadas de forma ascendente. Si {@code k} es
+     * menor o igual a cero o no es menor que {@code total}, ordena el rango
+     * completo.
+     *
+     * @param claves el búfer con las claves.
+     * @param total  el número de claves válidas en el búfer.
+     * @param k      el número de claves a conservar.
+     * @return el número de claves que quedan ordenadas al inicio del búfer.
+     */
+    public static int seleccionar(long[] claves, int total, int k) {
+        if (k <= 0 || k >= total) {
+            Arrays.sort(claves, 0, total);
+            return total;
+        }
+        for (int i = k / 2 - 1; i >= 0; i--) {
+            hundir(claves, i, k);
+        }
+        for (int i = k; i < total; i++) {
+            if (claves[i] > claves[0]) {
+                claves[0] = claves[i];
+                hundir(claves, 0, k);
+            }
+        }
+        Arrays.sort(claves, 0, k);
+        return k;
+    }
+
+    /**
+     * Restaura la propiedad de montículo de mínimos desde la posición
+     * {@code i} dentro de {@code claves[0, tamano)}.
+     */
+    private static void hundir(long[] claves, int i, int tamano) {
+        long valor = claves[i];
+        while (true) {
+            int hijo = 2 * i + 1;
+            if (hijo >= tamano) {
+                break;
+            }
+            if (hijo + 1 < tamano && claves[hijo + 1] < claves[hijo]) {
+                hijo++;
+            }
+            if (claves[hijo] >= valor) {
+                break;
+            }
+            claves[i] = claves[hijo];
+            i = hijo;
+        }
+        claves[i] = valor;
+    }
+}
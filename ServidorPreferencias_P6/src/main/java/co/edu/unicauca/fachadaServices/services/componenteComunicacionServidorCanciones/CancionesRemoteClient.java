@@ -1,9 +1,12 @@
 package co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorCanciones;
 
 import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import feign.HeaderMap;
 import feign.Headers;
 import feign.RequestLine;
+import feign.Response;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interfaz declarativa para el cliente Feign que se comunica con el Servidor de
@@ -44,4 +47,22 @@ public interface CancionesRemoteClient {
     @Headers("Accept: application/json")
     List<CancionDTOEntrada> obtenerCanciones();
 
+    /**
+     * Variante condicional de {@link #obtenerCanciones()} usada por la caché del
+     * catálogo.
+     * <p>
+     * Devuelve la respuesta HTTP sin decodificar para que el llamador pueda
+     * inspeccionar el código de estado y las cabeceras. Si en {@code cabeceras}
+     * se envía {@code If-None-Match} con la última etiqueta conocida y el
+     * catálogo no ha cambiado, el servidor responde {@code 304 Not Modified}
+     * sin cuerpo.
+     *
+     * @param cabeceras cabeceras adicionales de la petición (por ejemplo,
+     *                  {@code If-None-Match}).
+     * @return la respuesta HTTP cruda. El llamador es responsable de cerrarla.
+     */
+    @RequestLine("GET /canciones")
+    @Headers("Accept: application/json")
+    Response obtenerCancionesCondicional(@HeaderMap Map<String, Object> cabeceras);
+
 }
\ No newline at end of file
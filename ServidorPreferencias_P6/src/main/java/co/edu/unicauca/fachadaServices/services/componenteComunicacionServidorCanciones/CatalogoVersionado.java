@@ -0,0 +1,141 @@
+package co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorCanciones;
+
+import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Instantánea inmutable del catálogo de canciones obtenida del Servidor de
+ * Canciones.
+ * <p>
+ * Cada instantánea lleva un número de versión que solo cambia cuando el
+ * contenido del catálogo cambia realmente, de modo que los componentes que
+ * dependen del catálogo (por ejemplo, cachés de resultados) pueden detectar
+ * cambios comparando versiones en lugar de comparar listas completas.
+ * <p>
+ * Además de la versión, se conservan la etiqueta {@code ETag} enviada por el
+ * servidor y un resumen (hash) del cuerpo de la respuesta. Ambos permiten
+ * revalidar el catálogo de forma condicional sin volver a decodificar el JSON
+ * cuando no hubo cambios.
+ * <p>
+ * El contenido de cada versión se guarda únicamente en su
+ * {@link IndiceCatalogo}, construido una sola vez al publicar la versión y
+ * compartido por todos los cálculos; no se conserva la lista de canciones
+ * decodificada.
+ *
+ * @see ComunicacionServidorCanciones
+ */
+public final class CatalogoVersionado {
+
+    /**
+     * Número de versión del contenido. Empieza en 1 para el primer catálogo
+     * descargado; la versión 0 se reserva para el catálogo vacío.
+     */
+    private final long version;
+
+    /**
+     * Etiqueta {@code ETag} devuelta por el servidor, o {@code null} si el
+     * servidor no la envía.
+     */
+    private final String etag;
+
+    /**
+     * Resumen SHA-256 (en hexadecimal) del cuerpo JSON recibido.
+     */
+    private final String hashContenido;
+
+    /**
+     * Índice codificado del catálogo, construido una vez por versión.
+     */
+    private final IndiceCatalogo indice;
+
+    /**
+     * Instante, en milisegundos, en que se validó por última vez esta versión
+     * contra el servidor.
+     */
+    private final long instanteValidacionMs;
+
+    public CatalogoVersionado(long version, String etag, String hashContenido,
+                              IndiceCatalogo indice, long instanteValidacionMs) {
+        this.version = version;
+        this.etag = etag;
+        this.hashContenido = hashContenido;
+        this.indice = indice;
+        this.instanteValidacionMs = instanteValidacionMs;
+    }
+
+    /**
+     * Crea el catálogo vacío (versión 0) que se usa cuando aún no ha sido
+     * posible obtener ningún catálogo del servidor.
+     *
+     * @return una instantánea sin canciones.
+     */
+    public static CatalogoVersionado vacio() {
+        return new CatalogoVersionado(0L, null, null, IndiceCatalogo.vacio(), 0L);
+    }
+
+    /**
+     * Crea una copia de esta instantánea con el mismo contenido y la misma
+     * versión, marcada como validada en el instante indicado. Se usa cuando
+     * la revalidación confirma que el catálogo no cambió.
+     *
+     * @param instanteMs el instante de la nueva validación.
+     * @param nuevoEtag  la etiqueta recibida en la revalidación; si es
+     *                   {@code null} se conserva la anterior.
+     * @return la instantánea renovada.
+     */
+    public CatalogoVersionado renovar(long instanteMs, String nuevoEtag) {
+        return new CatalogoVersionado(version, nuevoEtag != null ? nuevoEtag : etag, hashContenido, indice, instanteMs);
+    }
+
+    /**
+     * Indica si la instantánea sigue dentro de su tiempo de vida.
+     *
+     * @param ahoraMs el instante actual en milisegundos.
+     * @param ttlMs   el tiempo de vida configurado.
+     * @return {@code true} si no es necesario revalidarla todavía.
+     */
+    public boolean estaVigente(long ahoraMs, long ttlMs) {
+        return version > 0 && ahoraMs - instanteValidacionMs < ttlMs;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getHashContenido() {
+        return hashContenido;
+    }
+
+    /**
+     * Reconstruye la lista de canciones a partir del índice. Crea objetos
+     * nuevos en cada llamada, así que solo debe usarse fuera del camino de
+     * las peticiones (compatibilidad y depuración).
+     *
+     * @return una lista inmutable con una canción por título.
+     */
+    public List<CancionDTOEntrada> getCanciones() {
+        List<CancionDTOEntrada> canciones = new ArrayList<>(indice.numeroCanciones());
+        for (int cancion = 0; cancion < indice.numeroCanciones(); cancion++) {
+            canciones.add(new CancionDTOEntrada(indice.tituloDe(cancion),
+                    indice.nombreArtista(indice.artistaDe(cancion)),
+                    indice.nombreGenero(indice.generoDe(cancion)),
+                    indice.nombreIdioma(indice.idiomaDe(cancion))));
+        }
+        return Collections.unmodifiableList(canciones);
+    }
+
+    public IndiceCatalogo getIndice() {
+        return indice;
+    }
+
+    public long getInstanteValidacionMs() {
+        return instanteValidacionMs;
+    }
+}
@@ -1,10 +1,31 @@
 package co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorCanciones;
 
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
 import co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada;
-import feign.Feign;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.fachadaServices.services.componenteTransporteHttp.Cortocircuito;
+import co.edu.unicauca.fachadaServices.services.componenteTransporteHttp.TransporteHttpCompartido;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import co.edu.unicauca.utilidades.FabricaHilosDemonio;
+import com.fasterxml.jackson.core.JsonFactory;
+import feign.Response;
 import feign.jackson.JacksonDecoder;
-import java.util.ArrayList;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Componente responsable de la comunicación síncrona vía REST con el
@@ -14,6 +35,14 @@ import java.util.List;
  * declarativo. Su función principal es abstraer los detalles de la
  * comunicación de red, proporcionando un método simple para obtener el
  * catálogo completo de canciones.
+ * <p>
+ * Como el catálogo cambia con poca frecuencia, el componente mantiene en
+ * memoria una instantánea versionada ({@link CatalogoVersionado}) con un tiempo
+ * de vida configurable. Mientras la instantánea está vigente las peticiones se
+ * resuelven localmente; cuando expira se revalida de forma condicional
+ * ({@code If-None-Match} o comparación del hash del contenido) y solo se
+ * decodifica el JSON si el catálogo cambió. Un hilo en segundo plano revalida
+ * periódicamente el catálogo para que las peticiones casi nunca esperen a la red.
  *
  * @see CancionesRemoteClient
  * @see co.edu.unicauca.fachadaServices.services.PreferenciasServiceImpl
@@ -32,12 +61,84 @@ public class ComunicacionServidorCanciones {
      */
     private final CancionesRemoteClient client;
 
+    /**
+     * Cortocircuito que rechaza de inmediato las peticiones mientras el
+     * servidor no responde.
+     */
+    private final Cortocircuito cortocircuito;
+
+    /**
+     * Fábrica de analizadores JSON con la que se decodifica en streaming el
+     * catálogo ({@link LectorCatalogoJson}).
+     */
+    private final JsonFactory fabricaJson;
+
+    /**
+     * Tiempo de vida, en milisegundos, de una instantánea del catálogo.
+     */
+    private final long ttlMs;
+
+    /**
+     * Última instantánea conocida del catálogo. Se reemplaza de forma atómica
+     * en cada revalidación.
+     */
+    private volatile CatalogoVersionado catalogoActual = CatalogoVersionado.vacio();
+
+    /**
+     * Candado que garantiza que solo un hilo revalide el catálogo a la vez.
+     */
+    private final Object candadoRevalidacion = new Object();
+
+    /**
+     * Planificador del refresco en segundo plano.
+     */
+    private final ScheduledExecutorService planificadorRefresco;
+
+    /**
+     * Peticiones atendidas con una instantánea vigente.
+     */
+    private final AtomicLong aciertos = new AtomicLong();
+
+    /**
+     * Peticiones que encontraron la instantánea vencida o ausente.
+     */
+    private final AtomicLong fallos = new AtomicLong();
+
+    /**
+     * Revalidaciones que descargaron y decodificaron un catálogo nuevo.
+     */
+    private final AtomicLong refrescos = new AtomicLong();
+
+    /**
+     * Revalidaciones que confirmaron que el catálogo no cambió (respuesta
+     * {@code 304} o mismo hash de contenido).
+     */
+    private final AtomicLong revalidacionesSinCambios = new AtomicLong();
+
+    /**
+     * Revalidaciones que fallaron por errores de comunicación.
+     */
+    private final AtomicLong erroresRevalidacion = new AtomicLong();
+
+    /**
+     * Duración de cada revalidación contra el servidor, en microsegundos.
+     */
+    private final HistogramaLatencias latenciaRevalidacion;
+
+    /**
+     * Tamaño, en bytes, de los cuerpos JSON del catálogo recibidos.
+     */
+    private final HistogramaLatencias tamanoCuerpo;
+
     /**
      * Construye una nueva instancia del componente de comunicación.
      * <p>
      * En el constructor se configura y construye el cliente Feign:
      * <ul>
-     *   <li><b>{@code Feign.builder()}</b>: Inicia el proceso de construcción del cliente.</li>
+     *   <li><b>{@code TransporteHttpCompartido.constructor("canciones")}</b>: Inicia el
+     *       proceso de construcción del cliente sobre el transporte HTTP
+     *       compartido (pool de conexiones persistentes), con los plazos y
+     *       reintentos configurados para este servidor.</li>
      *   <li><b>{@code .decoder(new JacksonDecoder())}</b>: Especifica que las respuestas
      *       JSON deben ser decodificadas y mapeadas a objetos Java utilizando la
      *       librería Jackson.</li>
@@ -45,35 +146,303 @@ public class ComunicacionServidorCanciones {
      *       con la URL base, creando una implementación concreta y funcional del
      *       cliente REST.</li>
      * </ul>
+     * También lee la configuración de la caché ({@code canciones.cache.ttl.ms} y
+     * {@code canciones.cache.refresco.ms}) y arranca el refresco en segundo plano
+     * si el intervalo configurado es mayor que cero, y registra sus métricas
+     * en el {@link RegistroMetricas}.
      */
     public ComunicacionServidorCanciones() {
-        this.client = Feign.builder()
+        this(null);
+    }
+
+    /**
+     * Construye el componente partiendo de un catálogo ya conocido, por
+     * ejemplo el restaurado de la instantánea del servidor al arrancar. Ese
+     * catálogo se sirve mientras esté vigente, y el primer refresco en segundo
+     * plano lo revalida con su {@code ETag}, de modo que si no cambió no se
+     * vuelve a descargar.
+     *
+     * @param catalogoInicial el catálogo inicial, o {@code null} para empezar
+     *                        con el catálogo vacío.
+     */
+    public ComunicacionServidorCanciones(CatalogoVersionado catalogoInicial) {
+        if (catalogoInicial != null) {
+            this.catalogoActual = catalogoInicial;
+        }
+        this.client = TransporteHttpCompartido.constructor("canciones")
                 .decoder(new JacksonDecoder())
                 .target(CancionesRemoteClient.class, BASE_URL);
+        this.cortocircuito = Cortocircuito.desdeConfiguracion("canciones");
+        this.fabricaJson = new JsonFactory();
+        this.ttlMs = LectorPropiedadesConfig.getLong("canciones.cache.ttl.ms", 30_000L);
+
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.latenciaRevalidacion = metricas.latencias("canciones.revalidacion");
+        this.tamanoCuerpo = metricas.tamanos("canciones.cuerpo");
+        metricas.registrarIndicador("canciones.cache.aciertos", this::getAciertos);
+        metricas.registrarIndicador("canciones.cache.fallos", this::getFallos);
+        metricas.registrarIndicador("canciones.cache.refrescos", this::getRefrescos);
+        metricas.registrarIndicador("canciones.cache.sinCambios", this::getRevalidacionesSinCambios);
+        metricas.registrarIndicador("canciones.errores", this::getErroresRevalidacion);
+        metricas.registrarIndicador("canciones.version", this::getVersionActual);
+
+        long intervaloRefrescoMs = LectorPropiedadesConfig.getLong("canciones.cache.refresco.ms", this.ttlMs / 2);
+        if (intervaloRefrescoMs > 0) {
+            this.planificadorRefresco = Executors.newSingleThreadScheduledExecutor(
+                    new FabricaHilosDemonio("refresco-catalogo-canciones"));
+            this.planificadorRefresco.scheduleWithFixedDelay(this::refrescarEnSegundoPlano,
+                    0, intervaloRefrescoMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.planificadorRefresco = null;
+        }
     }
 
     /**
      * Realiza una llamada remota al Servidor de Canciones para obtener el
      * catálogo completo.
      * <p>
-     * Invoca el método {@code obtenerCanciones()} definido en la interfaz
-     * {@link CancionesRemoteClient}. Incluye manejo de errores básico para
-     * prevenir que la aplicación falle si el servidor no está disponible.
+     * Se conserva por compatibilidad: devuelve las canciones de la instantánea
+     * vigente del catálogo, revalidándola contra el servidor solo si ha
+     * expirado.
      *
      * @return una lista de objetos {@link CancionDTOEntrada} que representan el
      *         catálogo de canciones. Si la comunicación falla o el servidor no
-     *         retorna datos, devuelve una lista vacía para garantizar la
-     *         seguridad del llamador.
+     *         retorna datos, devuelve la última lista conocida o una lista vacía
+     *         para garantizar la seguridad del llamador.
      */
     public List<CancionDTOEntrada> obtenerCancionesRemotas() {
-        System.out.println("--> ComunicacionServidorCanciones: Realizando peticion GET a " + BASE_URL + "/canciones");
+        return obtenerCatalogo().getCanciones();
+    }
+
+    /**
+     * Obtiene la instantánea vigente del catálogo.
+     * <p>
+     * Si la instantánea actual sigue dentro de su tiempo de vida se devuelve
+     * sin realizar ninguna petición (acierto). En caso contrario se revalida
+     * de forma síncrona (fallo). Si la revalidación falla, se sigue sirviendo
+     * la última instantánea conocida.
+     *
+     * @return la instantánea del catálogo; nunca {@code null}.
+     */
+    public CatalogoVersionado obtenerCatalogo() {
+        CatalogoVersionado actual = this.catalogoActual;
+        if (actual.estaVigente(System.currentTimeMillis(), this.ttlMs)) {
+            this.aciertos.incrementAndGet();
+            return actual;
+        }
+        this.fallos.incrementAndGet();
+        return revalidar(false);
+    }
+
+    /**
+     * Devuelve la instantánea actual solo si sigue vigente, sin realizar
+     * ninguna petición.
+     *
+     * @return la instantánea vigente, o {@code null} si ha expirado y debe
+     *         obtenerse con {@link #obtenerCatalogo()}.
+     */
+    public CatalogoVersionado obtenerCatalogoSiVigente() {
+        CatalogoVersionado actual = this.catalogoActual;
+        if (actual.estaVigente(System.currentTimeMillis(), this.ttlMs)) {
+            this.aciertos.incrementAndGet();
+            return actual;
+        }
+        return null;
+    }
+
+    /**
+     * Tarea periódica que revalida el catálogo antes de que expire, para que
+     * las peticiones encuentren siempre una instantánea vigente.
+     */
+    private void refrescarEnSegundoPlano() {
         try {
-            List<CancionDTOEntrada> canciones = client.obtenerCanciones();
-            System.out.println("--> ComunicacionServidorCanciones: Se recibieron " + canciones.size() + " canciones.");
-            return canciones != null ? canciones : new ArrayList<>();
-        } catch (Exception e) {
-            System.err.println("ERROR al comunicar con el Servidor de Canciones: " + e.getMessage());
-            return new ArrayList<>();
+            revalidar(true);
+        } catch (RuntimeException e) {
+            System.err.println("ERROR en el refresco del catalogo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Revalida la instantánea del catálogo contra el Servidor de Canciones.
+     * <p>
+     * Se envía {@code If-None-Match} con la última etiqueta conocida. Si el
+     * servidor responde {@code 304}, o si el hash del cuerpo recibido coincide
+     * con el de la instantánea actual, solo se renueva el instante de
+     * validación. En otro caso el cuerpo se decodifica en streaming con
+     * {@link LectorCatalogoJson} a la vez que se calcula su hash, y el índice
+     * resultante se publica como una nueva versión solo si el hash cambió. Mientras el cortocircuito del servidor
+     * está abierto no se hace la petición y se sigue sirviendo la última
+     * instantánea conocida.
+     *
+     * @param forzar si es {@code false} y otro hilo ya dejó una instantánea
+     *               vigente mientras se esperaba el candado, no se repite la
+     *               petición.
+     * @return la instantánea resultante.
+     */
+    private CatalogoVersionado revalidar(boolean forzar) {
+        synchronized (this.candadoRevalidacion) {
+            CatalogoVersionado actual = this.catalogoActual;
+            if (!forzar && actual.estaVigente(System.currentTimeMillis(), this.ttlMs)) {
+                return actual;
+            }
+
+            if (!this.cortocircuito.permitir()) {
+                return actual;
+            }
+
+            System.out.println("--> ComunicacionServidorCanciones: Revalidando catalogo con GET " + BASE_URL + "/canciones");
+            long inicio = System.nanoTime();
+            Map<String, Object> cabeceras = new HashMap<>();
+            if (actual.getEtag() != null) {
+                cabeceras.put("If-None-Match", actual.getEtag());
+            }
+
+            try (Response respuesta = this.client.obtenerCancionesCondicional(cabeceras)) {
+                long ahora = System.currentTimeMillis();
+                String etag = primeraCabecera(respuesta, "ETag");
+
+                if (respuesta.status() == 304 && actual.getVersion() > 0) {
+                    this.cortocircuito.registrarExito();
+                    this.revalidacionesSinCambios.incrementAndGet();
+                    this.catalogoActual = actual.renovar(ahora, etag);
+                    return this.catalogoActual;
+                }
+                if (respuesta.status() < 200 || respuesta.status() >= 300 || respuesta.body() == null) {
+                    throw new IllegalStateException("respuesta inesperada " + respuesta.status());
+                }
+                this.cortocircuito.registrarExito();
+
+                // El cuerpo se decodifica en streaming directamente al índice
+                // mientras se calcula su hash; nunca se guarda completo.
+                long version = actual.getVersion() + 1;
+                MessageDigest resumen = MessageDigest.getInstance("SHA-256");
+                IndiceCatalogo indice;
+                long bytesCuerpo;
+                try (FlujoContado flujo = new FlujoContado(new DigestInputStream(respuesta.body().asInputStream(), resumen))) {
+                    indice = LectorCatalogoJson.leer(this.fabricaJson, flujo, version);
+                    flujo.transferTo(OutputStream.nullOutputStream());
+                    bytesCuerpo = flujo.bytesLeidos;
+                }
+                this.tamanoCuerpo.registrar(bytesCuerpo);
+                String hash = HexFormat.of().formatHex(resumen.digest());
+                if (hash.equals(actual.getHashContenido())) {
+                    this.revalidacionesSinCambios.incrementAndGet();
+                    this.catalogoActual = actual.renovar(ahora, etag);
+                    return this.catalogoActual;
+                }
+
+                CatalogoVersionado nuevo = new CatalogoVersionado(version, etag, hash, indice, ahora);
+                this.refrescos.incrementAndGet();
+                this.catalogoActual = nuevo;
+                System.out.println("--> ComunicacionServidorCanciones: Catalogo actualizado a la version " + nuevo.getVersion()
+                        + " con " + indice.numeroCanciones() + " canciones. " + resumenEstadisticas());
+                return nuevo;
+            } catch (Exception e) {
+                this.cortocircuito.registrarFallo();
+                this.erroresRevalidacion.incrementAndGet();
+                System.err.println("ERROR al comunicar con el Servidor de Canciones: " + e.getMessage());
+                return actual;
+            } finally {
+                this.latenciaRevalidacion.registrarDesde(inicio);
+            }
+        }
+    }
+
+    /**
+     * Devuelve el primer valor de una cabecera de la respuesta, sin distinguir
+     * mayúsculas de minúsculas en el nombre.
+     */
+    private static String primeraCabecera(Response respuesta, String nombre) {
+        for (Map.Entry<String, Collection<String>> cabecera : respuesta.headers().entrySet()) {
+            if (cabecera.getKey() != null && cabecera.getKey().equalsIgnoreCase(nombre) && !cabecera.getValue().isEmpty()) {
+                return cabecera.getValue().iterator().next();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Flujo que cuenta los bytes leídos del cuerpo de la respuesta.
+     */
+    private static final class FlujoContado extends FilterInputStream {
+
+        private long bytesLeidos;
+
+        FlujoContado(InputStream flujo) {
+            super(flujo);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int leido = super.read();
+            if (leido >= 0) {
+                this.bytesLeidos++;
+            }
+            return leido;
         }
+
+        @Override
+        public int read(byte[] destino, int desde, int longitud) throws IOException {
+            int leidos = super.read(destino, desde, longitud);
+            if (leidos > 0) {
+                this.bytesLeidos += leidos;
+            }
+            return leidos;
+        }
+    }
+
+    /**
+     * Detiene el refresco en segundo plano del catálogo.
+     */
+    public void cerrar() {
+        if (this.planificadorRefresco != null) {
+            this.planificadorRefresco.shutdownNow();
+        }
+    }
+
+    /**
+     * @return la última instantánea conocida, esté vigente o no.
+     */
+    public CatalogoVersionado getCatalogoActual() {
+        return this.catalogoActual;
+    }
+
+    /**
+     * @return la versión de la última instantánea conocida, esté vigente o
+     *         no (0 si aún no se ha obtenido ninguna).
+     */
+    public long getVersionActual() {
+        return this.catalogoActual.getVersion();
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    public long getRefrescos() {
+        return refrescos.get();
+    }
+
+    public long getRevalidacionesSinCambios() {
+        return revalidacionesSinCambios.get();
+    }
+
+    public long getErroresRevalidacion() {
+        return erroresRevalidacion.get();
+    }
+
+    /**
+     * Construye un resumen legible de los contadores de la caché del catálogo.
+     *
+     * @return una cadena con aciertos, fallos, refrescos y revalidaciones.
+     */
+    public String resumenEstadisticas() {
+        return "[cache catalogo: aciertos=" + getAciertos() + ", fallos=" + getFallos()
+                + ", refrescos=" + getRefrescos() + ", sinCambios=" + getRevalidacionesSinCambios()
+                + ", errores=" + getErroresRevalidacion() + "]";
     }
-}
\ No newline at end of file
+}
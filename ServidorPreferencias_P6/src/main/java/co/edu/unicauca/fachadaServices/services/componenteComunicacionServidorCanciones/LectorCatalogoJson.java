@@ -0,0 +1,118 @@
+package co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorCanciones;
+
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.utilidades.InternadorCadenas;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodificador en streaming de la respuesta {@code GET /canciones} del
+ * Servidor de Canciones.
+ * <p>
+ * Recorre el JSON token a token y agrega cada canción al
+ * {@link IndiceCatalogo.Constructor} en cuanto termina de leerla, sin
+ * materializar el cuerpo completo ni una lista de
+ * {@link co.edu.unicauca.fachadaServices.DTO.CancionDTOEntrada}. Los
+ * artistas, géneros e idiomas se internan directamente desde el búfer del
+ * analizador, de modo que un valor repetido no crea una cadena nueva. La
+ * memoria ocupada durante la lectura es, en la práctica, la del propio índice.
+ * <p>
+ * Igual que la decodificación con Jackson que reemplaza, ignora los campos
+ * desconocidos; los títulos repetidos conservan la primera canción.
+ */
+public final class LectorCatalogoJson {
+
+    /**
+     * Capacidad inicial del índice; crece al duplicarse si el catálogo es
+     * mayor.
+     */
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    private LectorCatalogoJson() {
+    }
+
+    /**
+     * Lee un arreglo JSON de canciones y construye su índice.
+     *
+     * @param fabrica la fábrica de analizadores de Jackson.
+     * @param flujo   el cuerpo de la respuesta; no se cierra.
+     * @param version la versión asignada al índice.
+     * @return el índice con las canciones leídas.
+     * @throws IOException si el flujo falla o el JSON no es un arreglo de
+     *                     objetos.
+     */
+    public static IndiceCatalogo leer(JsonFactory fabrica, InputStream flujo, long version) throws IOException {
+        try (JsonParser analizador = fabrica.createParser(flujo)) {
+            analizador.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            JsonToken token = analizador.nextToken();
+            IndiceCatalogo.Constructor constructor = new IndiceCatalogo.Constructor(CAPACIDAD_INICIAL);
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return constructor.construir(version);
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(analizador, "Se esperaba un arreglo de canciones y se encontro " + token);
+            }
+
+            InternadorCadenas internador = new InternadorCadenas(256);
+            while ((token = analizador.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new JsonParseException(analizador, "Arreglo de canciones incompleto");
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    analizador.skipChildren();
+                    continue;
+                }
+                leerCancion(analizador, internador, constructor);
+            }
+            return constructor.construir(version);
+        }
+    }
+
+    /**
+     * Lee los campos de un objeto canción, con el analizador situado en su
+     * {@code START_OBJECT}, y la agrega al constructor.
+     */
+    private static void leerCancion(JsonParser analizador, InternadorCadenas internador,
+                                    IndiceCatalogo.Constructor constructor) throws IOException {
+        String titulo = null;
+        String artista = null;
+        String genero = null;
+        String idioma = null;
+        while (analizador.nextToken() == JsonToken.FIELD_NAME) {
+            String campo = analizador.currentName();
+            JsonToken valor = analizador.nextToken();
+            if (valor == JsonToken.START_OBJECT || valor == JsonToken.START_ARRAY) {
+                analizador.skipChildren();
+                continue;
+            }
+            if (valor == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (campo) {
+                case "titulo":
+                    titulo = analizador.getText();
+                    break;
+                case "artista":
+                    artista = internar(analizador, internador);
+                    break;
+                case "genero":
+                    genero = internar(analizador, internador);
+                    break;
+                case "idioma":
+                    idioma = internar(analizador, internador);
+                    break;
+                default:
+                    break;
+            }
+        }
+        constructor.agregar(titulo, artista, genero, idioma);
+    }
+
+    private static String internar(JsonParser analizador, InternadorCadenas internador) throws IOException {
+        return internador.internar(analizador.getTextCharacters(), analizador.getTextOffset(), analizador.getTextLength());
+    }
+}
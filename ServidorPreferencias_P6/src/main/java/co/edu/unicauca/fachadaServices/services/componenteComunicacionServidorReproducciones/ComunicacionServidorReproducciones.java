@@ -1,10 +1,23 @@
 package co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorReproducciones;
 
 import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
-import feign.Feign;
+import co.edu.unicauca.fachadaServices.services.componenteTransporteHttp.Cortocircuito;
+import co.edu.unicauca.fachadaServices.services.componenteTransporteHttp.TransporteHttpCompartido;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import com.fasterxml.jackson.core.JsonFactory;
+import feign.Response;
+import feign.codec.Decoder;
 import feign.jackson.JacksonDecoder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 /**
  * Componente responsable de la comunicación síncrona vía REST con el
@@ -25,6 +38,28 @@ public class ComunicacionServidorReproducciones {
      * {@link ReproduccionesRemoteClient} se resolverán relativas a esta URL.
      */
     private static final String BASE_URL = "http://localhost:5002";
+
+    /**
+     * Cabecera con la que el servidor identifica su arranque: las secuencias
+     * vuelven a empezar cada vez que cambia.
+     */
+    static final String CABECERA_EPOCA = "X-Epoca-Reproducciones";
+
+    /**
+     * Cabecera del listado completo con la mayor secuencia incluida en él.
+     */
+    static final String CABECERA_ULTIMA_SECUENCIA = "X-Ultima-Secuencia";
+
+    /**
+     * Valor que recibe {@link #recorrerTodasLasReproducciones(LongConsumer, Consumer)}
+     * si el servidor no envía la última secuencia del listado.
+     */
+    public static final long SIN_ULTIMA_SECUENCIA = -1L;
+
+    /**
+     * URL del servidor al que se dirige esta instancia.
+     */
+    private final String urlBase;
     
     /**
      * Instancia del cliente Feign, generado dinámicamente a partir de la
@@ -32,12 +67,48 @@ public class ComunicacionServidorReproducciones {
      */
     private final ReproduccionesRemoteClient client;
 
+    /**
+     * Cortocircuito que rechaza de inmediato las peticiones mientras el
+     * servidor no responde.
+     */
+    private final Cortocircuito cortocircuito;
+
+    /**
+     * Duración de cada consulta al servidor, en microsegundos.
+     */
+    private final HistogramaLatencias latenciaConsulta;
+
+    /**
+     * Número de reproducciones recibidas en cada consulta.
+     */
+    private final HistogramaLatencias reproduccionesPorConsulta;
+
+    /**
+     * Consultas que fallaron por errores de comunicación.
+     */
+    private final LongAdder errores;
+
+    /**
+     * Fábrica de analizadores JSON para recorrer en streaming el historial de
+     * todos los usuarios.
+     */
+    private final JsonFactory fabricaJson = new JsonFactory();
+
+    /**
+     * Época de la última respuesta del servidor, o {@code null} si aún no se
+     * conoce o el servidor no la envía.
+     */
+    private volatile String epocaServidor;
+
     /**
      * Construye una nueva instancia del componente de comunicación.
      * <p>
      * En el constructor se configura y construye el cliente Feign:
      * <ul>
-     *   <li><b>{@code Feign.builder()}</b>: Inicia el proceso de construcción del cliente.</li>
+     *   <li><b>{@code TransporteHttpCompartido.constructor("reproducciones")}</b>: Inicia el
+     *       proceso de construcción del cliente sobre el transporte HTTP
+     *       compartido (pool de conexiones persistentes), con los plazos y
+     *       reintentos configurados para este servidor.</li>
      *   <li><b>{@code .decoder(new JacksonDecoder())}</b>: Especifica que las respuestas
      *       JSON deben ser decodificadas y mapeadas a objetos Java utilizando la
      *       librería Jackson.</li>
@@ -47,9 +118,29 @@ public class ComunicacionServidorReproducciones {
      * </ul>
      */
     public ComunicacionServidorReproducciones() {
-        this.client = Feign.builder()
-                .decoder(new JacksonDecoder())
-                .target(ReproduccionesRemoteClient.class, BASE_URL);
+        this(BASE_URL);
+    }
+
+    /**
+     * Construye el componente contra otra URL base, por ejemplo un servidor
+     * simulado en las verificaciones.
+     *
+     * @param urlBase la URL base del Servidor de Reproducciones.
+     */
+    public ComunicacionServidorReproducciones(String urlBase) {
+        this.urlBase = urlBase;
+        Decoder json = new JacksonDecoder();
+        this.client = TransporteHttpCompartido.constructor("reproducciones")
+                .decoder((respuesta, tipo) -> {
+                    registrarEpoca(respuesta);
+                    return json.decode(respuesta, tipo);
+                })
+                .target(ReproduccionesRemoteClient.class, urlBase);
+        this.cortocircuito = Cortocircuito.desdeConfiguracion("reproducciones");
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.latenciaConsulta = metricas.latencias("reproducciones.consulta");
+        this.reproduccionesPorConsulta = metricas.histograma("reproducciones.recibidas", "reproducciones");
+        this.errores = metricas.contador("reproducciones.errores");
     }
 
     /**
@@ -68,14 +159,174 @@ public class ComunicacionServidorReproducciones {
      *         una lista vacía.
      */
     public List<ReproduccionesDTOEntrada> obtenerReproduccionesRemotas(Integer idUsuario) {
-        System.out.println("--> ComunicacionServidorReproducciones: Realizando peticion GET a " + BASE_URL + "/reproducciones?idUsuario=" + idUsuario);
+        System.out.println("--> ComunicacionServidorReproducciones: Realizando peticion GET a " + this.urlBase + "/reproducciones?idUsuario=" + idUsuario);
+        long inicio = System.nanoTime();
         try {
-            List<ReproduccionesDTOEntrada> reproducciones = client.obtenerReproducciones(idUsuario);
+            List<ReproduccionesDTOEntrada> reproducciones = this.cortocircuito.ejecutar(() -> client.obtenerReproducciones(idUsuario));
             System.out.println("--> ComunicacionServidorReproducciones: Se recibieron " + reproducciones.size() + " reproducciones.");
+            this.reproduccionesPorConsulta.registrar(reproducciones.size());
             return reproducciones != null ? reproducciones : new ArrayList<>();
         } catch (Exception e) {
+            this.errores.increment();
             System.err.println("ERROR al comunicar con el Servidor de Reproducciones: " + e.getMessage());
             return new ArrayList<>();
+        } finally {
+            this.latenciaConsulta.registrarDesde(inicio);
+        }
+    }
+
+    /**
+     * Obtiene solo las reproducciones de un usuario posteriores a la secuencia
+     * {@code desde}.
+     * <p>
+     * A diferencia de {@link #obtenerReproduccionesRemotas(Integer)}, los
+     * errores de comunicación se propagan: el llamador mantiene un cursor y
+     * debe distinguir "no hay reproducciones nuevas" de "no se pudo
+     * consultar".
+     *
+     * @param idUsuario el identificador del usuario.
+     * @param desde     la secuencia de la última reproducción ya procesada.
+     * @return las reproducciones recibidas (puede estar vacía).
+     * @throws RuntimeException si falla la comunicación con el servidor o si
+     *                          su cortocircuito está abierto.
+     */
+    public List<ReproduccionesDTOEntrada> obtenerReproduccionesDesde(Integer idUsuario, long desde) {
+        System.out.println("--> ComunicacionServidorReproducciones: Realizando peticion GET a " + this.urlBase + "/reproducciones?idUsuario=" + idUsuario + "&desde=" + desde);
+        long inicio = System.nanoTime();
+        List<ReproduccionesDTOEntrada> reproducciones;
+        try {
+            reproducciones = this.cortocircuito.ejecutar(() -> client.obtenerReproduccionesDesde(idUsuario, desde));
+        } catch (RuntimeException e) {
+            this.errores.increment();
+            throw e;
+        } finally {
+            this.latenciaConsulta.registrarDesde(inicio);
+        }
+        int recibidas = reproducciones != null ? reproducciones.size() : 0;
+        this.reproduccionesPorConsulta.registrar(recibidas);
+        System.out.println("--> ComunicacionServidorReproducciones: Se recibieron " + recibidas + " reproducciones nuevas.");
+        return reproducciones != null ? reproducciones : new ArrayList<>();
+    }
+
+    /**
+     * Recorre en streaming las reproducciones de todos los usuarios, en orden
+     * de secuencia, sin cargarlas completas en memoria. Se usa para poner en
+     * marcha la vista alimentada por eventos de reproducción.
+     * <p>
+     * Igual que {@link #obtenerReproduccionesDesde(Integer, long)}, los
+     * errores de comunicación se propagan.
+     *
+     * @param consumidor recibe cada reproducción.
+     * @return el número de reproducciones recorridas.
+     * @throws RuntimeException si falla la comunicación con el servidor, si la
+     *                          respuesta no es válida o si su cortocircuito
+     *                          está abierto.
+     */
+    public long recorrerTodasLasReproducciones(Consumer<ReproduccionesDTOEntrada> consumidor) {
+        return recorrerTodasLasReproducciones(ultimaSecuencia -> { }, consumidor);
+    }
+
+    /**
+     * Como {@link #recorrerTodasLasReproducciones(Consumer)}, pero informa
+     * antes de la primera reproducción de la mayor secuencia incluida en el
+     * listado, que el servidor fija al empezar a responder.
+     *
+     * @param ultimaSecuencia recibe la mayor secuencia del listado, o
+     *                        {@link #SIN_ULTIMA_SECUENCIA} si el servidor no
+     *                        la envía.
+     * @param consumidor      recibe cada reproducción.
+     * @return el número de reproducciones recorridas.
+     * @throws RuntimeException si falla la comunicación con el servidor, si la
+     *                          respuesta no es válida o si su cortocircuito
+     *                          está abierto.
+     */
+    public long recorrerTodasLasReproducciones(LongConsumer ultimaSecuencia, Consumer<ReproduccionesDTOEntrada> consumidor) {
+        return recorrer("/reproducciones", client::obtenerTodasLasReproducciones, ultimaSecuencia, consumidor);
+    }
+
+    /**
+     * Como {@link #recorrerTodasLasReproducciones(LongConsumer, Consumer)},
+     * pero solo con las reproducciones de todos los usuarios posteriores a la
+     * secuencia {@code desde}.
+     * <p>
+     * Un servidor que no envía su época ({@link #getEpocaServidor()} es
+     * {@code null}) tampoco filtra por {@code desde} y devuelve el listado
+     * completo.
+     *
+     * @param desde           la mayor secuencia ya recibida.
+     * @param ultimaSecuencia recibe la mayor secuencia del servidor al
+     *                        responder, o {@link #SIN_ULTIMA_SECUENCIA}.
+     * @param consumidor      recibe cada reproducción.
+     * @return el número de reproducciones recorridas.
+     * @throws RuntimeException si falla la comunicación con el servidor, si la
+     *                          respuesta no es válida o si su cortocircuito
+     *                          está abierto.
+     */
+    public long recorrerReproduccionesDesde(long desde, LongConsumer ultimaSecuencia,
+                                            Consumer<ReproduccionesDTOEntrada> consumidor) {
+        return recorrer("/reproducciones?desde=" + desde, () -> client.obtenerReproduccionesPosteriores(desde),
+                ultimaSecuencia, consumidor);
+    }
+
+    private long recorrer(String ruta, Supplier<Response> peticion, LongConsumer ultimaSecuencia,
+                          Consumer<ReproduccionesDTOEntrada> consumidor) {
+        System.out.println("--> ComunicacionServidorReproducciones: Realizando peticion GET a " + this.urlBase + ruta);
+        long inicio = System.nanoTime();
+        try {
+            long recorridas = this.cortocircuito.ejecutar(() -> {
+                try (Response respuesta = peticion.get()) {
+                    if (respuesta.status() < 200 || respuesta.status() >= 300 || respuesta.body() == null) {
+                        throw new IllegalStateException("respuesta inesperada " + respuesta.status());
+                    }
+                    registrarEpoca(respuesta);
+                    ultimaSecuencia.accept(ultimaSecuencia(respuesta));
+                    return LectorReproduccionesJson.leer(this.fabricaJson, respuesta.body().asInputStream(), consumidor);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            System.out.println("--> ComunicacionServidorReproducciones: Se recorrieron " + recorridas + " reproducciones.");
+            return recorridas;
+        } catch (RuntimeException e) {
+            this.errores.increment();
+            throw e;
+        } finally {
+            this.latenciaConsulta.registrarDesde(inicio);
+        }
+    }
+
+    /**
+     * @return la época de la última respuesta del servidor, o {@code null} si
+     *         aún no se conoce o el servidor no la envía. Si cambia, el
+     *         servidor volvió a arrancar y las secuencias anteriores ya no son
+     *         comparables con las nuevas.
+     */
+    public String getEpocaServidor() {
+        return epocaServidor;
+    }
+
+    private void registrarEpoca(Response respuesta) {
+        String epoca = cabecera(respuesta, CABECERA_EPOCA);
+        if (epoca != null && !epoca.equals(this.epocaServidor)) {
+            this.epocaServidor = epoca;
+        }
+    }
+
+    private static long ultimaSecuencia(Response respuesta) {
+        String valor = cabecera(respuesta, CABECERA_ULTIMA_SECUENCIA);
+        try {
+            return valor != null ? Math.max(Long.parseLong(valor), SIN_ULTIMA_SECUENCIA) : SIN_ULTIMA_SECUENCIA;
+        } catch (NumberFormatException e) {
+            return SIN_ULTIMA_SECUENCIA;
+        }
+    }
+
+    private static String cabecera(Response respuesta, String nombre) {
+        Collection<String> valores = respuesta.headers().get(nombre);
+        if (valores == null || valores.isEmpty()) {
+            return null;
         }
+        String valor = valores.iterator().next().trim();
+        return valor.isEmpty() ? null : valor;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorReproducciones;
+
+import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Decodificador en streaming de la respuesta {@code GET /reproducciones} del
+ * Servidor de Reproducciones.
+ * <p>
+ * Recorre el JSON token a token y entrega cada reproducción al consumidor en
+ * cuanto termina de leerla, sin materializar el cuerpo completo ni la lista
+ * de reproducciones: recorrer el historial de todos los usuarios ocupa la
+ * memoria de una sola reproducción. Ignora los campos desconocidos.
+ */
+public final class LectorReproduccionesJson {
+
+    private LectorReproduccionesJson() {
+    }
+
+    /**
+     * Lee un arreglo JSON de reproducciones.
+     *
+     * @param fabrica    la fábrica de analizadores de Jackson.
+     * @param flujo      el cuerpo de la respuesta; no se cierra.
+     * @param consumidor recibe cada reproducción, en el orden del arreglo.
+     * @return el número de reproducciones leídas.
+     * @throws IOException si el flujo falla o el JSON no es un arreglo de
+     *                     objetos.
+     */
+    public static long leer(JsonFactory fabrica, InputStream flujo, Consumer<ReproduccionesDTOEntrada> consumidor) throws IOException {
+        try (JsonParser analizador = fabrica.createParser(flujo)) {
+            analizador.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            JsonToken token = analizador.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return 0L;
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(analizador, "Se esperaba un arreglo de reproducciones y se encontro " + token);
+            }
+
+            long leidas = 0L;
+            while ((token = analizador.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new JsonParseException(analizador, "Arreglo de reproducciones incompleto");
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    analizador.skipChildren();
+                    continue;
+                }
+                consumidor.accept(leerReproduccion(analizador));
+                leidas++;
+            }
+            return leidas;
+        }
+    }
+
+    /**
+     * Lee los campos de un objeto reproducción, con el analizador situado en
+     * su {@code START_OBJECT}.
+     */
+    private static ReproduccionesDTOEntrada leerReproduccion(JsonParser analizador) throws IOException {
+        ReproduccionesDTOEntrada reproduccion = new ReproduccionesDTOEntrada();
+        while (analizador.nextToken() == JsonToken.FIELD_NAME) {
+            String campo = analizador.currentName();
+            JsonToken valor = analizador.nextToken();
+            if (valor == JsonToken.START_OBJECT || valor == JsonToken.START_ARRAY) {
+                analizador.skipChildren();
+                continue;
+            }
+            if (valor == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (campo) {
+                case "idUsuario":
+                    reproduccion.setIdUsuario(analizador.getValueAsInt());
+                    break;
+                case "titulo":
+                    reproduccion.setTitulo(analizador.getText());
+                    break;
+                case "fechaHora":
+                    reproduccion.setFechaHora(analizador.getText());
+                    break;
+                case "secuencia":
+                    reproduccion.setSecuencia(analizador.getValueAsLong());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return reproduccion;
+    }
+}
@@ -3,6 +3,7 @@ package co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorR
 import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
 import feign.Headers;
 import feign.Param;
+import feign.Response;
 import feign.RequestLine;
 import java.util.List;
 
@@ -44,4 +45,45 @@ public interface ReproduccionesRemoteClient {
     @RequestLine("GET /reproducciones?idUsuario={idUsuario}")
     @Headers("Accept: application/json")
     List<ReproduccionesDTOEntrada> obtenerReproducciones(@Param("idUsuario") Integer idUsuario);
+
+    /**
+     * Variante incremental de {@link #obtenerReproducciones(Integer)}: solicita
+     * solo las reproducciones del usuario cuya secuencia es mayor que
+     * {@code desde}.
+     *
+     * @param idUsuario el identificador del usuario.
+     * @param desde     la secuencia de la última reproducción ya procesada; 0
+     *                  para obtener el historial completo.
+     * @return las reproducciones posteriores a {@code desde}, en orden de
+     *         secuencia.
+     */
+    @RequestLine("GET /reproducciones?idUsuario={idUsuario}&desde={desde}")
+    @Headers("Accept: application/json")
+    List<ReproduccionesDTOEntrada> obtenerReproduccionesDesde(@Param("idUsuario") Integer idUsuario, @Param("desde") Long desde);
+
+    /**
+     * Solicita las reproducciones de todos los usuarios, en orden de
+     * secuencia.
+     * <p>
+     * Devuelve la respuesta HTTP sin decodificar para que el llamador recorra
+     * el cuerpo en streaming ({@link LectorReproduccionesJson}) en lugar de
+     * cargarlo completo en memoria.
+     *
+     * @return la respuesta HTTP cruda. El llamador es responsable de cerrarla.
+     */
+    @RequestLine("GET /reproducciones")
+    @Headers("Accept: application/json")
+    Response obtenerTodasLasReproducciones();
+
+    /**
+     * Solicita las reproducciones de todos los usuarios con secuencia mayor
+     * que {@code desde}, en orden de secuencia, sin decodificar, igual que
+     * {@link #obtenerTodasLasReproducciones()}.
+     *
+     * @param desde la mayor secuencia ya recibida.
+     * @return la respuesta HTTP cruda. El llamador es responsable de cerrarla.
+     */
+    @RequestLine("GET /reproducciones?desde={desde}")
+    @Headers("Accept: application/json")
+    Response obtenerReproduccionesPosteriores(@Param("desde") Long desde);
 }
\ No newline at end of file
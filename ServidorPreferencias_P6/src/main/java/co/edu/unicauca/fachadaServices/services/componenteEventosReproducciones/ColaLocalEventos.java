@@ -0,0 +1,94 @@
+package co.edu.unicauca.fachadaServices.services.componenteEventosReproducciones;
+
+import co.edu.unicauca.fachadaServices.DTO.EventoReproduccionDTOEntrada;
+import co.edu.unicauca.utilidades.FabricaHilosDemonio;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Sustituto en memoria del broker de eventos de reproducción
+ * ({@code preferencias.eventos.modo=local}).
+ * <p>
+ * Los eventos se publican con {@link #publicar(EventoReproduccionDTOEntrada)}
+ * desde el mismo proceso y un hilo demonio los entrega en orden al
+ * consumidor, igual que lo haría la cola de RabbitMQ. Sirve para probar y
+ * medir la vista sin un broker; fuera del proceso nadie puede publicar en
+ * ella.
+ */
+public final class ColaLocalEventos implements FuenteEventosReproducciones {
+
+    private final BlockingQueue<EventoReproduccionDTOEntrada> pendientes = new LinkedBlockingQueue<>();
+
+    private volatile Thread entregador;
+
+    /**
+     * Cola del proceso que usa la vista cuando se configura el modo local.
+     */
+    public static ColaLocalEventos compartida() {
+        return Compartida.INSTANCIA;
+    }
+
+    private static final class Compartida {
+        private static final ColaLocalEventos INSTANCIA = new ColaLocalEventos();
+    }
+
+    /**
+     * Encola un evento para entregarlo al consumidor.
+     *
+     * @param evento el evento de reproducción.
+     */
+    public void publicar(EventoReproduccionDTOEntrada evento) {
+        this.pendientes.add(evento);
+    }
+
+    /**
+     * @return el número de eventos publicados aún no entregados.
+     */
+    public int getPendientes() {
+        return this.pendientes.size();
+    }
+
+    @Override
+    public synchronized void iniciar(Consumer<EventoReproduccionDTOEntrada> consumidor) {
+        if (this.entregador != null) {
+            throw new IllegalStateException("La cola local de eventos ya tiene consumidor");
+        }
+        Thread hilo = new FabricaHilosDemonio("eventos-local").newThread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                EventoReproduccionDTOEntrada evento;
+                try {
+                    evento = this.pendientes.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    consumidor.accept(evento);
+                } catch (RuntimeException e) {
+                    System.err.println("ERROR al procesar un evento de la cola local: " + e.getMessage());
+                }
+            }
+        });
+        this.entregador = hilo;
+        hilo.start();
+    }
+
+    @Override
+    public boolean estaConectada() {
+        Thread hilo = this.entregador;
+        return hilo != null && hilo.isAlive();
+    }
+
+    @Override
+    public synchronized void cerrar() {
+        if (this.entregador != null) {
+            this.entregador.interrupt();
+            this.entregador = null;
+        }
+    }
+
+    @Override
+    public String getDescripcion() {
+        return "cola local en memoria";
+    }
+}
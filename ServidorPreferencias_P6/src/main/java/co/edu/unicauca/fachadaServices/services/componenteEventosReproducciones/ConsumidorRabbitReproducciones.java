@@ -0,0 +1,132 @@
+package co.edu.unicauca.fachadaServices.services.componenteEventosReproducciones;
+
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.fachadaServices.DTO.EventoReproduccionDTOEntrada;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Consumidor de la cola de RabbitMQ en la que el Servidor de Reproducciones
+ * publica un evento por cada reproducción registrada.
+ * <p>
+ * Declara la cola como durable (igual que el publicador, de modo que no
+ * importa cuál arranque primero) y la consume con confirmación manual: cada
+ * mensaje se confirma después de aplicarlo, así que si el servidor se cae a
+ * mitad de un mensaje este se vuelve a entregar, y como la vista es
+ * idempotente la repetición no duplica conteos. Un mensaje que no se puede
+ * decodificar o aplicar se descarta sin reencolarlo, para no bloquear la
+ * cola; el hueco que deja se detecta con el siguiente evento del usuario.
+ * <p>
+ * La conexión se recupera sola tras una caída del broker; mientras está
+ * caída {@link #estaConectada()} devuelve {@code false}.
+ */
+public final class ConsumidorRabbitReproducciones implements FuenteEventosReproducciones {
+
+    private final ConnectionFactory fabrica;
+    private final String cola;
+    private final int prefetch;
+
+    private final ObjectMapper mapeador = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private volatile Connection conexion;
+
+    /**
+     * @param host     el host del broker.
+     * @param puerto   el puerto AMQP del broker.
+     * @param usuario  el usuario del broker.
+     * @param clave    la contraseña del usuario.
+     * @param cola     la cola de eventos de reproducción.
+     * @param prefetch número máximo de mensajes entregados sin confirmar.
+     */
+    public ConsumidorRabbitReproducciones(String host, int puerto, String usuario, String clave, String cola, int prefetch) {
+        this.fabrica = new ConnectionFactory();
+        this.fabrica.setHost(host);
+        this.fabrica.setPort(puerto);
+        this.fabrica.setUsername(usuario);
+        this.fabrica.setPassword(clave);
+        this.fabrica.setAutomaticRecoveryEnabled(true);
+        this.cola = cola;
+        this.prefetch = Math.max(1, prefetch);
+    }
+
+    /**
+     * Crea el consumidor según las propiedades
+     * {@code preferencias.eventos.rabbitmq.*}.
+     */
+    public static ConsumidorRabbitReproducciones desdeConfiguracion() {
+        return new ConsumidorRabbitReproducciones(
+                valor("preferencias.eventos.rabbitmq.host", "localhost"),
+                LectorPropiedadesConfig.getInt("preferencias.eventos.rabbitmq.puerto", 5672),
+                valor("preferencias.eventos.rabbitmq.usuario", "admin"),
+                valor("preferencias.eventos.rabbitmq.clave", "1234"),
+                valor("preferencias.eventos.rabbitmq.cola", "eventos_reproducciones"),
+                LectorPropiedadesConfig.getInt("preferencias.eventos.rabbitmq.prefetch", 256));
+    }
+
+    private static String valor(String clave, String valorPorDefecto) {
+        String valor = LectorPropiedadesConfig.get(clave);
+        return valor != null && !valor.isBlank() ? valor.trim() : valorPorDefecto;
+    }
+
+    @Override
+    public synchronized void iniciar(Consumer<EventoReproduccionDTOEntrada> consumidor) throws IOException {
+        Connection nueva;
+        try {
+            nueva = this.fabrica.newConnection("servidor-preferencias");
+        } catch (TimeoutException e) {
+            throw new IOException("tiempo de espera agotado conectando a " + getDescripcion(), e);
+        }
+        try {
+            Channel canal = nueva.createChannel();
+            canal.queueDeclare(this.cola, true, false, false, null);
+            canal.basicQos(this.prefetch);
+            canal.basicConsume(this.cola, false, new DefaultConsumer(canal) {
+                @Override
+                public void handleDelivery(String etiquetaConsumidor, Envelope sobre, AMQP.BasicProperties propiedades,
+                                           byte[] cuerpo) throws IOException {
+                    try {
+                        consumidor.accept(mapeador.readValue(cuerpo, EventoReproduccionDTOEntrada.class));
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("ERROR al procesar un evento de reproduccion, se descarta: " + e.getMessage());
+                        getChannel().basicNack(sobre.getDeliveryTag(), false, false);
+                        return;
+                    }
+                    getChannel().basicAck(sobre.getDeliveryTag(), false);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            nueva.abort();
+            throw e;
+        }
+        this.conexion = nueva;
+    }
+
+    @Override
+    public boolean estaConectada() {
+        Connection actual = this.conexion;
+        return actual != null && actual.isOpen();
+    }
+
+    @Override
+    public synchronized void cerrar() {
+        if (this.conexion != null) {
+            this.conexion.abort();
+            this.conexion = null;
+        }
+    }
+
+    @Override
+    public String getDescripcion() {
+        return "RabbitMQ " + this.fabrica.getHost() + ":" + this.fabrica.getPort() + "/" + this.cola;
+    }
+}
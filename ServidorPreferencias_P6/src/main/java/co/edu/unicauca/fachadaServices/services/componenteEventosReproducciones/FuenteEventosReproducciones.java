@@ -0,0 +1,45 @@
+package co.edu.unicauca.fachadaServices.services.componenteEventosReproducciones;
+
+import co.edu.unicauca.fachadaServices.DTO.EventoReproduccionDTOEntrada;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Origen de los eventos de reproducción que alimentan la
+ * {@link VistaMaterializadaReproducciones}.
+ * <p>
+ * Las implementaciones entregan los eventos de uno en uno y pueden
+ * entregarlos repetidos o desordenados: la vista los aplica de forma
+ * idempotente.
+ *
+ * @see ConsumidorRabbitReproducciones
+ * @see ColaLocalEventos
+ */
+public interface FuenteEventosReproducciones {
+
+    /**
+     * Empieza a entregar eventos al consumidor.
+     *
+     * @param consumidor recibe cada evento; si lanza una excepción, el evento
+     *                   se descarta.
+     * @throws IOException si no se pudo conectar con el origen.
+     */
+    void iniciar(Consumer<EventoReproduccionDTOEntrada> consumidor) throws IOException;
+
+    /**
+     * @return {@code true} mientras la fuente está recibiendo eventos. Si se
+     *         desconecta, la vista deja de considerarse al día.
+     */
+    boolean estaConectada();
+
+    /**
+     * Deja de entregar eventos y libera la conexión.
+     */
+    void cerrar();
+
+    /**
+     * @return una descripción legible del origen, para los mensajes de
+     *         consola.
+     */
+    String getDescripcion();
+}
@@ -0,0 +1,361 @@
+package co.edu.unicauca.fachadaServices.services.componenteEventosReproducciones;
+
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.fachadaServices.DTO.EventoReproduccionDTOEntrada;
+import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AgregadoUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AlmacenAgregadosUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorReproducciones.ComunicacionServidorReproducciones;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import co.edu.unicauca.utilidades.AnilloHashConsistente;
+import co.edu.unicauca.utilidades.FabricaHilosDemonio;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Vista materializada de los historiales de reproducción, alimentada por los
+ * eventos que publica el Servidor de Reproducciones.
+ * <p>
+ * Cada evento se suma al {@link AgregadoUsuario} del usuario en cuanto llega,
+ * de modo que las preferencias se calculan sobre contadores ya al día y la
+ * petición no tiene que consultar al Servidor de Reproducciones
+ * ({@link #leerAlDia(Integer)}). Los eventos traen la secuencia anterior del
+ * usuario: los repetidos se ignoran (las repeticiones de la cola son
+ * inofensivas) y si falta alguno el agregado deja de estar al día y la
+ * siguiente petición lo pone al día desde su cursor, como sin eventos.
+ * <p>
+ * Las secuencias del Servidor de Reproducciones vuelven a empezar cada vez
+ * que arranca, así que los eventos traen también su época. Un agregado de
+ * otra época no se considera al día, ni por los eventos que recibe ni al
+ * leerlo, si la última respuesta del servidor trae otra época: se reconstruye
+ * en la siguiente petición.
+ * <p>
+ * Al arrancar, la vista puede recorrer el historial de todos los usuarios
+ * ({@code preferencias.eventos.arranque}) por el mismo camino que los
+ * eventos, encadenando cada reproducción con la anterior del usuario; los
+ * usuarios que ya estaban en memoria o en la instantánea del servidor solo
+ * suman lo que les falta, o vuelven a empezar si su agregado es de otra
+ * época.
+ * <p>
+ * Si los usuarios están repartidos entre varias instancias del servidor
+ * ({@code preferencias.nodos}), la vista solo aplica los eventos y el
+ * historial de los usuarios de esta instancia, de modo que cada una guarda
+ * únicamente sus agregados.
+ */
+public final class VistaMaterializadaReproducciones {
+
+    private final AlmacenAgregadosUsuario agregados;
+    private final FuenteEventosReproducciones fuente;
+    private final long verificacionMs;
+    private final long reintentoMs;
+
+    /**
+     * Se invoca con el usuario cuyo agregado cambió, para descartar sus
+     * resultados en caché.
+     */
+    private final Consumer<Integer> alCambiar;
+
+    /**
+     * Indica si un usuario pertenece a esta instancia del servidor.
+     */
+    private final Predicate<Integer> propio;
+
+    /**
+     * Recibe cada reproducción aplicada; {@code null} si no hay observador.
+     */
+    private volatile Consumer<ReproduccionesDTOEntrada> observadorAplicadas;
+
+    /**
+     * Cliente del Servidor de Reproducciones, del que se toma su época
+     * actual; {@code null} hasta {@link #iniciar}.
+     */
+    private volatile ComunicacionServidorReproducciones reproducciones;
+
+    private ScheduledExecutorService planificador;
+
+    private final LongAdder aplicados;
+    private final LongAdder duplicados;
+    private final LongAdder huecos;
+    private final LongAdder invalidos;
+    private final LongAdder ajenos;
+    private final LongAdder lecturasAlDia;
+    private final LongAdder reproduccionesArranque;
+    private final HistogramaLatencias latenciaAplicacion;
+    private final HistogramaLatencias latenciaArranque;
+
+    /**
+     * @param agregados      el almacén de agregados que se mantiene al día.
+     * @param fuente         el origen de los eventos.
+     * @param verificacionMs antigüedad máxima de la última consulta al
+     *                       Servidor de Reproducciones para leer un agregado
+     *                       sin volver a consultarlo.
+     * @param reintentoMs    espera entre intentos de conexión con la fuente.
+     * @param alCambiar      recibe el usuario cuyo agregado cambió.
+     */
+    public VistaMaterializadaReproducciones(AlmacenAgregadosUsuario agregados, FuenteEventosReproducciones fuente,
+                                            long verificacionMs, long reintentoMs, Consumer<Integer> alCambiar) {
+        this(agregados, fuente, verificacionMs, reintentoMs, alCambiar, idUsuario -> true);
+    }
+
+    /**
+     * @param agregados      el almacén de agregados que se mantiene al día.
+     * @param fuente         el origen de los eventos.
+     * @param verificacionMs antigüedad máxima de la última consulta al
+     *                       Servidor de Reproducciones para leer un agregado
+     *                       sin volver a consultarlo.
+     * @param reintentoMs    espera entre intentos de conexión con la fuente.
+     * @param alCambiar      recibe el usuario cuyo agregado cambió.
+     * @param propio         indica si un usuario pertenece a esta instancia;
+     *                       los eventos de los demás se ignoran.
+     */
+    public VistaMaterializadaReproducciones(AlmacenAgregadosUsuario agregados, FuenteEventosReproducciones fuente,
+                                            long verificacionMs, long reintentoMs, Consumer<Integer> alCambiar,
+                                            Predicate<Integer> propio) {
+        this.agregados = agregados;
+        this.fuente = fuente;
+        this.verificacionMs = verificacionMs;
+        this.reintentoMs = Math.max(100L, reintentoMs);
+        this.alCambiar = alCambiar;
+        this.propio = propio;
+
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.aplicados = metricas.contador("eventos.aplicados");
+        this.duplicados = metricas.contador("eventos.duplicados");
+        this.huecos = metricas.contador("eventos.huecos");
+        this.invalidos = metricas.contador("eventos.invalidos");
+        this.ajenos = metricas.contador("eventos.ajenos");
+        this.lecturasAlDia = metricas.contador("eventos.lecturas.alDia");
+        this.reproduccionesArranque = metricas.contador("eventos.arranque.reproducciones");
+        this.latenciaAplicacion = metricas.latencias("eventos.aplicacion");
+        this.latenciaArranque = metricas.latencias("eventos.arranque");
+        metricas.registrarIndicador("eventos.conectada", () -> this.fuente.estaConectada() ? 1 : 0);
+    }
+
+    /**
+     * Crea la vista según {@code preferencias.eventos.modo}: {@code rabbitmq}
+     * consume la cola de RabbitMQ y {@code local} la
+     * {@link ColaLocalEventos#compartida() cola en memoria} del proceso.
+     *
+     * @param agregados el almacén de agregados que se mantiene al día.
+     * @param alCambiar recibe el usuario cuyo agregado cambió.
+     * @return la vista, o {@code null} si el modo es {@code desactivado} o no
+     *         se reconoce.
+     */
+    public static VistaMaterializadaReproducciones desdeConfiguracion(AlmacenAgregadosUsuario agregados,
+                                                                      Consumer<Integer> alCambiar) {
+        String valor = LectorPropiedadesConfig.get("preferencias.eventos.modo");
+        String modo = valor != null ? valor.trim().toLowerCase() : "desactivado";
+        FuenteEventosReproducciones fuente;
+        switch (modo) {
+            case "rabbitmq":
+                fuente = ConsumidorRabbitReproducciones.desdeConfiguracion();
+                break;
+            case "local":
+                fuente = ColaLocalEventos.compartida();
+                break;
+            case "":
+            case "desactivado":
+                return null;
+            default:
+                System.out.println("Valor invalido para preferencias.eventos.modo: " + valor + ". Se desactivan los eventos");
+                return null;
+        }
+        return new VistaMaterializadaReproducciones(agregados, fuente,
+                LectorPropiedadesConfig.getLong("preferencias.eventos.verificacion.ms", 60_000L),
+                LectorPropiedadesConfig.getLong("preferencias.eventos.reintento.ms", 10_000L),
+                alCambiar, usuariosPropios());
+    }
+
+    /**
+     * Con {@code preferencias.nodos} configurado, reconoce los usuarios que
+     * el anillo asigna a {@code preferencias.nodo.nombre}; sin él, todos.
+     */
+    public static Predicate<Integer> usuariosPropios() {
+        List<String> nodos = AnilloHashConsistente.separarNodos(LectorPropiedadesConfig.get("preferencias.nodos"));
+        String nombre = LectorPropiedadesConfig.get("preferencias.nodo.nombre");
+        if (nodos.size() < 2) {
+            return idUsuario -> true;
+        }
+        if (nombre == null || !nodos.contains(nombre.trim())) {
+            System.out.println("preferencias.nodo.nombre (" + nombre + ") no esta en preferencias.nodos; "
+                    + "la vista aplica los eventos de todos los usuarios");
+            return idUsuario -> true;
+        }
+        AnilloHashConsistente anillo = new AnilloHashConsistente(nodos,
+                LectorPropiedadesConfig.getInt("preferencias.nodos.virtuales", AnilloHashConsistente.VIRTUALES_POR_DEFECTO));
+        String propio = nombre.trim();
+        return idUsuario -> propio.equals(anillo.nodoDe(idUsuario));
+    }
+
+    /**
+     * Establece quién recibe cada reproducción que se aplica a un agregado,
+     * tanto de los eventos como del recorrido inicial del historial.
+     *
+     * @param observador el observador, o {@code null} para quitarlo.
+     */
+    public void setObservadorAplicadas(Consumer<ReproduccionesDTOEntrada> observador) {
+        this.observadorAplicadas = observador;
+    }
+
+    /**
+     * Conecta con la fuente en segundo plano, reintentando cada
+     * {@code preferencias.eventos.reintento.ms} mientras no esté disponible,
+     * y, una vez conectada, recorre el historial de todos los usuarios si se
+     * indica.
+     *
+     * @param reproducciones el cliente del Servidor de Reproducciones, para
+     *                       el recorrido inicial.
+     * @param arranque       si se recorre el historial al conectar.
+     */
+    public synchronized void iniciar(ComunicacionServidorReproducciones reproducciones, boolean arranque) {
+        if (this.planificador != null) {
+            return;
+        }
+        this.reproducciones = reproducciones;
+        this.planificador = Executors.newSingleThreadScheduledExecutor(new FabricaHilosDemonio("eventos-reproducciones"));
+        this.planificador.execute(() -> conectar(reproducciones, arranque));
+    }
+
+    private void conectar(ComunicacionServidorReproducciones reproducciones, boolean arranque) {
+        try {
+            this.fuente.iniciar(this::aplicar);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ERROR al conectar con " + this.fuente.getDescripcion() + ", se reintenta en "
+                    + this.reintentoMs + " ms: " + e.getMessage());
+            ScheduledExecutorService planificador = this.planificador;
+            if (planificador != null && !planificador.isShutdown()) {
+                planificador.schedule(() -> conectar(reproducciones, arranque), this.reintentoMs, TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+        System.out.println("Vista de preferencias alimentada por eventos de " + this.fuente.getDescripcion());
+        if (arranque) {
+            arrancarDesdeHistorial(reproducciones);
+        }
+    }
+
+    /**
+     * Recorre el historial de todos los usuarios y lo aplica como si fueran
+     * eventos. Si falla, los usuarios no recorridos se ponen al día al
+     * consultarlos.
+     *
+     * @param reproducciones el cliente del Servidor de Reproducciones.
+     * @return el número de reproducciones recorridas, o -1 si falló.
+     */
+    public long arrancarDesdeHistorial(ComunicacionServidorReproducciones reproducciones) {
+        long inicio = System.nanoTime();
+        // Última secuencia vista de cada usuario en el recorrido, que hace de
+        // secuencia anterior de su siguiente reproducción.
+        Map<Integer, Long> ultimas = new HashMap<>();
+        try {
+            long recorridas = reproducciones.recorrerTodasLasReproducciones(reproduccion -> {
+                Integer idUsuario = reproduccion.getIdUsuario();
+                if (idUsuario == null || reproduccion.getSecuencia() == null || !this.propio.test(idUsuario)) {
+                    return;
+                }
+                Long anterior = ultimas.put(idUsuario, reproduccion.getSecuencia());
+                aplicarReproduccion(reproduccion, anterior != null ? anterior : 0L, reproducciones.getEpocaServidor());
+                this.reproduccionesArranque.increment();
+            });
+            this.latenciaArranque.registrarDesde(inicio);
+            System.out.println("Vista de preferencias arrancada con " + recorridas + " reproducciones de "
+                    + ultimas.size() + " usuarios en " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+            return recorridas;
+        } catch (RuntimeException e) {
+            System.err.println("ERROR al arrancar la vista de preferencias desde el historial: " + e.getMessage());
+            return -1L;
+        }
+    }
+
+    /**
+     * Aplica un evento de reproducción. Es seguro invocarlo desde varios hilos
+     * y con eventos repetidos o desordenados.
+     *
+     * @param evento el evento recibido.
+     */
+    public void aplicar(EventoReproduccionDTOEntrada evento) {
+        if (evento == null || evento.getIdUsuario() == null || evento.getSecuencia() == null) {
+            this.invalidos.increment();
+            return;
+        }
+        if (!this.propio.test(evento.getIdUsuario())) {
+            this.ajenos.increment();
+            return;
+        }
+        long inicio = System.nanoTime();
+        ReproduccionesDTOEntrada reproduccion = new ReproduccionesDTOEntrada(
+                evento.getIdUsuario(), evento.getTitulo(), evento.getFechaHora(), evento.getSecuencia());
+        long anterior = evento.getSecuenciaAnterior() != null ? evento.getSecuenciaAnterior() : 0L;
+        aplicarReproduccion(reproduccion, anterior, evento.getEpoca());
+        this.latenciaAplicacion.registrarDesde(inicio);
+    }
+
+    private void aplicarReproduccion(ReproduccionesDTOEntrada reproduccion, long secuenciaAnterior, String epoca) {
+        AgregadoUsuario agregado = this.agregados.obtenerOCrear(reproduccion.getIdUsuario());
+        AgregadoUsuario.ResultadoEvento resultado;
+        synchronized (agregado) {
+            resultado = agregado.aplicarEvento(reproduccion, secuenciaAnterior, epoca, System.currentTimeMillis());
+        }
+        switch (resultado) {
+            case APLICADO:
+                this.aplicados.increment();
+                Consumer<ReproduccionesDTOEntrada> observador = this.observadorAplicadas;
+                if (observador != null) {
+                    observador.accept(reproduccion);
+                }
+                this.alCambiar.accept(reproduccion.getIdUsuario());
+                break;
+            case DUPLICADO:
+                this.duplicados.increment();
+                break;
+            default:
+                this.huecos.increment();
+                break;
+        }
+    }
+
+    /**
+     * Devuelve el agregado del usuario si puede leerse sin consultar al
+     * Servidor de Reproducciones: la fuente está conectada y el agregado no
+     * ha perdido ningún evento, no ha superado el intervalo de verificación y
+     * es de la misma época que la última respuesta del servidor.
+     *
+     * @param idUsuario el usuario.
+     * @return el agregado al día, o {@code null} si hay que ponerlo al día.
+     */
+    public AgregadoUsuario leerAlDia(Integer idUsuario) {
+        if (!this.fuente.estaConectada()) {
+            return null;
+        }
+        ComunicacionServidorReproducciones reproducciones = this.reproducciones;
+        String epoca = reproducciones != null ? reproducciones.getEpocaServidor() : null;
+        AgregadoUsuario agregado = this.agregados.obtenerOCrear(idUsuario);
+        synchronized (agregado) {
+            if (agregado.esDeOtraEpoca(epoca) || !agregado.estaAlDia(System.currentTimeMillis(), this.verificacionMs)) {
+                return null;
+            }
+        }
+        this.lecturasAlDia.increment();
+        return agregado;
+    }
+
+    /**
+     * Desconecta la fuente y detiene los reintentos.
+     */
+    public synchronized void cerrar() {
+        if (this.planificador != null) {
+            this.planificador.shutdownNow();
+            this.planificador = null;
+        }
+        this.fuente.cerrar();
+    }
+}
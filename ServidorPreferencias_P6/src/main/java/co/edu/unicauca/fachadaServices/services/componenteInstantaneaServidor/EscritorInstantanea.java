@@ -0,0 +1,293 @@
+package co.edu.unicauca.fachadaServices.services.componenteInstantaneaServidor;
+
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AgregadoUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorCanciones.CatalogoVersionado;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Escribe un archivo de instantánea en el formato de
+ * {@link FormatoInstantanea}.
+ * <p>
+ * El archivo se escribe en un temporal del mismo directorio y se mueve sobre
+ * el destino al terminar, de modo que un lector nunca ve una instantánea a
+ * medias y una caída durante la escritura conserva la anterior.
+ */
+final class EscritorInstantanea {
+
+    private EscritorInstantanea() {
+    }
+
+    /**
+     * Escribe la instantánea.
+     *
+     * @param destino    el archivo de destino.
+     * @param semividaMs la semivida de los puntajes de los agregados.
+     * @param catalogo   el catálogo actual.
+     * @param agregados  los agregados en memoria, por usuario.
+     * @param anterior   la instantánea anterior, de la que se copian tal cual
+     *                   los registros de los usuarios que no están en memoria
+     *                   si es de la misma época; puede ser {@code null}.
+     * @param epoca      la época del Servidor de Reproducciones; solo se
+     *                   escriben los agregados de esta época.
+     * @return el número de usuarios escritos.
+     * @throws IOException si no se pudo escribir el archivo.
+     */
+    static int escribir(Path destino, long semividaMs, CatalogoVersionado catalogo,
+                        Map<Integer, AgregadoUsuario> agregados, InstantaneaMapeada anterior,
+                        String epoca) throws IOException {
+        Path directorio = destino.toAbsolutePath().getParent();
+        Files.createDirectories(directorio);
+        Path temporal = Files.createTempFile(directorio, "instantanea", ".tmp");
+        try {
+            int usuarios;
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                usuarios = escribir(canal, semividaMs, catalogo, agregados, anterior, epoca);
+                canal.force(false);
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return usuarios;
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    private static int escribir(FileChannel canal, long semividaMs, CatalogoVersionado catalogo,
+                                Map<Integer, AgregadoUsuario> agregados, InstantaneaMapeada anterior,
+                                String epoca) throws IOException {
+        SalidaContada contador = new SalidaContada(new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16));
+        DataOutputStream salida = new DataOutputStream(contador);
+        salida.write(new byte[FormatoInstantanea.TAMANO_CABECERA]);
+
+        long inicioEpoca = contador.posicion;
+        FormatoInstantanea.escribirCadena(salida, epoca);
+
+        long inicioCatalogo = contador.posicion;
+        escribirCatalogo(salida, catalogo);
+        if (contador.posicion > FormatoInstantanea.TAMANO_SEGMENTO) {
+            throw new IOException("el catalogo no cabe en el primer segmento de la instantanea");
+        }
+
+        IndiceRegistros indice = new IndiceRegistros(agregados.size() + (anterior != null ? anterior.numeroUsuarios() : 0));
+        ByteArrayOutputStream bytesRegistro = new ByteArrayOutputStream(1024);
+        DataOutputStream registro = new DataOutputStream(bytesRegistro);
+        Set<Integer> escritos = new HashSet<>(agregados.size() * 2);
+        for (Map.Entry<Integer, AgregadoUsuario> entrada : agregados.entrySet()) {
+            AgregadoUsuario agregado = entrada.getValue();
+            bytesRegistro.reset();
+            synchronized (agregado) {
+                // Un agregado de otra época tiene un cursor que no sirve con
+                // el servidor actual: se deja fuera y, al consultarlo, se
+                // reconstruye.
+                if (!agregado.estaInicializado() || !Objects.equals(agregado.getEpoca(), epoca)) {
+                    continue;
+                }
+                escribirAgregado(registro, agregado);
+            }
+            indice.agregar(entrada.getKey(), bytesRegistro.size(), escribirRegistro(salida, contador, bytesRegistro.toByteArray()));
+            escritos.add(entrada.getKey());
+        }
+
+        // Los usuarios que no se han consultado desde el arranque, o que
+        // salieron de la memoria, conservan el registro de la instantánea
+        // anterior si es de la misma época: su cursor es más antiguo, pero
+        // ponerse al día desde él es correcto porque las reproducciones ya
+        // contadas se ignoran. Si el Servidor de Reproducciones volvió a
+        // arrancar, esos cursores ya no sirven y los registros se descartan.
+        if (anterior != null && Objects.equals(anterior.getEpoca(), epoca)) {
+            for (int i = 0; i < anterior.numeroUsuarios(); i++) {
+                int idUsuario = anterior.idUsuario(i);
+                if (escritos.contains(idUsuario)) {
+                    continue;
+                }
+                byte[] bytes = new byte[anterior.longitudRegistro(i)];
+                anterior.registro(i).get(bytes);
+                indice.agregar(idUsuario, bytes.length, escribirRegistro(salida, contador, bytes));
+            }
+        }
+
+        long desalineado = contador.posicion % FormatoInstantanea.TAMANO_ENTRADA_INDICE;
+        if (desalineado != 0) {
+            rellenar(salida, FormatoInstantanea.TAMANO_ENTRADA_INDICE - desalineado);
+        }
+        long inicioIndice = contador.posicion;
+        indice.escribir(salida);
+        salida.flush();
+        long longitud = contador.posicion;
+
+        ByteBuffer cabecera = ByteBuffer.allocate(FormatoInstantanea.TAMANO_CABECERA);
+        cabecera.putInt(FormatoInstantanea.POSICION_MAGIA, FormatoInstantanea.MAGIA);
+        cabecera.putInt(FormatoInstantanea.POSICION_VERSION, FormatoInstantanea.VERSION);
+        cabecera.putLong(FormatoInstantanea.POSICION_INSTANTE, System.currentTimeMillis());
+        cabecera.putLong(FormatoInstantanea.POSICION_SEMIVIDA, semividaMs);
+        cabecera.putLong(FormatoInstantanea.POSICION_CATALOGO, inicioCatalogo);
+        cabecera.putLong(FormatoInstantanea.POSICION_INDICE, inicioIndice);
+        cabecera.putInt(FormatoInstantanea.POSICION_USUARIOS, indice.tamano);
+        cabecera.putLong(FormatoInstantanea.POSICION_LONGITUD, longitud);
+        cabecera.putLong(FormatoInstantanea.POSICION_EPOCA, inicioEpoca);
+        while (cabecera.hasRemaining()) {
+            canal.write(cabecera, cabecera.position());
+        }
+        return indice.tamano;
+    }
+
+    private static void escribirCatalogo(DataOutputStream salida, CatalogoVersionado catalogo) throws IOException {
+        IndiceCatalogo indice = catalogo.getIndice();
+        salida.writeLong(catalogo.getVersion());
+        FormatoInstantanea.escribirCadena(salida, catalogo.getEtag());
+        FormatoInstantanea.escribirCadena(salida, catalogo.getHashContenido());
+        salida.writeInt(indice.numeroCanciones());
+        salida.writeInt(indice.numeroGeneros());
+        for (int i = 0; i < indice.numeroGeneros(); i++) {
+            FormatoInstantanea.escribirCadena(salida, indice.nombreGenero(i));
+        }
+        salida.writeInt(indice.numeroArtistas());
+        for (int i = 0; i < indice.numeroArtistas(); i++) {
+            FormatoInstantanea.escribirCadena(salida, indice.nombreArtista(i));
+        }
+        salida.writeInt(indice.numeroIdiomas());
+        for (int i = 0; i < indice.numeroIdiomas(); i++) {
+            FormatoInstantanea.escribirCadena(salida, indice.nombreIdioma(i));
+        }
+        for (int cancion = 0; cancion < indice.numeroCanciones(); cancion++) {
+            FormatoInstantanea.escribirCadena(salida, indice.tituloDe(cancion));
+            salida.writeInt(indice.generoDe(cancion));
+            salida.writeInt(indice.artistaDe(cancion));
+            salida.writeInt(indice.idiomaDe(cancion));
+        }
+    }
+
+    private static void escribirAgregado(DataOutputStream registro, AgregadoUsuario agregado) throws IOException {
+        registro.writeLong(agregado.getReferenciaMs());
+        registro.writeLong(agregado.getCursor());
+        registro.writeInt(agregado.getTotalReproducciones());
+        registro.writeByte(agregado.soportaCursor() ? 1 : 0);
+        FormatoInstantanea.escribirCadena(registro, agregado.getUltimaFechaHora());
+        for (int hora = 0; hora < FormatoInstantanea.HORAS; hora++) {
+            registro.writeInt(agregado.reproduccionesEnHora(hora));
+        }
+        for (int dia = 0; dia < FormatoInstantanea.DIAS_SEMANA; dia++) {
+            registro.writeInt(agregado.reproduccionesEnDiaSemana(dia));
+        }
+        registro.writeInt(agregado.numeroTitulos());
+        for (int i = 0; i < agregado.numeroTitulos(); i++) {
+            FormatoInstantanea.escribirCadena(registro, agregado.titulo(i));
+            registro.writeInt(agregado.conteo(i));
+            registro.writeDouble(agregado.puntaje(i));
+        }
+    }
+
+    /**
+     * Escribe un registro sin que cruce el límite de un segmento.
+     *
+     * @return la posición del registro en el archivo.
+     */
+    private static long escribirRegistro(DataOutputStream salida, SalidaContada contador, byte[] registro) throws IOException {
+        if (registro.length > FormatoInstantanea.TAMANO_SEGMENTO) {
+            throw new IOException("registro de " + registro.length + " bytes mayor que un segmento");
+        }
+        long libre = FormatoInstantanea.TAMANO_SEGMENTO - (contador.posicion & FormatoInstantanea.MASCARA_SEGMENTO);
+        if (registro.length > libre) {
+            rellenar(salida, libre);
+        }
+        long posicion = contador.posicion;
+        salida.write(registro);
+        return posicion;
+    }
+
+    private static void rellenar(DataOutputStream salida, long bytes) throws IOException {
+        byte[] ceros = new byte[(int) Math.min(bytes, 1 << 16)];
+        for (long restantes = bytes; restantes > 0; restantes -= ceros.length) {
+            salida.write(ceros, 0, (int) Math.min(restantes, ceros.length));
+        }
+    }
+
+    /**
+     * Entradas del índice de usuarios, que se ordenan por usuario antes de
+     * escribirse.
+     */
+    private static final class IndiceRegistros {
+
+        private int[] idsUsuarios;
+        private int[] longitudes;
+        private long[] posiciones;
+        private int tamano;
+
+        IndiceRegistros(int capacidad) {
+            this.idsUsuarios = new int[Math.max(16, capacidad)];
+            this.longitudes = new int[this.idsUsuarios.length];
+            this.posiciones = new long[this.idsUsuarios.length];
+        }
+
+        void agregar(int idUsuario, int longitud, long posicion) {
+            if (this.tamano == this.idsUsuarios.length) {
+                int capacidad = this.tamano * 2;
+                this.idsUsuarios = Arrays.copyOf(this.idsUsuarios, capacidad);
+                this.longitudes = Arrays.copyOf(this.longitudes, capacidad);
+                this.posiciones = Arrays.copyOf(this.posiciones, capacidad);
+            }
+            this.idsUsuarios[this.tamano] = idUsuario;
+            this.longitudes[this.tamano] = longitud;
+            this.posiciones[this.tamano] = posicion;
+            this.tamano++;
+        }
+
+        void escribir(DataOutputStream salida) throws IOException {
+            // Cada clave lleva el usuario en los 32 bits altos y la entrada en
+            // los bajos: ordenar las claves ordena las entradas por usuario.
+            long[] orden = new long[this.tamano];
+            for (int i = 0; i < this.tamano; i++) {
+                orden[i] = (long) this.idsUsuarios[i] << 32 | i;
+            }
+            Arrays.sort(orden);
+            for (long clave : orden) {
+                int i = (int) clave;
+                salida.writeInt(this.idsUsuarios[i]);
+                salida.writeInt(this.longitudes[i]);
+                salida.writeLong(this.posiciones[i]);
+            }
+        }
+    }
+
+    /**
+     * Flujo que lleva la cuenta de los bytes escritos, es decir, de la
+     * posición actual en el archivo.
+     */
+    private static final class SalidaContada extends FilterOutputStream {
+
+        private long posicion;
+
+        SalidaContada(OutputStream salida) {
+            super(salida);
+        }
+
+        @Override
+        public void write(int octeto) throws IOException {
+            this.out.write(octeto);
+            this.posicion++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int desde, int longitud) throws IOException {
+            this.out.write(bytes, desde, longitud);
+            this.posicion += longitud;
+        }
+    }
+}
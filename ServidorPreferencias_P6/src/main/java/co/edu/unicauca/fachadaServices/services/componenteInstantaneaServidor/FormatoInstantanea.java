@@ -0,0 +1,101 @@
+package co.edu.unicauca.fachadaServices.services.componenteInstantaneaServidor;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constantes y utilidades del formato binario de la instantánea del servidor.
+ * <p>
+ * Disposición del archivo (enteros en orden big-endian):
+ * <pre>
+ * cabecera (64 bytes)
+ *   0  int   magia "PREF"
+ *   4  int   versión del formato
+ *   8  long  instante de escritura (ms)
+ *  16  long  semivida de los puntajes (ms)
+ *  24  long  posición del catálogo
+ *  32  long  posición del índice de usuarios
+ *  40  int   número de usuarios
+ *  48  long  longitud total del archivo
+ *  56  long  posición de la época del Servidor de Reproducciones
+ * época del Servidor de Reproducciones
+ *   cadena, {@code null} si no se conocía
+ * catálogo
+ *   long versión, cadena etag, cadena hash, int canciones,
+ *   int n + n cadenas de géneros, de artistas y de idiomas,
+ *   por canción: cadena título, int género, int artista, int idioma
+ * registros de agregados, uno por usuario
+ *   long referencia, long cursor, int total, byte soportaCursor,
+ *   cadena última fecha, 24 int reproducciones por hora,
+ *   7 int reproducciones por día de la semana, int títulos,
+ *   por título: cadena título, int conteo, double puntaje
+ * índice de usuarios, ordenado por usuario y alineado a 16 bytes
+ *   por usuario: int usuario, int longitud del registro, long posición
+ * </pre>
+ * Las cadenas se escriben como {@code int} longitud en bytes UTF-8 (-1 para
+ * {@code null}) seguida de los bytes.
+ * <p>
+ * Todos los registros de agregados pertenecen a la época guardada: sus
+ * cursores son secuencias del Servidor de Reproducciones, que vuelven a
+ * empezar cada vez que arranca. Los archivos de la versión
+ * {@link #VERSION_SIN_EPOCA} no guardan la época y se leen como si fuera
+ * {@code null}.
+ * <p>
+ * El archivo se proyecta en memoria en segmentos de {@link #TAMANO_SEGMENTO}
+ * bytes, porque un {@link java.nio.MappedByteBuffer} no puede pasar de 2 GB.
+ * Para que cada registro se lea de un solo segmento, el escritor rellena con
+ * ceros hasta el siguiente segmento cuando un registro no cabe en el actual;
+ * el catálogo debe caber en el primero.
+ */
+final class FormatoInstantanea {
+
+    static final int MAGIA = 0x50524546;
+    static final int VERSION = 3;
+    static final int VERSION_SIN_EPOCA = 2;
+    static final int TAMANO_CABECERA = 64;
+    static final int TAMANO_ENTRADA_INDICE = 16;
+    static final int HORAS = 24;
+    static final int DIAS_SEMANA = 7;
+
+    static final int BITS_SEGMENTO = 30;
+    static final long TAMANO_SEGMENTO = 1L << BITS_SEGMENTO;
+    static final long MASCARA_SEGMENTO = TAMANO_SEGMENTO - 1;
+
+    static final int POSICION_MAGIA = 0;
+    static final int POSICION_VERSION = 4;
+    static final int POSICION_INSTANTE = 8;
+    static final int POSICION_SEMIVIDA = 16;
+    static final int POSICION_CATALOGO = 24;
+    static final int POSICION_INDICE = 32;
+    static final int POSICION_USUARIOS = 40;
+    static final int POSICION_LONGITUD = 48;
+    static final int POSICION_EPOCA = 56;
+
+    private FormatoInstantanea() {
+    }
+
+    static void escribirCadena(DataOutput salida, String cadena) throws IOException {
+        if (cadena == null) {
+            salida.writeInt(-1);
+            return;
+        }
+        byte[] bytes = cadena.getBytes(StandardCharsets.UTF_8);
+        salida.writeInt(bytes.length);
+        salida.write(bytes);
+    }
+
+    /**
+     * Lee una cadena en la posición actual del búfer y la avanza.
+     */
+    static String leerCadena(ByteBuffer entrada) {
+        int longitud = entrada.getInt();
+        if (longitud < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[longitud];
+        entrada.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
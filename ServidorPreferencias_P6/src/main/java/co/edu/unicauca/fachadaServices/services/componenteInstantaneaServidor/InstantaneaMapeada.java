@@ -0,0 +1,260 @@
+package co.edu.unicauca.fachadaServices.services.componenteInstantaneaServidor;
+
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AgregadoUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorCanciones.CatalogoVersionado;
+import co.edu.unicauca.utilidades.DecaimientoExponencial;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Vista de solo lectura de un archivo de instantánea proyectado en memoria
+ * ({@link FormatoInstantanea}).
+ * <p>
+ * Abrirla no lee los agregados: solo valida la cabecera. Cada agregado se
+ * decodifica cuando se pide, buscando al usuario por búsqueda binaria en el
+ * índice del archivo, de modo que el tiempo de arranque no depende del
+ * número de usuarios guardados y el sistema operativo solo carga las páginas
+ * que se consultan.
+ * <p>
+ * Es segura para uso concurrente: solo se usan lecturas absolutas o copias
+ * propias de los búferes proyectados.
+ */
+final class InstantaneaMapeada {
+
+    private final Path archivo;
+    private final MappedByteBuffer[] segmentos;
+    private final long instanteEscrituraMs;
+    private final long inicioCatalogo;
+    private final long inicioIndice;
+    private final int numeroUsuarios;
+    private final long longitud;
+
+    /**
+     * Época del Servidor de Reproducciones de los cursores guardados, o
+     * {@code null} si no se conocía o el archivo no la guarda.
+     */
+    private final String epoca;
+
+    private InstantaneaMapeada(Path archivo, MappedByteBuffer[] segmentos, long instanteEscrituraMs,
+                               long inicioCatalogo, long inicioIndice, int numeroUsuarios, long longitud, String epoca) {
+        this.archivo = archivo;
+        this.segmentos = segmentos;
+        this.instanteEscrituraMs = instanteEscrituraMs;
+        this.inicioCatalogo = inicioCatalogo;
+        this.inicioIndice = inicioIndice;
+        this.numeroUsuarios = numeroUsuarios;
+        this.longitud = longitud;
+        this.epoca = epoca;
+    }
+
+    /**
+     * Proyecta el archivo en memoria y valida su cabecera.
+     *
+     * @param archivo    el archivo de la instantánea.
+     * @param semividaMs la semivida configurada; si no coincide con la del
+     *                   archivo, los puntajes guardados no son comparables y
+     *                   los agregados se ignoran.
+     * @return la instantánea, o {@code null} si el archivo no existe o no es
+     *         válido.
+     */
+    static InstantaneaMapeada abrir(Path archivo, long semividaMs) {
+        if (!Files.isRegularFile(archivo)) {
+            return null;
+        }
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano < FormatoInstantanea.TAMANO_CABECERA) {
+                throw new IOException("archivo truncado (" + tamano + " bytes)");
+            }
+            // Las proyecciones siguen siendo válidas después de cerrar el canal.
+            MappedByteBuffer[] segmentos = new MappedByteBuffer[
+                    (int) ((tamano + FormatoInstantanea.MASCARA_SEGMENTO) >>> FormatoInstantanea.BITS_SEGMENTO)];
+            for (int i = 0; i < segmentos.length; i++) {
+                long inicio = (long) i << FormatoInstantanea.BITS_SEGMENTO;
+                segmentos[i] = canal.map(FileChannel.MapMode.READ_ONLY, inicio,
+                        Math.min(FormatoInstantanea.TAMANO_SEGMENTO, tamano - inicio));
+            }
+            MappedByteBuffer cabecera = segmentos[0];
+            int version = cabecera.getInt(FormatoInstantanea.POSICION_VERSION);
+            if (cabecera.getInt(FormatoInstantanea.POSICION_MAGIA) != FormatoInstantanea.MAGIA
+                    || (version != FormatoInstantanea.VERSION && version != FormatoInstantanea.VERSION_SIN_EPOCA)) {
+                throw new IOException("formato no reconocido");
+            }
+            long declarada = cabecera.getLong(FormatoInstantanea.POSICION_LONGITUD);
+            if (declarada != tamano) {
+                throw new IOException("longitud " + tamano + " distinta de la declarada " + declarada);
+            }
+            int usuarios = cabecera.getInt(FormatoInstantanea.POSICION_USUARIOS);
+            if (cabecera.getLong(FormatoInstantanea.POSICION_SEMIVIDA) != semividaMs) {
+                System.out.println("Instantanea " + archivo + ": la semivida cambio, se ignoran sus " + usuarios + " agregados");
+                usuarios = 0;
+            }
+            String epoca = null;
+            if (version != FormatoInstantanea.VERSION_SIN_EPOCA) {
+                ByteBuffer entrada = cabecera.duplicate();
+                entrada.position((int) cabecera.getLong(FormatoInstantanea.POSICION_EPOCA));
+                epoca = FormatoInstantanea.leerCadena(entrada);
+            }
+            return new InstantaneaMapeada(archivo, segmentos, cabecera.getLong(FormatoInstantanea.POSICION_INSTANTE),
+                    cabecera.getLong(FormatoInstantanea.POSICION_CATALOGO), cabecera.getLong(FormatoInstantanea.POSICION_INDICE),
+                    usuarios, tamano, epoca);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ERROR al abrir la instantanea " + archivo + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reconstruye el catálogo guardado.
+     *
+     * @param instanteValidacionMs el instante de validación que se asigna al
+     *                             catálogo restaurado.
+     * @return el catálogo, o {@code null} si la instantánea no tiene ninguno.
+     */
+    CatalogoVersionado leerCatalogo(long instanteValidacionMs) {
+        ByteBuffer entrada = this.segmentos[0].duplicate();
+        entrada.position((int) this.inicioCatalogo);
+        long version = entrada.getLong();
+        String etag = FormatoInstantanea.leerCadena(entrada);
+        String hash = FormatoInstantanea.leerCadena(entrada);
+        int canciones = entrada.getInt();
+        if (version <= 0) {
+            return null;
+        }
+        String[] generos = leerCadenas(entrada);
+        String[] artistas = leerCadenas(entrada);
+        String[] idiomas = leerCadenas(entrada);
+        IndiceCatalogo.Constructor constructor = new IndiceCatalogo.Constructor(canciones);
+        for (int i = 0; i < canciones; i++) {
+            String titulo = FormatoInstantanea.leerCadena(entrada);
+            int genero = entrada.getInt();
+            int artista = entrada.getInt();
+            int idioma = entrada.getInt();
+            constructor.agregar(titulo, artistas[artista], generos[genero], idiomas[idioma]);
+        }
+        return new CatalogoVersionado(version, etag, hash, constructor.construir(version), instanteValidacionMs);
+    }
+
+    private static String[] leerCadenas(ByteBuffer entrada) {
+        String[] cadenas = new String[entrada.getInt()];
+        for (int i = 0; i < cadenas.length; i++) {
+            cadenas[i] = FormatoInstantanea.leerCadena(entrada);
+        }
+        return cadenas;
+    }
+
+    /**
+     * Decodifica el agregado guardado de un usuario.
+     *
+     * @param idUsuario   el usuario.
+     * @param decaimiento la función de decaimiento del agregado restaurado.
+     * @param instanteMs  el instante de la restauración.
+     * @return el agregado, o {@code null} si el usuario no está guardado.
+     */
+    AgregadoUsuario leerAgregado(int idUsuario, DecaimientoExponencial decaimiento, long instanteMs) {
+        int posicion = buscar(idUsuario);
+        if (posicion < 0) {
+            return null;
+        }
+        ByteBuffer entrada = registro(posicion);
+        AgregadoUsuario agregado = new AgregadoUsuario(decaimiento);
+        long referenciaMs = entrada.getLong();
+        long cursor = entrada.getLong();
+        int total = entrada.getInt();
+        boolean soportaCursor = entrada.get() != 0;
+        agregado.restaurar(referenciaMs, cursor, total, FormatoInstantanea.leerCadena(entrada), soportaCursor,
+                this.epoca, instanteMs);
+        int[] porHora = new int[FormatoInstantanea.HORAS];
+        for (int hora = 0; hora < porHora.length; hora++) {
+            porHora[hora] = entrada.getInt();
+        }
+        int[] porDiaSemana = new int[FormatoInstantanea.DIAS_SEMANA];
+        for (int dia = 0; dia < porDiaSemana.length; dia++) {
+            porDiaSemana[dia] = entrada.getInt();
+        }
+        agregado.restaurarHistogramas(porHora, porDiaSemana);
+        int titulos = entrada.getInt();
+        for (int i = 0; i < titulos; i++) {
+            String titulo = FormatoInstantanea.leerCadena(entrada);
+            int conteo = entrada.getInt();
+            agregado.restaurarTitulo(titulo, conteo, entrada.getDouble());
+        }
+        return agregado;
+    }
+
+    /**
+     * @return la posición del usuario en el índice, o -1 si no está.
+     */
+    private int buscar(int idUsuario) {
+        int desde = 0;
+        int hasta = this.numeroUsuarios - 1;
+        while (desde <= hasta) {
+            int medio = (desde + hasta) >>> 1;
+            int id = idUsuario(medio);
+            if (id < idUsuario) {
+                desde = medio + 1;
+            } else if (id > idUsuario) {
+                hasta = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -1;
+    }
+
+    int numeroUsuarios() {
+        return this.numeroUsuarios;
+    }
+
+    int idUsuario(int posicion) {
+        long entrada = this.inicioIndice + (long) posicion * FormatoInstantanea.TAMANO_ENTRADA_INDICE;
+        return segmento(entrada).getInt(desplazamiento(entrada));
+    }
+
+    int longitudRegistro(int posicion) {
+        long entrada = this.inicioIndice + (long) posicion * FormatoInstantanea.TAMANO_ENTRADA_INDICE;
+        return segmento(entrada).getInt(desplazamiento(entrada) + 4);
+    }
+
+    /**
+     * @return un búfer propio con el registro del usuario en la posición
+     *         indicada del índice.
+     */
+    ByteBuffer registro(int posicion) {
+        long entrada = this.inicioIndice + (long) posicion * FormatoInstantanea.TAMANO_ENTRADA_INDICE;
+        MappedByteBuffer segmentoIndice = segmento(entrada);
+        int longitudRegistro = segmentoIndice.getInt(desplazamiento(entrada) + 4);
+        long inicio = segmentoIndice.getLong(desplazamiento(entrada) + 8);
+        return segmento(inicio).slice(desplazamiento(inicio), longitudRegistro);
+    }
+
+    private MappedByteBuffer segmento(long posicion) {
+        return this.segmentos[(int) (posicion >>> FormatoInstantanea.BITS_SEGMENTO)];
+    }
+
+    private static int desplazamiento(long posicion) {
+        return (int) (posicion & FormatoInstantanea.MASCARA_SEGMENTO);
+    }
+
+    Path getArchivo() {
+        return this.archivo;
+    }
+
+    long getInstanteEscrituraMs() {
+        return this.instanteEscrituraMs;
+    }
+
+    long getLongitud() {
+        return this.longitud;
+    }
+
+    String getEpoca() {
+        return this.epoca;
+    }
+}
@@ -0,0 +1,232 @@
+package co.edu.unicauca.fachadaServices.services.componenteInstantaneaServidor;
+
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AgregadoUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AlmacenAgregadosUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorCanciones.CatalogoVersionado;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import co.edu.unicauca.utilidades.DecaimientoExponencial;
+import co.edu.unicauca.utilidades.FabricaHilosDemonio;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Instantánea en disco del estado caliente del servidor: el índice del
+ * catálogo y los agregados del historial de cada usuario.
+ * <p>
+ * Se escribe periódicamente ({@code preferencias.instantanea.intervalo.ms}) y
+ * al apagar el servidor. Al arrancar, el archivo se proyecta en memoria: el
+ * catálogo se reconstruye de inmediato y los agregados se restauran uno a uno
+ * cuando se consulta cada usuario, sin leer el resto. Así el servidor atiende
+ * desde el primer momento sin descargar el catálogo ni el historial completo
+ * de nadie; cada usuario restaurado solo pide al Servidor de Reproducciones
+ * las reproducciones posteriores a su cursor, y el catálogo restaurado se
+ * revalida en segundo plano con {@code If-None-Match}.
+ * <p>
+ * Los cursores son secuencias del Servidor de Reproducciones, que vuelven a
+ * empezar cada vez que arranca, así que la instantánea guarda su época. Si la
+ * época actual del servidor es otra, los agregados guardados no se restauran
+ * ni se copian a la siguiente instantánea.
+ *
+ * @see FormatoInstantanea
+ */
+public final class PersistenciaInstantanea {
+
+    private final Path archivo;
+    private final long intervaloMs;
+    private final DecaimientoExponencial decaimiento;
+
+    /**
+     * Instantánea proyectada de la que se restauran los agregados; se
+     * sustituye por la nueva tras cada escritura.
+     */
+    private volatile InstantaneaMapeada actual;
+
+    /**
+     * Devuelve la época actual del Servidor de Reproducciones, o {@code null}
+     * si aún no se conoce.
+     */
+    private volatile Supplier<String> epocaServidor = () -> null;
+
+    private ScheduledExecutorService planificador;
+
+    private final LongAdder restaurados;
+    private final LongAdder erroresEscritura;
+    private final HistogramaLatencias latenciaEscritura;
+    private final HistogramaLatencias latenciaRestauracion;
+
+    public PersistenciaInstantanea(Path archivo, long intervaloMs, DecaimientoExponencial decaimiento) {
+        this.archivo = archivo;
+        this.intervaloMs = intervaloMs;
+        this.decaimiento = decaimiento;
+        long inicio = System.nanoTime();
+        this.actual = InstantaneaMapeada.abrir(archivo, decaimiento.getSemividaMs());
+
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.restaurados = metricas.contador("instantanea.restaurados");
+        this.erroresEscritura = metricas.contador("instantanea.errores");
+        this.latenciaEscritura = metricas.latencias("instantanea.escritura");
+        this.latenciaRestauracion = metricas.latencias("instantanea.restauracion");
+        metricas.registrarIndicador("instantanea.usuarios", () -> {
+            InstantaneaMapeada instantanea = this.actual;
+            return instantanea != null ? instantanea.numeroUsuarios() : 0;
+        });
+        metricas.registrarIndicador("instantanea.bytes", () -> {
+            InstantaneaMapeada instantanea = this.actual;
+            return instantanea != null ? instantanea.getLongitud() : 0;
+        });
+
+        if (this.actual != null) {
+            System.out.println("Instantanea " + archivo.toAbsolutePath() + " proyectada en "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms: "
+                    + this.actual.numeroUsuarios() + " usuarios, " + this.actual.getLongitud() + " bytes");
+        }
+    }
+
+    /**
+     * Crea la persistencia según {@code preferencias.instantanea.archivo} y
+     * {@code preferencias.instantanea.intervalo.ms}.
+     *
+     * @param decaimiento la función de decaimiento de los agregados.
+     * @return la persistencia, o {@code null} si no hay archivo configurado.
+     */
+    public static PersistenciaInstantanea desdeConfiguracion(DecaimientoExponencial decaimiento) {
+        String archivo = LectorPropiedadesConfig.get("preferencias.instantanea.archivo");
+        if (archivo == null || archivo.isBlank()) {
+            return null;
+        }
+        return new PersistenciaInstantanea(Paths.get(archivo.trim()),
+                LectorPropiedadesConfig.getLong("preferencias.instantanea.intervalo.ms", 300_000L), decaimiento);
+    }
+
+    /**
+     * @return el catálogo guardado, marcado como validado ahora, o
+     *         {@code null} si no hay ninguno.
+     */
+    public CatalogoVersionado restaurarCatalogo() {
+        InstantaneaMapeada instantanea = this.actual;
+        if (instantanea == null) {
+            return null;
+        }
+        long inicio = System.nanoTime();
+        try {
+            CatalogoVersionado catalogo = instantanea.leerCatalogo(System.currentTimeMillis());
+            if (catalogo != null) {
+                System.out.println("Catalogo version " + catalogo.getVersion() + " restaurado de la instantanea con "
+                        + catalogo.getIndice().numeroCanciones() + " canciones en "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+            }
+            return catalogo;
+        } catch (RuntimeException e) {
+            System.err.println("ERROR al restaurar el catalogo de la instantanea: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Fuente de restauración de {@link AlmacenAgregadosUsuario}.
+     *
+     * @param idUsuario el usuario.
+     * @return su agregado guardado, o {@code null} si no está en la
+     *         instantánea o si esta es de otra época del Servidor de
+     *         Reproducciones.
+     */
+    public AgregadoUsuario restaurarAgregado(Integer idUsuario) {
+        InstantaneaMapeada instantanea = this.actual;
+        if (instantanea == null || idUsuario == null) {
+            return null;
+        }
+        String epoca = this.epocaServidor.get();
+        if (epoca != null && !epoca.equals(instantanea.getEpoca())) {
+            return null;
+        }
+        long inicio = System.nanoTime();
+        try {
+            AgregadoUsuario agregado = instantanea.leerAgregado(idUsuario, this.decaimiento, System.currentTimeMillis());
+            if (agregado != null) {
+                this.restaurados.increment();
+                this.latenciaRestauracion.registrarDesde(inicio);
+            }
+            return agregado;
+        } catch (RuntimeException e) {
+            System.err.println("ERROR al restaurar el agregado del usuario " + idUsuario + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Arranca la escritura periódica y al apagar el servidor. Los agregados
+     * en memoria tienen prioridad; los usuarios que solo están en la
+     * instantánea anterior se copian de ella.
+     *
+     * @param catalogo      devuelve el catálogo actual.
+     * @param agregados     el almacén de agregados.
+     * @param epocaServidor devuelve la época actual del Servidor de
+     *                      Reproducciones, o {@code null} si aún no se
+     *                      conoce.
+     */
+    public void iniciar(Supplier<CatalogoVersionado> catalogo, AlmacenAgregadosUsuario agregados,
+                        Supplier<String> epocaServidor) {
+        this.epocaServidor = epocaServidor;
+        if (this.intervaloMs > 0) {
+            this.planificador = Executors.newSingleThreadScheduledExecutor(new FabricaHilosDemonio("instantanea-servidor"));
+            this.planificador.scheduleWithFixedDelay(() -> guardar(catalogo.get(), agregados),
+                    this.intervaloMs, this.intervaloMs, TimeUnit.MILLISECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> guardar(catalogo.get(), agregados), "instantanea-apagado"));
+        System.out.println("Instantanea del servidor en " + this.archivo.toAbsolutePath()
+                + (this.intervaloMs > 0 ? " cada " + this.intervaloMs + " ms" : " al apagar"));
+    }
+
+    /**
+     * Escribe una instantánea nueva y pasa a restaurar de ella. Se guarda la
+     * época actual del Servidor de Reproducciones o, si aún no se conoce, la
+     * de la instantánea anterior, junto con los agregados de esa época.
+     *
+     * @param catalogo  el catálogo actual.
+     * @param agregados el almacén de agregados.
+     */
+    public synchronized void guardar(CatalogoVersionado catalogo, AlmacenAgregadosUsuario agregados) {
+        long inicio = System.nanoTime();
+        try {
+            InstantaneaMapeada anterior = this.actual;
+            String epoca = this.epocaServidor.get();
+            if (epoca == null && anterior != null) {
+                epoca = anterior.getEpoca();
+            }
+            if (anterior != null && anterior.numeroUsuarios() > 0 && !Objects.equals(anterior.getEpoca(), epoca)) {
+                System.out.println("Instantanea " + this.archivo + ": el Servidor de Reproducciones volvio a arrancar, "
+                        + "se descartan los " + anterior.numeroUsuarios() + " agregados guardados");
+            }
+            int usuarios = EscritorInstantanea.escribir(this.archivo, this.decaimiento.getSemividaMs(), catalogo,
+                    agregados.copiarAgregados(), anterior, epoca);
+            this.latenciaEscritura.registrarDesde(inicio);
+            InstantaneaMapeada nueva = InstantaneaMapeada.abrir(this.archivo, this.decaimiento.getSemividaMs());
+            if (nueva != null) {
+                this.actual = nueva;
+            }
+            System.out.println("Instantanea escrita: catalogo version " + catalogo.getVersion() + ", " + usuarios
+                    + " usuarios en " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+        } catch (IOException | RuntimeException e) {
+            this.erroresEscritura.increment();
+            System.err.println("ERROR al escribir la instantanea " + this.archivo + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Detiene la escritura periódica.
+     */
+    public void cerrar() {
+        if (this.planificador != null) {
+            this.planificador.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,702 @@
+package co.edu.unicauca.fachadaServices.services.componenteMasEscuchados;
+
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.fachadaServices.DTO.ElementoMasEscuchadoDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.MasEscuchadosDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.ReproduccionesDTOEntrada;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorReproducciones.ComunicacionServidorReproducciones;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import co.edu.unicauca.utilidades.FabricaHilosDemonio;
+import co.edu.unicauca.utilidades.MapaEnteroEntero;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Artistas, canciones y géneros más escuchados de la plataforma, mantenidos
+ * en memoria fija a medida que se observan las reproducciones.
+ * <p>
+ * Cada dimensión tiene un {@link ResumenSpaceSaving}, que elige los más
+ * escuchados con un error acotado por {@code total / contadores}, y un
+ * {@link ResumenCountMin}, que ajusta la cota superior de cada conteo. La
+ * memoria de los resúmenes no depende del tamaño del catálogo ni del número
+ * de reproducciones.
+ * <p>
+ * Las reproducciones llegan por varios caminos (eventos, consultas al
+ * Servidor de Reproducciones y el recorrido inicial del historial) y pueden
+ * repetirse; para contar cada una una sola vez se guarda, por usuario, la
+ * mayor secuencia ya contada (12 bytes por usuario, aparte de los
+ * resúmenes). Los eventos y las consultas entregan las reproducciones de
+ * cada usuario en orden, pero el recorrido inicial avanza por la secuencia
+ * global: mientras dura, las reproducciones hasta la mayor secuencia del
+ * listado las cuenta solo el recorrido y las demás solo los otros caminos.
+ * <p>
+ * Las secuencias vuelven a empezar cada vez que arranca el Servidor de
+ * Reproducciones, así que se guardan junto con la época del servidor (que
+ * este envía en cada respuesta) y se descartan cuando la época cambia.
+ * <p>
+ * Los resúmenes son combinables: cada instancia cuenta las reproducciones de
+ * sus usuarios y los de todas se combinan con
+ * {@link #consultar(int, List)}. Se guardan en disco periódicamente y al
+ * apagar el servidor, junto con las secuencias, y se restauran al arrancar
+ * sin volver a recorrer el historial.
+ */
+public final class MasEscuchadosPlataforma {
+
+    public static final int CONTADORES_POR_DEFECTO = 1000;
+    public static final int ANCHO_POR_DEFECTO = 4096;
+    public static final int PROFUNDIDAD_POR_DEFECTO = 4;
+
+    /**
+     * Cabecera del formato: "MASE" y versión.
+     */
+    private static final int MAGIA = 0x4D415345;
+    private static final int VERSION_FORMATO = 2;
+
+    /**
+     * Reproducciones que se guardan, como mucho, mientras el recorrido inicial
+     * no conoce aún la mayor secuencia del listado.
+     */
+    private static final int MAXIMO_PENDIENTES = 100_000;
+
+    private final Supplier<IndiceCatalogo> catalogo;
+
+    /**
+     * Archivo en el que se guardan los resúmenes; {@code null} si no se
+     * guardan.
+     */
+    private final Path archivo;
+    private final long intervaloMs;
+
+    /**
+     * Resúmenes y secuencias contadas; todos los accesos se sincronizan
+     * sobre {@code this}.
+     */
+    private Resumenes resumenes;
+    private final MapaEnteroEntero ranuraPorUsuario = new MapaEnteroEntero(1024);
+    private long[] secuencias = new long[1024];
+    private int numeroUsuarios;
+
+    /**
+     * Época del Servidor de Reproducciones a la que corresponden las
+     * secuencias, o {@code null} si aún no se conoce.
+     */
+    private String epoca;
+
+    /**
+     * Cliente del Servidor de Reproducciones, del que se toma su época;
+     * {@code null} hasta {@link #iniciar}.
+     */
+    private ComunicacionServidorReproducciones reproducciones;
+
+    /**
+     * Estado del recorrido inicial: si está en curso, la mayor secuencia de
+     * su listado ({@link ComunicacionServidorReproducciones#SIN_ULTIMA_SECUENCIA}
+     * mientras no se conoce), la mayor que ha contado y las reproducciones
+     * observadas por otros caminos antes de conocer la del listado.
+     */
+    private boolean recorriendo;
+    private long marcaRecorrido = ComunicacionServidorReproducciones.SIN_ULTIMA_SECUENCIA;
+    private long mayorRecorrida = ComunicacionServidorReproducciones.SIN_ULTIMA_SECUENCIA;
+    private final List<ReproduccionesDTOEntrada> pendientes = new ArrayList<>();
+
+    /**
+     * Indica si los resúmenes se restauraron del archivo, en cuyo caso no se
+     * recorre el historial al arrancar.
+     */
+    private final boolean restaurado;
+
+    private final ExecutorService ejecutorArranque;
+    private ScheduledExecutorService planificador;
+
+    private final LongAdder observadas;
+    private final LongAdder duplicadas;
+    private final LongAdder descartadas;
+    private final LongAdder errores;
+    private final HistogramaLatencias latenciaConsulta;
+
+    /**
+     * @param catalogo    devuelve el catálogo con el que se resuelven el
+     *                    artista y el género de cada título.
+     * @param contadores  claves vigiladas por cada resumen Space-Saving.
+     * @param ancho       contadores por fila de cada resumen Count-Min.
+     * @param profundidad filas de cada resumen Count-Min.
+     * @param archivo     archivo de los resúmenes, o {@code null}.
+     * @param intervaloMs intervalo de escritura del archivo; si no es
+     *                    positivo, solo se escribe al apagar.
+     */
+    public MasEscuchadosPlataforma(Supplier<IndiceCatalogo> catalogo, int contadores, int ancho, int profundidad,
+                                   Path archivo, long intervaloMs) {
+        this.catalogo = catalogo;
+        this.archivo = archivo;
+        this.intervaloMs = intervaloMs;
+        this.resumenes = new Resumenes(contadores, ancho, profundidad);
+        this.restaurado = archivo != null && restaurar(archivo, contadores, ancho, profundidad);
+        this.ejecutorArranque = Executors.newSingleThreadExecutor(new FabricaHilosDemonio("mas-escuchados-arranque"));
+
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.observadas = metricas.contador("masEscuchados.observadas");
+        this.duplicadas = metricas.contador("masEscuchados.duplicadas");
+        this.descartadas = metricas.contador("masEscuchados.descartadas");
+        this.errores = metricas.contador("masEscuchados.errores");
+        this.latenciaConsulta = metricas.latencias("masEscuchados.consulta");
+        metricas.registrarIndicador("masEscuchados.memoria.bytes", this::getMemoriaEstimada);
+    }
+
+    /**
+     * Crea el componente según las propiedades
+     * {@code preferencias.masEscuchados.*}.
+     *
+     * @param catalogo devuelve el catálogo vigente.
+     * @return el componente, o {@code null} si está desactivado.
+     */
+    public static MasEscuchadosPlataforma desdeConfiguracion(Supplier<IndiceCatalogo> catalogo) {
+        if (!LectorPropiedadesConfig.getBoolean("preferencias.masEscuchados.activos", true)) {
+            return null;
+        }
+        String archivo = LectorPropiedadesConfig.get("preferencias.masEscuchados.archivo");
+        return new MasEscuchadosPlataforma(catalogo,
+                LectorPropiedadesConfig.getInt("preferencias.masEscuchados.contadores", CONTADORES_POR_DEFECTO),
+                LectorPropiedadesConfig.getInt("preferencias.masEscuchados.ancho", ANCHO_POR_DEFECTO),
+                LectorPropiedadesConfig.getInt("preferencias.masEscuchados.profundidad", PROFUNDIDAD_POR_DEFECTO),
+                archivo == null || archivo.isBlank() ? null : Paths.get(archivo.trim()),
+                LectorPropiedadesConfig.getLong("preferencias.masEscuchados.intervalo.ms", 300_000L));
+    }
+
+    /**
+     * Arranca la escritura periódica del archivo y, si los resúmenes no se
+     * restauraron de él, recorre en segundo plano el historial de los
+     * usuarios propios.
+     * <p>
+     * El recorrido cuenta todas las reproducciones hasta la mayor secuencia
+     * de su listado, que el servidor envía al empezar a responder. De las
+     * observadas mientras tanto por otros caminos solo se cuentan las
+     * posteriores; las que llegan antes de conocerla esperan a conocerla. Si
+     * el servidor no la envía, es la mayor secuencia que el recorrido contó.
+     *
+     * @param reproducciones el cliente del Servidor de Reproducciones, del que
+     *                       se toma también su época.
+     * @param propio         indica si un usuario pertenece a esta instancia.
+     * @param arranque       si se recorre el historial.
+     */
+    public void iniciar(ComunicacionServidorReproducciones reproducciones, Predicate<Integer> propio, boolean arranque) {
+        synchronized (this) {
+            this.reproducciones = reproducciones;
+            this.recorriendo = !this.restaurado && arranque;
+        }
+        if (this.archivo != null) {
+            if (this.intervaloMs > 0) {
+                this.planificador = Executors.newSingleThreadScheduledExecutor(new FabricaHilosDemonio("mas-escuchados-guardado"));
+                this.planificador.scheduleWithFixedDelay(this::guardar, this.intervaloMs, this.intervaloMs, TimeUnit.MILLISECONDS);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(this::guardar, "mas-escuchados-apagado"));
+        }
+        if (this.restaurado || !arranque) {
+            return;
+        }
+        this.ejecutorArranque.execute(() -> {
+            long inicio = System.nanoTime();
+            IndiceCatalogo indice = null;
+            try {
+                IndiceCatalogo catalogoRecorrido = this.catalogo.get();
+                indice = catalogoRecorrido;
+                long recorridas = reproducciones.recorrerTodasLasReproducciones(
+                        ultimaSecuencia -> fijarMarcaRecorrido(ultimaSecuencia, catalogoRecorrido),
+                        reproduccion -> {
+                            if (reproduccion.getIdUsuario() != null && propio.test(reproduccion.getIdUsuario())) {
+                                synchronized (this) {
+                                    validarEpoca();
+                                    contar(reproduccion, catalogoRecorrido, true);
+                                }
+                            }
+                        });
+                System.out.println("Resumenes de lo mas escuchado construidos con " + recorridas + " reproducciones en "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+            } catch (RuntimeException e) {
+                this.errores.increment();
+                System.err.println("ERROR al recorrer el historial para lo mas escuchado: " + e.getMessage());
+            } finally {
+                terminarRecorrido(indice);
+            }
+        });
+    }
+
+    /**
+     * Cuenta una reproducción si no se había contado ya.
+     *
+     * @param reproduccion la reproducción observada.
+     */
+    public void observar(ReproduccionesDTOEntrada reproduccion) {
+        IndiceCatalogo indice = catalogoSeguro();
+        synchronized (this) {
+            validarEpoca();
+            observarConCatalogo(reproduccion, indice);
+        }
+    }
+
+    /**
+     * Cuenta las reproducciones que no se habían contado ya, por ejemplo las
+     * de una respuesta del Servidor de Reproducciones.
+     *
+     * @param reproducciones las reproducciones observadas.
+     */
+    public void observar(List<ReproduccionesDTOEntrada> reproducciones) {
+        if (reproducciones.isEmpty()) {
+            return;
+        }
+        IndiceCatalogo indice = catalogoSeguro();
+        synchronized (this) {
+            validarEpoca();
+            for (ReproduccionesDTOEntrada reproduccion : reproducciones) {
+                observarConCatalogo(reproduccion, indice);
+            }
+        }
+    }
+
+    /**
+     * Devuelve lo más escuchado según los resúmenes de esta instancia
+     * combinados con los de otras.
+     *
+     * @param limite  elementos de cada lista.
+     * @param ajenos  resúmenes de otras instancias, escritos con
+     *                {@link #exportar()}.
+     * @return lo más escuchado, con las cotas de cada conteo.
+     * @throws IOException si algún resumen ajeno no es válido o no es
+     *                     combinable con los propios.
+     */
+    public MasEscuchadosDTORespuesta consultar(int limite, List<byte[]> ajenos) throws IOException {
+        long inicio = System.nanoTime();
+        Resumenes combinados;
+        synchronized (this) {
+            combinados = this.resumenes.copiar();
+        }
+        for (byte[] ajeno : ajenos) {
+            DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(ajeno));
+            try {
+                leerCabecera(entrada);
+                combinados = combinados.combinar(Resumenes.leer(entrada));
+            } catch (EOFException e) {
+                throw new IOException("resumen incompleto de " + ajeno.length + " bytes", e);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        MasEscuchadosDTORespuesta respuesta = new MasEscuchadosDTORespuesta();
+        respuesta.setTotalReproducciones(combinados.canciones.getTotal());
+        respuesta.setInstancias(1 + ajenos.size());
+        respuesta.setErrorMaximo(combinados.canciones.getTotal() / combinados.canciones.getCapacidad());
+        respuesta.setArtistas(elementos(combinados.artistas, combinados.frecuenciaArtistas, limite));
+        respuesta.setCanciones(elementos(combinados.canciones, combinados.frecuenciaCanciones, limite));
+        respuesta.setGeneros(elementos(combinados.generos, combinados.frecuenciaGeneros, limite));
+        this.latenciaConsulta.registrarDesde(inicio);
+        return respuesta;
+    }
+
+    /**
+     * @return los resúmenes de esta instancia, sin las secuencias, para
+     *         combinarlos en otra.
+     */
+    public byte[] exportar() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            synchronized (this) {
+                escribir(new DataOutputStream(bytes), false);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudieron exportar los resumenes", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Escribe los resúmenes y las secuencias en el archivo, a través de un
+     * temporal del mismo directorio que luego se mueve sobre él.
+     */
+    public void guardar() {
+        if (this.archivo == null) {
+            return;
+        }
+        byte[] contenido;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            synchronized (this) {
+                escribir(new DataOutputStream(bytes), true);
+            }
+            contenido = bytes.toByteArray();
+            Path directorio = this.archivo.toAbsolutePath().getParent();
+            Path temporal = Files.createTempFile(directorio, "mas-escuchados", ".tmp");
+            try {
+                try (OutputStream salida = new BufferedOutputStream(Files.newOutputStream(temporal))) {
+                    salida.write(contenido);
+                }
+                Files.move(temporal, this.archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+        } catch (IOException | RuntimeException e) {
+            this.errores.increment();
+            System.err.println("ERROR al guardar los resumenes de lo mas escuchado en " + this.archivo + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return los bytes aproximados que ocupan los resúmenes y las
+     *         secuencias por usuario.
+     */
+    public synchronized long getMemoriaEstimada() {
+        return this.resumenes.getMemoriaEstimada() + 8L * this.secuencias.length
+                + 8L * this.ranuraPorUsuario.capacidad();
+    }
+
+    /**
+     * Detiene el recorrido inicial y la escritura periódica.
+     */
+    public void cerrar() {
+        this.ejecutorArranque.shutdownNow();
+        if (this.planificador != null) {
+            this.planificador.shutdownNow();
+        }
+    }
+
+    private IndiceCatalogo catalogoSeguro() {
+        try {
+            return this.catalogo.get();
+        } catch (RuntimeException e) {
+            this.errores.increment();
+            System.err.println("ERROR al obtener el catalogo para lo mas escuchado: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Fija la mayor secuencia del listado del recorrido inicial y cuenta las
+     * reproducciones que esperaban a conocerla.
+     */
+    private synchronized void fijarMarcaRecorrido(long ultimaSecuencia, IndiceCatalogo indice) {
+        if (ultimaSecuencia == ComunicacionServidorReproducciones.SIN_ULTIMA_SECUENCIA) {
+            return;
+        }
+        this.marcaRecorrido = ultimaSecuencia;
+        contarPendientes(indice);
+    }
+
+    /**
+     * Da por terminado el recorrido inicial. Si el servidor no envió la mayor
+     * secuencia del listado, se toma la mayor que contó el recorrido: como
+     * avanza por la secuencia global, incluyó todas las anteriores de los
+     * usuarios propios.
+     */
+    private synchronized void terminarRecorrido(IndiceCatalogo indice) {
+        if (this.marcaRecorrido == ComunicacionServidorReproducciones.SIN_ULTIMA_SECUENCIA) {
+            this.marcaRecorrido = this.mayorRecorrida;
+        }
+        contarPendientes(indice != null ? indice : catalogoSeguro());
+        this.recorriendo = false;
+    }
+
+    private void contarPendientes(IndiceCatalogo indice) {
+        for (ReproduccionesDTOEntrada reproduccion : this.pendientes) {
+            observarConCatalogo(reproduccion, indice);
+        }
+        this.pendientes.clear();
+    }
+
+    /**
+     * Descarta las secuencias contadas si el Servidor de Reproducciones
+     * volvió a arrancar desde que se contaron, porque sus secuencias vuelven
+     * a empezar. Se invoca con {@code this} sincronizado.
+     */
+    private void validarEpoca() {
+        String actual = this.reproducciones != null ? this.reproducciones.getEpocaServidor() : null;
+        if (actual == null || actual.equals(this.epoca)) {
+            return;
+        }
+        if (this.epoca != null) {
+            Arrays.fill(this.secuencias, 0, this.numeroUsuarios, 0L);
+            System.out.println("El Servidor de Reproducciones volvio a arrancar; se descartan las secuencias de "
+                    + this.numeroUsuarios + " usuarios contadas para lo mas escuchado");
+        }
+        this.epoca = actual;
+    }
+
+    /**
+     * Cuenta una reproducción recibida por un camino distinto del recorrido
+     * inicial. Mientras este dura, las reproducciones hasta la mayor
+     * secuencia de su listado se dejan al recorrido, y las que llegan antes
+     * de conocerla esperan. Se invoca con {@code this} sincronizado.
+     */
+    private void observarConCatalogo(ReproduccionesDTOEntrada reproduccion, IndiceCatalogo indice) {
+        if (this.recorriendo) {
+            if (this.marcaRecorrido == ComunicacionServidorReproducciones.SIN_ULTIMA_SECUENCIA) {
+                if (this.pendientes.size() < MAXIMO_PENDIENTES) {
+                    this.pendientes.add(reproduccion);
+                } else {
+                    this.descartadas.increment();
+                }
+                return;
+            }
+            Long secuencia = reproduccion.getSecuencia();
+            if (secuencia != null && secuencia <= this.marcaRecorrido) {
+                this.duplicadas.increment();
+                return;
+            }
+        }
+        contar(reproduccion, indice, false);
+    }
+
+    /**
+     * Cuenta la reproducción en los seis resúmenes si su secuencia es mayor
+     * que la última contada del usuario, o si la trae el recorrido inicial y
+     * no pasa de la mayor secuencia de su listado. Sin catálogo o con un
+     * título que no está en él, se descarta sin avanzar la secuencia. Se
+     * invoca con {@code this} sincronizado.
+     */
+    private void contar(ReproduccionesDTOEntrada reproduccion, IndiceCatalogo indice, boolean delRecorrido) {
+        Integer idUsuario = reproduccion.getIdUsuario();
+        int cancion = indice != null ? indice.buscarCancion(reproduccion.getTitulo()) : IndiceCatalogo.NO_ENCONTRADA;
+        if (idUsuario == null || idUsuario < 0 || cancion == IndiceCatalogo.NO_ENCONTRADA) {
+            this.descartadas.increment();
+            return;
+        }
+        Long secuencia = reproduccion.getSecuencia();
+        if (secuencia != null) {
+            int ranura = ranuraDe(idUsuario);
+            boolean cubierta = delRecorrido && (this.marcaRecorrido == ComunicacionServidorReproducciones.SIN_ULTIMA_SECUENCIA
+                    || secuencia <= this.marcaRecorrido);
+            if (!cubierta && secuencia <= this.secuencias[ranura]) {
+                this.duplicadas.increment();
+                return;
+            }
+            this.secuencias[ranura] = Math.max(this.secuencias[ranura], secuencia);
+            if (delRecorrido) {
+                this.mayorRecorrida = Math.max(this.mayorRecorrida, secuencia);
+            }
+        }
+        this.resumenes.observar(indice.tituloDe(cancion), indice.nombreArtista(indice.artistaDe(cancion)),
+                indice.nombreGenero(indice.generoDe(cancion)));
+        this.observadas.increment();
+    }
+
+    private int ranuraDe(int idUsuario) {
+        int ranura = this.ranuraPorUsuario.obtener(idUsuario);
+        if (ranura == MapaEnteroEntero.AUSENTE) {
+            ranura = this.numeroUsuarios++;
+            if (ranura == this.secuencias.length) {
+                this.secuencias = Arrays.copyOf(this.secuencias, ranura * 2);
+            }
+            this.ranuraPorUsuario.sumar(idUsuario, ranura);
+        }
+        return ranura;
+    }
+
+    private static List<ElementoMasEscuchadoDTORespuesta> elementos(ResumenSpaceSaving resumen, ResumenCountMin frecuencias,
+                                                                  int limite) {
+        List<ElementoMasEscuchadoDTORespuesta> elementos = new ArrayList<>();
+        for (ResumenSpaceSaving.Estimacion estimacion : resumen.mayores(limite)) {
+            // Ambos conteos son cotas superiores: se usa la más ajustada.
+            long cota = Math.min(estimacion.conteo(), frecuencias.estimar(estimacion.clave()));
+            elementos.add(new ElementoMasEscuchadoDTORespuesta(estimacion.clave(), cota,
+                    estimacion.conteo() - estimacion.error()));
+        }
+        elementos.sort(Comparator.comparing(ElementoMasEscuchadoDTORespuesta::getReproducciones).reversed());
+        return elementos;
+    }
+
+    /**
+     * Escribe la cabecera, los resúmenes y, si se indica, la secuencia
+     * contada de cada usuario y la época del Servidor de Reproducciones a la
+     * que corresponden. Se invoca con {@code this} sincronizado.
+     */
+    private void escribir(DataOutputStream salida, boolean conSecuencias) throws IOException {
+        salida.writeInt(MAGIA);
+        salida.writeInt(VERSION_FORMATO);
+        this.resumenes.escribir(salida);
+        if (conSecuencias) {
+            salida.writeInt(this.ranuraPorUsuario.tamano());
+            for (int posicion = 0; posicion < this.ranuraPorUsuario.capacidad(); posicion++) {
+                int idUsuario = this.ranuraPorUsuario.claveEn(posicion);
+                if (idUsuario != MapaEnteroEntero.AUSENTE) {
+                    salida.writeInt(idUsuario);
+                    salida.writeLong(this.secuencias[this.ranuraPorUsuario.valorEn(posicion)]);
+                }
+            }
+            salida.writeUTF(this.epoca != null ? this.epoca : "");
+        }
+        salida.flush();
+    }
+
+    /**
+     * @return la versión del formato. La versión 1 no guarda la época.
+     */
+    private static int leerCabecera(DataInput entrada) throws IOException {
+        int magia = entrada.readInt();
+        int version = entrada.readInt();
+        if (magia != MAGIA || version < 1 || version > VERSION_FORMATO) {
+            throw new IOException("Formato de resumenes no reconocido (version " + version + ")");
+        }
+        return version;
+    }
+
+    /**
+     * Restaura los resúmenes y las secuencias del archivo si existe y tiene
+     * las mismas dimensiones que las configuradas.
+     *
+     * @return si se restauraron.
+     */
+    private boolean restaurar(Path origen, int contadores, int ancho, int profundidad) {
+        long inicio = System.nanoTime();
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(origen)))) {
+            int version = leerCabecera(entrada);
+            Resumenes leidos = Resumenes.leer(entrada);
+            if (!leidos.mismasDimensiones(this.resumenes)) {
+                System.out.println("Los resumenes de " + origen + " tienen otras dimensiones; se descartan");
+                return false;
+            }
+            int usuarios = entrada.readInt();
+            if (usuarios < 0) {
+                throw new IOException("Numero de usuarios invalido: " + usuarios);
+            }
+            int[] idsUsuario = new int[usuarios];
+            long[] leidas = new long[usuarios];
+            for (int i = 0; i < usuarios; i++) {
+                idsUsuario[i] = entrada.readInt();
+                leidas[i] = entrada.readLong();
+                if (idsUsuario[i] < 0) {
+                    throw new IOException("Usuario invalido en las secuencias: " + idsUsuario[i]);
+                }
+            }
+            String epocaLeida = version >= 2 ? entrada.readUTF() : "";
+            for (int i = 0; i < usuarios; i++) {
+                this.secuencias[ranuraDe(idsUsuario[i])] = leidas[i];
+            }
+            this.epoca = epocaLeida.isEmpty() ? null : epocaLeida;
+            this.resumenes = leidos;
+            System.out.println("Resumenes de lo mas escuchado restaurados de " + origen.toAbsolutePath() + " con "
+                    + leidos.canciones.getTotal() + " reproducciones de " + usuarios + " usuarios en "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ERROR al restaurar los resumenes de lo mas escuchado de " + origen + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Los seis resúmenes: un Space-Saving y un Count-Min por dimensión.
+     */
+    private static final class Resumenes {
+        final ResumenSpaceSaving artistas;
+        final ResumenSpaceSaving canciones;
+        final ResumenSpaceSaving generos;
+        final ResumenCountMin frecuenciaArtistas;
+        final ResumenCountMin frecuenciaCanciones;
+        final ResumenCountMin frecuenciaGeneros;
+
+        Resumenes(int contadores, int ancho, int profundidad) {
+            this(new ResumenSpaceSaving(contadores), new ResumenSpaceSaving(contadores), new ResumenSpaceSaving(contadores),
+                    new ResumenCountMin(ancho, profundidad), new ResumenCountMin(ancho, profundidad),
+                    new ResumenCountMin(ancho, profundidad));
+        }
+
+        Resumenes(ResumenSpaceSaving artistas, ResumenSpaceSaving canciones, ResumenSpaceSaving generos,
+                  ResumenCountMin frecuenciaArtistas, ResumenCountMin frecuenciaCanciones,
+                  ResumenCountMin frecuenciaGeneros) {
+            this.artistas = artistas;
+            this.canciones = canciones;
+            this.generos = generos;
+            this.frecuenciaArtistas = frecuenciaArtistas;
+            this.frecuenciaCanciones = frecuenciaCanciones;
+            this.frecuenciaGeneros = frecuenciaGeneros;
+        }
+
+        void observar(String titulo, String artista, String genero) {
+            this.canciones.observar(titulo, 1L);
+            this.artistas.observar(artista, 1L);
+            this.generos.observar(genero, 1L);
+            this.frecuenciaCanciones.observar(titulo, 1L);
+            this.frecuenciaArtistas.observar(artista, 1L);
+            this.frecuenciaGeneros.observar(genero, 1L);
+        }
+
+        Resumenes copiar() {
+            return new Resumenes(this.artistas.copiar(), this.canciones.copiar(), this.generos.copiar(),
+                    this.frecuenciaArtistas.copiar(), this.frecuenciaCanciones.copiar(), this.frecuenciaGeneros.copiar());
+        }
+
+        /**
+         * @return unos resúmenes nuevos con los de ambos flujos.
+         * @throws IllegalArgumentException si las dimensiones no coinciden,
+         *                                  en cuyo caso no valdría la cota
+         *                                  de error de estos.
+         */
+        Resumenes combinar(Resumenes otros) {
+            if (!mismasDimensiones(otros)) {
+                throw new IllegalArgumentException("Los resumenes de otra instancia tienen otras dimensiones: "
+                        + otros.canciones.getCapacidad() + " contadores y Count-Min de "
+                        + otros.frecuenciaCanciones.getProfundidad() + "x" + otros.frecuenciaCanciones.getAncho());
+            }
+            Resumenes combinados = new Resumenes(this.artistas.combinar(otros.artistas),
+                    this.canciones.combinar(otros.canciones), this.generos.combinar(otros.generos),
+                    this.frecuenciaArtistas.copiar(), this.frecuenciaCanciones.copiar(), this.frecuenciaGeneros.copiar());
+            combinados.frecuenciaArtistas.sumar(otros.frecuenciaArtistas);
+            combinados.frecuenciaCanciones.sumar(otros.frecuenciaCanciones);
+            combinados.frecuenciaGeneros.sumar(otros.frecuenciaGeneros);
+            return combinados;
+        }
+
+        boolean mismasDimensiones(Resumenes otros) {
+            return this.canciones.getCapacidad() == otros.canciones.getCapacidad()
+                    && this.frecuenciaCanciones.getAncho() == otros.frecuenciaCanciones.getAncho()
+                    && this.frecuenciaCanciones.getProfundidad() == otros.frecuenciaCanciones.getProfundidad();
+        }
+
+        long getMemoriaEstimada() {
+            return this.artistas.getMemoriaEstimada() + this.canciones.getMemoriaEstimada()
+                    + this.generos.getMemoriaEstimada() + this.frecuenciaArtistas.getMemoriaEstimada()
+                    + this.frecuenciaCanciones.getMemoriaEstimada() + this.frecuenciaGeneros.getMemoriaEstimada();
+        }
+
+        void escribir(DataOutput salida) throws IOException {
+            this.artistas.escribir(salida);
+            this.canciones.escribir(salida);
+            this.generos.escribir(salida);
+            this.frecuenciaArtistas.escribir(salida);
+            this.frecuenciaCanciones.escribir(salida);
+            this.frecuenciaGeneros.escribir(salida);
+        }
+
+        static Resumenes leer(DataInput entrada) throws IOException {
+            return new Resumenes(ResumenSpaceSaving.leer(entrada), ResumenSpaceSaving.leer(entrada),
+                    ResumenSpaceSaving.leer(entrada), ResumenCountMin.leer(entrada), ResumenCountMin.leer(entrada),
+                    ResumenCountMin.leer(entrada));
+        }
+    }
+}
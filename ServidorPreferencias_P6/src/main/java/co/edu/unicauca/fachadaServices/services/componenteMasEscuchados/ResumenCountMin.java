@@ -0,0 +1,156 @@
+package co.edu.unicauca.fachadaServices.services.componenteMasEscuchados;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Resumen Count-Min (Cormode y Muthukrishnan) de las frecuencias de un flujo
+ * de claves, en memoria fija.
+ * <p>
+ * Guarda {@code profundidad} filas de {@code ancho} contadores; cada clave
+ * suma en un contador por fila y su estimación es el menor de ellos. La
+ * estimación nunca es menor que el conteo real y, con probabilidad
+ * {@code 1 - e^-profundidad}, no lo supera en más de
+ * {@code (e / ancho) * total}.
+ * <p>
+ * Las posiciones se derivan de {@link String#hashCode()}, cuyo valor fija la
+ * especificación de Java, de modo que dos resúmenes con las mismas
+ * dimensiones son combinables aunque vengan de procesos distintos. No es
+ * seguro para hilos.
+ */
+public final class ResumenCountMin {
+
+    private final int ancho;
+    private final int profundidad;
+    private final long[] contadores;
+    private long total;
+
+    /**
+     * @param ancho       contadores por fila; se redondea a la siguiente
+     *                    potencia de dos.
+     * @param profundidad número de filas.
+     */
+    public ResumenCountMin(int ancho, int profundidad) {
+        this.ancho = Integer.highestOneBit(Math.max(2, ancho) * 2 - 1);
+        this.profundidad = Math.max(1, profundidad);
+        this.contadores = new long[this.ancho * this.profundidad];
+    }
+
+    /**
+     * Suma {@code peso} apariciones de la clave.
+     */
+    public void observar(String clave, long peso) {
+        this.total += peso;
+        int hash = clave.hashCode();
+        int h1 = mezclar(hash);
+        int h2 = mezclar(hash ^ 0x5BD1E995) | 1;
+        int mascara = this.ancho - 1;
+        for (int fila = 0; fila < this.profundidad; fila++) {
+            this.contadores[fila * this.ancho + ((h1 + fila * h2) & mascara)] += peso;
+        }
+    }
+
+    /**
+     * @return una cota superior del número de apariciones de la clave.
+     */
+    public long estimar(String clave) {
+        int hash = clave.hashCode();
+        int h1 = mezclar(hash);
+        int h2 = mezclar(hash ^ 0x5BD1E995) | 1;
+        int mascara = this.ancho - 1;
+        long minimo = Long.MAX_VALUE;
+        for (int fila = 0; fila < this.profundidad; fila++) {
+            minimo = Math.min(minimo, this.contadores[fila * this.ancho + ((h1 + fila * h2) & mascara)]);
+        }
+        return minimo;
+    }
+
+    /**
+     * Suma los contadores de otro resumen de las mismas dimensiones, como si
+     * se hubieran observado ambos flujos.
+     *
+     * @param otro el otro resumen; no se modifica.
+     * @throws IllegalArgumentException si las dimensiones no coinciden.
+     */
+    public void sumar(ResumenCountMin otro) {
+        if (otro.ancho != this.ancho || otro.profundidad != this.profundidad) {
+            throw new IllegalArgumentException("No se pueden combinar resumenes Count-Min de " + this.profundidad + "x"
+                    + this.ancho + " y " + otro.profundidad + "x" + otro.ancho);
+        }
+        for (int i = 0; i < this.contadores.length; i++) {
+            this.contadores[i] += otro.contadores[i];
+        }
+        this.total += otro.total;
+    }
+
+    /**
+     * @return una copia independiente de este resumen.
+     */
+    public ResumenCountMin copiar() {
+        ResumenCountMin copia = new ResumenCountMin(this.ancho, this.profundidad);
+        System.arraycopy(this.contadores, 0, copia.contadores, 0, this.contadores.length);
+        copia.total = this.total;
+        return copia;
+    }
+
+    public long getTotal() {
+        return this.total;
+    }
+
+    public int getAncho() {
+        return this.ancho;
+    }
+
+    public int getProfundidad() {
+        return this.profundidad;
+    }
+
+    /**
+     * @return los bytes que ocupan los contadores.
+     */
+    public long getMemoriaEstimada() {
+        return 8L * this.contadores.length;
+    }
+
+    /**
+     * Escribe el resumen: ancho, profundidad, total y contadores.
+     */
+    public void escribir(DataOutput salida) throws IOException {
+        salida.writeInt(this.ancho);
+        salida.writeInt(this.profundidad);
+        salida.writeLong(this.total);
+        for (long contador : this.contadores) {
+            salida.writeLong(contador);
+        }
+    }
+
+    /**
+     * Lee un resumen escrito con {@link #escribir(DataOutput)}.
+     *
+     * @throws IOException si los datos no son válidos.
+     */
+    public static ResumenCountMin leer(DataInput entrada) throws IOException {
+        int ancho = entrada.readInt();
+        int profundidad = entrada.readInt();
+        long total = entrada.readLong();
+        if (ancho < 2 || Integer.bitCount(ancho) != 1 || profundidad < 1 || (long) ancho * profundidad > (1 << 26)) {
+            throw new IOException("Resumen Count-Min invalido: " + profundidad + "x" + ancho);
+        }
+        ResumenCountMin resumen = new ResumenCountMin(ancho, profundidad);
+        for (int i = 0; i < resumen.contadores.length; i++) {
+            resumen.contadores[i] = entrada.readLong();
+        }
+        resumen.total = total;
+        return resumen;
+    }
+
+    private static int mezclar(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
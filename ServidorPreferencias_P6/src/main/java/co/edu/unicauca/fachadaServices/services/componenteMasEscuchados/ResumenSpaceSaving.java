@@ -0,0 +1,294 @@
+package co.edu.unicauca.fachadaServices.services.componenteMasEscuchados;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resumen Space-Saving (Metwally, Agrawal y El Abbadi) de los elementos más
+ * frecuentes de un flujo, en memoria fija.
+ * <p>
+ * Vigila como máximo {@code capacidad} claves, cada una con un conteo y un
+ * error. Una clave nueva con el resumen lleno reemplaza a la de menor conteo
+ * y hereda ese conteo como error. Para toda clave vigilada se cumple
+ * {@code conteo - error <= real <= conteo}, y el error nunca supera
+ * {@code total / capacidad}; toda clave no vigilada tiene un conteo real
+ * menor o igual al mínimo vigilado. Así, cualquier clave con más de
+ * {@code total / capacidad} apariciones está garantizada en el resumen.
+ * <p>
+ * Las claves se ordenan en un montículo de mínimos por conteo, de modo que
+ * cada observación cuesta O(log capacidad). No es seguro para hilos.
+ */
+public final class ResumenSpaceSaving {
+
+    /**
+     * Estimación de la frecuencia de una clave: su conteo real está en
+     * {@code [conteo - error, conteo]}.
+     */
+    public record Estimacion(String clave, long conteo, long error) {
+    }
+
+    private final int capacidad;
+    private final String[] claves;
+    private final long[] conteos;
+    private final long[] errores;
+
+    /**
+     * Montículo de mínimos de ranuras por conteo, y la posición de cada
+     * ranura en él.
+     */
+    private final int[] monticulo;
+    private final int[] posiciones;
+
+    private final Map<String, Integer> ranuraPorClave;
+    private int tamano;
+    private long total;
+
+    /**
+     * @param capacidad número de claves vigiladas.
+     */
+    public ResumenSpaceSaving(int capacidad) {
+        this.capacidad = Math.max(1, capacidad);
+        this.claves = new String[this.capacidad];
+        this.conteos = new long[this.capacidad];
+        this.errores = new long[this.capacidad];
+        this.monticulo = new int[this.capacidad];
+        this.posiciones = new int[this.capacidad];
+        this.ranuraPorClave = new HashMap<>(this.capacidad * 2);
+    }
+
+    /**
+     * Suma {@code peso} apariciones de la clave.
+     *
+     * @param clave la clave observada.
+     * @param peso  el número de apariciones; positivo.
+     */
+    public void observar(String clave, long peso) {
+        this.total += peso;
+        Integer ranura = this.ranuraPorClave.get(clave);
+        if (ranura != null) {
+            this.conteos[ranura] += peso;
+            hundir(this.posiciones[ranura]);
+            return;
+        }
+        if (this.tamano < this.capacidad) {
+            int nueva = this.tamano++;
+            this.claves[nueva] = clave;
+            this.conteos[nueva] = peso;
+            this.errores[nueva] = 0L;
+            this.monticulo[nueva] = nueva;
+            this.posiciones[nueva] = nueva;
+            this.ranuraPorClave.put(clave, nueva);
+            flotar(nueva);
+            return;
+        }
+        // Reemplaza la clave de menor conteo, que pasa a ser el error.
+        int minima = this.monticulo[0];
+        this.ranuraPorClave.remove(this.claves[minima]);
+        this.claves[minima] = clave;
+        this.errores[minima] = this.conteos[minima];
+        this.conteos[minima] += peso;
+        this.ranuraPorClave.put(clave, minima);
+        hundir(0);
+    }
+
+    /**
+     * @return las {@code limite} claves de mayor conteo, de mayor a menor; a
+     *         igual conteo, por orden alfabético.
+     */
+    public List<Estimacion> mayores(int limite) {
+        Integer[] ranuras = new Integer[this.tamano];
+        for (int i = 0; i < this.tamano; i++) {
+            ranuras[i] = i;
+        }
+        Arrays.sort(ranuras, Comparator.<Integer>comparingLong(r -> -this.conteos[r]).thenComparing(r -> this.claves[r]));
+        int numero = limite > 0 ? Math.min(limite, this.tamano) : this.tamano;
+        List<Estimacion> resultado = new ArrayList<>(numero);
+        for (int i = 0; i < numero; i++) {
+            int r = ranuras[i];
+            resultado.add(new Estimacion(this.claves[r], this.conteos[r], this.errores[r]));
+        }
+        return resultado;
+    }
+
+    /**
+     * @return la cota superior del conteo real de las claves no vigiladas: el
+     *         menor conteo si el resumen está lleno, o 0.
+     */
+    public long conteoMinimo() {
+        return this.tamano == this.capacidad ? this.conteos[this.monticulo[0]] : 0L;
+    }
+
+    public long getTotal() {
+        return this.total;
+    }
+
+    public int getCapacidad() {
+        return this.capacidad;
+    }
+
+    public int tamano() {
+        return this.tamano;
+    }
+
+    /**
+     * Combina este resumen con otro de un flujo disjunto, como si se hubieran
+     * observado ambos flujos (Agarwal et al., "Mergeable Summaries"). A cada
+     * clave que falta en un resumen lleno se le suma el mínimo de ese resumen
+     * como conteo y como error, y se conservan las {@code capacidad} de mayor
+     * conteo; las garantías se mantienen con el total combinado.
+     *
+     * @param otro el otro resumen; no se modifica.
+     * @return un resumen nuevo con la capacidad de este.
+     */
+    public ResumenSpaceSaving combinar(ResumenSpaceSaving otro) {
+        long minimoPropio = conteoMinimo();
+        long minimoOtro = otro.conteoMinimo();
+        Map<String, long[]> union = new HashMap<>((this.tamano + otro.tamano) * 2);
+        for (int r = 0; r < this.tamano; r++) {
+            union.put(this.claves[r], new long[]{this.conteos[r] + minimoOtro, this.errores[r] + minimoOtro});
+        }
+        for (int r = 0; r < otro.tamano; r++) {
+            long[] entrada = union.get(otro.claves[r]);
+            if (entrada == null) {
+                union.put(otro.claves[r], new long[]{otro.conteos[r] + minimoPropio, otro.errores[r] + minimoPropio});
+            } else {
+                // La clave está en ambos: se sustituye el mínimo supuesto del
+                // otro por su conteo y error reales.
+                entrada[0] += otro.conteos[r] - minimoOtro;
+                entrada[1] += otro.errores[r] - minimoOtro;
+            }
+        }
+        List<Map.Entry<String, long[]>> entradas = new ArrayList<>(union.entrySet());
+        entradas.sort(Comparator.<Map.Entry<String, long[]>>comparingLong(e -> -e.getValue()[0]).thenComparing(Map.Entry::getKey));
+        ResumenSpaceSaving combinado = new ResumenSpaceSaving(this.capacidad);
+        for (int i = 0; i < Math.min(this.capacidad, entradas.size()); i++) {
+            Map.Entry<String, long[]> entrada = entradas.get(i);
+            combinado.colocar(entrada.getKey(), entrada.getValue()[0], entrada.getValue()[1]);
+        }
+        combinado.total = this.total + otro.total;
+        return combinado;
+    }
+
+    /**
+     * @return una copia independiente de este resumen.
+     */
+    public ResumenSpaceSaving copiar() {
+        ResumenSpaceSaving copia = new ResumenSpaceSaving(this.capacidad);
+        for (int r = 0; r < this.tamano; r++) {
+            copia.colocar(this.claves[r], this.conteos[r], this.errores[r]);
+        }
+        copia.total = this.total;
+        return copia;
+    }
+
+    /**
+     * @return los bytes aproximados que ocupa el resumen.
+     */
+    public long getMemoriaEstimada() {
+        // Arreglos paralelos más una entrada del mapa por clave (sin contar
+        // las cadenas, que comparte el catálogo).
+        return this.capacidad * (8L + 8L + 8L + 4L + 4L + 48L);
+    }
+
+    /**
+     * Escribe el resumen: capacidad, total, número de claves y, por clave,
+     * la clave, su conteo y su error.
+     */
+    public void escribir(DataOutput salida) throws IOException {
+        salida.writeInt(this.capacidad);
+        salida.writeLong(this.total);
+        salida.writeInt(this.tamano);
+        for (int r = 0; r < this.tamano; r++) {
+            salida.writeUTF(this.claves[r]);
+            salida.writeLong(this.conteos[r]);
+            salida.writeLong(this.errores[r]);
+        }
+    }
+
+    /**
+     * Lee un resumen escrito con {@link #escribir(DataOutput)}.
+     *
+     * @throws IOException si los datos no son válidos.
+     */
+    public static ResumenSpaceSaving leer(DataInput entrada) throws IOException {
+        int capacidad = entrada.readInt();
+        long total = entrada.readLong();
+        int tamano = entrada.readInt();
+        if (capacidad <= 0 || tamano < 0 || tamano > capacidad || total < 0) {
+            throw new IOException("Resumen Space-Saving invalido: capacidad " + capacidad + ", claves " + tamano);
+        }
+        ResumenSpaceSaving resumen = new ResumenSpaceSaving(capacidad);
+        for (int i = 0; i < tamano; i++) {
+            String clave = entrada.readUTF();
+            long conteo = entrada.readLong();
+            long error = entrada.readLong();
+            if (error < 0 || error > conteo || resumen.ranuraPorClave.containsKey(clave)) {
+                throw new IOException("Entrada invalida en el resumen Space-Saving: " + clave);
+            }
+            resumen.colocar(clave, conteo, error);
+        }
+        resumen.total = total;
+        return resumen;
+    }
+
+    /**
+     * Agrega una clave que no está en el resumen, con el resumen sin llenar.
+     */
+    private void colocar(String clave, long conteo, long error) {
+        int nueva = this.tamano++;
+        this.claves[nueva] = clave;
+        this.conteos[nueva] = conteo;
+        this.errores[nueva] = error;
+        this.monticulo[nueva] = nueva;
+        this.posiciones[nueva] = nueva;
+        this.ranuraPorClave.put(clave, nueva);
+        flotar(nueva);
+    }
+
+    private void flotar(int posicion) {
+        int ranura = this.monticulo[posicion];
+        long conteo = this.conteos[ranura];
+        while (posicion > 0) {
+            int padre = (posicion - 1) >>> 1;
+            int ranuraPadre = this.monticulo[padre];
+            if (this.conteos[ranuraPadre] <= conteo) {
+                break;
+            }
+            this.monticulo[posicion] = ranuraPadre;
+            this.posiciones[ranuraPadre] = posicion;
+            posicion = padre;
+        }
+        this.monticulo[posicion] = ranura;
+        this.posiciones[ranura] = posicion;
+    }
+
+    private void hundir(int posicion) {
+        int ranura = this.monticulo[posicion];
+        long conteo = this.conteos[ranura];
+        while (true) {
+            int hijo = 2 * posicion + 1;
+            if (hijo >= this.tamano) {
+                break;
+            }
+            if (hijo + 1 < this.tamano && this.conteos[this.monticulo[hijo + 1]] < this.conteos[this.monticulo[hijo]]) {
+                hijo++;
+            }
+            int ranuraHijo = this.monticulo[hijo];
+            if (this.conteos[ranuraHijo] >= conteo) {
+                break;
+            }
+            this.monticulo[posicion] = ranuraHijo;
+            this.posiciones[ranuraHijo] = posicion;
+            posicion = hijo;
+        }
+        this.monticulo[posicion] = ranura;
+        this.posiciones[ranura] = posicion;
+    }
+}
@@ -0,0 +1,688 @@
+package co.edu.unicauca.fachadaServices.services.componenteRecomendaciones;
+
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.fachadaServices.DTO.RecomendacionCancionDTORespuesta;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AgregadoUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.SeleccionMayores;
+import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorReproducciones.ComunicacionServidorReproducciones;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import co.edu.unicauca.utilidades.FabricaHilosDemonio;
+import co.edu.unicauca.utilidades.MapaEnteroEntero;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Recomendaciones de canciones por coocurrencia ("canciones que te podrían
+ * gustar"), a partir de las canciones que escuchan juntas los usuarios.
+ * <p>
+ * Guarda las canciones distintas de cada usuario (como máximo
+ * {@code maximoPorUsuario}, las primeras que escuchó) y una
+ * {@link MatrizCoocurrencias} construida con ellas. Para recomendar, suma
+ * para cada canción candidata la similitud coseno
+ * {@code c(i, j) / sqrt(oyentes(i) · oyentes(j))} con cada canción {@code i}
+ * del usuario, sobre un acumulador denso por hilo, y devuelve las de mayor
+ * puntaje que el usuario aún no escuchó. El coste de una consulta depende
+ * solo de las canciones del usuario y de los vecinos por canción, no del
+ * número de reproducciones.
+ * <p>
+ * La matriz es inmutable; las canciones nuevas de un usuario
+ * ({@link #sincronizarUsuario(Integer, AgregadoUsuario)}) se suman a una capa
+ * de deltas por fila que las consultas combinan con la matriz. Cuando los
+ * deltas superan {@code compactar.deltas} entradas, o cambia la versión del
+ * catálogo, la matriz se reconstruye en segundo plano con las canciones de
+ * todos los usuarios; mientras tanto las consultas usan la anterior, y las
+ * canciones que llegan durante la reconstrucción se vuelven a aplicar sobre
+ * la nueva al instalarla.
+ * <p>
+ * Es seguro para hilos: las consultas comparten un candado de lectura y las
+ * actualizaciones toman el de escritura.
+ */
+public final class IndiceRecomendaciones {
+
+    public static final int VECINOS_POR_DEFECTO = 50;
+    public static final int MAXIMO_POR_USUARIO_POR_DEFECTO = 500;
+    public static final int COMPACTAR_DELTAS_POR_DEFECTO = 200_000;
+
+    private final int vecinosPorCancion;
+    private final int maximoPorUsuario;
+    private final int umbralCompactacion;
+
+    /**
+     * Pool en el que se calculan en paralelo las filas de la matriz.
+     */
+    private final ForkJoinPool poolConstruccion;
+
+    /**
+     * Hilo que orquesta las construcciones, una a la vez.
+     */
+    private final ExecutorService ejecutorConstruccion;
+
+    private final AtomicBoolean construyendo = new AtomicBoolean();
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+    /**
+     * Catálogo con cuyos códigos se construyó la matriz; {@code null} hasta
+     * la primera construcción.
+     */
+    private volatile IndiceCatalogo catalogo;
+
+    private MatrizCoocurrencias matriz = MatrizCoocurrencias.vacia();
+
+    /**
+     * Oyentes de cada canción, incluidos los sumados desde la construcción.
+     */
+    private int[] oyentes = new int[0];
+
+    /**
+     * Coocurrencias sumadas desde la construcción, por fila; {@code null} en
+     * las filas sin cambios.
+     */
+    private MapaEnteroEntero[] deltas = new MapaEnteroEntero[0];
+
+    private volatile int entradasDelta;
+
+    private Map<Integer, CancionesUsuario> usuarios = new HashMap<>();
+
+    /**
+     * Usuarios que cambiaron durante la reconstrucción en curso, o
+     * {@code null} si no hay ninguna.
+     */
+    private Set<Integer> modificadosDuranteConstruccion;
+
+    private final ThreadLocal<AcumuladorPuntajes> acumuladores = ThreadLocal.withInitial(AcumuladorPuntajes::new);
+
+    private final HistogramaLatencias latenciaConsulta;
+    private final HistogramaLatencias latenciaConstruccion;
+    private final LongAdder incrementales;
+    private final LongAdder construcciones;
+    private final LongAdder errores;
+
+    /**
+     * @param vecinosPorCancion vecinos que se conservan por canción en la
+     *                          matriz.
+     * @param maximoPorUsuario  canciones distintas que se consideran por
+     *                          usuario.
+     * @param compactarDeltas   entradas de deltas a partir de las cuales se
+     *                          reconstruye la matriz.
+     * @param paralelismo       hilos que calculan la matriz.
+     */
+    public IndiceRecomendaciones(int vecinosPorCancion, int maximoPorUsuario, int compactarDeltas, int paralelismo) {
+        this.vecinosPorCancion = Math.max(1, vecinosPorCancion);
+        this.maximoPorUsuario = Math.max(1, maximoPorUsuario);
+        this.umbralCompactacion = Math.max(1, compactarDeltas);
+        this.poolConstruccion = new ForkJoinPool(Math.max(1, paralelismo));
+        this.ejecutorConstruccion = Executors.newSingleThreadExecutor(new FabricaHilosDemonio("recomendaciones-construccion"));
+
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.latenciaConsulta = metricas.latencias("recomendaciones.consulta");
+        this.latenciaConstruccion = metricas.latencias("recomendaciones.construccion");
+        this.incrementales = metricas.contador("recomendaciones.incrementales");
+        this.construcciones = metricas.contador("recomendaciones.construcciones");
+        this.errores = metricas.contador("recomendaciones.errores");
+        metricas.registrarIndicador("recomendaciones.entradas", this::getNumeroEntradas);
+        metricas.registrarIndicador("recomendaciones.deltas", () -> this.entradasDelta);
+    }
+
+    /**
+     * Crea el índice según las propiedades {@code preferencias.recomendaciones.*}.
+     *
+     * @return el índice, o {@code null} si las recomendaciones están
+     *         desactivadas.
+     */
+    public static IndiceRecomendaciones desdeConfiguracion() {
+        if (!LectorPropiedadesConfig.getBoolean("preferencias.recomendaciones.activas", true)) {
+            return null;
+        }
+        return new IndiceRecomendaciones(
+                LectorPropiedadesConfig.getInt("preferencias.recomendaciones.vecinos", VECINOS_POR_DEFECTO),
+                LectorPropiedadesConfig.getInt("preferencias.recomendaciones.maximoPorUsuario", MAXIMO_POR_USUARIO_POR_DEFECTO),
+                LectorPropiedadesConfig.getInt("preferencias.recomendaciones.compactar.deltas", COMPACTAR_DELTAS_POR_DEFECTO),
+                LectorPropiedadesConfig.getInt("preferencias.recomendaciones.paralelismo", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Construye la matriz en segundo plano, si no está construida ni en
+     * construcción, con el catálogo indicado y el historial de todos los
+     * usuarios; si el índice ya existe y el catálogo cambió de versión, la
+     * reconstruye con los nuevos códigos.
+     *
+     * @param catalogo       proveedor del catálogo vigente.
+     * @param reproducciones el cliente del Servidor de Reproducciones, para
+     *                       recorrer el historial la primera vez.
+     */
+    public void asegurarVigente(Supplier<IndiceCatalogo> catalogo, ComunicacionServidorReproducciones reproducciones) {
+        if (!this.construyendo.compareAndSet(false, true)) {
+            return;
+        }
+        this.ejecutorConstruccion.execute(() -> {
+            try {
+                IndiceCatalogo destino = catalogo.get();
+                IndiceCatalogo actual = this.catalogo;
+                if (actual == null) {
+                    construirDesdeHistorial(destino, reproducciones);
+                } else if (actual.getVersion() != destino.getVersion()) {
+                    reconstruir(destino);
+                }
+            } catch (RuntimeException e) {
+                this.errores.increment();
+                System.err.println("ERROR al construir el indice de recomendaciones: " + e.getMessage());
+            } finally {
+                this.construyendo.set(false);
+            }
+        });
+    }
+
+    /**
+     * Indica si hay que llamar a {@link #asegurarVigente} con este catálogo:
+     * el índice no está construido o usa otra versión.
+     */
+    public boolean necesitaConstruccion(IndiceCatalogo vigente) {
+        IndiceCatalogo actual = this.catalogo;
+        return actual == null || actual.getVersion() != vigente.getVersion();
+    }
+
+    /**
+     * Recorre el historial de todos los usuarios y construye la matriz con
+     * sus canciones distintas, en el orden en que las escucharon.
+     */
+    private void construirDesdeHistorial(IndiceCatalogo destino, ComunicacionServidorReproducciones reproducciones) {
+        long inicio = System.nanoTime();
+        Map<Integer, Integer> densos = new HashMap<>();
+        ListaEnteros usuariosPares = new ListaEnteros();
+        ListaEnteros cancionesPares = new ListaEnteros();
+        long recorridas = reproducciones.recorrerTodasLasReproducciones(reproduccion -> {
+            if (reproduccion.getIdUsuario() == null) {
+                return;
+            }
+            int cancion = destino.buscarCancion(reproduccion.getTitulo());
+            if (cancion == IndiceCatalogo.NO_ENCONTRADA) {
+                return;
+            }
+            Integer denso = densos.get(reproduccion.getIdUsuario());
+            if (denso == null) {
+                denso = densos.size();
+                densos.put(reproduccion.getIdUsuario(), denso);
+            }
+            usuariosPares.agregar(denso);
+            cancionesPares.agregar(cancion);
+        });
+
+        // Agrupa las reproducciones por usuario conservando su orden.
+        int numeroUsuarios = densos.size();
+        int[] ids = new int[numeroUsuarios];
+        densos.forEach((id, denso) -> ids[denso] = id);
+        int[] inicioUsuario = new int[numeroUsuarios + 1];
+        for (int p = 0; p < usuariosPares.tamano; p++) {
+            inicioUsuario[usuariosPares.valores[p] + 1]++;
+        }
+        for (int u = 0; u < numeroUsuarios; u++) {
+            inicioUsuario[u + 1] += inicioUsuario[u];
+        }
+        int[] agrupadas = new int[usuariosPares.tamano];
+        int[] siguiente = Arrays.copyOf(inicioUsuario, numeroUsuarios);
+        for (int p = 0; p < usuariosPares.tamano; p++) {
+            agrupadas[siguiente[usuariosPares.valores[p]]++] = cancionesPares.valores[p];
+        }
+
+        // Canciones distintas de cada usuario, hasta el máximo.
+        int[] marca = new int[destino.numeroCanciones()];
+        Arrays.fill(marca, -1);
+        int[] distintas = new int[this.maximoPorUsuario];
+        Map<Integer, int[]> conjuntos = new HashMap<>(Math.max(16, numeroUsuarios * 2));
+        for (int u = 0; u < numeroUsuarios; u++) {
+            int numero = 0;
+            for (int p = inicioUsuario[u]; p < inicioUsuario[u + 1] && numero < distintas.length; p++) {
+                int cancion = agrupadas[p];
+                if (marca[cancion] != u) {
+                    marca[cancion] = u;
+                    distintas[numero++] = cancion;
+                }
+            }
+            conjuntos.put(ids[u], Arrays.copyOf(distintas, numero));
+        }
+
+        construirEInstalar(destino, conjuntos);
+        this.latenciaConstruccion.registrarDesde(inicio);
+        System.out.println("Indice de recomendaciones construido con " + recorridas + " reproducciones de "
+                + numeroUsuarios + " usuarios: " + getNumeroEntradas() + " coocurrencias en "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+    }
+
+    /**
+     * Reconstruye la matriz con las canciones actuales de todos los usuarios,
+     * traducidas a los códigos del catálogo indicado.
+     */
+    private void reconstruir(IndiceCatalogo destino) {
+        long inicio = System.nanoTime();
+        IndiceCatalogo origen;
+        Map<Integer, int[]> conjuntos = new HashMap<>();
+        this.candado.writeLock().lock();
+        try {
+            origen = this.catalogo;
+            for (Map.Entry<Integer, CancionesUsuario> entrada : this.usuarios.entrySet()) {
+                CancionesUsuario canciones = entrada.getValue();
+                conjuntos.put(entrada.getKey(), Arrays.copyOf(canciones.canciones, canciones.numero));
+            }
+            this.modificadosDuranteConstruccion = new HashSet<>();
+        } finally {
+            this.candado.writeLock().unlock();
+        }
+        try {
+            if (origen != destino) {
+                for (Map.Entry<Integer, int[]> entrada : conjuntos.entrySet()) {
+                    entrada.setValue(traducir(entrada.getValue(), origen, destino));
+                }
+            }
+            construirEInstalar(destino, conjuntos);
+        } catch (RuntimeException e) {
+            this.candado.writeLock().lock();
+            try {
+                this.modificadosDuranteConstruccion = null;
+            } finally {
+                this.candado.writeLock().unlock();
+            }
+            throw e;
+        }
+        this.latenciaConstruccion.registrarDesde(inicio);
+    }
+
+    /**
+     * Construye la matriz fuera del candado y la instala junto con las
+     * canciones de cada usuario. Los usuarios que cambiaron mientras tanto
+     * conservan sus canciones nuevas, que se suman como deltas.
+     * <p>
+     * Se invoca desde el hilo de construcción; es pública para poder
+     * construir el índice con datos ya agrupados, sin recorrer el historial.
+     *
+     * @param destino   el catálogo con cuyos códigos están las canciones.
+     * @param conjuntos las canciones distintas de cada usuario, en el orden
+     *                  en que las escuchó.
+     */
+    public void construirEInstalar(IndiceCatalogo destino, Map<Integer, int[]> conjuntos) {
+        int total = 0;
+        for (int[] canciones : conjuntos.values()) {
+            total += canciones.length;
+        }
+        int[] inicioUsuario = new int[conjuntos.size() + 1];
+        int[] cancionesUsuario = new int[total];
+        int usuario = 0;
+        for (int[] canciones : conjuntos.values()) {
+            System.arraycopy(canciones, 0, cancionesUsuario, inicioUsuario[usuario], canciones.length);
+            inicioUsuario[usuario + 1] = inicioUsuario[usuario] + canciones.length;
+            usuario++;
+        }
+        MatrizCoocurrencias nueva = MatrizCoocurrencias.construir(destino.numeroCanciones(), inicioUsuario,
+                cancionesUsuario, this.vecinosPorCancion, this.poolConstruccion);
+
+        this.candado.writeLock().lock();
+        try {
+            IndiceCatalogo anterior = this.catalogo;
+            Map<Integer, CancionesUsuario> usuariosAnteriores = this.usuarios;
+            Map<Integer, CancionesUsuario> nuevos = new HashMap<>(Math.max(16, conjuntos.size() * 2));
+            for (Map.Entry<Integer, int[]> entrada : conjuntos.entrySet()) {
+                CancionesUsuario canciones = new CancionesUsuario(entrada.getValue());
+                canciones.continuarDesde(usuariosAnteriores.get(entrada.getKey()));
+                nuevos.put(entrada.getKey(), canciones);
+            }
+            this.matriz = nueva;
+            this.oyentes = nueva.copiarOyentes();
+            this.deltas = new MapaEnteroEntero[destino.numeroCanciones()];
+            this.entradasDelta = 0;
+            this.usuarios = nuevos;
+            this.catalogo = destino;
+
+            Set<Integer> modificados = this.modificadosDuranteConstruccion;
+            this.modificadosDuranteConstruccion = null;
+            if (modificados != null && anterior != null) {
+                for (Integer id : modificados) {
+                    CancionesUsuario previas = usuariosAnteriores.get(id);
+                    if (previas == null) {
+                        continue;
+                    }
+                    CancionesUsuario canciones = nuevos.computeIfAbsent(id, clave -> new CancionesUsuario(new int[0]));
+                    canciones.continuarDesde(previas);
+                    for (int cancion : traducir(Arrays.copyOf(previas.canciones, previas.numero), anterior, destino)) {
+                        agregarCancion(canciones, cancion);
+                    }
+                }
+            }
+            this.construcciones.increment();
+        } finally {
+            this.candado.writeLock().unlock();
+        }
+    }
+
+    private static int[] traducir(int[] canciones, IndiceCatalogo origen, IndiceCatalogo destino) {
+        int[] traducidas = new int[canciones.length];
+        int numero = 0;
+        for (int cancion : canciones) {
+            int traducida = destino.buscarCancion(origen.tituloDe(cancion));
+            if (traducida != IndiceCatalogo.NO_ENCONTRADA) {
+                traducidas[numero++] = traducida;
+            }
+        }
+        return Arrays.copyOf(traducidas, numero);
+    }
+
+    /**
+     * Suma al índice las canciones que el usuario escuchó desde la última
+     * sincronización. Si el agregado no cambió, no hace nada y solo toma el
+     * candado de lectura. El llamador debe tener sincronizado el agregado.
+     *
+     * @param idUsuario el usuario.
+     * @param agregado  su agregado de reproducciones.
+     */
+    public void sincronizarUsuario(Integer idUsuario, AgregadoUsuario agregado) {
+        if (this.catalogo == null) {
+            return;
+        }
+        int numeroTitulos = agregado.numeroTitulos();
+        long sincronizacion = agregado.getInstanteSincronizacionMs();
+        this.candado.readLock().lock();
+        try {
+            CancionesUsuario canciones = this.usuarios.get(idUsuario);
+            if (canciones != null && canciones.titulosVistos == numeroTitulos && canciones.sincronizacionVista == sincronizacion) {
+                return;
+            }
+        } finally {
+            this.candado.readLock().unlock();
+        }
+
+        boolean compactar;
+        this.candado.writeLock().lock();
+        try {
+            IndiceCatalogo actual = this.catalogo;
+            if (this.modificadosDuranteConstruccion != null) {
+                this.modificadosDuranteConstruccion.add(idUsuario);
+            }
+            CancionesUsuario canciones = this.usuarios.computeIfAbsent(idUsuario, clave -> new CancionesUsuario(new int[0]));
+            // Los títulos nuevos se agregan al final del agregado; si se
+            // reconstruyó, se recorren todos.
+            int desde = canciones.sincronizacionVista == sincronizacion && canciones.titulosVistos <= numeroTitulos
+                    ? canciones.titulosVistos : 0;
+            for (int posicion = desde; posicion < numeroTitulos; posicion++) {
+                int cancion = actual.buscarCancion(agregado.titulo(posicion));
+                if (cancion != IndiceCatalogo.NO_ENCONTRADA) {
+                    agregarCancion(canciones, cancion);
+                }
+            }
+            canciones.titulosVistos = numeroTitulos;
+            canciones.sincronizacionVista = sincronizacion;
+            compactar = this.entradasDelta > this.umbralCompactacion && this.modificadosDuranteConstruccion == null;
+        } finally {
+            this.candado.writeLock().unlock();
+        }
+        if (compactar) {
+            IndiceCatalogo actual = this.catalogo;
+            asegurarCompactado(actual);
+        }
+    }
+
+    /**
+     * Reconstruye la matriz con el mismo catálogo para vaciar los deltas.
+     */
+    private void asegurarCompactado(IndiceCatalogo actual) {
+        if (!this.construyendo.compareAndSet(false, true)) {
+            return;
+        }
+        this.ejecutorConstruccion.execute(() -> {
+            try {
+                reconstruir(actual);
+            } catch (RuntimeException e) {
+                this.errores.increment();
+                System.err.println("ERROR al compactar el indice de recomendaciones: " + e.getMessage());
+            } finally {
+                this.construyendo.set(false);
+            }
+        });
+    }
+
+    /**
+     * Suma una canción a las del usuario y sus coocurrencias con las que ya
+     * tenía. Se invoca con el candado de escritura.
+     */
+    private void agregarCancion(CancionesUsuario canciones, int cancion) {
+        if (canciones.numero >= this.maximoPorUsuario || canciones.contiene(cancion)) {
+            return;
+        }
+        for (int k = 0; k < canciones.numero; k++) {
+            int otra = canciones.canciones[k];
+            sumarDelta(otra, cancion);
+            sumarDelta(cancion, otra);
+        }
+        this.oyentes[cancion]++;
+        canciones.agregar(cancion);
+        this.incrementales.increment();
+    }
+
+    private void sumarDelta(int fila, int columna) {
+        MapaEnteroEntero delta = this.deltas[fila];
+        if (delta == null) {
+            delta = new MapaEnteroEntero(4);
+            this.deltas[fila] = delta;
+        }
+        if (delta.sumar(columna, 1) == 1) {
+            this.entradasDelta++;
+        }
+    }
+
+    /**
+     * Recomienda al usuario las canciones que más coocurren con las que ya
+     * escuchó.
+     *
+     * @param idUsuario el usuario.
+     * @param limite    número máximo de canciones.
+     * @return las canciones recomendadas, de mayor a menor puntaje; vacía si
+     *         el índice aún no está construido o el usuario no tiene
+     *         reproducciones.
+     */
+    public List<RecomendacionCancionDTORespuesta> recomendar(Integer idUsuario, int limite) {
+        long inicio = System.nanoTime();
+        this.candado.readLock().lock();
+        try {
+            IndiceCatalogo actual = this.catalogo;
+            CancionesUsuario canciones = this.usuarios.get(idUsuario);
+            if (actual == null || canciones == null || canciones.numero == 0 || limite <= 0) {
+                return new ArrayList<>();
+            }
+            AcumuladorPuntajes acumulador = this.acumuladores.get();
+            acumulador.asegurarCapacidad(actual.numeroCanciones());
+            int sello = acumulador.nuevoSello();
+            for (int k = 0; k < canciones.numero; k++) {
+                acumulador.excluidas[canciones.canciones[k]] = sello;
+            }
+
+            for (int k = 0; k < canciones.numero; k++) {
+                int propia = canciones.canciones[k];
+                double oyentesPropia = this.oyentes[propia];
+                for (int p = this.matriz.inicioFila(propia); p < this.matriz.finFila(propia); p++) {
+                    int candidata = this.matriz.vecino(p);
+                    if (acumulador.excluidas[candidata] != sello) {
+                        acumulador.sumar(candidata,
+                                this.matriz.coocurrencia(p) / Math.sqrt(oyentesPropia * this.oyentes[candidata]));
+                    }
+                }
+                MapaEnteroEntero delta = this.deltas[propia];
+                if (delta != null) {
+                    for (int posicion = 0; posicion < delta.capacidad(); posicion++) {
+                        int candidata = delta.claveEn(posicion);
+                        if (candidata != MapaEnteroEntero.AUSENTE && acumulador.excluidas[candidata] != sello) {
+                            acumulador.sumar(candidata,
+                                    delta.valorEn(posicion) / Math.sqrt(oyentesPropia * this.oyentes[candidata]));
+                        }
+                    }
+                }
+            }
+
+            // Clave: puntaje (positivo, sus bits de float ordenan igual que
+            // el valor) en los 32 bits altos y, ante empates, gana el código
+            // menor.
+            int total = acumulador.numeroTocados;
+            for (int t = 0; t < total; t++) {
+                int candidata = acumulador.tocados[t];
+                acumulador.claves[t] = ((long) Float.floatToIntBits((float) acumulador.puntajes[candidata]) << 32)
+                        | (Integer.MAX_VALUE - candidata);
+            }
+            int seleccionadas = SeleccionMayores.seleccionar(acumulador.claves, total, limite);
+            List<RecomendacionCancionDTORespuesta> recomendaciones = new ArrayList<>(seleccionadas);
+            for (int t = seleccionadas - 1; t >= 0; t--) {
+                int cancion = Integer.MAX_VALUE - (int) acumulador.claves[t];
+                recomendaciones.add(new RecomendacionCancionDTORespuesta(actual.tituloDe(cancion),
+                        actual.nombreArtista(actual.artistaDe(cancion)), actual.nombreGenero(actual.generoDe(cancion)),
+                        acumulador.puntajes[cancion]));
+            }
+            acumulador.reiniciar();
+            return recomendaciones;
+        } finally {
+            this.candado.readLock().unlock();
+            this.latenciaConsulta.registrarDesde(inicio);
+        }
+    }
+
+    /**
+     * @return el número de coocurrencias guardadas en la matriz, sin contar
+     *         los deltas.
+     */
+    public long getNumeroEntradas() {
+        this.candado.readLock().lock();
+        try {
+            return this.matriz.numeroEntradas();
+        } finally {
+            this.candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return {@code true} si la matriz ya se construyó al menos una vez.
+     */
+    public boolean estaConstruido() {
+        return this.catalogo != null;
+    }
+
+    /**
+     * Detiene los hilos de construcción.
+     */
+    public void cerrar() {
+        this.ejecutorConstruccion.shutdownNow();
+        this.poolConstruccion.shutdownNow();
+    }
+
+    /**
+     * Canciones distintas de un usuario, en el orden en que se agregaron, y
+     * hasta dónde se recorrió su agregado.
+     */
+    private static final class CancionesUsuario {
+        int[] canciones;
+        int numero;
+        int titulosVistos;
+        long sincronizacionVista;
+
+        CancionesUsuario(int[] canciones) {
+            this.canciones = canciones.length > 0 ? canciones : new int[4];
+            this.numero = canciones.length;
+        }
+
+        /**
+         * Conserva hasta dónde se había recorrido el agregado del usuario.
+         */
+        void continuarDesde(CancionesUsuario anteriores) {
+            if (anteriores != null) {
+                this.titulosVistos = anteriores.titulosVistos;
+                this.sincronizacionVista = anteriores.sincronizacionVista;
+            }
+        }
+
+        boolean contiene(int cancion) {
+            for (int k = 0; k < this.numero; k++) {
+                if (this.canciones[k] == cancion) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void agregar(int cancion) {
+            if (this.numero == this.canciones.length) {
+                this.canciones = Arrays.copyOf(this.canciones, this.canciones.length * 2);
+            }
+            this.canciones[this.numero++] = cancion;
+        }
+    }
+
+    /**
+     * Lista creciente de enteros para recorrer el historial sin empaquetar.
+     */
+    private static final class ListaEnteros {
+        int[] valores = new int[1024];
+        int tamano;
+
+        void agregar(int valor) {
+            if (this.tamano == this.valores.length) {
+                this.valores = Arrays.copyOf(this.valores, this.valores.length * 2);
+            }
+            this.valores[this.tamano++] = valor;
+        }
+    }
+
+    /**
+     * Puntajes densos de una consulta, reutilizados entre consultas del mismo
+     * hilo. Las canciones del usuario se marcan con un sello por consulta, de
+     * modo que no hay que limpiar las marcas.
+     */
+    private static final class AcumuladorPuntajes {
+        double[] puntajes = new double[0];
+        int[] tocados = new int[0];
+        long[] claves = new long[0];
+        int[] excluidas = new int[0];
+        int numeroTocados;
+        int sello;
+
+        void asegurarCapacidad(int numeroCanciones) {
+            if (this.puntajes.length < numeroCanciones) {
+                this.puntajes = new double[numeroCanciones];
+                this.tocados = new int[numeroCanciones];
+                this.claves = new long[numeroCanciones];
+                this.excluidas = new int[numeroCanciones];
+                this.sello = 0;
+            }
+        }
+
+        int nuevoSello() {
+            if (++this.sello == Integer.MAX_VALUE) {
+                Arrays.fill(this.excluidas, 0);
+                this.sello = 1;
+            }
+            return this.sello;
+        }
+
+        void sumar(int cancion, double puntaje) {
+            if (this.puntajes[cancion] == 0.0) {
+                this.tocados[this.numeroTocados++] = cancion;
+            }
+            this.puntajes[cancion] += puntaje;
+        }
+
+        void reiniciar() {
+            for (int t = 0; t < this.numeroTocados; t++) {
+                this.puntajes[this.tocados[t]] = 0.0;
+            }
+            this.numeroTocados = 0;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package co.edu.unicauca.fachadaServices.services.componenteRecomendaciones;
+
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.SeleccionMayores;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Matriz dispersa e inmutable de coocurrencias entre canciones, en formato
+ * CSR (filas comprimidas).
+ * <p>
+ * Dos canciones coocurren una vez por cada usuario que ha escuchado ambas. La
+ * fila de cada canción guarda solo sus {@code vecinosPorCancion} vecinos con
+ * más coocurrencias, en orden descendente, de modo que la matriz ocupa como
+ * máximo {@code canciones × vecinos} entradas por muchas reproducciones que
+ * haya. Las filas se guardan en tres arreglos de enteros: el inicio de cada
+ * fila, las columnas (canciones vecinas) y los conteos.
+ * <p>
+ * Se construye fila a fila multiplicando la matriz usuario-canción por su
+ * traspuesta (algoritmo de Gustavson): para la canción {@code i} se recorren
+ * sus oyentes y, de cada uno, sus canciones, acumulando en un arreglo denso
+ * cuyos códigos tocados se limpian al terminar la fila. Las filas son
+ * independientes, así que se reparten en bloques entre los hilos de un
+ * {@link ForkJoinPool}, cada uno con su propio acumulador.
+ */
+public final class MatrizCoocurrencias {
+
+    /**
+     * Filas que calcula cada tarea hoja de la construcción.
+     */
+    private static final int FILAS_POR_BLOQUE = 256;
+
+    private final int[] inicios;
+    private final int[] vecinos;
+    private final int[] coocurrencias;
+    private final int[] oyentes;
+
+    private MatrizCoocurrencias(int[] inicios, int[] vecinos, int[] coocurrencias, int[] oyentes) {
+        this.inicios = inicios;
+        this.vecinos = vecinos;
+        this.coocurrencias = coocurrencias;
+        this.oyentes = oyentes;
+    }
+
+    /**
+     * Construye la matriz a partir de las canciones distintas de cada
+     * usuario.
+     *
+     * @param numeroCanciones   tamaño del catálogo; los códigos de canción
+     *                          están en {@code [0, numeroCanciones)}.
+     * @param inicioUsuario     inicio de las canciones de cada usuario en
+     *                          {@code cancionesUsuario}, con un elemento final
+     *                          igual al total.
+     * @param cancionesUsuario  las canciones de cada usuario, sin repetir
+     *                          dentro de un mismo usuario.
+     * @param vecinosPorCancion vecinos que se conservan por fila.
+     * @param pool              el pool en el que se calculan las filas.
+     * @return la matriz construida.
+     */
+    public static MatrizCoocurrencias construir(int numeroCanciones, int[] inicioUsuario, int[] cancionesUsuario,
+                                                int vecinosPorCancion, ForkJoinPool pool) {
+        int numeroUsuarios = inicioUsuario.length - 1;
+
+        // Índice invertido canción -> oyentes, también en CSR.
+        int[] oyentes = new int[numeroCanciones];
+        for (int p = 0; p < inicioUsuario[numeroUsuarios]; p++) {
+            oyentes[cancionesUsuario[p]]++;
+        }
+        int[] inicioCancion = new int[numeroCanciones + 1];
+        for (int i = 0; i < numeroCanciones; i++) {
+            inicioCancion[i + 1] = inicioCancion[i] + oyentes[i];
+        }
+        int[] usuariosCancion = new int[inicioCancion[numeroCanciones]];
+        int[] siguiente = Arrays.copyOf(inicioCancion, numeroCanciones);
+        for (int u = 0; u < numeroUsuarios; u++) {
+            for (int p = inicioUsuario[u]; p < inicioUsuario[u + 1]; p++) {
+                usuariosCancion[siguiente[cancionesUsuario[p]]++] = u;
+            }
+        }
+
+        int numeroBloques = (numeroCanciones + FILAS_POR_BLOQUE - 1) / FILAS_POR_BLOQUE;
+        Tramo[] tramos = new Tramo[numeroBloques];
+        ThreadLocal<Acumulador> acumuladores = ThreadLocal.withInitial(() -> new Acumulador(numeroCanciones));
+        pool.invoke(new ConstruccionFilas(0, numeroBloques, numeroCanciones, inicioUsuario, cancionesUsuario,
+                inicioCancion, usuariosCancion, Math.max(1, vecinosPorCancion), tramos, acumuladores));
+
+        int[] inicios = new int[numeroCanciones + 1];
+        for (int b = 0; b < numeroBloques; b++) {
+            Tramo tramo = tramos[b];
+            for (int f = 0; f < tramo.longitudes.length; f++) {
+                int fila = b * FILAS_POR_BLOQUE + f;
+                inicios[fila + 1] = inicios[fila] + tramo.longitudes[f];
+            }
+        }
+        int[] vecinos = new int[inicios[numeroCanciones]];
+        int[] coocurrencias = new int[inicios[numeroCanciones]];
+        for (int b = 0; b < numeroBloques; b++) {
+            Tramo tramo = tramos[b];
+            int destino = inicios[b * FILAS_POR_BLOQUE];
+            System.arraycopy(tramo.vecinos, 0, vecinos, destino, tramo.entradas);
+            System.arraycopy(tramo.coocurrencias, 0, coocurrencias, destino, tramo.entradas);
+        }
+        return new MatrizCoocurrencias(inicios, vecinos, coocurrencias, oyentes);
+    }
+
+    /**
+     * @return una matriz sin canciones.
+     */
+    public static MatrizCoocurrencias vacia() {
+        return new MatrizCoocurrencias(new int[1], new int[0], new int[0], new int[0]);
+    }
+
+    public int numeroCanciones() {
+        return this.oyentes.length;
+    }
+
+    /**
+     * @return el número de entradas guardadas en toda la matriz.
+     */
+    public int numeroEntradas() {
+        return this.vecinos.length;
+    }
+
+    /**
+     * @return la posición de la primera entrada de la fila.
+     */
+    public int inicioFila(int cancion) {
+        return this.inicios[cancion];
+    }
+
+    /**
+     * @return la posición siguiente a la última entrada de la fila.
+     */
+    public int finFila(int cancion) {
+        return this.inicios[cancion + 1];
+    }
+
+    public int vecino(int posicion) {
+        return this.vecinos[posicion];
+    }
+
+    public int coocurrencia(int posicion) {
+        return this.coocurrencias[posicion];
+    }
+
+    /**
+     * @return una copia del número de usuarios que escucharon cada canción.
+     */
+    public int[] copiarOyentes() {
+        return this.oyentes.clone();
+    }
+
+    /**
+     * Filas calculadas por una tarea hoja, con sus entradas contiguas.
+     */
+    private static final class Tramo {
+        final int[] longitudes;
+        int[] vecinos;
+        int[] coocurrencias;
+        int entradas;
+
+        Tramo(int filas, int capacidad) {
+            this.longitudes = new int[filas];
+            this.vecinos = new int[capacidad];
+            this.coocurrencias = new int[capacidad];
+        }
+
+        void agregar(int vecino, int coocurrencia) {
+            if (this.entradas == this.vecinos.length) {
+                int capacidad = Math.max(16, this.vecinos.length * 2);
+                this.vecinos = Arrays.copyOf(this.vecinos, capacidad);
+                this.coocurrencias = Arrays.copyOf(this.coocurrencias, capacidad);
+            }
+            this.vecinos[this.entradas] = vecino;
+            this.coocurrencias[this.entradas] = coocurrencia;
+            this.entradas++;
+        }
+    }
+
+    /**
+     * Conteos densos de una fila en construcción, reutilizados entre filas
+     * por el mismo hilo.
+     */
+    private static final class Acumulador {
+        final int[] conteos;
+        final int[] tocados;
+        final long[] claves;
+
+        Acumulador(int numeroCanciones) {
+            this.conteos = new int[numeroCanciones];
+            this.tocados = new int[numeroCanciones];
+            this.claves = new long[numeroCanciones];
+        }
+    }
+
+    /**
+     * Calcula los bloques de filas {@code [desde, hasta)}, dividiéndolos a la
+     * mitad hasta llegar a un bloque.
+     */
+    private static final class ConstruccionFilas extends RecursiveAction {
+
+        private final int desde;
+        private final int hasta;
+        private final int numeroCanciones;
+        private final int[] inicioUsuario;
+        private final int[] cancionesUsuario;
+        private final int[] inicioCancion;
+        private final int[] usuariosCancion;
+        private final int vecinosPorCancion;
+        private final Tramo[] tramos;
+        private final ThreadLocal<Acumulador> acumuladores;
+
+        ConstruccionFilas(int desde, int hasta, int numeroCanciones, int[] inicioUsuario, int[] cancionesUsuario,
+                          int[] inicioCancion, int[] usuariosCancion, int vecinosPorCancion, Tramo[] tramos,
+                          ThreadLocal<Acumulador> acumuladores) {
+            this.desde = desde;
+            this.hasta = hasta;
+            this.numeroCanciones = numeroCanciones;
+            this.inicioUsuario = inicioUsuario;
+            this.cancionesUsuario = cancionesUsuario;
+            this.inicioCancion = inicioCancion;
+            this.usuariosCancion = usuariosCancion;
+            this.vecinosPorCancion = vecinosPorCancion;
+            this.tramos = tramos;
+            this.acumuladores = acumuladores;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.hasta - this.desde > 1) {
+                int medio = (this.desde + this.hasta) >>> 1;
+                invokeAll(dividir(this.desde, medio), dividir(medio, this.hasta));
+                return;
+            }
+            if (this.desde < this.hasta) {
+                calcularBloque(this.desde);
+            }
+        }
+
+        private ConstruccionFilas dividir(int desdeBloque, int hastaBloque) {
+            return new ConstruccionFilas(desdeBloque, hastaBloque, this.numeroCanciones, this.inicioUsuario,
+                    this.cancionesUsuario, this.inicioCancion, this.usuariosCancion, this.vecinosPorCancion,
+                    this.tramos, this.acumuladores);
+        }
+
+        private void calcularBloque(int bloque) {
+            int primeraFila = bloque * FILAS_POR_BLOQUE;
+            int filas = Math.min(FILAS_POR_BLOQUE, this.numeroCanciones - primeraFila);
+            Tramo tramo = new Tramo(filas, filas * Math.min(this.vecinosPorCancion, 16));
+            Acumulador acumulador = this.acumuladores.get();
+            int[] conteos = acumulador.conteos;
+            int[] tocados = acumulador.tocados;
+            long[] claves = acumulador.claves;
+
+            for (int f = 0; f < filas; f++) {
+                int cancion = primeraFila + f;
+                int numeroTocados = 0;
+                for (int p = this.inicioCancion[cancion]; p < this.inicioCancion[cancion + 1]; p++) {
+                    int usuario = this.usuariosCancion[p];
+                    for (int q = this.inicioUsuario[usuario]; q < this.inicioUsuario[usuario + 1]; q++) {
+                        int otra = this.cancionesUsuario[q];
+                        if (otra != cancion && conteos[otra]++ == 0) {
+                            tocados[numeroTocados++] = otra;
+                        }
+                    }
+                }
+
+                // Clave: conteo en los 32 bits altos y, ante empates, gana el
+                // código menor.
+                for (int t = 0; t < numeroTocados; t++) {
+                    int otra = tocados[t];
+                    claves[t] = ((long) conteos[otra] << 32) | (Integer.MAX_VALUE - otra);
+                    conteos[otra] = 0;
+                }
+                int conservadas = SeleccionMayores.seleccionar(claves, numeroTocados, this.vecinosPorCancion);
+                for (int t = conservadas - 1; t >= 0; t--) {
+                    tramo.agregar(Integer.MAX_VALUE - (int) claves[t], (int) (claves[t] >>> 32));
+                }
+                tramo.longitudes[f] = conservadas;
+            }
+            this.tramos[bloque] = tramo;
+        }
+    }
+}
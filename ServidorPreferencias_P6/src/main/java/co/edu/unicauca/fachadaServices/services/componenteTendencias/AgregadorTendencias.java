@@ -0,0 +1,498 @@
+package co.edu.unicauca.fachadaServices.services.componenteTendencias;
+
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciaArtistaDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciaGeneroDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.PreferenciaIdiomaDTORespuesta;
+import co.edu.unicauca.fachadaServices.DTO.TendenciasDTORespuesta;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.SeleccionMayores;
+import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorReproducciones.ComunicacionServidorReproducciones;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import co.edu.unicauca.utilidades.FabricaHilosDemonio;
+import co.edu.unicauca.utilidades.VueloUnico;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calcula las tendencias de toda la plataforma: los géneros, artistas e
+ * idiomas más escuchados por todos los usuarios, opcionalmente dentro de una
+ * ventana de tiempo.
+ * <p>
+ * Agrega sobre un {@link RegistroColumnarReproducciones} con el historial de
+ * todos los usuarios, que se construye la primera vez y se renueva en segundo
+ * plano cuando vence su tiempo de vida o cambia el catálogo; mientras tanto
+ * se sigue agregando sobre el anterior. Al vencer el tiempo de vida solo se
+ * piden las reproducciones posteriores a la última secuencia recibida y se
+ * añaden al registro; el historial completo se vuelve a recorrer solo si
+ * cambia el catálogo o la época del Servidor de Reproducciones (sus
+ * secuencias vuelven a empezar al arrancar), o si el servidor no envía su
+ * época. Cada agregación reparte el espacio de
+ * usuarios en tramos de unas {@value #REPRODUCCIONES_POR_TAREA}
+ * reproducciones entre los hilos de un {@link ForkJoinPool}. Cada hilo suma
+ * en sus propios contadores primitivos, sin sincronización, y al terminar se
+ * combinan los de todos los hilos.
+ */
+public final class AgregadorTendencias {
+
+    public static final long TTL_POR_DEFECTO_MS = 60_000L;
+
+    /**
+     * Reproducciones por debajo de las cuales una tarea deja de dividirse.
+     */
+    private static final int REPRODUCCIONES_POR_TAREA = 1 << 16;
+
+    private final long ttlMs;
+
+    /**
+     * Pool en el que se agregan los tramos de usuarios.
+     */
+    private final ForkJoinPool poolAgregacion;
+
+    /**
+     * Hilo que recorre el historial y construye el registro, una vez a la
+     * vez.
+     */
+    private final ExecutorService ejecutorConstruccion;
+
+    private final VueloUnico<Long, RegistroColumnarReproducciones> construccionesEnVuelo =
+            new VueloUnico<>("tendencias.construcciones");
+
+    /**
+     * Registro vigente, con la mayor secuencia del Servidor de Reproducciones
+     * que incluye ({@link ComunicacionServidorReproducciones#SIN_ULTIMA_SECUENCIA}
+     * si no se conoce), la época del servidor a la que corresponde y el
+     * instante en que se puso al día por última vez.
+     */
+    private record Estado(RegistroColumnarReproducciones registro, long ultimaSecuencia, String epoca,
+                          long actualizadoMs) {
+    }
+
+    private volatile Estado estado;
+
+    private final HistogramaLatencias latenciaConsulta;
+    private final HistogramaLatencias latenciaConstruccion;
+    private final LongAdder descartadas;
+    private final LongAdder errores;
+
+    /**
+     * @param ttlMs       tiempo tras el cual el registro se renueva en
+     *                    segundo plano.
+     * @param paralelismo hilos que agregan los tramos de usuarios.
+     */
+    public AgregadorTendencias(long ttlMs, int paralelismo) {
+        this.ttlMs = Math.max(0L, ttlMs);
+        this.poolAgregacion = new ForkJoinPool(Math.max(1, paralelismo));
+        this.ejecutorConstruccion = Executors.newSingleThreadExecutor(new FabricaHilosDemonio("tendencias-construccion"));
+
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.latenciaConsulta = metricas.latencias("tendencias.consulta");
+        this.latenciaConstruccion = metricas.latencias("tendencias.construccion");
+        this.descartadas = metricas.contador("tendencias.descartadas");
+        this.errores = metricas.contador("tendencias.errores");
+        metricas.registrarIndicador("tendencias.reproducciones", () -> {
+            Estado actual = this.estado;
+            return actual != null ? actual.registro().numeroReproducciones() : 0L;
+        });
+    }
+
+    /**
+     * Crea el agregador según las propiedades {@code preferencias.tendencias.*}.
+     *
+     * @return el agregador, o {@code null} si las tendencias están
+     *         desactivadas.
+     */
+    public static AgregadorTendencias desdeConfiguracion() {
+        if (!LectorPropiedadesConfig.getBoolean("preferencias.tendencias.activas", true)) {
+            return null;
+        }
+        return new AgregadorTendencias(
+                LectorPropiedadesConfig.getLong("preferencias.tendencias.ttl.ms", TTL_POR_DEFECTO_MS),
+                LectorPropiedadesConfig.getInt("preferencias.tendencias.paralelismo", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Devuelve el registro sobre el que agregar. La primera vez espera a que
+     * se construya; después devuelve el actual de inmediato y, si venció su
+     * tiempo de vida o se construyó con otra versión del catálogo, lanza su
+     * actualización en segundo plano.
+     *
+     * @param catalogo       el catálogo vigente.
+     * @param reproducciones el cliente del Servidor de Reproducciones, para
+     *                       recorrer el historial de todos los usuarios.
+     * @return un futuro con el registro.
+     */
+    public CompletableFuture<RegistroColumnarReproducciones> obtenerRegistro(IndiceCatalogo catalogo,
+                                                                             ComunicacionServidorReproducciones reproducciones) {
+        Estado actual = this.estado;
+        if (actual == null) {
+            return renovar(catalogo, reproducciones);
+        }
+        if (actual.registro().getCatalogo().getVersion() != catalogo.getVersion()
+                || System.currentTimeMillis() - actual.actualizadoMs() >= this.ttlMs) {
+            renovar(catalogo, reproducciones);
+        }
+        return CompletableFuture.completedFuture(actual.registro());
+    }
+
+    private CompletableFuture<RegistroColumnarReproducciones> renovar(IndiceCatalogo catalogo,
+                                                                      ComunicacionServidorReproducciones reproducciones) {
+        return this.construccionesEnVuelo.ejecutar(catalogo.getVersion(), () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return actualizar(catalogo, reproducciones);
+            } catch (RuntimeException e) {
+                this.errores.increment();
+                System.err.println("ERROR al construir el registro de tendencias: " + e.getMessage());
+                throw e;
+            }
+        }, this.ejecutorConstruccion));
+    }
+
+    /**
+     * Añade al registro vigente las reproducciones posteriores a su última
+     * secuencia o, si no se puede (no hay registro, cambió el catálogo, no se
+     * conoce la secuencia o cambió la época del servidor), construye uno con
+     * el historial completo.
+     */
+    private RegistroColumnarReproducciones actualizar(IndiceCatalogo catalogo,
+                                                      ComunicacionServidorReproducciones reproducciones) {
+        Estado actual = this.estado;
+        if (actual == null || actual.registro().getCatalogo().getVersion() != catalogo.getVersion()
+                || actual.ultimaSecuencia() == ComunicacionServidorReproducciones.SIN_ULTIMA_SECUENCIA) {
+            return construirDesdeHistorial(catalogo, reproducciones);
+        }
+        long inicio = System.nanoTime();
+        RegistroColumnarReproducciones.Constructor constructor = new RegistroColumnarReproducciones.Constructor(actual.registro());
+        long[] ultimaSecuencia = {ComunicacionServidorReproducciones.SIN_ULTIMA_SECUENCIA};
+        boolean[] mismaEpoca = {false};
+        reproducciones.recorrerReproduccionesDesde(actual.ultimaSecuencia(), ultima -> {
+            ultimaSecuencia[0] = ultima;
+            mismaEpoca[0] = actual.epoca().equals(reproducciones.getEpocaServidor());
+        }, reproduccion -> {
+            Long secuencia = reproduccion.getSecuencia();
+            if (mismaEpoca[0] && secuencia != null && secuencia > actual.ultimaSecuencia()) {
+                constructor.agregar(reproduccion.getIdUsuario(), reproduccion.getTitulo(), reproduccion.getFechaHora());
+            }
+        });
+        if (!mismaEpoca[0] || ultimaSecuencia[0] < actual.ultimaSecuencia()) {
+            System.out.println("El Servidor de Reproducciones volvio a arrancar; se reconstruye el registro de tendencias");
+            return construirDesdeHistorial(catalogo, reproducciones);
+        }
+        RegistroColumnarReproducciones registro = actual.registro();
+        if (constructor.getAgregadas() > 0) {
+            registro = constructor.construir();
+        }
+        this.estado = new Estado(registro, ultimaSecuencia[0], actual.epoca(), System.currentTimeMillis());
+        this.descartadas.add(constructor.getDescartadas());
+        this.latenciaConstruccion.registrarDesde(inicio);
+        if (constructor.getAgregadas() > 0) {
+            System.out.println("Registro de tendencias actualizado con " + constructor.getAgregadas()
+                    + " reproducciones nuevas (" + registro.numeroReproducciones() + " en total) en "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+        }
+        return registro;
+    }
+
+    /**
+     * Recorre el historial de todos los usuarios, construye el registro en
+     * columnas y lo instala. Si el servidor no envía su época, no se guarda
+     * la última secuencia y la siguiente actualización vuelve a recorrerlo.
+     */
+    private RegistroColumnarReproducciones construirDesdeHistorial(IndiceCatalogo catalogo,
+                                                                   ComunicacionServidorReproducciones reproducciones) {
+        long inicio = System.nanoTime();
+        RegistroColumnarReproducciones.Constructor constructor = new RegistroColumnarReproducciones.Constructor(catalogo);
+        long[] ultimaSecuencia = {ComunicacionServidorReproducciones.SIN_ULTIMA_SECUENCIA};
+        String[] epoca = {null};
+        reproducciones.recorrerTodasLasReproducciones(ultima -> {
+            ultimaSecuencia[0] = ultima;
+            epoca[0] = reproducciones.getEpocaServidor();
+        }, reproduccion ->
+                constructor.agregar(reproduccion.getIdUsuario(), reproduccion.getTitulo(), reproduccion.getFechaHora()));
+        RegistroColumnarReproducciones construido = constructor.construir();
+        this.estado = new Estado(construido,
+                epoca[0] != null ? ultimaSecuencia[0] : ComunicacionServidorReproducciones.SIN_ULTIMA_SECUENCIA,
+                epoca[0], System.currentTimeMillis());
+        this.descartadas.add(constructor.getDescartadas());
+        this.latenciaConstruccion.registrarDesde(inicio);
+        System.out.println("Registro de tendencias construido con " + construido.numeroReproducciones()
+                + " reproducciones de " + construido.numeroUsuarios() + " usuarios ("
+                + constructor.getDescartadas() + " descartadas) en "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+        return construido;
+    }
+
+    /**
+     * Agrega todas las reproducciones del registro dentro de la ventana.
+     * <p>
+     * Si la ventana tiene algún límite, las reproducciones sin fecha válida
+     * quedan fuera.
+     *
+     * @param registro el registro sobre el que agregar.
+     * @param desdeMs  inicio de la ventana, inclusive, en milisegundos desde
+     *                 la época; {@link Long#MIN_VALUE} si no tiene.
+     * @param hastaMs  fin de la ventana, inclusive; {@link Long#MAX_VALUE} si
+     *                 no tiene.
+     * @param limite   elementos de cada lista; sin límite si es menor o igual
+     *                 a cero.
+     * @return las tendencias, sin {@code desde} ni {@code hasta}.
+     */
+    public TendenciasDTORespuesta agregar(RegistroColumnarReproducciones registro, long desdeMs, long hastaMs, int limite) {
+        long inicio = System.nanoTime();
+        boolean conVentana = desdeMs != Long.MIN_VALUE || hastaMs != Long.MAX_VALUE;
+        int desde = desdeMs != Long.MIN_VALUE ? RegistroColumnarReproducciones.aInstante(desdeMs) : Integer.MIN_VALUE + 1;
+        int hasta = hastaMs != Long.MAX_VALUE ? RegistroColumnarReproducciones.aInstante(hastaMs) : Integer.MAX_VALUE;
+
+        IndiceCatalogo catalogo = registro.getCatalogo();
+        ConcurrentLinkedQueue<Contadores> creados = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Contadores> contadores = ThreadLocal.withInitial(() -> {
+            Contadores propios = new Contadores(catalogo);
+            creados.add(propios);
+            return propios;
+        });
+        this.poolAgregacion.invoke(new AgregacionTramo(registro, 0, registro.numeroUsuarios(),
+                conVentana, desde, hasta, contadores));
+
+        Contadores total = new Contadores(catalogo);
+        for (Contadores parcial : creados) {
+            total.combinar(parcial);
+        }
+        TendenciasDTORespuesta respuesta = ensamblar(catalogo, total, limite);
+        this.latenciaConsulta.registrarDesde(inicio);
+        return respuesta;
+    }
+
+    /**
+     * Detiene los hilos de agregación y construcción.
+     */
+    public void cerrar() {
+        this.ejecutorConstruccion.shutdownNow();
+        this.poolAgregacion.shutdownNow();
+    }
+
+    private static TendenciasDTORespuesta ensamblar(IndiceCatalogo catalogo, Contadores total, int limite) {
+        double usuarios = Math.max(1, total.usuarios);
+        long[] claves = new long[Math.max(catalogo.numeroGeneros(),
+                Math.max(catalogo.numeroArtistas(), catalogo.numeroIdiomas()))];
+
+        int numero = seleccionar(total.reproduccionesGenero, claves, limite);
+        List<PreferenciaGeneroDTORespuesta> generos = new ArrayList<>(numero);
+        for (int i = numero - 1; i >= 0; i--) {
+            int codigo = codigoDe(claves[i]);
+            generos.add(new PreferenciaGeneroDTORespuesta(catalogo.nombreGenero(codigo),
+                    total.reproduccionesGenero[codigo], total.oyentesGenero[codigo] / usuarios));
+        }
+
+        numero = seleccionar(total.reproduccionesArtista, claves, limite);
+        List<PreferenciaArtistaDTORespuesta> artistas = new ArrayList<>(numero);
+        for (int i = numero - 1; i >= 0; i--) {
+            int codigo = codigoDe(claves[i]);
+            artistas.add(new PreferenciaArtistaDTORespuesta(catalogo.nombreArtista(codigo),
+                    total.reproduccionesArtista[codigo], total.oyentesArtista[codigo] / usuarios));
+        }
+
+        numero = seleccionar(total.reproduccionesIdioma, claves, limite);
+        List<PreferenciaIdiomaDTORespuesta> idiomas = new ArrayList<>(numero);
+        for (int i = numero - 1; i >= 0; i--) {
+            int codigo = codigoDe(claves[i]);
+            PreferenciaIdiomaDTORespuesta dto = new PreferenciaIdiomaDTORespuesta();
+            dto.setNombreIdioma(catalogo.nombreIdioma(codigo));
+            dto.setNumeroPreferencias(total.reproduccionesIdioma[codigo]);
+            dto.setPuntaje(total.oyentesIdioma[codigo] / usuarios);
+            idiomas.add(dto);
+        }
+
+        TendenciasDTORespuesta respuesta = new TendenciasDTORespuesta();
+        respuesta.setTotalReproducciones(total.reproducciones);
+        respuesta.setTotalUsuarios(total.usuarios);
+        respuesta.setTendenciasGeneros(generos);
+        respuesta.setTendenciasArtistas(artistas);
+        respuesta.setTendenciasIdiomas(idiomas);
+        return respuesta;
+    }
+
+    /**
+     * Deja al inicio de {@code claves}, en orden ascendente, los códigos con
+     * más reproducciones; a igual conteo va primero el de menor código.
+     *
+     * @return el número de claves seleccionadas.
+     */
+    private static int seleccionar(int[] conteos, long[] claves, int limite) {
+        int total = 0;
+        for (int codigo = 0; codigo < conteos.length; codigo++) {
+            if (conteos[codigo] > 0) {
+                claves[total++] = ((long) conteos[codigo] << 32) | (Integer.MAX_VALUE - codigo);
+            }
+        }
+        return SeleccionMayores.seleccionar(claves, total, limite > 0 ? Math.min(limite, total) : total);
+    }
+
+    private static int codigoDe(long clave) {
+        return Integer.MAX_VALUE - (int) clave;
+    }
+
+    /**
+     * Contadores de un hilo. Los oyentes distintos se cuentan marcando cada
+     * código con el usuario que lo vio por última vez; como cada hilo recorre
+     * usuarios completos, un usuario nunca se reparte entre dos contadores.
+     */
+    private static final class Contadores {
+        final int[] reproduccionesGenero;
+        final int[] reproduccionesArtista;
+        final int[] reproduccionesIdioma;
+        final int[] oyentesGenero;
+        final int[] oyentesArtista;
+        final int[] oyentesIdioma;
+        final int[] marcaGenero;
+        final int[] marcaArtista;
+        final int[] marcaIdioma;
+        long reproducciones;
+        int usuarios;
+
+        Contadores(IndiceCatalogo catalogo) {
+            this.reproduccionesGenero = new int[catalogo.numeroGeneros()];
+            this.reproduccionesArtista = new int[catalogo.numeroArtistas()];
+            this.reproduccionesIdioma = new int[catalogo.numeroIdiomas()];
+            this.oyentesGenero = new int[catalogo.numeroGeneros()];
+            this.oyentesArtista = new int[catalogo.numeroArtistas()];
+            this.oyentesIdioma = new int[catalogo.numeroIdiomas()];
+            this.marcaGenero = new int[catalogo.numeroGeneros()];
+            this.marcaArtista = new int[catalogo.numeroArtistas()];
+            this.marcaIdioma = new int[catalogo.numeroIdiomas()];
+        }
+
+        void combinar(Contadores otro) {
+            sumar(this.reproduccionesGenero, otro.reproduccionesGenero);
+            sumar(this.reproduccionesArtista, otro.reproduccionesArtista);
+            sumar(this.reproduccionesIdioma, otro.reproduccionesIdioma);
+            sumar(this.oyentesGenero, otro.oyentesGenero);
+            sumar(this.oyentesArtista, otro.oyentesArtista);
+            sumar(this.oyentesIdioma, otro.oyentesIdioma);
+            this.reproducciones += otro.reproducciones;
+            this.usuarios += otro.usuarios;
+        }
+
+        private static void sumar(int[] destino, int[] origen) {
+            for (int i = 0; i < destino.length; i++) {
+                destino[i] += origen[i];
+            }
+        }
+    }
+
+    /**
+     * Agrega los usuarios {@code [desde, hasta)}, dividiéndolos por la
+     * mitad de sus reproducciones mientras tengan más de
+     * {@value #REPRODUCCIONES_POR_TAREA}.
+     */
+    private static final class AgregacionTramo extends RecursiveAction {
+
+        private final RegistroColumnarReproducciones registro;
+        private final int desdeUsuario;
+        private final int hastaUsuario;
+        private final boolean conVentana;
+        private final int desde;
+        private final int hasta;
+        private final ThreadLocal<Contadores> contadores;
+
+        AgregacionTramo(RegistroColumnarReproducciones registro, int desdeUsuario, int hastaUsuario,
+                        boolean conVentana, int desde, int hasta, ThreadLocal<Contadores> contadores) {
+            this.registro = registro;
+            this.desdeUsuario = desdeUsuario;
+            this.hastaUsuario = hastaUsuario;
+            this.conVentana = conVentana;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.contadores = contadores;
+        }
+
+        @Override
+        protected void compute() {
+            int inicio = this.registro.inicioUsuario(this.desdeUsuario);
+            int fin = this.registro.inicioUsuario(this.hastaUsuario);
+            if (fin - inicio > REPRODUCCIONES_POR_TAREA && this.hastaUsuario - this.desdeUsuario > 1) {
+                int medio = usuarioEnPosicion(inicio + (fin - inicio) / 2);
+                invokeAll(dividir(this.desdeUsuario, medio), dividir(medio, this.hastaUsuario));
+                return;
+            }
+            if (inicio < fin) {
+                agregarTramo(this.contadores.get());
+            }
+        }
+
+        private AgregacionTramo dividir(int desdeUsuario, int hastaUsuario) {
+            return new AgregacionTramo(this.registro, desdeUsuario, hastaUsuario, this.conVentana, this.desde,
+                    this.hasta, this.contadores);
+        }
+
+        /**
+         * @return el primer usuario del tramo cuyas reproducciones empiezan
+         *         en la posición indicada o después, acotado a
+         *         {@code (desdeUsuario, hastaUsuario)}.
+         */
+        private int usuarioEnPosicion(int posicion) {
+            int bajo = this.desdeUsuario + 1;
+            int alto = this.hastaUsuario - 1;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (this.registro.inicioUsuario(medio) < posicion) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+
+        private void agregarTramo(Contadores propios) {
+            RegistroColumnarReproducciones r = this.registro;
+            IndiceCatalogo catalogo = r.getCatalogo();
+            for (int u = this.desdeUsuario; u < this.hastaUsuario; u++) {
+                // La marca 0 es la inicial, así que los usuarios se marcan
+                // desde 1.
+                int marca = u + 1;
+                int contadas = 0;
+                for (int p = r.inicioUsuario(u), fin = r.inicioUsuario(u + 1); p < fin; p++) {
+                    if (this.conVentana) {
+                        int instante = r.instante(p);
+                        if (instante < this.desde || instante > this.hasta) {
+                            continue;
+                        }
+                    }
+                    int cancion = r.cancion(p);
+                    int genero = catalogo.generoDe(cancion);
+                    int artista = catalogo.artistaDe(cancion);
+                    int idioma = catalogo.idiomaDe(cancion);
+                    propios.reproduccionesGenero[genero]++;
+                    propios.reproduccionesArtista[artista]++;
+                    propios.reproduccionesIdioma[idioma]++;
+                    if (propios.marcaGenero[genero] != marca) {
+                        propios.marcaGenero[genero] = marca;
+                        propios.oyentesGenero[genero]++;
+                    }
+                    if (propios.marcaArtista[artista] != marca) {
+                        propios.marcaArtista[artista] = marca;
+                        propios.oyentesArtista[artista]++;
+                    }
+                    if (propios.marcaIdioma[idioma] != marca) {
+                        propios.marcaIdioma[idioma] = marca;
+                        propios.oyentesIdioma[idioma]++;
+                    }
+                    contadas++;
+                }
+                if (contadas > 0) {
+                    propios.reproducciones += contadas;
+                    propios.usuarios++;
+                }
+            }
+        }
+    }
+}
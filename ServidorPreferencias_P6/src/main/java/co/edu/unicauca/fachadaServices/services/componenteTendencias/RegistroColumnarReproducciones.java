@@ -0,0 +1,253 @@
+package co.edu.unicauca.fachadaServices.services.componenteTendencias;
+
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.IndiceCatalogo;
+import co.edu.unicauca.utilidades.FechasReproduccion;
+import co.edu.unicauca.utilidades.MapaEnteroEntero;
+import java.util.Arrays;
+
+/**
+ * Copia inmutable y en columnas de las reproducciones de todos los usuarios,
+ * agrupadas por usuario, para agregarlas sin crear objetos.
+ * <p>
+ * Cada reproducción ocupa una posición en dos arreglos paralelos: el código
+ * de la canción en el {@link IndiceCatalogo} con el que se construyó y el
+ * instante en segundos respecto a {@link #BASE_EPOCA_S}. Las reproducciones
+ * de cada usuario son contiguas (las del usuario {@code u} están en
+ * {@code [inicioUsuario(u), inicioUsuario(u + 1))}), de modo que el espacio
+ * de usuarios se puede repartir en tramos independientes. Con 10 millones de
+ * reproducciones ocupa unos 80 MB.
+ * <p>
+ * Para añadir reproducciones se construye otro registro a partir de este
+ * ({@link Constructor#Constructor(RegistroColumnarReproducciones)}), que
+ * copia sus columnas sin volver a interpretar las reproducciones.
+ */
+public final class RegistroColumnarReproducciones {
+
+    /**
+     * Época de referencia de los instantes (2020-01-01T00:00:00Z): con
+     * segundos en un {@code int} cubre de 1952 a 2088.
+     */
+    public static final long BASE_EPOCA_S = 1_577_836_800L;
+
+    /**
+     * Instante de las reproducciones sin fecha válida.
+     */
+    public static final int SIN_INSTANTE = Integer.MIN_VALUE;
+
+    private final IndiceCatalogo catalogo;
+    private final int[] inicios;
+    private final int[] canciones;
+    private final int[] instantes;
+
+    /**
+     * Identificador de cada usuario, por su posición en el registro.
+     */
+    private final int[] idsUsuario;
+    private final long construidoMs;
+
+    private RegistroColumnarReproducciones(IndiceCatalogo catalogo, int[] inicios, int[] canciones, int[] instantes,
+                                           int[] idsUsuario, long construidoMs) {
+        this.catalogo = catalogo;
+        this.inicios = inicios;
+        this.canciones = canciones;
+        this.instantes = instantes;
+        this.idsUsuario = idsUsuario;
+        this.construidoMs = construidoMs;
+    }
+
+    public IndiceCatalogo getCatalogo() {
+        return this.catalogo;
+    }
+
+    /**
+     * @return el instante en que se terminó de construir, en milisegundos
+     *         desde la época.
+     */
+    public long getConstruidoMs() {
+        return this.construidoMs;
+    }
+
+    public int numeroUsuarios() {
+        return this.inicios.length - 1;
+    }
+
+    public int numeroReproducciones() {
+        return this.canciones.length;
+    }
+
+    /**
+     * @return la posición de la primera reproducción del usuario; con
+     *         {@code numeroUsuarios()}, el total.
+     */
+    public int inicioUsuario(int usuario) {
+        return this.inicios[usuario];
+    }
+
+    public int cancion(int posicion) {
+        return this.canciones[posicion];
+    }
+
+    /**
+     * @return el instante en segundos respecto a {@link #BASE_EPOCA_S}, o
+     *         {@link #SIN_INSTANTE}.
+     */
+    public int instante(int posicion) {
+        return this.instantes[posicion];
+    }
+
+    /**
+     * Convierte milisegundos desde la época a la escala de
+     * {@link #instante(int)}, saturando en los extremos.
+     */
+    public static int aInstante(long epocaMs) {
+        long segundos = Math.floorDiv(epocaMs, 1000L) - BASE_EPOCA_S;
+        return (int) Math.max(Integer.MIN_VALUE + 1L, Math.min(Integer.MAX_VALUE, segundos));
+    }
+
+    /**
+     * Construye el registro agregando reproducciones una a una, en cualquier
+     * orden; al construir se agrupan por usuario conservando su orden. Si se
+     * parte de otro registro, las reproducciones agregadas van detrás de las
+     * suyas.
+     */
+    public static final class Constructor {
+
+        private final IndiceCatalogo catalogo;
+        private final RegistroColumnarReproducciones base;
+        private final MapaEnteroEntero densoPorUsuario;
+        private int numeroUsuarios;
+        private int[] idsUsuario;
+        private int[] usuarios = new int[1024];
+        private int[] canciones = new int[1024];
+        private int[] instantes = new int[1024];
+        private int numero;
+        private long descartadas;
+
+        /**
+         * @param catalogo el catálogo con el que se codifican las canciones.
+         */
+        public Constructor(IndiceCatalogo catalogo) {
+            this.catalogo = catalogo;
+            this.base = null;
+            this.densoPorUsuario = new MapaEnteroEntero(1024);
+            this.idsUsuario = new int[1024];
+        }
+
+        /**
+         * @param base el registro del que se parte; las reproducciones se
+         *             codifican con su catálogo.
+         */
+        public Constructor(RegistroColumnarReproducciones base) {
+            this.catalogo = base.catalogo;
+            this.base = base;
+            this.numeroUsuarios = base.numeroUsuarios();
+            this.densoPorUsuario = new MapaEnteroEntero(Math.max(1024, this.numeroUsuarios));
+            this.idsUsuario = Arrays.copyOf(base.idsUsuario, Math.max(1024, this.numeroUsuarios * 2));
+            for (int u = 0; u < this.numeroUsuarios; u++) {
+                this.densoPorUsuario.sumar(base.idsUsuario[u], u);
+            }
+        }
+
+        /**
+         * Agrega una reproducción. Se descarta si el usuario es negativo o el
+         * título no está en el catálogo.
+         *
+         * @param idUsuario el usuario.
+         * @param titulo    el título escuchado.
+         * @param fechaHora la fecha de la reproducción, como la envía el
+         *                  Servidor de Reproducciones.
+         */
+        public void agregar(Integer idUsuario, String titulo, String fechaHora) {
+            int cancion = this.catalogo.buscarCancion(titulo);
+            long instanteMs = FechasReproduccion.aEpocaMs(fechaHora);
+            agregar(idUsuario, cancion, instanteMs == FechasReproduccion.SIN_FECHA ? SIN_INSTANTE : aInstante(instanteMs));
+        }
+
+        /**
+         * Agrega una reproducción ya codificada.
+         *
+         * @param idUsuario el usuario.
+         * @param cancion   el código de la canción en el catálogo.
+         * @param instante  el instante en la escala de
+         *                  {@link RegistroColumnarReproducciones#instante(int)}.
+         */
+        public void agregar(Integer idUsuario, int cancion, int instante) {
+            if (idUsuario == null || idUsuario < 0 || cancion == IndiceCatalogo.NO_ENCONTRADA) {
+                this.descartadas++;
+                return;
+            }
+            int denso = this.densoPorUsuario.obtener(idUsuario);
+            if (denso == MapaEnteroEntero.AUSENTE) {
+                denso = this.numeroUsuarios++;
+                this.densoPorUsuario.sumar(idUsuario, denso);
+                if (denso == this.idsUsuario.length) {
+                    this.idsUsuario = Arrays.copyOf(this.idsUsuario, denso * 2);
+                }
+                this.idsUsuario[denso] = idUsuario;
+            }
+            if (this.numero == this.usuarios.length) {
+                int capacidad = this.usuarios.length * 2;
+                this.usuarios = Arrays.copyOf(this.usuarios, capacidad);
+                this.canciones = Arrays.copyOf(this.canciones, capacidad);
+                this.instantes = Arrays.copyOf(this.instantes, capacidad);
+            }
+            this.usuarios[this.numero] = denso;
+            this.canciones[this.numero] = cancion;
+            this.instantes[this.numero] = instante;
+            this.numero++;
+        }
+
+        /**
+         * @return las reproducciones descartadas hasta ahora.
+         */
+        public long getDescartadas() {
+            return this.descartadas;
+        }
+
+        /**
+         * @return las reproducciones agregadas hasta ahora, sin contar las
+         *         del registro del que se parte ni las descartadas.
+         */
+        public int getAgregadas() {
+            return this.numero;
+        }
+
+        /**
+         * Agrupa las reproducciones por usuario (ordenación por conteo,
+         * estable) y construye el registro. Las de cada usuario en el
+         * registro del que se parte se copian por bloques delante de las
+         * agregadas.
+         */
+        public RegistroColumnarReproducciones construir() {
+            int usuariosBase = this.base != null ? this.base.numeroUsuarios() : 0;
+            int total = (this.base != null ? this.base.numeroReproducciones() : 0) + this.numero;
+            int[] inicios = new int[this.numeroUsuarios + 1];
+            for (int u = 0; u < usuariosBase; u++) {
+                inicios[u + 1] = this.base.inicios[u + 1] - this.base.inicios[u];
+            }
+            for (int p = 0; p < this.numero; p++) {
+                inicios[this.usuarios[p] + 1]++;
+            }
+            for (int u = 0; u < this.numeroUsuarios; u++) {
+                inicios[u + 1] += inicios[u];
+            }
+            int[] siguiente = Arrays.copyOf(inicios, this.numeroUsuarios);
+            int[] cancionesAgrupadas = new int[total];
+            int[] instantesAgrupados = new int[total];
+            for (int u = 0; u < usuariosBase; u++) {
+                int desde = this.base.inicios[u];
+                int longitud = this.base.inicios[u + 1] - desde;
+                System.arraycopy(this.base.canciones, desde, cancionesAgrupadas, inicios[u], longitud);
+                System.arraycopy(this.base.instantes, desde, instantesAgrupados, inicios[u], longitud);
+                siguiente[u] += longitud;
+            }
+            for (int p = 0; p < this.numero; p++) {
+                int destino = siguiente[this.usuarios[p]]++;
+                cancionesAgrupadas[destino] = this.canciones[p];
+                instantesAgrupados[destino] = this.instantes[p];
+            }
+            return new RegistroColumnarReproducciones(this.catalogo, inicios, cancionesAgrupadas, instantesAgrupados,
+                    Arrays.copyOf(this.idsUsuario, this.numeroUsuarios), System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package co.edu.unicauca.fachadaServices.services.componenteTransporteHttp;
+
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import feign.FeignException;
+import feign.RetryableException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cortocircuito (circuit breaker) que protege las llamadas a un servidor
+ * remoto.
+ * <p>
+ * Mientras está {@link Estado#CERRADO} deja pasar todas las llamadas. Tras
+ * {@code <prefijo>.cortocircuito.fallos} fallos consecutivos pasa a
+ * {@link Estado#ABIERTO} y rechaza las llamadas de inmediato, sin ocupar un
+ * hilo esperando a un servidor que no responde. Pasados
+ * {@code <prefijo>.cortocircuito.espera.ms} deja pasar una única llamada de
+ * prueba ({@link Estado#SEMIABIERTO}): si tiene éxito se cierra, y si falla
+ * vuelve a abrirse.
+ * <p>
+ * Solo cuentan como fallos los errores de E/S y las respuestas 5xx; una
+ * respuesta 4xx indica que el servidor está sano.
+ */
+public class Cortocircuito {
+
+    /**
+     * Estados del cortocircuito. El ordinal se publica como indicador.
+     */
+    public enum Estado {
+        CERRADO, ABIERTO, SEMIABIERTO
+    }
+
+    private final String nombre;
+    private final int umbralFallos;
+    private final long esperaMs;
+    private final LongAdder rechazos;
+    private final LongAdder aperturas;
+
+    private Estado estado = Estado.CERRADO;
+    private int fallosConsecutivos;
+    private long abiertoDesdeMs;
+
+    /**
+     * @param nombre       nombre del servidor protegido, usado en los
+     *                     mensajes y métricas.
+     * @param umbralFallos fallos consecutivos que abren el cortocircuito.
+     * @param esperaMs     tiempo que permanece abierto antes de la llamada de
+     *                     prueba.
+     */
+    public Cortocircuito(String nombre, int umbralFallos, long esperaMs) {
+        this.nombre = nombre;
+        this.umbralFallos = Math.max(1, umbralFallos);
+        this.esperaMs = esperaMs;
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.rechazos = metricas.contador(nombre + ".cortocircuito.rechazos");
+        this.aperturas = metricas.contador(nombre + ".cortocircuito.aperturas");
+        metricas.registrarIndicador(nombre + ".cortocircuito.estado", () -> getEstado().ordinal());
+    }
+
+    /**
+     * Crea el cortocircuito del servidor con el prefijo dado a partir de
+     * {@code <prefijo>.cortocircuito.fallos} y
+     * {@code <prefijo>.cortocircuito.espera.ms}.
+     *
+     * @param prefijo el prefijo de las propiedades (por ejemplo,
+     *                {@code "reproducciones"}).
+     * @return el cortocircuito.
+     */
+    public static Cortocircuito desdeConfiguracion(String prefijo) {
+        return new Cortocircuito(prefijo,
+                LectorPropiedadesConfig.getInt(prefijo + ".cortocircuito.fallos", 5),
+                LectorPropiedadesConfig.getLong(prefijo + ".cortocircuito.espera.ms", 10_000L));
+    }
+
+    /**
+     * Indica si se puede realizar una llamada. Si devuelve {@code true}, el
+     * llamador debe informar el resultado con {@link #registrarExito()} o
+     * {@link #registrarFallo()}.
+     *
+     * @return {@code false} si el cortocircuito está abierto o ya hay una
+     *         llamada de prueba en curso.
+     */
+    public synchronized boolean permitir() {
+        if (this.estado == Estado.CERRADO) {
+            return true;
+        }
+        if (this.estado == Estado.ABIERTO && System.currentTimeMillis() - this.abiertoDesdeMs >= this.esperaMs) {
+            this.estado = Estado.SEMIABIERTO;
+            return true;
+        }
+        this.rechazos.increment();
+        return false;
+    }
+
+    /**
+     * Informa que la llamada permitida terminó bien; cierra el cortocircuito.
+     */
+    public synchronized void registrarExito() {
+        if (this.estado != Estado.CERRADO) {
+            System.out.println("--> Cortocircuito " + this.nombre + ": cerrado, el servidor responde de nuevo");
+        }
+        this.estado = Estado.CERRADO;
+        this.fallosConsecutivos = 0;
+    }
+
+    /**
+     * Informa que la llamada permitida falló; abre el cortocircuito si era la
+     * llamada de prueba o si se alcanzó el umbral de fallos consecutivos.
+     */
+    public synchronized void registrarFallo() {
+        this.fallosConsecutivos++;
+        if (this.estado == Estado.SEMIABIERTO
+                || (this.estado == Estado.CERRADO && this.fallosConsecutivos >= this.umbralFallos)) {
+            this.estado = Estado.ABIERTO;
+            this.abiertoDesdeMs = System.currentTimeMillis();
+            this.aperturas.increment();
+            System.err.println("--> Cortocircuito " + this.nombre + ": abierto durante " + this.esperaMs
+                    + " ms tras " + this.fallosConsecutivos + " fallos consecutivos");
+        }
+    }
+
+    /**
+     * Ejecuta una llamada protegida por el cortocircuito.
+     *
+     * @param llamada la llamada remota.
+     * @return el resultado de la llamada.
+     * @throws IllegalStateException si el cortocircuito está abierto.
+     * @throws RuntimeException      el error de la propia llamada.
+     */
+    public <T> T ejecutar(Supplier<T> llamada) {
+        if (!permitir()) {
+            throw new IllegalStateException("Servidor de " + this.nombre + " no disponible (cortocircuito abierto)");
+        }
+        T resultado;
+        try {
+            resultado = llamada.get();
+        } catch (RuntimeException e) {
+            if (esFalloDelServidor(e)) {
+                registrarFallo();
+            } else {
+                registrarExito();
+            }
+            throw e;
+        }
+        registrarExito();
+        return resultado;
+    }
+
+    private static boolean esFalloDelServidor(RuntimeException e) {
+        return e instanceof RetryableException
+                || !(e instanceof FeignException)
+                || ((FeignException) e).status() >= 500;
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+}
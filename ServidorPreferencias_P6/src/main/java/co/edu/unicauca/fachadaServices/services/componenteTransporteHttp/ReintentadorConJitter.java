@@ -0,0 +1,62 @@
+package co.edu.unicauca.fachadaServices.services.componenteTransporteHttp;
+
+import feign.RetryableException;
+import feign.Retryer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Política de reintentos de Feign con espera exponencial y jitter completo.
+ * <p>
+ * Feign solo consulta esta política ante errores reintentables (errores de
+ * E/S, como una conexión rechazada o un plazo de lectura vencido). Antes del
+ * reintento {@code n} se espera un tiempo aleatorio entre 0 y
+ * {@code min(esperaMaxima, esperaBase * 2^(n-1))}, para que las peticiones que
+ * fallaron a la vez no vuelvan a llegar juntas al servidor.
+ * <p>
+ * Feign clona la política en cada petición, así que cada instancia solo
+ * lleva la cuenta de los intentos de una petición.
+ */
+class ReintentadorConJitter implements Retryer {
+
+    private final int reintentosMaximos;
+    private final long esperaBaseMs;
+    private final long esperaMaximaMs;
+    private final LongAdder reintentos;
+    private int intento;
+
+    /**
+     * @param reintentosMaximos reintentos adicionales tras el primer intento;
+     *                          0 los desactiva.
+     * @param esperaBaseMs      espera máxima antes del primer reintento.
+     * @param esperaMaximaMs    tope de la espera entre reintentos.
+     * @param reintentos        contador donde se registran los reintentos.
+     */
+    ReintentadorConJitter(int reintentosMaximos, long esperaBaseMs, long esperaMaximaMs, LongAdder reintentos) {
+        this.reintentosMaximos = Math.max(0, reintentosMaximos);
+        this.esperaBaseMs = Math.max(1L, esperaBaseMs);
+        this.esperaMaximaMs = Math.max(this.esperaBaseMs, esperaMaximaMs);
+        this.reintentos = reintentos;
+    }
+
+    @Override
+    public void continueOrPropagate(RetryableException e) {
+        if (this.intento >= this.reintentosMaximos) {
+            throw e;
+        }
+        this.intento++;
+        long tope = Math.min(this.esperaMaximaMs, this.esperaBaseMs << Math.min(this.intento - 1, 30));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(tope + 1));
+        } catch (InterruptedException interrupcion) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        this.reintentos.increment();
+    }
+
+    @Override
+    public Retryer clone() {
+        return new ReintentadorConJitter(this.reintentosMaximos, this.esperaBaseMs, this.esperaMaximaMs, this.reintentos);
+    }
+}
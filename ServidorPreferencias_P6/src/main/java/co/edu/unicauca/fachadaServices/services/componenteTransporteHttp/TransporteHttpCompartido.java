@@ -0,0 +1,92 @@
+package co.edu.unicauca.fachadaServices.services.componenteTransporteHttp;
+
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import feign.Client;
+import feign.Feign;
+import feign.Request;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Transporte HTTP compartido por los clientes Feign de los servidores de
+ * Canciones y Reproducciones.
+ * <p>
+ * Ambos clientes usan una misma instancia de OkHttp, con un pool de
+ * conexiones persistentes (keep-alive) acotado, en lugar del transporte por
+ * defecto de Feign. Cada servidor tiene sus propios plazos de conexión y
+ * lectura y su propia política de reintentos, leídos de
+ * {@code application.properties} con el prefijo del servidor:
+ * <ul>
+ *   <li>{@code <prefijo>.http.conexion.ms} y {@code <prefijo>.http.lectura.ms}:
+ *       plazos de conexión y de lectura.</li>
+ *   <li>{@code <prefijo>.http.reintentos}, {@code <prefijo>.http.reintentos.espera.ms}
+ *       y {@code <prefijo>.http.reintentos.espera.maxima.ms}: reintentos
+ *       adicionales ante errores de E/S y su espera con jitter.</li>
+ * </ul>
+ * Con {@code http.h2c=true} se habla HTTP/2 sin TLS (conocimiento previo), lo
+ * que solo funciona si el servidor remoto lo admite.
+ *
+ * @see Cortocircuito
+ */
+public final class TransporteHttpCompartido {
+
+    private static final ConnectionPool POOL = new ConnectionPool(
+            LectorPropiedadesConfig.getInt("http.pool.conexiones", 32),
+            LectorPropiedadesConfig.getLong("http.pool.inactividad.ms", 300_000L),
+            TimeUnit.MILLISECONDS);
+
+    private static final OkHttpClient OK_HTTP = crearOkHttp();
+
+    private static final Client CLIENTE = new feign.okhttp.OkHttpClient(OK_HTTP);
+
+    static {
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        metricas.registrarIndicador("http.pool.conexiones", POOL::connectionCount);
+        metricas.registrarIndicador("http.pool.inactivas", POOL::idleConnectionCount);
+        metricas.registrarIndicador("http.pool.activas", () -> POOL.connectionCount() - POOL.idleConnectionCount());
+    }
+
+    private TransporteHttpCompartido() {
+    }
+
+    private static OkHttpClient crearOkHttp() {
+        // OkHttp repite por su cuenta, en una conexión nueva, las peticiones
+        // que fallan porque el servidor cerró una conexión del pool; los
+        // reintentos con espera quedan para los errores reales.
+        OkHttpClient.Builder constructor = new OkHttpClient.Builder()
+                .connectionPool(POOL)
+                .retryOnConnectionFailure(true);
+        if (LectorPropiedadesConfig.getBoolean("http.h2c", false)) {
+            constructor.protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        }
+        return constructor.build();
+    }
+
+    /**
+     * Crea un constructor de Feign que usa el transporte compartido, con los
+     * plazos y reintentos configurados para el servidor indicado.
+     *
+     * @param prefijo el prefijo de las propiedades del servidor (por ejemplo,
+     *                {@code "canciones"}).
+     * @return el constructor, listo para añadir el decodificador y el destino.
+     */
+    public static Feign.Builder constructor(String prefijo) {
+        Request.Options opciones = new Request.Options(
+                LectorPropiedadesConfig.getLong(prefijo + ".http.conexion.ms", 1_000L), TimeUnit.MILLISECONDS,
+                LectorPropiedadesConfig.getLong(prefijo + ".http.lectura.ms", 3_000L), TimeUnit.MILLISECONDS,
+                true);
+        ReintentadorConJitter reintentador = new ReintentadorConJitter(
+                LectorPropiedadesConfig.getInt(prefijo + ".http.reintentos", 1),
+                LectorPropiedadesConfig.getLong(prefijo + ".http.reintentos.espera.ms", 50L),
+                LectorPropiedadesConfig.getLong(prefijo + ".http.reintentos.espera.maxima.ms", 500L),
+                RegistroMetricas.getInstancia().contador(prefijo + ".http.reintentos"));
+        return Feign.builder()
+                .client(CLIENTE)
+                .options(opciones)
+                .retryer(reintentador);
+    }
+}
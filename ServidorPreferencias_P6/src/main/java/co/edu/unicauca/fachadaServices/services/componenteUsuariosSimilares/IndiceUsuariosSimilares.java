@@ -0,0 +1,557 @@
+package co.edu.unicauca.fachadaServices.services.componenteUsuariosSimilares;
+
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.fachadaServices.DTO.UsuarioSimilarDTORespuesta;
+import co.edu.unicauca.fachadaServices.services.componenteAgregadosReproducciones.AgregadoUsuario;
+import co.edu.unicauca.fachadaServices.services.componenteCalculaPreferencias.SeleccionMayores;
+import co.edu.unicauca.fachadaServices.services.componenteComunicacionServidorReproducciones.ComunicacionServidorReproducciones;
+import co.edu.unicauca.metricas.HistogramaLatencias;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import co.edu.unicauca.utilidades.FabricaHilosDemonio;
+import co.edu.unicauca.utilidades.MapaEnteroEntero;
+import co.edu.unicauca.utilidades.MapaLargoEntero;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Búsqueda aproximada de usuarios con gustos parecidos ("oyentes como tú")
+ * mediante firmas MinHash y un índice LSH por bandas.
+ * <p>
+ * La firma de un usuario guarda, para cada una de {@code permutaciones}
+ * funciones de hash, el mínimo hash de los títulos que ha escuchado. La
+ * probabilidad de que dos firmas coincidan en una posición es el índice de
+ * Jaccard entre los conjuntos de títulos, así que la fracción de posiciones
+ * iguales lo estima sin comparar los conjuntos. Como el mínimo solo puede
+ * bajar, sumar un título nuevo es actualizar la firma en sitio, y aplicar el
+ * mismo título dos veces, o en cualquier orden, no cambia el resultado.
+ * <p>
+ * La firma se divide en {@code bandas} y cada banda se guarda en una cubeta
+ * por su hash. Dos usuarios son candidatos si coinciden en al menos una
+ * banda entera, lo que ocurre con alta probabilidad cuando su similitud es
+ * alta y con baja probabilidad cuando no lo es. Una consulta recorre solo
+ * las cubetas del usuario, como máximo {@code maximoPorCubeta} candidatos
+ * por cubeta, y ordena los candidatos por su similitud estimada: el coste no
+ * depende del número de usuarios.
+ * <p>
+ * Los usuarios ocupan ranuras en arreglos planos de enteros (firmas, claves
+ * de banda y listas doblemente enlazadas de cada cubeta), de modo que la
+ * memoria es proporcional al número de usuarios indexados, que se acota con
+ * {@code maximoUsuarios}; los usuarios nuevos que no caben se descartan. La
+ * memoria estimada se publica en la métrica {@code similares.memoria.bytes}.
+ * <p>
+ * Al arrancar se recorre el historial de todos los usuarios; después, las
+ * firmas se mantienen con las reproducciones nuevas de cada agregado
+ * ({@link #sincronizarUsuario(Integer, AgregadoUsuario)}). Con varias
+ * instancias, cada una recibe las reproducciones nuevas solo de sus
+ * usuarios, así que las firmas de los demás reflejan el historial del
+ * arranque.
+ * <p>
+ * Es seguro para hilos: las consultas comparten un candado de lectura y las
+ * actualizaciones toman el de escritura.
+ */
+public final class IndiceUsuariosSimilares {
+
+    public static final int PERMUTACIONES_POR_DEFECTO = 32;
+    public static final int BANDAS_POR_DEFECTO = 16;
+    public static final int MAXIMO_USUARIOS_POR_DEFECTO = 100_000;
+    public static final int MAXIMO_POR_CUBETA_POR_DEFECTO = 200;
+
+    private static final int RANURAS_INICIALES = 1024;
+    private static final int SIN_RANURA = -1;
+
+    /**
+     * Valor de las posiciones de una firma sin títulos.
+     */
+    private static final int FIRMA_VACIA = Integer.MAX_VALUE;
+
+    private static final long FNV_BASE = 0xcbf29ce484222325L;
+    private static final long FNV_PRIMO = 0x100000001b3L;
+
+    private final int permutaciones;
+    private final int bandas;
+    private final int filasPorBanda;
+    private final int maximoUsuarios;
+    private final int maximoPorCubeta;
+
+    /**
+     * Semilla de cada función de hash de la firma.
+     */
+    private final long[] semillas;
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+    private final MapaEnteroEntero ranuraPorUsuario = new MapaEnteroEntero(RANURAS_INICIALES);
+    private int numeroRanuras;
+    private int[] idPorRanura = new int[RANURAS_INICIALES];
+
+    /**
+     * Firmas de todas las ranuras, {@code permutaciones} enteros por ranura.
+     */
+    private int[] firmas;
+
+    /**
+     * Hasta dónde se recorrió el agregado de cada usuario.
+     */
+    private int[] titulosVistos = new int[RANURAS_INICIALES];
+    private long[] sincronizacionVista = new long[RANURAS_INICIALES];
+
+    /**
+     * Clave de la cubeta de cada ranura en cada banda, {@code bandas} por
+     * ranura; {@link MapaLargoEntero#VACIA} si la ranura no está en cubetas.
+     */
+    private long[] clavesBanda;
+
+    /**
+     * Ranuras siguiente y anterior dentro de la misma cubeta, con el mismo
+     * orden que {@link #clavesBanda}; {@link #SIN_RANURA} en los extremos.
+     */
+    private int[] siguientes;
+    private int[] anteriores;
+
+    /**
+     * Primera ranura de cada cubeta, por banda.
+     */
+    private final MapaLargoEntero[] cabezas;
+
+    private final ThreadLocal<AcumuladorCandidatos> acumuladores = ThreadLocal.withInitial(AcumuladorCandidatos::new);
+
+    private final ExecutorService ejecutorArranque;
+
+    private final HistogramaLatencias latenciaConsulta;
+    private final LongAdder actualizaciones;
+    private final LongAdder descartados;
+    private final LongAdder errores;
+
+    /**
+     * @param permutaciones   funciones de hash de cada firma; se redondea a
+     *                        un múltiplo de {@code bandas}.
+     * @param bandas          bandas en las que se divide la firma.
+     * @param maximoUsuarios  usuarios que se pueden indexar como máximo.
+     * @param maximoPorCubeta candidatos que se recorren como máximo en cada
+     *                        cubeta durante una consulta.
+     */
+    public IndiceUsuariosSimilares(int permutaciones, int bandas, int maximoUsuarios, int maximoPorCubeta) {
+        this.bandas = Math.max(1, bandas);
+        this.filasPorBanda = Math.max(1, (permutaciones + this.bandas - 1) / this.bandas);
+        this.permutaciones = this.bandas * this.filasPorBanda;
+        this.maximoUsuarios = Math.max(1, maximoUsuarios);
+        this.maximoPorCubeta = Math.max(1, maximoPorCubeta);
+
+        this.semillas = new long[this.permutaciones];
+        for (int i = 0; i < this.permutaciones; i++) {
+            this.semillas[i] = mezclar((i + 1) * 0x9E3779B97F4A7C15L);
+        }
+        this.firmas = new int[RANURAS_INICIALES * this.permutaciones];
+        this.clavesBanda = new long[RANURAS_INICIALES * this.bandas];
+        this.siguientes = new int[RANURAS_INICIALES * this.bandas];
+        this.anteriores = new int[RANURAS_INICIALES * this.bandas];
+        this.cabezas = new MapaLargoEntero[this.bandas];
+        for (int b = 0; b < this.bandas; b++) {
+            this.cabezas[b] = new MapaLargoEntero(RANURAS_INICIALES);
+        }
+        this.ejecutorArranque = Executors.newSingleThreadExecutor(new FabricaHilosDemonio("similares-arranque"));
+
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.latenciaConsulta = metricas.latencias("similares.consulta");
+        this.actualizaciones = metricas.contador("similares.actualizaciones");
+        this.descartados = metricas.contador("similares.descartados");
+        this.errores = metricas.contador("similares.errores");
+        metricas.registrarIndicador("similares.usuarios", this::getNumeroUsuarios);
+        metricas.registrarIndicador("similares.memoria.bytes", this::getMemoriaEstimada);
+    }
+
+    /**
+     * Crea el índice según las propiedades {@code preferencias.similares.*}.
+     *
+     * @return el índice, o {@code null} si la búsqueda de usuarios similares
+     *         está desactivada.
+     */
+    public static IndiceUsuariosSimilares desdeConfiguracion() {
+        if (!LectorPropiedadesConfig.getBoolean("preferencias.similares.activos", true)) {
+            return null;
+        }
+        return new IndiceUsuariosSimilares(
+                LectorPropiedadesConfig.getInt("preferencias.similares.permutaciones", PERMUTACIONES_POR_DEFECTO),
+                LectorPropiedadesConfig.getInt("preferencias.similares.bandas", BANDAS_POR_DEFECTO),
+                LectorPropiedadesConfig.getInt("preferencias.similares.maximoUsuarios", MAXIMO_USUARIOS_POR_DEFECTO),
+                LectorPropiedadesConfig.getInt("preferencias.similares.maximoPorCubeta", MAXIMO_POR_CUBETA_POR_DEFECTO));
+    }
+
+    /**
+     * Recorre en segundo plano el historial de todos los usuarios y suma sus
+     * títulos a las firmas. Las consultas pueden atenderse mientras tanto,
+     * con las firmas que ya estén calculadas.
+     *
+     * @param reproducciones el cliente del Servidor de Reproducciones.
+     */
+    public void iniciar(ComunicacionServidorReproducciones reproducciones) {
+        this.ejecutorArranque.execute(() -> {
+            long inicio = System.nanoTime();
+            try {
+                long recorridas = reproducciones.recorrerTodasLasReproducciones(reproduccion -> {
+                    if (reproduccion.getIdUsuario() != null && reproduccion.getTitulo() != null) {
+                        agregarTitulo(reproduccion.getIdUsuario(), reproduccion.getTitulo());
+                    }
+                });
+                System.out.println("Indice de usuarios similares construido con " + recorridas + " reproducciones de "
+                        + getNumeroUsuarios() + " usuarios (" + getMemoriaEstimada() / 1024 + " KiB) en "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+            } catch (RuntimeException e) {
+                this.errores.increment();
+                System.err.println("ERROR al construir el indice de usuarios similares: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Suma un título a la firma del usuario.
+     *
+     * @param idUsuario el usuario; los negativos se ignoran.
+     * @param titulo    el título escuchado.
+     */
+    public void agregarTitulo(Integer idUsuario, String titulo) {
+        this.candado.writeLock().lock();
+        try {
+            int ranura = ranuraDe(idUsuario, true);
+            if (ranura != SIN_RANURA && sumarTitulo(ranura, titulo)) {
+                reubicar(ranura);
+            }
+        } finally {
+            this.candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Suma a la firma del usuario los títulos que escuchó desde la última
+     * sincronización. Si el agregado no cambió, no hace nada y solo toma el
+     * candado de lectura; si se reconstruyó, la firma se recalcula desde
+     * cero. El llamador debe tener sincronizado el agregado.
+     *
+     * @param idUsuario el usuario.
+     * @param agregado  su agregado de reproducciones.
+     */
+    public void sincronizarUsuario(Integer idUsuario, AgregadoUsuario agregado) {
+        int numeroTitulos = agregado.numeroTitulos();
+        long sincronizacion = agregado.getInstanteSincronizacionMs();
+        this.candado.readLock().lock();
+        try {
+            int ranura = ranuraDe(idUsuario, false);
+            if (ranura != SIN_RANURA && this.titulosVistos[ranura] == numeroTitulos
+                    && this.sincronizacionVista[ranura] == sincronizacion) {
+                return;
+            }
+        } finally {
+            this.candado.readLock().unlock();
+        }
+
+        this.candado.writeLock().lock();
+        try {
+            int ranura = ranuraDe(idUsuario, true);
+            if (ranura == SIN_RANURA) {
+                return;
+            }
+            int desde = this.titulosVistos[ranura];
+            long vista = this.sincronizacionVista[ranura];
+            if (vista != 0L && (vista != sincronizacion || desde > numeroTitulos)) {
+                // El agregado se reconstruyó: puede haber perdido títulos.
+                quitarDeCubetas(ranura);
+                Arrays.fill(this.firmas, ranura * this.permutaciones, (ranura + 1) * this.permutaciones, FIRMA_VACIA);
+                desde = 0;
+            } else if (vista == 0L) {
+                desde = 0;
+            }
+            boolean cambio = false;
+            for (int posicion = desde; posicion < numeroTitulos; posicion++) {
+                cambio |= sumarTitulo(ranura, agregado.titulo(posicion));
+            }
+            this.titulosVistos[ranura] = numeroTitulos;
+            this.sincronizacionVista[ranura] = sincronizacion;
+            if (cambio || this.clavesBanda[ranura * this.bandas] == MapaLargoEntero.VACIA) {
+                reubicar(ranura);
+            }
+            this.actualizaciones.increment();
+        } finally {
+            this.candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve los usuarios más parecidos al indicado.
+     *
+     * @param idUsuario el usuario.
+     * @param limite    número máximo de usuarios.
+     * @return los usuarios parecidos, de mayor a menor similitud estimada;
+     *         vacía si el usuario no está indexado o no comparte ninguna
+     *         banda con nadie.
+     */
+    public List<UsuarioSimilarDTORespuesta> usuariosSimilares(Integer idUsuario, int limite) {
+        long inicio = System.nanoTime();
+        this.candado.readLock().lock();
+        try {
+            int ranura = ranuraDe(idUsuario, false);
+            if (ranura == SIN_RANURA || limite <= 0 || this.clavesBanda[ranura * this.bandas] == MapaLargoEntero.VACIA) {
+                return new ArrayList<>();
+            }
+            AcumuladorCandidatos acumulador = this.acumuladores.get();
+            acumulador.asegurarCapacidad(this.numeroRanuras);
+            int sello = acumulador.nuevoSello();
+            acumulador.vistos[ranura] = sello;
+
+            int numeroCandidatos = 0;
+            int base = ranura * this.permutaciones;
+            for (int b = 0; b < this.bandas; b++) {
+                int candidato = this.cabezas[b].obtener(this.clavesBanda[ranura * this.bandas + b]);
+                for (int recorridos = 0; candidato != SIN_RANURA && recorridos < this.maximoPorCubeta; recorridos++) {
+                    if (acumulador.vistos[candidato] != sello) {
+                        acumulador.vistos[candidato] = sello;
+                        int coincidencias = 0;
+                        int otra = candidato * this.permutaciones;
+                        for (int i = 0; i < this.permutaciones; i++) {
+                            if (this.firmas[base + i] == this.firmas[otra + i]) {
+                                coincidencias++;
+                            }
+                        }
+                        // Clave: coincidencias en los 32 bits altos y, ante
+                        // empates, gana la ranura menor.
+                        acumulador.claves[numeroCandidatos++] = ((long) coincidencias << 32) | (Integer.MAX_VALUE - candidato);
+                    }
+                    candidato = this.siguientes[candidato * this.bandas + b];
+                }
+            }
+
+            int seleccionados = SeleccionMayores.seleccionar(acumulador.claves, numeroCandidatos, limite);
+            List<UsuarioSimilarDTORespuesta> similares = new ArrayList<>(seleccionados);
+            for (int t = seleccionados - 1; t >= 0; t--) {
+                int candidato = Integer.MAX_VALUE - (int) acumulador.claves[t];
+                double similitud = (double) (acumulador.claves[t] >>> 32) / this.permutaciones;
+                similares.add(new UsuarioSimilarDTORespuesta(this.idPorRanura[candidato], similitud));
+            }
+            return similares;
+        } finally {
+            this.candado.readLock().unlock();
+            this.latenciaConsulta.registrarDesde(inicio);
+        }
+    }
+
+    /**
+     * @return el número de usuarios indexados.
+     */
+    public long getNumeroUsuarios() {
+        this.candado.readLock().lock();
+        try {
+            return this.numeroRanuras;
+        } finally {
+            this.candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return los bytes que ocupan los arreglos del índice, sin contar los
+     *         acumuladores de consulta de cada hilo.
+     */
+    public long getMemoriaEstimada() {
+        this.candado.readLock().lock();
+        try {
+            long bytes = 4L * this.idPorRanura.length + 4L * this.firmas.length + 4L * this.titulosVistos.length
+                    + 8L * this.sincronizacionVista.length + 8L * this.clavesBanda.length
+                    + 4L * this.siguientes.length + 4L * this.anteriores.length
+                    + 8L * this.ranuraPorUsuario.capacidad();
+            for (MapaLargoEntero cabeza : this.cabezas) {
+                bytes += 12L * cabeza.capacidad();
+            }
+            return bytes;
+        } finally {
+            this.candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Detiene el recorrido inicial si sigue en curso.
+     */
+    public void cerrar() {
+        this.ejecutorArranque.shutdownNow();
+    }
+
+    /**
+     * Devuelve la ranura del usuario, creándola si se pide y cabe. Crear solo
+     * es válido con el candado de escritura.
+     */
+    private int ranuraDe(Integer idUsuario, boolean crear) {
+        if (idUsuario == null || idUsuario < 0) {
+            return SIN_RANURA;
+        }
+        int ranura = this.ranuraPorUsuario.obtener(idUsuario);
+        if (ranura != MapaEnteroEntero.AUSENTE || !crear) {
+            return ranura == MapaEnteroEntero.AUSENTE ? SIN_RANURA : ranura;
+        }
+        if (this.numeroRanuras == this.maximoUsuarios) {
+            this.descartados.increment();
+            return SIN_RANURA;
+        }
+        ranura = this.numeroRanuras++;
+        if (ranura == this.idPorRanura.length) {
+            crecer(Math.min(this.maximoUsuarios, ranura * 2));
+        }
+        this.ranuraPorUsuario.sumar(idUsuario, ranura);
+        this.idPorRanura[ranura] = idUsuario;
+        Arrays.fill(this.firmas, ranura * this.permutaciones, (ranura + 1) * this.permutaciones, FIRMA_VACIA);
+        Arrays.fill(this.clavesBanda, ranura * this.bandas, (ranura + 1) * this.bandas, MapaLargoEntero.VACIA);
+        return ranura;
+    }
+
+    private void crecer(int ranuras) {
+        this.idPorRanura = Arrays.copyOf(this.idPorRanura, ranuras);
+        this.titulosVistos = Arrays.copyOf(this.titulosVistos, ranuras);
+        this.sincronizacionVista = Arrays.copyOf(this.sincronizacionVista, ranuras);
+        this.firmas = Arrays.copyOf(this.firmas, ranuras * this.permutaciones);
+        this.clavesBanda = Arrays.copyOf(this.clavesBanda, ranuras * this.bandas);
+        this.siguientes = Arrays.copyOf(this.siguientes, ranuras * this.bandas);
+        this.anteriores = Arrays.copyOf(this.anteriores, ranuras * this.bandas);
+    }
+
+    /**
+     * Baja la firma de la ranura con los hashes del título.
+     *
+     * @return {@code true} si cambió alguna posición de la firma.
+     */
+    private boolean sumarTitulo(int ranura, String titulo) {
+        long hashTitulo = hashCadena(titulo);
+        int base = ranura * this.permutaciones;
+        boolean cambio = false;
+        for (int i = 0; i < this.permutaciones; i++) {
+            int valor = (int) (mezclar(hashTitulo ^ this.semillas[i]) >>> 33);
+            if (valor < this.firmas[base + i]) {
+                this.firmas[base + i] = valor;
+                cambio = true;
+            }
+        }
+        return cambio;
+    }
+
+    /**
+     * Mueve la ranura a las cubetas que corresponden a su firma actual, solo
+     * en las bandas que cambiaron.
+     */
+    private void reubicar(int ranura) {
+        for (int b = 0; b < this.bandas; b++) {
+            long clave = claveBanda(ranura, b);
+            int posicion = ranura * this.bandas + b;
+            long anterior = this.clavesBanda[posicion];
+            if (anterior == clave) {
+                continue;
+            }
+            if (anterior != MapaLargoEntero.VACIA) {
+                quitarDeCubeta(ranura, b);
+            }
+            int cabeza = this.cabezas[b].obtener(clave);
+            this.siguientes[posicion] = cabeza == MapaLargoEntero.AUSENTE ? SIN_RANURA : cabeza;
+            this.anteriores[posicion] = SIN_RANURA;
+            if (cabeza != MapaLargoEntero.AUSENTE) {
+                this.anteriores[cabeza * this.bandas + b] = ranura;
+            }
+            this.cabezas[b].poner(clave, ranura);
+            this.clavesBanda[posicion] = clave;
+        }
+    }
+
+    private void quitarDeCubetas(int ranura) {
+        if (this.clavesBanda[ranura * this.bandas] == MapaLargoEntero.VACIA) {
+            return;
+        }
+        for (int b = 0; b < this.bandas; b++) {
+            quitarDeCubeta(ranura, b);
+            this.clavesBanda[ranura * this.bandas + b] = MapaLargoEntero.VACIA;
+        }
+    }
+
+    private void quitarDeCubeta(int ranura, int banda) {
+        int posicion = ranura * this.bandas + banda;
+        int anterior = this.anteriores[posicion];
+        int siguiente = this.siguientes[posicion];
+        if (anterior == SIN_RANURA) {
+            if (siguiente == SIN_RANURA) {
+                this.cabezas[banda].eliminar(this.clavesBanda[posicion]);
+            } else {
+                this.cabezas[banda].poner(this.clavesBanda[posicion], siguiente);
+            }
+        } else {
+            this.siguientes[anterior * this.bandas + banda] = siguiente;
+        }
+        if (siguiente != SIN_RANURA) {
+            this.anteriores[siguiente * this.bandas + banda] = anterior;
+        }
+    }
+
+    /**
+     * Hash de las filas de una banda de la firma, combinado con el número de
+     * banda.
+     */
+    private long claveBanda(int ranura, int banda) {
+        long hash = FNV_BASE ^ banda;
+        int desde = ranura * this.permutaciones + banda * this.filasPorBanda;
+        for (int i = desde; i < desde + this.filasPorBanda; i++) {
+            hash = (hash ^ this.firmas[i]) * FNV_PRIMO;
+        }
+        long clave = mezclar(hash);
+        return clave == MapaLargoEntero.VACIA ? 0L : clave;
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre los caracteres del título.
+     */
+    private static long hashCadena(String cadena) {
+        long hash = FNV_BASE;
+        for (int i = 0; i < cadena.length(); i++) {
+            hash ^= cadena.charAt(i);
+            hash *= FNV_PRIMO;
+        }
+        return hash;
+    }
+
+    /**
+     * Mezclado final de 64 bits de MurmurHash3.
+     */
+    private static long mezclar(long valor) {
+        long h = valor;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Candidatos de una consulta, reutilizados entre consultas del mismo
+     * hilo. Los candidatos ya vistos se marcan con un sello por consulta, de
+     * modo que no hay que limpiar las marcas.
+     */
+    private static final class AcumuladorCandidatos {
+        int[] vistos = new int[0];
+        long[] claves = new long[0];
+        int sello;
+
+        void asegurarCapacidad(int ranuras) {
+            if (this.vistos.length < ranuras) {
+                int capacidad = Math.max(ranuras, this.vistos.length * 2);
+                this.vistos = new int[capacidad];
+                this.claves = new long[capacidad];
+                this.sello = 0;
+            }
+        }
+
+        int nuevoSello() {
+            if (++this.sello == Integer.MAX_VALUE) {
+                Arrays.fill(this.vistos, 0);
+                this.sello = 1;
+            }
+            return this.sello;
+        }
+    }
+}
@@ -3,6 +3,11 @@ package co.edu.unicauca.main;
 import co.edu.unicauca.capaDeControladores.ControladorPreferenciasUsuariosIml;
 import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
 import co.edu.unicauca.configuracion.servicios.ServidorDeObjetos;
+import co.edu.unicauca.configuracion.servicios.ServidorGrpc;
+import co.edu.unicauca.fachadaServices.services.IPreferenciasService;
+import co.edu.unicauca.fachadaServices.services.PreferenciasServiceImpl;
+import co.edu.unicauca.metricas.RegistroMetricas;
+import co.edu.unicauca.metricas.VolcadoMetricas;
 
 public class Main {
     public static void main(String[] args) {
@@ -13,13 +18,24 @@ public class Main {
         //paso 1: arrancar o crear el ns
         ServidorDeObjetos.arrancarNS(direccionIPNS, puertoNS);
 
-        //paso 2: crear el objeto remoto
-        ControladorPreferenciasUsuariosIml objControladorPreferencias = ServidorDeObjetos.crearObjetoRemoto();
+        //paso 2: crear el objeto remoto; RMI y gRPC comparten el mismo servicio (y sus caches)
+        IPreferenciasService servicioPreferencias = new PreferenciasServiceImpl();
+        ControladorPreferenciasUsuariosIml objControladorPreferencias = ServidorDeObjetos.crearObjetoRemoto(servicioPreferencias);
 
-        //paso 3: registrar el objeto remoto en el ns
-        String identificadorObjetoRemoto = "objControladorPreferenciasUsuarios";
+        //paso 3: registrar el objeto remoto en el ns, con el nombre de este nodo si
+        //los usuarios se reparten entre varias instancias (preferencias.nodos)
+        String nombreNodo = LectorPropiedadesConfig.get("preferencias.nodo.nombre");
+        String identificadorObjetoRemoto = nombreNodo != null && !nombreNodo.isBlank()
+                ? nombreNodo.trim() : "objControladorPreferenciasUsuarios";
         ServidorDeObjetos.registrarObjetoRemoto(objControladorPreferencias, direccionIPNS, puertoNS, identificadorObjetoRemoto);
 
+        //paso 4: arrancar el endpoint gRPC
+        ServidorGrpc.arrancar(servicioPreferencias, LectorPropiedadesConfig.getInt("grpc.port", 50052));
+
+        //paso 5: publicar las metricas por JMX y, si esta configurado, volcarlas a un archivo
+        RegistroMetricas.getInstancia().publicarJmx();
+        VolcadoMetricas.iniciarDesdeConfiguracion();
+
     }
 }
 
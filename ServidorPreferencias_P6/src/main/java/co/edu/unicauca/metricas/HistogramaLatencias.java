@@ -0,0 +1,129 @@
+package co.edu.unicauca.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma concurrente de valores no negativos con cubetas log-lineales, al
+ * estilo de HdrHistogram.
+ * <p>
+ * Los valores menores que 64 tienen una cubeta propia; a partir de ahí cada
+ * potencia de dos se divide en 32 cubetas iguales, de modo que el error
+ * relativo de cualquier percentil es como máximo de un 3 %. El histograma
+ * ocupa un arreglo fijo de contadores y registrar un valor es un cálculo de
+ * bits y un incremento atómico, sin candados ni reservas de memoria.
+ */
+public final class HistogramaLatencias {
+
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int LIMITE_LINEAL = 2 * SUBCUBETAS;
+    private static final int NUMERO_CUBETAS = (64 - BITS_SUBCUBETA) * SUBCUBETAS;
+
+    private final String unidad;
+    private final AtomicLongArray cubetas = new AtomicLongArray(NUMERO_CUBETAS);
+    private final LongAdder conteo = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * @param unidad la unidad de los valores registrados (por ejemplo,
+     *               {@code "us"} o {@code "bytes"}); solo se usa al publicar.
+     */
+    public HistogramaLatencias(String unidad) {
+        this.unidad = unidad;
+    }
+
+    /**
+     * Registra un valor. Los valores negativos se registran como 0.
+     *
+     * @param valor el valor a registrar.
+     */
+    public void registrar(long valor) {
+        long v = Math.max(0L, valor);
+        this.cubetas.incrementAndGet(indiceDe(v));
+        this.conteo.increment();
+        this.suma.add(v);
+        if (v > this.maximo.get()) {
+            this.maximo.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    /**
+     * Registra, en microsegundos, el tiempo transcurrido desde un instante
+     * tomado con {@link System#nanoTime()}.
+     *
+     * @param inicioNanos el instante de inicio.
+     */
+    public void registrarDesde(long inicioNanos) {
+        registrar((System.nanoTime() - inicioNanos) / 1_000L);
+    }
+
+    /**
+     * Devuelve el valor por debajo del cual está la fracción {@code p} de los
+     * valores registrados (cota superior de la cubeta correspondiente).
+     *
+     * @param p la fracción, entre 0 y 1 (por ejemplo, 0.99).
+     * @return el percentil, o 0 si no hay valores.
+     */
+    public long percentil(double p) {
+        long total = 0;
+        long[] copia = new long[NUMERO_CUBETAS];
+        for (int i = 0; i < NUMERO_CUBETAS; i++) {
+            copia[i] = this.cubetas.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long objetivo = Math.max(1L, (long) Math.ceil(p * total));
+        long acumulado = 0;
+        for (int i = 0; i < NUMERO_CUBETAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) {
+                return Math.min(cotaSuperior(i), getMaximo());
+            }
+        }
+        return getMaximo();
+    }
+
+    public long getConteo() {
+        return this.conteo.sum();
+    }
+
+    public long getSuma() {
+        return this.suma.sum();
+    }
+
+    public long getMaximo() {
+        return this.maximo.get();
+    }
+
+    public double getMedia() {
+        long n = getConteo();
+        return n == 0 ? 0.0 : (double) getSuma() / n;
+    }
+
+    public String getUnidad() {
+        return unidad;
+    }
+
+    static int indiceDe(long valor) {
+        if (valor < LIMITE_LINEAL) {
+            return (int) valor;
+        }
+        int desplazamiento = 63 - Long.numberOfLeadingZeros(valor) - BITS_SUBCUBETA;
+        int superior = (int) (valor >>> desplazamiento);
+        return (desplazamiento + 1) * SUBCUBETAS + (superior - SUBCUBETAS);
+    }
+
+    static long cotaSuperior(int indice) {
+        if (indice < LIMITE_LINEAL) {
+            return indice;
+        }
+        int desplazamiento = indice / SUBCUBETAS - 1;
+        long superior = indice % SUBCUBETAS + SUBCUBETAS;
+        return ((superior + 1) << desplazamiento) - 1;
+    }
+}
@@ -0,0 +1,76 @@
+package co.edu.unicauca.metricas;
+
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+
+/**
+ * MBean dinámico de solo lectura que expone cada entrada de
+ * {@link RegistroMetricas#instantanea()} como un atributo JMX.
+ * <p>
+ * Los atributos se descubren cada vez que se pide la descripción del MBean,
+ * de modo que las métricas creadas después de publicarlo también aparecen.
+ */
+class MetricasMBean implements DynamicMBean {
+
+    private final RegistroMetricas registro;
+
+    MetricasMBean(RegistroMetricas registro) {
+        this.registro = registro;
+    }
+
+    @Override
+    public Object getAttribute(String nombre) throws AttributeNotFoundException {
+        Number valor = this.registro.valor(nombre);
+        if (valor == null) {
+            throw new AttributeNotFoundException(nombre);
+        }
+        return valor;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] nombres) {
+        Map<String, Number> instantanea = this.registro.instantanea();
+        AttributeList atributos = new AttributeList();
+        for (String nombre : nombres) {
+            Number valor = instantanea.get(nombre);
+            if (valor != null) {
+                atributos.add(new Attribute(nombre, valor));
+            }
+        }
+        return atributos;
+    }
+
+    @Override
+    public void setAttribute(Attribute atributo) {
+        throw new UnsupportedOperationException("Las metricas son de solo lectura");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList atributos) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String accion, Object[] parametros, String[] firma) {
+        throw new UnsupportedOperationException(accion);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Number> instantanea = this.registro.instantanea();
+        MBeanAttributeInfo[] atributos = new MBeanAttributeInfo[instantanea.size()];
+        int i = 0;
+        for (Map.Entry<String, Number> entrada : instantanea.entrySet()) {
+            atributos[i++] = new MBeanAttributeInfo(entrada.getKey(), entrada.getValue().getClass().getName(),
+                    entrada.getKey(), true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Metricas del Servidor de Preferencias",
+                atributos, null, new MBeanOperationInfo[0], null);
+    }
+}
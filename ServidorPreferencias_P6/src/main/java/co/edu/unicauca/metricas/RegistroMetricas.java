@@ -0,0 +1,178 @@
+package co.edu.unicauca.metricas;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registro central de las métricas del Servidor de Preferencias.
+ * <p>
+ * Mantiene tres tipos de métricas identificadas por nombre:
+ * <ul>
+ *   <li><b>Contadores</b>: {@link LongAdder} que solo se incrementan (por
+ *       ejemplo, errores de comunicación).</li>
+ *   <li><b>Histogramas</b>: {@link HistogramaLatencias} para duraciones, en
+ *       microsegundos, y tamaños, en bytes.</li>
+ *   <li><b>Indicadores</b>: valores que se leen bajo demanda de otros
+ *       componentes (por ejemplo, el tamaño de una caché).</li>
+ * </ul>
+ * Los componentes obtienen la métrica una sola vez, al construirse, y la
+ * guardan en un campo; en el camino de cada petición solo se registran
+ * valores, sin búsquedas en mapas ni candados. El registro se publica por JMX
+ * con {@link #publicarJmx()} y puede volcarse a un archivo con
+ * {@link VolcadoMetricas}.
+ */
+public final class RegistroMetricas {
+
+    /**
+     * Nombre JMX con el que se publica el registro.
+     */
+    public static final String NOMBRE_JMX = "co.edu.unicauca:type=MetricasPreferencias";
+
+    private static final RegistroMetricas INSTANCIA = new RegistroMetricas();
+
+    private final Map<String, LongAdder> contadores = new ConcurrentHashMap<>();
+    private final Map<String, HistogramaLatencias> histogramas = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> indicadores = new ConcurrentHashMap<>();
+
+    private RegistroMetricas() {
+    }
+
+    /**
+     * @return el registro único del proceso.
+     */
+    public static RegistroMetricas getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Devuelve el contador con el nombre dado, creándolo si no existe.
+     *
+     * @param nombre el nombre de la métrica (por ejemplo,
+     *               {@code "reproducciones.errores"}).
+     * @return el contador.
+     */
+    public LongAdder contador(String nombre) {
+        return this.contadores.computeIfAbsent(nombre, clave -> new LongAdder());
+    }
+
+    /**
+     * Devuelve el histograma de duraciones, en microsegundos, con el nombre
+     * dado, creándolo si no existe.
+     *
+     * @param nombre el nombre de la métrica.
+     * @return el histograma.
+     */
+    public HistogramaLatencias latencias(String nombre) {
+        return histograma(nombre, "us");
+    }
+
+    /**
+     * Devuelve el histograma de tamaños, en bytes, con el nombre dado,
+     * creándolo si no existe.
+     *
+     * @param nombre el nombre de la métrica.
+     * @return el histograma.
+     */
+    public HistogramaLatencias tamanos(String nombre) {
+        return histograma(nombre, "bytes");
+    }
+
+    /**
+     * Devuelve el histograma con el nombre dado, creándolo con la unidad
+     * indicada si no existe.
+     *
+     * @param nombre el nombre de la métrica.
+     * @param unidad la unidad de los valores (por ejemplo,
+     *               {@code "reproducciones"}).
+     * @return el histograma.
+     */
+    public HistogramaLatencias histograma(String nombre, String unidad) {
+        return this.histogramas.computeIfAbsent(nombre, clave -> new HistogramaLatencias(unidad));
+    }
+
+    /**
+     * Registra un indicador cuyo valor se obtiene al consultarlo. Si ya existía
+     * uno con el mismo nombre, se reemplaza.
+     *
+     * @param nombre    el nombre de la métrica.
+     * @param proveedor función que devuelve el valor actual.
+     */
+    public void registrarIndicador(String nombre, LongSupplier proveedor) {
+        this.indicadores.put(nombre, proveedor);
+    }
+
+    /**
+     * Toma una instantánea plana de todas las métricas, ordenada por nombre.
+     * Cada histograma aporta las entradas {@code conteo}, {@code media},
+     * {@code p50}, {@code p90}, {@code p99} y {@code max}, con su unidad como
+     * sufijo del nombre.
+     *
+     * @return un mapa nombre → valor.
+     */
+    public Map<String, Number> instantanea() {
+        Map<String, Number> valores = new TreeMap<>();
+        this.contadores.forEach((nombre, contador) -> valores.put(nombre, contador.sum()));
+        this.indicadores.forEach((nombre, proveedor) -> valores.put(nombre, leerIndicador(proveedor)));
+        this.histogramas.forEach((nombre, histograma) -> {
+            String unidad = "." + histograma.getUnidad();
+            valores.put(nombre + ".conteo", histograma.getConteo());
+            valores.put(nombre + ".media" + unidad, histograma.getMedia());
+            valores.put(nombre + ".p50" + unidad, histograma.percentil(0.50));
+            valores.put(nombre + ".p90" + unidad, histograma.percentil(0.90));
+            valores.put(nombre + ".p99" + unidad, histograma.percentil(0.99));
+            valores.put(nombre + ".max" + unidad, histograma.getMaximo());
+        });
+        return valores;
+    }
+
+    /**
+     * Lee el valor de una métrica de la instantánea por su nombre completo.
+     *
+     * @param nombre el nombre tal como aparece en {@link #instantanea()}.
+     * @return el valor, o {@code null} si no existe.
+     */
+    Number valor(String nombre) {
+        LongAdder contador = this.contadores.get(nombre);
+        if (contador != null) {
+            return contador.sum();
+        }
+        LongSupplier proveedor = this.indicadores.get(nombre);
+        if (proveedor != null) {
+            return leerIndicador(proveedor);
+        }
+        return instantanea().get(nombre);
+    }
+
+    private static long leerIndicador(LongSupplier proveedor) {
+        try {
+            return proveedor.getAsLong();
+        } catch (RuntimeException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Publica el registro en el servidor de MBeans de la plataforma con el
+     * nombre {@link #NOMBRE_JMX}, para consultarlo con JConsole o VisualVM.
+     * Si ya estaba publicado no hace nada.
+     */
+    public void publicarJmx() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(NOMBRE_JMX);
+            if (!servidor.isRegistered(nombre)) {
+                servidor.registerMBean(new MetricasMBean(this), nombre);
+                System.out.println("Metricas publicadas por JMX como " + NOMBRE_JMX);
+            }
+        } catch (JMException e) {
+            System.err.println("ERROR al publicar las metricas por JMX: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package co.edu.unicauca.metricas;
+
+import co.edu.unicauca.configuracion.lector.LectorPropiedadesConfig;
+import co.edu.unicauca.utilidades.FabricaHilosDemonio;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vuelca periódicamente la instantánea del {@link RegistroMetricas} a un
+ * archivo de texto con una línea {@code nombre=valor} por métrica.
+ * <p>
+ * El archivo se escribe primero en un temporal y luego se mueve sobre el
+ * destino, para que quien lo lea nunca vea un volcado a medias.
+ */
+public final class VolcadoMetricas {
+
+    private VolcadoMetricas() {
+    }
+
+    /**
+     * Arranca el volcado según las propiedades {@code metricas.volcado.archivo}
+     * y {@code metricas.volcado.intervalo.ms}. Si el archivo no está
+     * configurado o el intervalo no es positivo, no hace nada.
+     *
+     * @return el planificador del volcado, o {@code null} si está desactivado.
+     */
+    public static ScheduledExecutorService iniciarDesdeConfiguracion() {
+        String archivo = LectorPropiedadesConfig.get("metricas.volcado.archivo");
+        long intervaloMs = LectorPropiedadesConfig.getLong("metricas.volcado.intervalo.ms", 60_000L);
+        if (archivo == null || archivo.isBlank() || intervaloMs <= 0) {
+            return null;
+        }
+        Path destino = Paths.get(archivo.trim());
+        ScheduledExecutorService planificador = Executors.newSingleThreadScheduledExecutor(
+                new FabricaHilosDemonio("volcado-metricas"));
+        planificador.scheduleWithFixedDelay(() -> volcar(RegistroMetricas.getInstancia(), destino),
+                intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        System.out.println("Volcado de metricas cada " + intervaloMs + " ms en " + destino.toAbsolutePath());
+        return planificador;
+    }
+
+    /**
+     * Escribe la instantánea actual del registro en el archivo indicado.
+     *
+     * @param registro el registro a volcar.
+     * @param destino  el archivo de destino.
+     */
+    public static void volcar(RegistroMetricas registro, Path destino) {
+        StringBuilder contenido = new StringBuilder("# ").append(Instant.now()).append('\n');
+        for (Map.Entry<String, Number> entrada : registro.instantanea().entrySet()) {
+            contenido.append(entrada.getKey()).append('=').append(entrada.getValue()).append('\n');
+        }
+        try {
+            Path directorio = destino.toAbsolutePath().getParent();
+            Files.createDirectories(directorio);
+            Path temporal = Files.createTempFile(directorio, "metricas", ".tmp");
+            try {
+                Files.writeString(temporal, contenido, StandardCharsets.UTF_8);
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ERROR al volcar las metricas en " + destino + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package co.edu.unicauca.utilidades;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Anillo de hash consistente con nodos virtuales que reparte los usuarios
+ * entre varias instancias del Servidor de Preferencias.
+ * <p>
+ * Cada nodo ocupa {@code virtuales} posiciones del anillo de 64 bits y cada
+ * usuario pertenece al primer nodo que encuentra avanzando desde la posición
+ * de su identificador. Al añadir o quitar un nodo solo cambian de dueño los
+ * usuarios de los tramos que ese nodo gana o pierde, en torno a 1/N del
+ * total, y los nodos virtuales reparten esos tramos entre todos los demás.
+ * <p>
+ * El Cliente usa un anillo idéntico para enrutar cada petición: las
+ * posiciones dependen solo de los nombres, del número de nodos virtuales y de
+ * la función de hash, de modo que cliente y servidores coinciden en el dueño
+ * de cada usuario si comparten la configuración. Es inmutable y seguro entre
+ * hilos.
+ */
+public final class AnilloHashConsistente {
+
+    public static final int VIRTUALES_POR_DEFECTO = 128;
+
+    private static final long FNV_BASE = 0xcbf29ce484222325L;
+    private static final long FNV_PRIMO = 0x100000001b3L;
+
+    private final List<String> nodos;
+    private final long[] posiciones;
+    private final String[] duenos;
+
+    /**
+     * @param nodos     los nombres de los nodos; se ignoran los repetidos.
+     * @param virtuales posiciones de cada nodo en el anillo.
+     * @throws IllegalArgumentException si no hay ningún nodo.
+     */
+    public AnilloHashConsistente(List<String> nodos, int virtuales) {
+        LinkedHashSet<String> distintos = new LinkedHashSet<>(nodos);
+        if (distintos.isEmpty()) {
+            throw new IllegalArgumentException("El anillo necesita al menos un nodo");
+        }
+        this.nodos = Collections.unmodifiableList(new ArrayList<>(distintos));
+        int porNodo = Math.max(1, virtuales);
+
+        // Se ordenan las posiciones como enteros sin signo, arrastrando el
+        // índice de cada nodo virtual para saber a qué nodo pertenece.
+        int total = this.nodos.size() * porNodo;
+        long[] claves = new long[total];
+        Integer[] orden = new Integer[total];
+        for (int i = 0; i < this.nodos.size(); i++) {
+            for (int v = 0; v < porNodo; v++) {
+                int indice = i * porNodo + v;
+                claves[indice] = hashCadena(this.nodos.get(i) + "#" + v);
+                orden[indice] = indice;
+            }
+        }
+        Arrays.sort(orden, (a, b) -> {
+            int comparacion = Long.compareUnsigned(claves[a], claves[b]);
+            // Ante una colisión gana el nombre menor, para que el resultado
+            // no dependa del orden de la configuración.
+            return comparacion != 0 ? comparacion
+                    : this.nodos.get(a / porNodo).compareTo(this.nodos.get(b / porNodo));
+        });
+        this.posiciones = new long[total];
+        this.duenos = new String[total];
+        for (int i = 0; i < total; i++) {
+            this.posiciones[i] = claves[orden[i]];
+            this.duenos[i] = this.nodos.get(orden[i] / porNodo);
+        }
+    }
+
+    /**
+     * Devuelve el nodo dueño de un usuario.
+     *
+     * @param idUsuario el usuario.
+     * @return el nombre del nodo.
+     */
+    public String nodoDe(int idUsuario) {
+        long clave = mezclar(idUsuario);
+        int bajo = 0;
+        int alto = this.posiciones.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (Long.compareUnsigned(this.posiciones[medio], clave) < 0) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return this.duenos[bajo == this.posiciones.length ? 0 : bajo];
+    }
+
+    /**
+     * @return los nombres de los nodos, sin repetidos y en el orden de la
+     *         configuración.
+     */
+    public List<String> getNodos() {
+        return this.nodos;
+    }
+
+    /**
+     * Separa una lista de nombres por comas, como aparece en las propiedades.
+     *
+     * @param valor la lista; puede ser {@code null}.
+     * @return los nombres no vacíos, sin espacios alrededor.
+     */
+    public static List<String> separarNodos(String valor) {
+        List<String> nodos = new ArrayList<>();
+        if (valor == null) {
+            return nodos;
+        }
+        for (String nodo : valor.split(",")) {
+            if (!nodo.isBlank()) {
+                nodos.add(nodo.trim());
+            }
+        }
+        return nodos;
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre los bytes UTF-8, seguido del mezclado final de
+     * MurmurHash3 para repartir bien los nombres que solo difieren al final.
+     */
+    private static long hashCadena(String cadena) {
+        long hash = FNV_BASE;
+        for (byte b : cadena.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIMO;
+        }
+        return mezclar(hash);
+    }
+
+    /**
+     * Mezclado final de 64 bits de MurmurHash3: identificadores consecutivos
+     * quedan repartidos por todo el anillo.
+     */
+    private static long mezclar(long valor) {
+        long h = valor;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,46 @@
+package co.edu.unicauca.utilidades;
+
+/**
+ * Pesos con decaimiento exponencial definidos por una semivida.
+ * <p>
+ * Un evento ocurrido en el instante {@code t} pesa, respecto a un instante de
+ * referencia {@code r}, {@code 2^((t - r) / semivida)}: vale 1 en la
+ * referencia, la mitad una semivida antes y el doble una semivida después.
+ * Como {@code peso(t, r2) = peso(t, r1) * peso(r1, r2)}, una suma de pesos
+ * calculada respecto a una referencia fija puede llevarse a cualquier otro
+ * instante multiplicándola por un único factor, sin recorrer los eventos.
+ */
+public final class DecaimientoExponencial {
+
+    private final long semividaMs;
+
+    /**
+     * Constante de decaimiento {@code ln(2) / semivida}, en 1/ms.
+     */
+    private final double lambda;
+
+    /**
+     * @param semividaMs tiempo, en milisegundos, en que un peso se reduce a la
+     *                   mitad. Debe ser positivo.
+     */
+    public DecaimientoExponencial(long semividaMs) {
+        if (semividaMs <= 0) {
+            throw new IllegalArgumentException("La semivida debe ser positiva: " + semividaMs);
+        }
+        this.semividaMs = semividaMs;
+        this.lambda = Math.log(2.0) / semividaMs;
+    }
+
+    /**
+     * @param instanteMs   el instante del evento.
+     * @param referenciaMs el instante de referencia.
+     * @return el peso del evento respecto a la referencia.
+     */
+    public double peso(long instanteMs, long referenciaMs) {
+        return Math.exp((instanteMs - referenciaMs) * this.lambda);
+    }
+
+    public long getSemividaMs() {
+        return semividaMs;
+    }
+}
@@ -0,0 +1,86 @@
+package co.edu.unicauca.utilidades;
+
+import java.util.Arrays;
+
+/**
+ * Diccionario que asigna a cada cadena distinta un código entero denso
+ * ({@code 0, 1, 2, ...}) en orden de aparición.
+ * <p>
+ * Permite sustituir cadenas repetidas (géneros, artistas, idiomas) por
+ * enteros pequeños que sirven directamente como índice de arreglos de
+ * contadores. La cadena {@code null} también recibe un código propio.
+ */
+public final class DiccionarioCadenas {
+
+    private final MapaCadenaEntero codigos;
+    private String[] nombres;
+    private int tamano;
+    private int codigoNulo = MapaCadenaEntero.AUSENTE;
+
+    /**
+     * @param capacidadEsperada número de cadenas distintas esperadas.
+     */
+    public DiccionarioCadenas(int capacidadEsperada) {
+        this.codigos = new MapaCadenaEntero(capacidadEsperada);
+        this.nombres = new String[Math.max(4, capacidadEsperada)];
+    }
+
+    /**
+     * Devuelve el código de la cadena, asignándole uno nuevo si es la primera
+     * vez que aparece.
+     *
+     * @param cadena la cadena a codificar; puede ser {@code null}.
+     * @return su código denso.
+     */
+    public int codificar(String cadena) {
+        if (cadena == null) {
+            if (this.codigoNulo == MapaCadenaEntero.AUSENTE) {
+                this.codigoNulo = agregarNombre(null);
+            }
+            return this.codigoNulo;
+        }
+        int codigo = this.codigos.obtener(cadena);
+        if (codigo == MapaCadenaEntero.AUSENTE) {
+            codigo = agregarNombre(cadena);
+            this.codigos.poner(cadena, codigo);
+        }
+        return codigo;
+    }
+
+    /**
+     * Busca el código de una cadena sin modificar el diccionario.
+     *
+     * @param cadena la cadena a buscar; puede ser {@code null}.
+     * @return su código, o {@link MapaCadenaEntero#AUSENTE} si no existe.
+     */
+    public int buscar(String cadena) {
+        return cadena == null ? this.codigoNulo : this.codigos.obtener(cadena);
+    }
+
+    /**
+     * @param codigo un código asignado por este diccionario.
+     * @return la cadena correspondiente.
+     */
+    public String decodificar(int codigo) {
+        return this.nombres[codigo];
+    }
+
+    public int tamano() {
+        return this.tamano;
+    }
+
+    /**
+     * @return una copia de las cadenas indexadas por su código.
+     */
+    public String[] aArreglo() {
+        return Arrays.copyOf(this.nombres, this.tamano);
+    }
+
+    private int agregarNombre(String cadena) {
+        if (this.tamano == this.nombres.length) {
+            this.nombres = Arrays.copyOf(this.nombres, this.tamano * 2);
+        }
+        this.nombres[this.tamano] = cadena;
+        return this.tamano++;
+    }
+}
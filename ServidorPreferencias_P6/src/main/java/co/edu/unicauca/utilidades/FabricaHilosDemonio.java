@@ -0,0 +1,32 @@
+package co.edu.unicauca.utilidades;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fábrica de hilos demonio con nombres numerados.
+ * <p>
+ * Los pools de hilos internos del servidor usan hilos demonio para no impedir
+ * que la JVM termine, y les asignan un prefijo legible para identificarlos en
+ * volcados de hilos y perfiles.
+ */
+public class FabricaHilosDemonio implements ThreadFactory {
+
+    private final String prefijo;
+    private final AtomicInteger contador = new AtomicInteger();
+
+    /**
+     * @param prefijo prefijo del nombre de los hilos creados (por ejemplo,
+     *                {@code "preferencias-io"}).
+     */
+    public FabricaHilosDemonio(String prefijo) {
+        this.prefijo = prefijo;
+    }
+
+    @Override
+    public Thread newThread(Runnable tarea) {
+        Thread hilo = new Thread(tarea, this.prefijo + "-" + this.contador.incrementAndGet());
+        hilo.setDaemon(true);
+        return hilo;
+    }
+}
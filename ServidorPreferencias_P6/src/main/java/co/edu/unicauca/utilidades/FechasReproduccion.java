@@ -0,0 +1,259 @@
+package co.edu.unicauca.utilidades;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.List;
+
+/**
+ * Conversión de las fechas de reproducción enviadas por el Servidor de
+ * Reproducciones ({@code "yyyy-MM-dd HH:mm:ss"}, hora local del servidor) a
+ * segundos o milisegundos desde la época.
+ * <p>
+ * Las fechas se interpretan a mano, carácter a carácter, sin reservar
+ * memoria: primero como segundos locales (los segundos desde
+ * 1970-01-01 00:00:00 en la hora de pared, sin huso) y después se les resta
+ * el desfase del huso del servidor. El desfase se toma de un tramo guardado
+ * entre dos cambios de hora, así que solo se consultan las reglas del huso
+ * al salir del tramo. El resultado es el mismo que el de interpretar la
+ * fecha con {@code DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")} y
+ * {@code LocalDateTime.atZone(ZoneId.systemDefault())}: un día mayor que el
+ * último del mes se lleva a ese último día, {@code 24:00:00} es el inicio
+ * del día siguiente y una hora que no existe por un cambio de hora se
+ * adelanta lo que dura el salto.
+ * <p>
+ * Con los segundos locales se obtienen también la hora del día
+ * ({@link #hora(long)}) y el día de la semana ({@link #diaSemana(long)}) de
+ * una reproducción, sin pasar por el huso.
+ */
+public final class FechasReproduccion {
+
+    /**
+     * Valor devuelto cuando la fecha no existe o no tiene el formato esperado.
+     */
+    public static final long SIN_FECHA = Long.MIN_VALUE;
+
+    private static final long MS_POR_DIA = 24L * 60 * 60 * 1000;
+
+    private static final long SEGUNDOS_POR_DIA = 24L * 60 * 60;
+
+    private static final int LONGITUD_FECHA = 19;
+
+    /**
+     * Días entre el 1 de marzo del año 0 y el 1 de enero de 1970, en el
+     * calendario gregoriano proléptico.
+     */
+    private static final long DIAS_HASTA_EPOCA = 719_468L;
+
+    /**
+     * Huso del servidor; las fechas de reproducción están en su hora local.
+     */
+    private static final ZoneId ZONA = ZoneId.systemDefault();
+
+    /**
+     * Intervalo entre dos cambios de hora del huso en el que el desfase es
+     * fijo, en segundos locales y en segundos desde la época (inicio
+     * inclusive, fin exclusive).
+     */
+    private record Tramo(long desdeLocal, long hastaLocal, long desdeEpoca, long hastaEpoca, int desfase) {
+    }
+
+    /**
+     * Último tramo usado. Las carreras entre hilos solo provocan que se
+     * vuelva a calcular.
+     */
+    private static volatile Tramo tramo = new Tramo(0L, 0L, 0L, 0L, 0);
+
+    private FechasReproduccion() {
+    }
+
+    /**
+     * @param fechaHora la fecha de la reproducción.
+     * @return los milisegundos desde la época, o {@link #SIN_FECHA}.
+     */
+    public static long aEpocaMs(String fechaHora) {
+        long segundos = aEpocaSegundos(fechaHora);
+        return segundos != SIN_FECHA ? segundos * 1000L : SIN_FECHA;
+    }
+
+    /**
+     * @param fechaHora la fecha de la reproducción.
+     * @return los segundos desde la época, o {@link #SIN_FECHA}.
+     */
+    public static long aEpocaSegundos(String fechaHora) {
+        long locales = aSegundosLocales(fechaHora);
+        return locales != SIN_FECHA ? localesAEpocaSegundos(locales) : SIN_FECHA;
+    }
+
+    /**
+     * Interpreta la fecha sin aplicar el huso.
+     *
+     * @param fechaHora la fecha de la reproducción.
+     * @return los segundos desde 1970-01-01 00:00:00 en la hora de pared, o
+     *         {@link #SIN_FECHA} si la fecha no existe o no tiene el formato
+     *         esperado.
+     */
+    public static long aSegundosLocales(String fechaHora) {
+        if (fechaHora == null || fechaHora.length() != LONGITUD_FECHA
+                || fechaHora.charAt(4) != '-' || fechaHora.charAt(7) != '-' || fechaHora.charAt(10) != ' '
+                || fechaHora.charAt(13) != ':' || fechaHora.charAt(16) != ':') {
+            return SIN_FECHA;
+        }
+        int anio = digitos(fechaHora, 0, 4);
+        int mes = digitos(fechaHora, 5, 2);
+        int dia = digitos(fechaHora, 8, 2);
+        int hora = digitos(fechaHora, 11, 2);
+        int minuto = digitos(fechaHora, 14, 2);
+        int segundo = digitos(fechaHora, 17, 2);
+        // digitos devuelve un valor negativo si encuentra algo que no es un
+        // dígito, así que basta un OR para detectarlo en cualquier campo.
+        if ((anio | mes | dia | hora | minuto | segundo) < 0 || anio == 0
+                || mes < 1 || mes > 12 || dia < 1 || dia > 31 || minuto > 59 || segundo > 59) {
+            return SIN_FECHA;
+        }
+        // Como DateTimeFormatter, se acepta 24:00:00 como el inicio del día
+        // siguiente.
+        if (hora > 23 && (hora != 24 || minuto != 0 || segundo != 0)) {
+            return SIN_FECHA;
+        }
+        dia = Math.min(dia, diasDelMes(anio, mes));
+        return diasDesdeEpoca(anio, mes, dia) * SEGUNDOS_POR_DIA + hora * 3600L + minuto * 60L + segundo;
+    }
+
+    /**
+     * Convierte segundos locales en segundos desde la época con el huso del
+     * servidor.
+     *
+     * @param segundosLocales los segundos desde 1970-01-01 00:00:00 en la
+     *                        hora de pared.
+     * @return los segundos desde la época.
+     */
+    public static long localesAEpocaSegundos(long segundosLocales) {
+        Tramo actual = tramo;
+        if (segundosLocales >= actual.desdeLocal() && segundosLocales < actual.hastaLocal()) {
+            return segundosLocales - actual.desfase();
+        }
+        ZoneRules reglas = ZONA.getRules();
+        LocalDateTime local = LocalDateTime.ofEpochSecond(segundosLocales, 0, ZoneOffset.UTC);
+        List<ZoneOffset> validos = reglas.getValidOffsets(local);
+        if (validos.size() != 1) {
+            // Hora repetida o inexistente por un cambio de hora: como
+            // atZone, se toma el desfase anterior al cambio.
+            return segundosLocales - reglas.getTransition(local).getOffsetBefore().getTotalSeconds();
+        }
+        long epoca = segundosLocales - validos.get(0).getTotalSeconds();
+        tramo = tramoDe(reglas, epoca);
+        return epoca;
+    }
+
+    /**
+     * @param epocaMs un instante en milisegundos desde la época.
+     * @return el número de día desde la época de su fecha en la hora local
+     *         del servidor, el mismo huso con el que se interpretan las
+     *         fechas de reproducción.
+     */
+    public static int diaLocal(long epocaMs) {
+        long segundos = Math.floorDiv(epocaMs, 1000L);
+        Tramo actual = tramo;
+        if (segundos < actual.desdeEpoca() || segundos >= actual.hastaEpoca()) {
+            actual = tramoDe(ZONA.getRules(), segundos);
+            tramo = actual;
+        }
+        return (int) Math.floorDiv(epocaMs + actual.desfase() * 1000L, MS_POR_DIA);
+    }
+
+    /**
+     * @param segundosLocales los segundos locales de una reproducción.
+     * @return su hora del día, de 0 a 23.
+     */
+    public static int hora(long segundosLocales) {
+        return (int) (Math.floorMod(segundosLocales, SEGUNDOS_POR_DIA) / 3600L);
+    }
+
+    /**
+     * @param segundosLocales los segundos locales de una reproducción.
+     * @return su día de la semana, de 0 (lunes) a 6 (domingo).
+     */
+    public static int diaSemana(long segundosLocales) {
+        return diaSemanaDeDia(diaDeLocales(segundosLocales));
+    }
+
+    /**
+     * @param dia un número de día desde la época.
+     * @return su día de la semana, de 0 (lunes) a 6 (domingo).
+     */
+    public static int diaSemanaDeDia(int dia) {
+        // El 1 de enero de 1970 fue jueves.
+        return Math.floorMod(dia + 3, 7);
+    }
+
+    /**
+     * @param segundosLocales los segundos locales de una reproducción.
+     * @return el número de día desde la época de su fecha.
+     */
+    public static int diaDeLocales(long segundosLocales) {
+        return (int) Math.floorDiv(segundosLocales, SEGUNDOS_POR_DIA);
+    }
+
+    /**
+     * Calcula el tramo de desfase fijo que contiene un instante. Los bordes
+     * en hora local excluyen las horas repetidas o inexistentes de cada
+     * cambio, que se resuelven aparte.
+     */
+    private static Tramo tramoDe(ZoneRules reglas, long epocaSegundos) {
+        Instant instante = Instant.ofEpochSecond(epocaSegundos);
+        int desfase = reglas.getOffset(instante).getTotalSeconds();
+        ZoneOffsetTransition anterior = reglas.previousTransition(instante.plusSeconds(1));
+        ZoneOffsetTransition siguiente = reglas.nextTransition(instante);
+        long desdeEpoca = anterior != null ? anterior.toEpochSecond() : Long.MIN_VALUE;
+        long hastaEpoca = siguiente != null ? siguiente.toEpochSecond() : Long.MAX_VALUE;
+        long desdeLocal = anterior != null
+                ? desdeEpoca + Math.max(anterior.getOffsetBefore().getTotalSeconds(), anterior.getOffsetAfter().getTotalSeconds())
+                : Long.MIN_VALUE;
+        long hastaLocal = siguiente != null
+                ? hastaEpoca + Math.min(siguiente.getOffsetBefore().getTotalSeconds(), siguiente.getOffsetAfter().getTotalSeconds())
+                : Long.MAX_VALUE;
+        return new Tramo(desdeLocal, hastaLocal, desdeEpoca, hastaEpoca, desfase);
+    }
+
+    /**
+     * @return el valor de los {@code longitud} dígitos desde {@code desde}, o
+     *         un valor negativo si alguno no es un dígito.
+     */
+    private static int digitos(String texto, int desde, int longitud) {
+        int valor = 0;
+        for (int i = desde; i < desde + longitud; i++) {
+            int digito = texto.charAt(i) - '0';
+            if (digito < 0 || digito > 9) {
+                return Integer.MIN_VALUE;
+            }
+            valor = valor * 10 + digito;
+        }
+        return valor;
+    }
+
+    private static int diasDelMes(int anio, int mes) {
+        if (mes == 2) {
+            boolean bisiesto = (anio & 3) == 0 && (anio % 100 != 0 || anio % 400 == 0);
+            return bisiesto ? 29 : 28;
+        }
+        return mes == 4 || mes == 6 || mes == 9 || mes == 11 ? 30 : 31;
+    }
+
+    /**
+     * Días desde la época de una fecha del calendario gregoriano, contando
+     * los años desde marzo para que el día bisiesto quede al final (algoritmo
+     * {@code days_from_civil} de Howard Hinnant).
+     */
+    private static long diasDesdeEpoca(int anio, int mes, int dia) {
+        int y = mes <= 2 ? anio - 1 : anio;
+        int era = Math.floorDiv(y, 400);
+        int anioDeEra = y - era * 400;
+        int diaDelAnio = (153 * (mes > 2 ? mes - 3 : mes + 9) + 2) / 5 + dia - 1;
+        int diaDeEra = anioDeEra * 365 + anioDeEra / 4 - anioDeEra / 100 + diaDelAnio;
+        return era * 146_097L + diaDeEra - DIAS_HASTA_EPOCA;
+    }
+}
@@ -0,0 +1,103 @@
+package co.edu.unicauca.utilidades;
+
+/**
+ * Tabla que devuelve una única instancia de {@link String} por cada texto
+ * distinto, a partir de fragmentos de un arreglo de caracteres.
+ * <p>
+ * Pensada para decodificadores en streaming: el texto de un valor JSON se
+ * compara directamente con el búfer del analizador y solo se crea una cadena
+ * nueva la primera vez que aparece. Los valores muy repetidos (artistas,
+ * géneros, idiomas) no generan así una cadena temporal por elemento.
+ * <p>
+ * No es segura para uso concurrente.
+ */
+public final class InternadorCadenas {
+
+    private String[] cadenas;
+    private int[] hashes;
+    private int tamano;
+    private int mascara;
+
+    /**
+     * @param capacidadEsperada número de cadenas distintas esperadas; la
+     *                          tabla crece automáticamente si se supera.
+     */
+    public InternadorCadenas(int capacidadEsperada) {
+        int capacidad = Integer.highestOneBit(Math.max(4, capacidadEsperada * 2 - 1)) << 1;
+        this.cadenas = new String[capacidad];
+        this.hashes = new int[capacidad];
+        this.mascara = capacidad - 1;
+    }
+
+    /**
+     * Devuelve la instancia compartida del texto {@code texto[desde, desde + longitud)}.
+     *
+     * @param texto    el búfer de caracteres.
+     * @param desde    posición del primer carácter.
+     * @param longitud número de caracteres.
+     * @return la cadena, igual a {@code new String(texto, desde, longitud)}.
+     */
+    public String internar(char[] texto, int desde, int longitud) {
+        int hash = 0;
+        for (int i = desde; i < desde + longitud; i++) {
+            hash = 31 * hash + texto[i];
+        }
+        int posicion = mezclar(hash) & this.mascara;
+        String actual;
+        while ((actual = this.cadenas[posicion]) != null) {
+            if (this.hashes[posicion] == hash && coincide(actual, texto, desde, longitud)) {
+                return actual;
+            }
+            posicion = (posicion + 1) & this.mascara;
+        }
+        String nueva = new String(texto, desde, longitud);
+        this.cadenas[posicion] = nueva;
+        this.hashes[posicion] = hash;
+        if (++this.tamano * 2 > this.cadenas.length) {
+            redimensionar();
+        }
+        return nueva;
+    }
+
+    public int tamano() {
+        return this.tamano;
+    }
+
+    private static boolean coincide(String cadena, char[] texto, int desde, int longitud) {
+        if (cadena.length() != longitud) {
+            return false;
+        }
+        for (int i = 0; i < longitud; i++) {
+            if (cadena.charAt(i) != texto[desde + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void redimensionar() {
+        String[] cadenasAnteriores = this.cadenas;
+        int[] hashesAnteriores = this.hashes;
+        this.cadenas = new String[cadenasAnteriores.length * 2];
+        this.hashes = new int[cadenasAnteriores.length * 2];
+        this.mascara = this.cadenas.length - 1;
+        for (int i = 0; i < cadenasAnteriores.length; i++) {
+            if (cadenasAnteriores[i] != null) {
+                int posicion = mezclar(hashesAnteriores[i]) & this.mascara;
+                while (this.cadenas[posicion] != null) {
+                    posicion = (posicion + 1) & this.mascara;
+                }
+                this.cadenas[posicion] = cadenasAnteriores[i];
+                this.hashes[posicion] = hashesAnteriores[i];
+            }
+        }
+    }
+
+    /**
+     * Dispersa los bits del hash, igual que {@link MapaCadenaEntero}.
+     */
+    private static int mezclar(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
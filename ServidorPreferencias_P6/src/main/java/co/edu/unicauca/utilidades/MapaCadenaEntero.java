@@ -0,0 +1,163 @@
+package co.edu.unicauca.utilidades;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de cadenas a enteros con direccionamiento abierto (sondeo lineal).
+ * <p>
+ * Evita el empaquetado de los valores en {@link Integer} y los nodos de
+ * entrada de {@link java.util.HashMap}: claves y valores se guardan en dos
+ * arreglos paralelos. Está pensado para diccionarios que se construyen una vez
+ * y luego se consultan muchas veces desde varios hilos; no es seguro para
+ * escrituras concurrentes.
+ * <p>
+ * No admite claves {@code null}.
+ */
+public final class MapaCadenaEntero {
+
+    /**
+     * Valor devuelto por {@link #obtener(String)} cuando la clave no existe.
+     */
+    public static final int AUSENTE = -1;
+
+    private String[] claves;
+    private int[] valores;
+    private int tamano;
+    private int mascara;
+
+    /**
+     * @param capacidadEsperada número de claves que se espera almacenar; el
+     *                          mapa crece automáticamente si se supera.
+     */
+    public MapaCadenaEntero(int capacidadEsperada) {
+        int capacidad = Integer.highestOneBit(Math.max(4, capacidadEsperada * 2 - 1)) << 1;
+        this.claves = new String[capacidad];
+        this.valores = new int[capacidad];
+        this.mascara = capacidad - 1;
+    }
+
+    /**
+     * @param clave la clave a buscar.
+     * @return el valor asociado, o {@link #AUSENTE} si la clave no existe.
+     */
+    public int obtener(String clave) {
+        int posicion = mezclar(clave.hashCode()) & this.mascara;
+        String actual;
+        while ((actual = this.claves[posicion]) != null) {
+            if (actual.equals(clave)) {
+                return this.valores[posicion];
+            }
+            posicion = (posicion + 1) & this.mascara;
+        }
+        return AUSENTE;
+    }
+
+    /**
+     * Asocia un valor a la clave, reemplazando el anterior si existía.
+     *
+     * @param clave la clave.
+     * @param valor el valor a asociar.
+     */
+    public void poner(String clave, int valor) {
+        int posicion = mezclar(clave.hashCode()) & this.mascara;
+        String actual;
+        while ((actual = this.claves[posicion]) != null) {
+            if (actual.equals(clave)) {
+                this.valores[posicion] = valor;
+                return;
+            }
+            posicion = (posicion + 1) & this.mascara;
+        }
+        this.claves[posicion] = clave;
+        this.valores[posicion] = valor;
+        if (++this.tamano * 2 > this.claves.length) {
+            redimensionar();
+        }
+    }
+
+    /**
+     * Suma una cantidad al valor asociado a la clave, que se considera 0 si
+     * aún no existe.
+     *
+     * @param clave    la clave.
+     * @param cantidad la cantidad a sumar.
+     * @return el nuevo valor.
+     */
+    public int sumar(String clave, int cantidad) {
+        int posicion = mezclar(clave.hashCode()) & this.mascara;
+        String actual;
+        while ((actual = this.claves[posicion]) != null) {
+            if (actual.equals(clave)) {
+                return this.valores[posicion] += cantidad;
+            }
+            posicion = (posicion + 1) & this.mascara;
+        }
+        this.claves[posicion] = clave;
+        this.valores[posicion] = cantidad;
+        if (++this.tamano * 2 > this.claves.length) {
+            redimensionar();
+        }
+        return cantidad;
+    }
+
+    public int tamano() {
+        return this.tamano;
+    }
+
+    /**
+     * Elimina todas las claves conservando la capacidad reservada.
+     */
+    public void limpiar() {
+        Arrays.fill(this.claves, null);
+        this.tamano = 0;
+    }
+
+    /**
+     * Recorre todas las entradas del mapa.
+     *
+     * @param visitante función que recibe cada clave con su valor.
+     */
+    public void paraCada(VisitanteCadenaEntero visitante) {
+        for (int i = 0; i < this.claves.length; i++) {
+            if (this.claves[i] != null) {
+                visitante.visitar(this.claves[i], this.valores[i]);
+            }
+        }
+    }
+
+    /**
+     * Función que recibe las entradas de un {@link MapaCadenaEntero}.
+     */
+    @FunctionalInterface
+    public interface VisitanteCadenaEntero {
+        void visitar(String clave, int valor);
+    }
+
+    private void redimensionar() {
+        String[] clavesAnteriores = this.claves;
+        int[] valoresAnteriores = this.valores;
+        this.claves = new String[clavesAnteriores.length * 2];
+        this.valores = new int[clavesAnteriores.length * 2];
+        this.mascara = this.claves.length - 1;
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            String clave = clavesAnteriores[i];
+            if (clave != null) {
+                int posicion = mezclar(clave.hashCode()) & this.mascara;
+                while (this.claves[posicion] != null) {
+                    posicion = (posicion + 1) & this.mascara;
+                }
+                this.claves[posicion] = clave;
+                this.valores[posicion] = valoresAnteriores[i];
+            }
+        }
+    }
+
+    /**
+     * Dispersa los bits del hash para que los bits bajos, usados como
+     * posición, dependan de todo el valor.
+     */
+    private static int mezclar(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,133 @@
+package co.edu.unicauca.utilidades;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de enteros no negativos a enteros con direccionamiento abierto (sondeo
+ * lineal).
+ * <p>
+ * Como {@link MapaCadenaEntero}, guarda claves y valores en dos arreglos
+ * paralelos, sin empaquetar ni crear nodos de entrada. Se recorre por
+ * posiciones ({@link #capacidad()}, {@link #claveEn(int)} y
+ * {@link #valorEn(int)}) para que los recorridos en caliente no reserven
+ * memoria. No es seguro para escrituras concurrentes.
+ */
+public final class MapaEnteroEntero {
+
+    /**
+     * Valor devuelto por {@link #obtener(int)} cuando la clave no existe, y
+     * por {@link #claveEn(int)} en las posiciones libres.
+     */
+    public static final int AUSENTE = -1;
+
+    private int[] claves;
+    private int[] valores;
+    private int tamano;
+    private int mascara;
+
+    /**
+     * @param capacidadEsperada número de claves que se espera almacenar; el
+     *                          mapa crece automáticamente si se supera.
+     */
+    public MapaEnteroEntero(int capacidadEsperada) {
+        int capacidad = Integer.highestOneBit(Math.max(4, capacidadEsperada * 2 - 1)) << 1;
+        this.claves = new int[capacidad];
+        this.valores = new int[capacidad];
+        Arrays.fill(this.claves, AUSENTE);
+        this.mascara = capacidad - 1;
+    }
+
+    /**
+     * @param clave la clave a buscar; no negativa.
+     * @return el valor asociado, o {@link #AUSENTE} si la clave no existe.
+     */
+    public int obtener(int clave) {
+        int posicion = mezclar(clave) & this.mascara;
+        int actual;
+        while ((actual = this.claves[posicion]) != AUSENTE) {
+            if (actual == clave) {
+                return this.valores[posicion];
+            }
+            posicion = (posicion + 1) & this.mascara;
+        }
+        return AUSENTE;
+    }
+
+    /**
+     * Suma una cantidad al valor asociado a la clave, que se considera 0 si
+     * aún no existe.
+     *
+     * @param clave    la clave; no negativa.
+     * @param cantidad la cantidad a sumar.
+     * @return el nuevo valor.
+     */
+    public int sumar(int clave, int cantidad) {
+        int posicion = mezclar(clave) & this.mascara;
+        int actual;
+        while ((actual = this.claves[posicion]) != AUSENTE) {
+            if (actual == clave) {
+                return this.valores[posicion] += cantidad;
+            }
+            posicion = (posicion + 1) & this.mascara;
+        }
+        this.claves[posicion] = clave;
+        this.valores[posicion] = cantidad;
+        if (++this.tamano * 2 > this.claves.length) {
+            redimensionar();
+        }
+        return cantidad;
+    }
+
+    public int tamano() {
+        return this.tamano;
+    }
+
+    /**
+     * @return el número de posiciones que hay que recorrer para visitar todas
+     *         las entradas.
+     */
+    public int capacidad() {
+        return this.claves.length;
+    }
+
+    /**
+     * @return la clave guardada en la posición, o {@link #AUSENTE} si está
+     *         libre.
+     */
+    public int claveEn(int posicion) {
+        return this.claves[posicion];
+    }
+
+    public int valorEn(int posicion) {
+        return this.valores[posicion];
+    }
+
+    private void redimensionar() {
+        int[] clavesAnteriores = this.claves;
+        int[] valoresAnteriores = this.valores;
+        this.claves = new int[clavesAnteriores.length * 2];
+        this.valores = new int[clavesAnteriores.length * 2];
+        Arrays.fill(this.claves, AUSENTE);
+        this.mascara = this.claves.length - 1;
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            int clave = clavesAnteriores[i];
+            if (clave != AUSENTE) {
+                int posicion = mezclar(clave) & this.mascara;
+                while (this.claves[posicion] != AUSENTE) {
+                    posicion = (posicion + 1) & this.mascara;
+                }
+                this.claves[posicion] = clave;
+                this.valores[posicion] = valoresAnteriores[i];
+            }
+        }
+    }
+
+    /**
+     * Dispersa los bits de la clave para que las claves consecutivas no
+     * ocupen posiciones consecutivas.
+     */
+    private static int mezclar(int clave) {
+        int h = clave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
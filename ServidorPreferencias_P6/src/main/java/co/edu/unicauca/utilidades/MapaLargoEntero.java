@@ -0,0 +1,150 @@
+package co.edu.unicauca.utilidades;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de enteros largos a enteros con direccionamiento abierto (sondeo
+ * lineal) y borrado por desplazamiento hacia atrás, de modo que los borrados
+ * no dejan marcas que degraden las búsquedas.
+ * <p>
+ * Como {@link MapaEnteroEntero}, guarda claves y valores en dos arreglos
+ * paralelos, sin empaquetar ni crear nodos de entrada. No admite la clave
+ * {@link #VACIA}. No es seguro para escrituras concurrentes.
+ */
+public final class MapaLargoEntero {
+
+    /**
+     * Clave reservada que marca las posiciones libres.
+     */
+    public static final long VACIA = Long.MIN_VALUE;
+
+    /**
+     * Valor devuelto por {@link #obtener(long)} cuando la clave no existe.
+     */
+    public static final int AUSENTE = -1;
+
+    private long[] claves;
+    private int[] valores;
+    private int tamano;
+    private int mascara;
+
+    /**
+     * @param capacidadEsperada número de claves que se espera almacenar; el
+     *                          mapa crece automáticamente si se supera.
+     */
+    public MapaLargoEntero(int capacidadEsperada) {
+        int capacidad = Integer.highestOneBit(Math.max(4, capacidadEsperada * 2 - 1)) << 1;
+        this.claves = new long[capacidad];
+        this.valores = new int[capacidad];
+        Arrays.fill(this.claves, VACIA);
+        this.mascara = capacidad - 1;
+    }
+
+    /**
+     * @param clave la clave a buscar.
+     * @return el valor asociado, o {@link #AUSENTE} si la clave no existe.
+     */
+    public int obtener(long clave) {
+        int posicion = mezclar(clave) & this.mascara;
+        long actual;
+        while ((actual = this.claves[posicion]) != VACIA) {
+            if (actual == clave) {
+                return this.valores[posicion];
+            }
+            posicion = (posicion + 1) & this.mascara;
+        }
+        return AUSENTE;
+    }
+
+    /**
+     * Asocia un valor a la clave, reemplazando el anterior si existía.
+     *
+     * @param clave la clave; distinta de {@link #VACIA}.
+     * @param valor el valor.
+     */
+    public void poner(long clave, int valor) {
+        int posicion = mezclar(clave) & this.mascara;
+        long actual;
+        while ((actual = this.claves[posicion]) != VACIA) {
+            if (actual == clave) {
+                this.valores[posicion] = valor;
+                return;
+            }
+            posicion = (posicion + 1) & this.mascara;
+        }
+        this.claves[posicion] = clave;
+        this.valores[posicion] = valor;
+        if (++this.tamano * 2 > this.claves.length) {
+            redimensionar();
+        }
+    }
+
+    /**
+     * Elimina la clave, si existe, y recoloca las entradas siguientes del
+     * mismo grupo para que sigan siendo alcanzables.
+     *
+     * @param clave la clave a eliminar.
+     */
+    public void eliminar(long clave) {
+        int posicion = mezclar(clave) & this.mascara;
+        long actual;
+        while ((actual = this.claves[posicion]) != clave) {
+            if (actual == VACIA) {
+                return;
+            }
+            posicion = (posicion + 1) & this.mascara;
+        }
+        int libre = posicion;
+        int siguiente = (libre + 1) & this.mascara;
+        while ((actual = this.claves[siguiente]) != VACIA) {
+            int ideal = mezclar(actual) & this.mascara;
+            // La entrada puede ocupar el hueco si su posición ideal no está
+            // entre el hueco (exclusive) y su posición actual (inclusive).
+            if (((siguiente - ideal) & this.mascara) >= ((siguiente - libre) & this.mascara)) {
+                this.claves[libre] = actual;
+                this.valores[libre] = this.valores[siguiente];
+                libre = siguiente;
+            }
+            siguiente = (siguiente + 1) & this.mascara;
+        }
+        this.claves[libre] = VACIA;
+        this.tamano--;
+    }
+
+    public int tamano() {
+        return this.tamano;
+    }
+
+    /**
+     * @return el número de posiciones reservadas, para estimar la memoria
+     *         ocupada.
+     */
+    public int capacidad() {
+        return this.claves.length;
+    }
+
+    private void redimensionar() {
+        long[] clavesAnteriores = this.claves;
+        int[] valoresAnteriores = this.valores;
+        this.claves = new long[clavesAnteriores.length * 2];
+        this.valores = new int[clavesAnteriores.length * 2];
+        Arrays.fill(this.claves, VACIA);
+        this.mascara = this.claves.length - 1;
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            long clave = clavesAnteriores[i];
+            if (clave != VACIA) {
+                int posicion = mezclar(clave) & this.mascara;
+                while (this.claves[posicion] != VACIA) {
+                    posicion = (posicion + 1) & this.mascara;
+                }
+                this.claves[posicion] = clave;
+                this.valores[posicion] = valoresAnteriores[i];
+            }
+        }
+    }
+
+    private static int mezclar(long clave) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,83 @@
+package co.edu.unicauca.utilidades;
+
+import co.edu.unicauca.metricas.RegistroMetricas;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa en una sola operación las peticiones concurrentes con la misma clave
+ * ("single flight").
+ * <p>
+ * La primera petición de una clave lanza la operación; las que llegan
+ * mientras sigue en curso reciben el mismo resultado en lugar de lanzar otra.
+ * En cuanto la operación termina, bien o con error, la clave se libera y la
+ * siguiente petición lanza una operación nueva: no es una caché.
+ * <p>
+ * Cada llamador recibe su propia copia del futuro compartido, de modo que si
+ * uno lo cancela (por ejemplo, porque venció su plazo) los demás siguen
+ * esperando el resultado.
+ *
+ * @param <K> el tipo de la clave.
+ * @param <V> el tipo del resultado.
+ */
+public final class VueloUnico<K, V> {
+
+    private final Map<K, CompletableFuture<V>> enVuelo = new ConcurrentHashMap<>();
+    private final LongAdder lanzadas;
+    private final LongAdder compartidas;
+
+    /**
+     * @param nombre prefijo de las métricas {@code <nombre>.lanzadas},
+     *               {@code <nombre>.compartidas} y {@code <nombre>.enCurso}.
+     */
+    public VueloUnico(String nombre) {
+        RegistroMetricas metricas = RegistroMetricas.getInstancia();
+        this.lanzadas = metricas.contador(nombre + ".lanzadas");
+        this.compartidas = metricas.contador(nombre + ".compartidas");
+        metricas.registrarIndicador(nombre + ".enCurso", this.enVuelo::size);
+    }
+
+    /**
+     * Devuelve el resultado de la operación en curso para la clave o, si no
+     * hay ninguna, lanza una nueva.
+     *
+     * @param clave    la clave que identifica la operación.
+     * @param lanzador crea y arranca la operación; solo se invoca si no hay
+     *                 otra en curso con la misma clave.
+     * @return un futuro propio del llamador con el resultado compartido.
+     */
+    public CompletableFuture<V> ejecutar(K clave, Supplier<CompletableFuture<V>> lanzador) {
+        CompletableFuture<V> nuevo = new CompletableFuture<>();
+        CompletableFuture<V> existente = this.enVuelo.putIfAbsent(clave, nuevo);
+        if (existente != null) {
+            this.compartidas.increment();
+            return existente.copy();
+        }
+
+        this.lanzadas.increment();
+        try {
+            lanzador.get().whenComplete((resultado, error) -> {
+                this.enVuelo.remove(clave, nuevo);
+                if (error != null) {
+                    nuevo.completeExceptionally(error);
+                } else {
+                    nuevo.complete(resultado);
+                }
+            });
+        } catch (RuntimeException e) {
+            this.enVuelo.remove(clave, nuevo);
+            nuevo.completeExceptionally(e);
+        }
+        return nuevo.copy();
+    }
+
+    /**
+     * @return el número de operaciones en curso.
+     */
+    public int getEnCurso() {
+        return this.enVuelo.size();
+    }
+}
@@ -19,4 +19,10 @@ type ReproduccionEntity struct {
 	// FechaHora es una cadena de texto que representa la marca de tiempo
 	// (timestamp) en la que se registró la reproducción.
 	FechaHora string `json:"fechaHora"`
+
+	// Secuencia es un número creciente asignado por el repositorio a cada
+	// reproducción en el orden en que se almacena. Los clientes lo usan como
+	// cursor para pedir solo las reproducciones posteriores a la última que
+	// ya procesaron.
+	Secuencia int64 `json:"secuencia"`
 }
@@ -5,6 +5,8 @@ package repositorios
 
 import (
 	"fmt"
+	"sort"
+	"strconv"
 	"strings"
 	"sync"
 	entities "tendencias/capaAccesoDatos/entities"
@@ -15,9 +17,22 @@ import (
 // memoria. Utiliza un mutex (mu) para garantizar la seguridad en operaciones
 // concurrentes (lecturas y escrituras simultáneas) sobre el slice de
 // reproducciones.
+//
+// Además del slice global, mantiene un índice por usuario con las posiciones
+// de sus reproducciones en orden de secuencia, de modo que las consultas por
+// usuario (y las incrementales a partir de un cursor) no recorren la colección
+// completa.
+//
+// Como las reproducciones solo viven en memoria, las secuencias vuelven a
+// empezar en 1 cada vez que arranca el servidor. La época identifica el
+// arranque: los clientes que guardan cursores la comparan para saber si sus
+// secuencias siguen siendo válidas.
 type RepositorioReproducciones struct {
-	mu             sync.Mutex
-	reproducciones []entities.ReproduccionEntity
+	mu              sync.Mutex
+	reproducciones  []entities.ReproduccionEntity
+	porUsuario      map[int][]int
+	ultimaSecuencia int64
+	epoca           string
 }
 
 var (
@@ -34,7 +49,10 @@ var (
 // solo una vez, de forma segura en entornos concurrentes.
 func GetRepositorio() *RepositorioReproducciones {
 	once.Do(func() {
-		instancia = &RepositorioReproducciones{}
+		instancia = &RepositorioReproducciones{
+			porUsuario: make(map[int][]int),
+			epoca:      strconv.FormatInt(time.Now().UnixNano(), 36),
+		}
 		instancia.poblarDatosDeEjemplo()
 	})
 	return instancia
@@ -44,12 +62,15 @@ func GetRepositorio() *RepositorioReproducciones {
 // predefinidos. Este método se llama una única vez durante la creación de la
 // instancia Singleton y es útil para propósitos de prueba y demostración.
 func (r *RepositorioReproducciones) poblarDatosDeEjemplo() {
-	r.reproducciones = []entities.ReproduccionEntity{
+	ejemplos := []entities.ReproduccionEntity{
 		{IdUsuario: 1, Titulo: "Lamento Boliviano", FechaHora: "2025-10-20 10:00:00"},
 		{IdUsuario: 2, Titulo: "De Musica Ligera", FechaHora: "2025-10-20 10:05:00"},
 		{IdUsuario: 1, Titulo: "Lloraras", FechaHora: "2025-10-20 10:10:00"},
 		{IdUsuario: 1, Titulo: "Flaca", FechaHora: "2025-10-21 11:00:00"},
 	}
+	for _, ejemplo := range ejemplos {
+		r.almacenar(ejemplo)
+	}
 	fmt.Println("--> Repositorio de Reproducciones inicializado con datos de ejemplo.")
 }
 
@@ -59,7 +80,10 @@ func (r *RepositorioReproducciones) poblarDatosDeEjemplo() {
 // Antes de almacenar, limpia el título de la canción para eliminar la extensión
 // ".mp3" si está presente, garantizando la consistencia de los datos. La
 // operación está protegida por un mutex para evitar condiciones de carrera.
-func (r *RepositorioReproducciones) AgregarReproduccion(idUsuario int, titulo string) {
+//
+// Devuelve la reproducción almacenada (con su secuencia) y la secuencia de la
+// reproducción anterior del mismo usuario, o 0 si es la primera.
+func (r *RepositorioReproducciones) AgregarReproduccion(idUsuario int, titulo string) (entities.ReproduccionEntity, int64) {
 	r.mu.Lock()
 	defer r.mu.Unlock()
 
@@ -71,8 +95,32 @@ func (r *RepositorioReproducciones) AgregarReproduccion(idUsuario int, titulo st
 		FechaHora: time.Now().Format("2006-01-02 15:04:05"),
 	}
 
-	r.reproducciones = append(r.reproducciones, nuevaReproduccion)
+	var secuenciaAnterior int64
+	if posiciones := r.porUsuario[idUsuario]; len(posiciones) > 0 {
+		secuenciaAnterior = r.reproducciones[posiciones[len(posiciones)-1]].Secuencia
+	}
+
+	nuevaReproduccion = r.almacenar(nuevaReproduccion)
 	fmt.Printf("--> Reproduccion almacenada en el repositorio: %+v\n", nuevaReproduccion)
+	return nuevaReproduccion, secuenciaAnterior
+}
+
+// almacenar asigna la siguiente secuencia a la reproducción, la añade a la
+// colección y actualiza el índice por usuario. Debe llamarse con el mutex
+// adquirido (o durante la inicialización del Singleton).
+func (r *RepositorioReproducciones) almacenar(reproduccion entities.ReproduccionEntity) entities.ReproduccionEntity {
+	r.ultimaSecuencia++
+	reproduccion.Secuencia = r.ultimaSecuencia
+	r.porUsuario[reproduccion.IdUsuario] = append(r.porUsuario[reproduccion.IdUsuario], len(r.reproducciones))
+	r.reproducciones = append(r.reproducciones, reproduccion)
+	return reproduccion
+}
+
+// Epoca devuelve el identificador del arranque del repositorio. Cambia cada
+// vez que se reinicia el servidor, es decir, cada vez que las secuencias
+// vuelven a empezar.
+func (r *RepositorioReproducciones) Epoca() string {
+	return r.epoca
 }
 
 // ListarTodasLasReproducciones devuelve un slice con todos los registros de
@@ -84,22 +132,55 @@ func (r *RepositorioReproducciones) ListarTodasLasReproducciones() []entities.Re
 	return r.reproducciones
 }
 
+// ListarReproduccionesDesde devuelve las reproducciones de todos los usuarios
+// cuya secuencia es estrictamente mayor que desde, en orden de secuencia, y la
+// mayor secuencia almacenada en ese momento. Con desde igual a 0 se obtiene el
+// listado completo.
+//
+// Como la colección está ordenada por secuencia, el inicio se localiza con una
+// búsqueda binaria y el resultado comparte el arreglo de la colección sin
+// copiarlo: las reproducciones nuevas se añaden detrás sin modificar las ya
+// devueltas. La operación está protegida por un mutex.
+func (r *RepositorioReproducciones) ListarReproduccionesDesde(desde int64) ([]entities.ReproduccionEntity, int64) {
+	r.mu.Lock()
+	defer r.mu.Unlock()
+
+	inicio := sort.Search(len(r.reproducciones), func(i int) bool {
+		return r.reproducciones[i].Secuencia > desde
+	})
+	return r.reproducciones[inicio:], r.ultimaSecuencia
+}
+
 // ListarReproduccionesPorUsuario busca y devuelve todos los registros de
 // reproducción asociados a un identificador de usuario específico.
 //
-// Itera sobre la colección completa y filtra los resultados. La operación está
-// protegida por un mutex.
+// Recorre únicamente el índice del usuario. La operación está protegida por
+// un mutex.
 func (r *RepositorioReproducciones) ListarReproduccionesPorUsuario(idUsuario int) []entities.ReproduccionEntity {
+	return r.ListarReproduccionesPorUsuarioDesde(idUsuario, 0)
+}
+
+// ListarReproduccionesPorUsuarioDesde devuelve las reproducciones de un usuario
+// cuya secuencia es estrictamente mayor que desde, en orden de secuencia.
+//
+// Como el índice del usuario está ordenado por secuencia, el inicio se localiza
+// con una búsqueda binaria y el coste es proporcional al número de
+// reproducciones devueltas. Con desde igual a 0 se obtiene el historial
+// completo. La operación está protegida por un mutex.
+func (r *RepositorioReproducciones) ListarReproduccionesPorUsuarioDesde(idUsuario int, desde int64) []entities.ReproduccionEntity {
 	r.mu.Lock()
 	defer r.mu.Unlock()
 
-	reproduccionesDelUsuario := []entities.ReproduccionEntity{}
-	for _, repro := range r.reproducciones {
-		if repro.IdUsuario == idUsuario {
-			reproduccionesDelUsuario = append(reproduccionesDelUsuario, repro)
-		}
+	posiciones := r.porUsuario[idUsuario]
+	inicio := sort.Search(len(posiciones), func(i int) bool {
+		return r.reproducciones[posiciones[i]].Secuencia > desde
+	})
+
+	reproduccionesDelUsuario := make([]entities.ReproduccionEntity, 0, len(posiciones)-inicio)
+	for _, posicion := range posiciones[inicio:] {
+		reproduccionesDelUsuario = append(reproduccionesDelUsuario, r.reproducciones[posicion])
 	}
 
-	fmt.Printf("--> Consulta al repositorio: Se encontraron %d reproducciones para el usuario %d\n", len(reproduccionesDelUsuario), idUsuario)
+	fmt.Printf("--> Consulta al repositorio: Se encontraron %d reproducciones para el usuario %d desde la secuencia %d\n", len(reproduccionesDelUsuario), idUsuario, desde)
 	return reproduccionesDelUsuario
 }
@@ -14,6 +14,16 @@ import (
 	"tendencias/capaFachadaServices/fachada"
 )
 
+// Cabeceras de las respuestas de GET /reproducciones.
+const (
+	// CabeceraEpoca identifica el arranque del servidor; las secuencias solo
+	// son comparables entre respuestas con la misma época.
+	CabeceraEpoca = "X-Epoca-Reproducciones"
+	// CabeceraUltimaSecuencia es la mayor secuencia almacenada al obtener el
+	// listado de todos los usuarios: el listado incluye todas las anteriores.
+	CabeceraUltimaSecuencia = "X-Ultima-Secuencia"
+)
+
 // ControladorTendencias encapsula las dependencias necesarias para los handlers,
 // como la referencia a la fachada de negocio.
 type ControladorTendencias struct {
@@ -60,10 +70,19 @@ func (c *ControladorTendencias) RegistrarReproduccionHandler(w http.ResponseWrit
 // parámetro de consulta (query param):
 //   - Si se incluye el parámetro `idUsuario` (ej. /reproducciones?idUsuario=1),
 //     obtiene y devuelve solo las reproducciones de ese usuario.
+//   - Si además se incluye `desde` (ej. /reproducciones?idUsuario=1&desde=42),
+//     devuelve solo las reproducciones de ese usuario con secuencia mayor que
+//     `desde`, para que los clientes consulten el historial de forma incremental.
 //   - Si no se incluye el parámetro, obtiene y devuelve el listado completo de
-//     todas las reproducciones almacenadas.
+//     todas las reproducciones almacenadas; con `desde`
+//     (ej. /reproducciones?desde=42), solo las de todos los usuarios con
+//     secuencia mayor que `desde`.
 //
-// La respuesta siempre se codifica en formato JSON.
+// La respuesta siempre se codifica en formato JSON. Lleva además la cabecera
+// X-Epoca-Reproducciones, que cambia cada vez que arranca el servidor (y con
+// él las secuencias vuelven a empezar), y en el listado de todos los usuarios
+// la cabecera X-Ultima-Secuencia, con la mayor secuencia almacenada al
+// obtenerlo.
 func (c *ControladorTendencias) ListarReproduccionesHandler(w http.ResponseWriter, r *http.Request) {
 	fmt.Println("--> Controlador: Peticion GET a /reproducciones recibida.")
 
@@ -73,8 +92,18 @@ func (c *ControladorTendencias) ListarReproduccionesHandler(w http.ResponseWrite
 	}
 
 	idUsuarioStr := r.URL.Query().Get("idUsuario")
+	var desde int64
+	if desdeStr := r.URL.Query().Get("desde"); desdeStr != "" {
+		valor, err := strconv.ParseInt(desdeStr, 10, 64)
+		if err != nil || valor < 0 {
+			http.Error(w, "El parametro 'desde' debe ser un numero entero no negativo.", http.StatusBadRequest)
+			return
+		}
+		desde = valor
+	}
 
 	var reproducciones interface{}
+	w.Header().Set(CabeceraEpoca, c.fachada.EpocaReproducciones())
 
 	if idUsuarioStr != "" {
 		idUsuario, err := strconv.Atoi(idUsuarioStr)
@@ -82,9 +111,15 @@ func (c *ControladorTendencias) ListarReproduccionesHandler(w http.ResponseWrite
 			http.Error(w, "El parametro 'idUsuario' debe ser un numero entero.", http.StatusBadRequest)
 			return
 		}
-		reproducciones = c.fachada.ObtenerReproduccionesPorUsuario(idUsuario)
+		if desde > 0 {
+			reproducciones = c.fachada.ObtenerReproduccionesPorUsuarioDesde(idUsuario, desde)
+		} else {
+			reproducciones = c.fachada.ObtenerReproduccionesPorUsuario(idUsuario)
+		}
 	} else {
-		reproducciones = c.fachada.ObtenerTodasLasReproducciones()
+		todas, ultimaSecuencia := c.fachada.ObtenerReproduccionesDesde(desde)
+		w.Header().Set(CabeceraUltimaSecuencia, strconv.FormatInt(ultimaSecuencia, 10))
+		reproducciones = todas
 	}
 
 	w.Header().Set("Content-Type", "application/json")
@@ -4,29 +4,58 @@ import (
 	"fmt"
 	entities "tendencias/capaAccesoDatos/entities"
 	"tendencias/capaAccesoDatos/repositorios"
+	componenteconexioncola "tendencias/componenteConexionCola"
 )
 
 type FachadaTendencias struct {
-	repo *repositorios.RepositorioReproducciones
+	repo         *repositorios.RepositorioReproducciones
+	conexionCola *componenteconexioncola.RabbitPublisher
 }
 
 // NuevaFachadaTendencias es el constructor de la fachada.
+// Si la conexión a RabbitMQ falla, se registra un error pero la fachada sigue
+// funcionando: las reproducciones se almacenan igual, el publisher vuelve a
+// intentar la conexión al publicar y, mientras tanto, los consumidores se
+// ponen al día consultando el historial.
 func NuevaFachadaTendencias() *FachadaTendencias {
 	fmt.Println("--> Inicializando Fachada de Tendencias...")
+
+	conexionCola, err := componenteconexioncola.NewRabbitPublisher()
+	if err != nil {
+		fmt.Println("--> Error al conectar con RabbitMQ, se reintentara al publicar eventos de reproduccion:", err)
+	}
+
 	return &FachadaTendencias{
-		repo: repositorios.GetRepositorio(),
+		repo:         repositorios.GetRepositorio(),
+		conexionCola: conexionCola,
 	}
 }
 
 /**
  * Fachada para registrar una nueva reproducción.
  * Recibe el id del usuario y el título de la canción.
- * Delega la lógica de almacenamiento al repositorio.
+ * Delega la lógica de almacenamiento al repositorio y, una vez almacenada,
+ * publica el evento de reproducción en RabbitMQ (si la conexión está
+ * disponible). Un fallo al publicar no interrumpe el registro.
  */
 func (f *FachadaTendencias) RegistrarReproduccion(idUsuario int, titulo string) {
 	// ECO: Imprime que la petición ha llegado a la fachada.
 	fmt.Printf("--> Fachada: Peticion para registrar reproduccion del usuario %d, cancion '%s'\n", idUsuario, titulo)
-	f.repo.AgregarReproduccion(idUsuario, titulo)
+	reproduccion, secuenciaAnterior := f.repo.AgregarReproduccion(idUsuario, titulo)
+
+	if f.conexionCola != nil {
+		evento := componenteconexioncola.EventoReproduccion{
+			IdUsuario:         reproduccion.IdUsuario,
+			Titulo:            reproduccion.Titulo,
+			FechaHora:         reproduccion.FechaHora,
+			Secuencia:         reproduccion.Secuencia,
+			SecuenciaAnterior: secuenciaAnterior,
+			Epoca:             f.repo.Epoca(),
+		}
+		if err := f.conexionCola.PublicarEvento(evento); err != nil {
+			fmt.Printf("--> Advertencia: no se pudo publicar el evento de reproduccion: %v\n", err)
+		}
+	}
 }
 
 /**
@@ -39,6 +68,17 @@ func (f *FachadaTendencias) ObtenerTodasLasReproducciones() []entities.Reproducc
 	return f.repo.ListarTodasLasReproducciones()
 }
 
+/**
+ * Fachada para obtener las reproducciones de todos los usuarios posteriores a
+ * una secuencia dada, junto con la mayor secuencia almacenada.
+ * Delega la llamada al repositorio.
+ */
+func (f *FachadaTendencias) ObtenerReproduccionesDesde(desde int64) ([]entities.ReproduccionEntity, int64) {
+	// ECO: Imprime que la petición ha llegado a la fachada.
+	fmt.Printf("--> Fachada: Peticion para obtener todas las reproducciones desde la secuencia %d\n", desde)
+	return f.repo.ListarReproduccionesDesde(desde)
+}
+
 /**
  * Fachada para obtener las reproducciones de un usuario específico.
  * Delega la llamada al repositorio.
@@ -48,3 +88,23 @@ func (f *FachadaTendencias) ObtenerReproduccionesPorUsuario(idUsuario int) []ent
 	fmt.Printf("--> Fachada: Peticion para obtener reproducciones del usuario %d\n", idUsuario)
 	return f.repo.ListarReproduccionesPorUsuario(idUsuario)
 }
+
+/**
+ * Fachada para obtener solo las reproducciones de un usuario posteriores a
+ * una secuencia dada (consulta incremental).
+ * Delega la llamada al repositorio.
+ */
+func (f *FachadaTendencias) ObtenerReproduccionesPorUsuarioDesde(idUsuario int, desde int64) []entities.ReproduccionEntity {
+	// ECO: Imprime que la petición ha llegado a la fachada.
+	fmt.Printf("--> Fachada: Peticion para obtener reproducciones del usuario %d desde la secuencia %d\n", idUsuario, desde)
+	return f.repo.ListarReproduccionesPorUsuarioDesde(idUsuario, desde)
+}
+
+/**
+ * Fachada para obtener la época del repositorio, que cambia cada vez que las
+ * secuencias vuelven a empezar.
+ * Delega la llamada al repositorio.
+ */
+func (f *FachadaTendencias) EpocaReproducciones() string {
+	return f.repo.Epoca()
+}
@@ -1,3 +1,5 @@
 module tendencias
 
 go 1.24.5
+
+require github.com/streadway/amqp v1.1.0
@@ -45,6 +45,8 @@ func main() {
 	fmt.Println("Endpoints disponibles:")
 	fmt.Println("  - POST /reproducciones")
 	fmt.Println("  - GET  /reproducciones?idUsuario={id}")
+	fmt.Println("  - GET  /reproducciones?idUsuario={id}&desde={secuencia}")
+	fmt.Println("  - GET  /reproducciones?desde={secuencia}")
 
 	// http.ListenAndServe inicia el servidor y bloquea la ejecución, esperando
 	// indefinidamente por nuevas peticiones. Si la función retorna un error